@@ -0,0 +1,89 @@
+package com.udacity.catpoint2.benchmark;
+
+import com.udacity.catpoint2.data.ArmingStatus;
+import com.udacity.catpoint2.data.InMemorySecurityRepository;
+import com.udacity.catpoint2.data.Sensor;
+import com.udacity.catpoint2.service.SecurityService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Arming and disarming with large sensor sets. Arming resets every active sensor, so each
+ * invocation is a whole cycle: switch a share of the sensors on as one batch, arm, and disarm
+ * again. That keeps the state the same from one invocation to the next without a per-invocation
+ * setup, whose timestamping costs more than arming a small system. reactivateAndDisarm is the
+ * cycle without the arming, so arming itself costs the difference between the two.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArmingBenchmark {
+
+    @Param({"10", "1000", "10000", "100000"})
+    public int sensorCount;
+
+    /** Percentage of sensors that are active when the system is armed */
+    @Param({"0", "10", "100"})
+    public int activePercent;
+
+    private SecurityService securityService;
+    private Sensor[] activeSensors;
+    private boolean[] activeStates;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        securityService = new SecurityService(new InMemorySecurityRepository(), () -> false);
+        List<Sensor> sensors = BenchmarkSensors.create(sensorCount);
+        sensors.forEach(securityService::addSensor);
+        activeSensors = sensors.subList(0, sensorCount * activePercent / 100).toArray(new Sensor[0]);
+        activeStates = new boolean[activeSensors.length];
+        Arrays.fill(activeStates, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        securityService.close();
+    }
+
+    @Benchmark
+    public void armSystem() {
+        activate();
+        securityService.armSystem(ArmingStatus.ARMED_AWAY);
+        securityService.setArmingStatus(ArmingStatus.DISARMED);
+    }
+
+    @Benchmark
+    public void setArmingStatusHome() {
+        activate();
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        securityService.setArmingStatus(ArmingStatus.DISARMED);
+    }
+
+    @Benchmark
+    public void reactivateAndDisarm() {
+        activate();
+        securityService.setArmingStatus(ArmingStatus.DISARMED);
+    }
+
+    private void activate() {
+        securityService.changeSensorActivationStatuses(activeSensors, activeStates, activeSensors.length);
+    }
+}
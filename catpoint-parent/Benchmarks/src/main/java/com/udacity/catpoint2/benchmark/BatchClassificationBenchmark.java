@@ -0,0 +1,87 @@
+package com.udacity.catpoint2.benchmark;
+
+import com.udacity.catpoint.service.ClassificationResult;
+import com.udacity.catpoint.service.ImageService;
+import com.udacity.catpoint.service.MicroBatchingImageService;
+import com.udacity.catpoint.service.PipelinedImageService;
+import com.udacity.catpoint.service.StubRemoteImageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to classify one frame from each of a number of cameras through a stub remote service with
+ * a 2 ms round trip, sent one request per frame in a row, with the requests overlapped by
+ * PipelinedImageService, or combined into batches by MicroBatchingImageService.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchClassificationBenchmark {
+
+    private static final int LATENCY_MILLIS = 2;
+
+    @Param({"4", "32"})
+    public int cameraCount;
+
+    private List<BufferedImage> frames;
+    private ImageService sequential;
+    private PipelinedImageService pipelined;
+    private MicroBatchingImageService microBatched;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ImageService answers = () -> false;
+        frames = new ArrayList<>();
+        for (int i = 0; i < cameraCount; i++) {
+            frames.add(new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB));
+        }
+        sequential = new StubRemoteImageService(answers, LATENCY_MILLIS, TimeUnit.MILLISECONDS);
+        pipelined = new PipelinedImageService(new StubRemoteImageService(answers, LATENCY_MILLIS, TimeUnit.MILLISECONDS), 8);
+        microBatched = new MicroBatchingImageService(new StubRemoteImageService(answers, LATENCY_MILLIS, TimeUnit.MILLISECONDS),
+                16, 1, TimeUnit.MILLISECONDS, 4);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pipelined.close();
+        microBatched.close();
+    }
+
+    @Benchmark
+    public List<ClassificationResult> sequential() {
+        List<ClassificationResult> results = new ArrayList<>(frames.size());
+        for (BufferedImage frame : frames) {
+            results.add(sequential.classify(frame, 50f));
+        }
+        return results;
+    }
+
+    @Benchmark
+    public List<ClassificationResult> pipelined() {
+        return pipelined.classifyAll(frames, 50f);
+    }
+
+    @Benchmark
+    public List<ClassificationResult> microBatched() {
+        return microBatched.classifyAll(frames, 50f);
+    }
+}
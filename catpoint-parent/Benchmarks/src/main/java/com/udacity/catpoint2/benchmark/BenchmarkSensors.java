@@ -0,0 +1,28 @@
+package com.udacity.catpoint2.benchmark;
+
+import com.udacity.catpoint2.data.Sensor;
+import com.udacity.catpoint2.data.SensorType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the sensor sets the benchmarks run against.
+ */
+final class BenchmarkSensors {
+
+    private BenchmarkSensors() {
+    }
+
+    /**
+     * @return count inactive sensors cycling through every SensorType
+     */
+    static List<Sensor> create(int count) {
+        SensorType[] types = SensorType.values();
+        List<Sensor> sensors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            sensors.add(new Sensor("Sensor " + i, types[i % types.length]));
+        }
+        return sensors;
+    }
+}
@@ -0,0 +1,100 @@
+package com.udacity.catpoint2.benchmark;
+
+import com.udacity.catpoint.camera.CameraStats;
+import com.udacity.catpoint.camera.CameraStream;
+import com.udacity.catpoint.camera.MjpegCameraSource;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams synthetic 640x480 MJPEG cameras at 30 fps and reports, per camera, the frame rate
+ * sustained, frames dropped, decode latency and the bytes the decoder thread allocated per frame.
+ *
+ * Usage: CameraStreamEvaluation [cameras] [seconds]
+ * Defaults to 4 cameras for 10 seconds. Frames are sampled to a sink that completes at once.
+ */
+public class CameraStreamEvaluation {
+
+    private static final double FRAMES_PER_SECOND = 30;
+
+    public static void main(String[] args) throws Exception {
+        int cameras = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        byte[] mjpeg = mjpeg((int) (FRAMES_PER_SECOND * seconds));
+
+        List<CameraStream> streams = new ArrayList<>();
+        for (int i = 0; i < cameras; i++) {
+            CameraStream stream = new CameraStream("camera" + i, new MjpegCameraSource(new ByteArrayInputStream(mjpeg), FRAMES_PER_SECOND),
+                    30, 1, TimeUnit.SECONDS, (cameraId, image) -> CompletableFuture.completedFuture(null));
+            streams.add(stream);
+            stream.start();
+        }
+        //measure allocation once the decoders are warmed up
+        Thread.sleep(1000);
+        List<Thread> decoders = new ArrayList<>();
+        long[] allocatedAtStart = new long[cameras];
+        long[] decodedAtStart = new long[cameras];
+        for (int i = 0; i < cameras; i++) {
+            decoders.add(thread("camera-camera" + i + "-decoder"));
+            allocatedAtStart[i] = allocatedBytes(decoders.get(i));
+            decodedAtStart[i] = streams.get(i).getStats().getFramesDecoded();
+        }
+        long[] allocated = new long[cameras];
+        long[] decoded = new long[cameras];
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds) - 2000);
+        for (int i = 0; i < cameras; i++) {
+            allocated[i] = allocatedBytes(decoders.get(i)) - allocatedAtStart[i];
+            decoded[i] = streams.get(i).getStats().getFramesDecoded() - decodedAtStart[i];
+        }
+
+        System.out.printf("%-10s %8s %8s %8s %10s %10s %14s%n", "camera", "decoded", "fps", "dropped", "mean ms", "max ms", "bytes/frame");
+        for (int i = 0; i < cameras; i++) {
+            CameraStats stats = streams.get(i).getStats();
+            System.out.printf("%-10s %8d %8.1f %8d %10.2f %10.2f %14s%n", streams.get(i).getCameraId(), stats.getFramesDecoded(),
+                    stats.getDecodedFramesPerSecond(), stats.getFramesDropped(), stats.getMeanDecodeMillis(),
+                    stats.getMaxDecodeMillis(), allocated[i] < 0 ? "n/a" : String.valueOf(allocated[i] / Math.max(1, decoded[i])));
+            streams.get(i).close();
+        }
+    }
+
+    /**
+     * @return bytes allocated by the thread so far, or -1 if the JVM doesn't report it
+     */
+    private static long allocatedBytes(Thread thread) {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (thread != null && bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(thread.getId());
+        }
+        return -1;
+    }
+
+    private static Thread thread(String name) {
+        return Thread.getAllStackTraces().keySet().stream().filter(t -> t.getName().equals(name)).findFirst().orElse(null);
+    }
+
+    private static byte[] mjpeg(int frames) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        for (int i = 0; i < frames; i++) {
+            g.setColor(new Color(40, 90 + i % 60, 140));
+            g.fillRect(0, 0, 640, 480);
+            g.setColor(Color.ORANGE);
+            g.fillOval((i * 7) % 560, 200, 80, 60);
+            ImageIO.write(image, "jpg", stream);
+        }
+        g.dispose();
+        return stream.toByteArray();
+    }
+}
@@ -0,0 +1,107 @@
+package com.udacity.catpoint2.benchmark;
+
+import com.udacity.catpoint.service.LocalImageService;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Evaluates LocalImageService against labelled sample images and reports precision, recall and
+ * per-image latency.
+ *
+ * Usage: ClassifierEvaluation [image directory] [confidence threshold]
+ * The directory defaults to starter/catpoint-parent, run from the repository root, and the threshold
+ * to 50. Every .jpg or .png in it is used; a file whose name contains "not" is expected to show no
+ * cat, and any other file whose name contains "cat" is expected to show one.
+ *
+ * The bundled model's weights were fitted to the default sample images, so scoring those only
+ * checks that the model still fits its training set; the output says so. Only a directory of
+ * images the model has never seen measures how well it classifies.
+ */
+public class ClassifierEvaluation {
+
+    //the images the weights in local-cat-model.properties were fitted to
+    private static final Path TRAINING_IMAGES = Paths.get("starter/catpoint-parent");
+
+    private static final int WARMUP_RUNS = 10;
+    private static final int MEASURED_RUNS = 50;
+
+    public static void main(String[] args) throws IOException {
+        Path directory = args.length > 0 ? Paths.get(args[0]) : TRAINING_IMAGES;
+        float threshold = args.length > 1 ? Float.parseFloat(args[1]) : 50f;
+        LocalImageService classifier = new LocalImageService();
+        boolean trainingSet = directory.toAbsolutePath().normalize().equals(TRAINING_IMAGES.toAbsolutePath().normalize());
+        if (trainingSet) {
+            System.out.println("training-set check: the model was fitted to these images, so the scores below show");
+            System.out.println("how well it fits them, not how well it classifies new ones");
+            System.out.println();
+        }
+
+        int truePositives = 0;
+        int falsePositives = 0;
+        int falseNegatives = 0;
+        int trueNegatives = 0;
+        System.out.printf("%-32s %-8s %10s %-8s %12s %12s%n", "image", "expected", "confidence", "result", "median ms", "max ms");
+        for (Path file : sampleImages(directory)) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            boolean expected = !name.contains("not");
+            BufferedImage image = ImageIO.read(file.toFile());
+            if (image == null) {
+                System.out.println(file.getFileName() + ": not a readable image, skipped");
+                continue;
+            }
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                classifier.imageContainsCat(image, threshold);
+            }
+            long[] nanos = new long[MEASURED_RUNS];
+            boolean cat = false;
+            for (int i = 0; i < MEASURED_RUNS; i++) {
+                long start = System.nanoTime();
+                cat = classifier.imageContainsCat(image, threshold);
+                nanos[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(nanos);
+            System.out.printf("%-32s %-8s %9.1f%% %-8s %12.3f %12.3f%n", file.getFileName(), expected ? "cat" : "no cat",
+                    classifier.confidence(image), cat ? "cat" : "no cat",
+                    nanos[MEASURED_RUNS / 2] / 1e6, nanos[MEASURED_RUNS - 1] / 1e6);
+            if (cat && expected) {
+                truePositives++;
+            } else if (cat) {
+                falsePositives++;
+            } else if (expected) {
+                falseNegatives++;
+            } else {
+                trueNegatives++;
+            }
+        }
+        System.out.printf("%ntp=%d fp=%d fn=%d tn=%d%n", truePositives, falsePositives, falseNegatives, trueNegatives);
+        System.out.printf("%sprecision=%s recall=%s%n", trainingSet ? "training-set " : "",
+                ratio(truePositives, truePositives + falsePositives), ratio(truePositives, truePositives + falseNegatives));
+    }
+
+    private static List<Path> sampleImages(Path directory) throws IOException {
+        List<Path> images = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.{jpg,jpeg,png}")) {
+            for (Path file : files) {
+                if (file.getFileName().toString().toLowerCase(Locale.ROOT).contains("cat")) {
+                    images.add(file);
+                }
+            }
+        }
+        images.sort(null);
+        return images;
+    }
+
+    private static String ratio(int numerator, int denominator) {
+        return denominator == 0 ? "n/a" : String.format("%.2f", (double) numerator / denominator);
+    }
+}
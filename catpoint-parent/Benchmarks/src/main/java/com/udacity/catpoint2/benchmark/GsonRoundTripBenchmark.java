@@ -0,0 +1,66 @@
+package com.udacity.catpoint2.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.udacity.catpoint2.data.Sensor;
+import com.udacity.catpoint2.data.SensorRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Type;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing and deserializing the sensor set the same way PretendDatabaseSecurityRepositoryImpl
+ * stores it, independent of the Preferences backend.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GsonRoundTripBenchmark {
+
+    private static final Type SENSOR_SET = new TypeToken<Set<Sensor>>() {
+    }.getType();
+
+    @Param({"10", "1000", "100000"})
+    public int sensorCount;
+
+    private final Gson gson = new Gson();
+    private SensorRegistry sensors;
+    private String json;
+
+    @Setup
+    public void setUp() {
+        sensors = new SensorRegistry();
+        sensors.addAll(BenchmarkSensors.create(sensorCount));
+        json = gson.toJson(sensors);
+    }
+
+    @Benchmark
+    public String serialize() {
+        return gson.toJson(sensors);
+    }
+
+    @Benchmark
+    public Set<Sensor> deserialize() {
+        return gson.fromJson(json, SENSOR_SET);
+    }
+
+    @Benchmark
+    public Set<Sensor> roundTrip() {
+        return gson.fromJson(gson.toJson(sensors), SENSOR_SET);
+    }
+}
@@ -0,0 +1,62 @@
+package com.udacity.catpoint2.benchmark;
+
+import com.udacity.catpoint2.data.ArmingStatus;
+import com.udacity.catpoint2.data.InMemorySecurityRepository;
+import com.udacity.catpoint2.data.Sensor;
+import com.udacity.catpoint2.service.SecurityService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service-side cost of processImage. The stub image service alternates between cat and no cat
+ * without doing any work, so the figures cover only the alarm logic and listener notification.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImageProcessingBenchmark {
+
+    @Param({"10", "100000"})
+    public int sensorCount;
+
+    @Param({"DISARMED", "ARMED_HOME"})
+    public ArmingStatus armingStatus;
+
+    private SecurityService securityService;
+    private boolean cat;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        securityService = new SecurityService(new InMemorySecurityRepository(), () -> cat = !cat);
+        for (Sensor sensor : BenchmarkSensors.create(sensorCount)) {
+            securityService.addSensor(sensor);
+        }
+        securityService.setArmingStatus(armingStatus);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        securityService.close();
+    }
+
+    @Benchmark
+    public void processImage() {
+        securityService.processImage();
+    }
+}
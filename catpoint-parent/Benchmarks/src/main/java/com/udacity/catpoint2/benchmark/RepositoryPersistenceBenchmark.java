@@ -0,0 +1,80 @@
+package com.udacity.catpoint2.benchmark;
+
+import com.udacity.catpoint2.data.AlarmStatus;
+import com.udacity.catpoint2.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint2.data.Sensor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistence cost of PretendDatabaseSecurityRepositoryImpl, which stores each sensor under its own
+ * Preferences key, so updating one sensor should cost the same however many there are.
+ *
+ * The forked JVM points java.util.prefs.userRoot at the build directory so the benchmark never
+ * touches the real application's stored state.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.util.prefs.userRoot=target/jmh-prefs")
+public class RepositoryPersistenceBenchmark {
+
+    @Param({"1", "50", "5000"})
+    public int sensorCount;
+
+    private PretendDatabaseSecurityRepositoryImpl repository;
+    private List<Sensor> sensors;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new PretendDatabaseSecurityRepositoryImpl();
+        for (Sensor sensor : new ArrayList<>(repository.getSensors())) {
+            repository.removeSensor(sensor);
+        }
+        sensors = BenchmarkSensors.create(sensorCount);
+        sensors.forEach(repository::addSensor);
+    }
+
+    @Benchmark
+    public void updateSensor() {
+        Sensor sensor = sensors.get(next);
+        next = next + 1 == sensors.size() ? 0 : next + 1;
+        sensor.setActive(!sensor.getActive());
+        repository.updateSensor(sensor);
+    }
+
+    @Benchmark
+    public void updateAllSensors() {
+        for (Sensor sensor : sensors) {
+            sensor.setActive(!sensor.getActive());
+        }
+        repository.updateSensors(sensors);
+    }
+
+    @Benchmark
+    public void setAlarmStatus() {
+        repository.setAlarmStatus(next++ % 2 == 0 ? AlarmStatus.PENDING_ALARM : AlarmStatus.NO_ALARM);
+    }
+
+    @Benchmark
+    public PretendDatabaseSecurityRepositoryImpl load() {
+        return new PretendDatabaseSecurityRepositoryImpl();
+    }
+}
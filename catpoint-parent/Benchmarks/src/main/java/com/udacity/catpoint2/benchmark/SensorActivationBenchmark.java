@@ -0,0 +1,66 @@
+package com.udacity.catpoint2.benchmark;
+
+import com.udacity.catpoint2.data.ArmingStatus;
+import com.udacity.catpoint2.data.InMemorySecurityRepository;
+import com.udacity.catpoint2.data.Sensor;
+import com.udacity.catpoint2.service.SecurityService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a single sensor changing state, which is the hottest path in the service: every
+ * sensor event from the GUI or the event pipeline goes through changeSensorActivationStatus.
+ * Sensors are toggled round-robin so the alarm state machine keeps moving between its states.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensorActivationBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int sensorCount;
+
+    @Param({"DISARMED", "ARMED_AWAY"})
+    public ArmingStatus armingStatus;
+
+    private SecurityService securityService;
+    private List<Sensor> sensors;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        securityService = new SecurityService(new InMemorySecurityRepository(), () -> false);
+        sensors = BenchmarkSensors.create(sensorCount);
+        sensors.forEach(securityService::addSensor);
+        securityService.setArmingStatus(armingStatus);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        securityService.close();
+    }
+
+    @Benchmark
+    public void toggleSensor() {
+        Sensor sensor = sensors.get(next);
+        next = next + 1 == sensors.size() ? 0 : next + 1;
+        securityService.changeSensorActivationStatus(sensor, !sensor.getActive());
+    }
+}
@@ -0,0 +1,134 @@
+package com.udacity.catpoint2.benchmark;
+
+import com.udacity.catpoint.service.FakeImageService;
+import com.udacity.catpoint2.data.ArmingStatus;
+import com.udacity.catpoint2.data.MappedFileSecurityRepositoryImpl;
+import com.udacity.catpoint2.data.SecurityRepository;
+import com.udacity.catpoint2.data.Sensor;
+import com.udacity.catpoint2.data.WriteAheadLogSecurityRepositoryImpl;
+import com.udacity.catpoint2.service.SecurityService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Loads a large installation into a file-based repository and reports what it costs: the time to
+ * add the sensors, the time to start again from the stored state, the time to arm, the latency of
+ * single sensor toggles while armed and the heap the loaded system uses.
+ *
+ * Usage: SensorScaleEvaluation [sensors] [wal|mapped]
+ * Defaults to 50000 sensors in the write-ahead log repository. The data lives in a temporary
+ * directory that is deleted afterwards.
+ */
+public class SensorScaleEvaluation {
+
+    private static final int TOGGLES = 20_000;
+    //sensors left active before arming, so arming has sensors to reset
+    private static final double ACTIVE_FRACTION = 0.1;
+
+    public static void main(String[] args) throws Exception {
+        int sensorCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        String kind = args.length > 1 ? args[1] : "wal";
+        Path directory = Files.createTempDirectory("catpoint-scale");
+        try {
+            long heapBefore = usedHeap();
+
+            SecurityRepository repository = open(kind, directory);
+            SecurityService securityService = new SecurityService(repository, new FakeImageService());
+            securityService.setSensorLimit(sensorCount);
+            long start = System.nanoTime();
+            BenchmarkSensors.create(sensorCount).forEach(securityService::addSensor);
+            long addNanos = System.nanoTime() - start;
+            securityService.close();
+            close(repository);
+
+            start = System.nanoTime();
+            repository = open(kind, directory);
+            securityService = new SecurityService(repository, new FakeImageService());
+            securityService.setSensorLimit(sensorCount);
+            int loaded = securityService.getSensorCount();
+            long startupNanos = System.nanoTime() - start;
+            long heapLoaded = usedHeap() - heapBefore;
+
+            List<Sensor> sensors = new ArrayList<>(securityService.getSortedSensors());
+            for (int i = 0; i < sensors.size() * ACTIVE_FRACTION; i++) {
+                securityService.changeSensorActivationStatus(sensors.get(i), true);
+            }
+            start = System.nanoTime();
+            securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+            long armNanos = System.nanoTime() - start;
+
+            Random random = new Random(42);
+            long[] toggleNanos = new long[TOGGLES];
+            for (int i = 0; i < TOGGLES; i++) {
+                Sensor sensor = sensors.get(random.nextInt(sensors.size()));
+                start = System.nanoTime();
+                securityService.changeSensorActivationStatus(sensor, !sensor.getActive());
+                toggleNanos[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(toggleNanos);
+            securityService.close();
+            close(repository);
+
+            System.out.printf("repository        %s%n", kind);
+            System.out.printf("sensors           %d (%d after reload)%n", sensorCount, loaded);
+            System.out.printf("add all           %d ms%n", TimeUnit.NANOSECONDS.toMillis(addNanos));
+            System.out.printf("startup           %d ms%n", TimeUnit.NANOSECONDS.toMillis(startupNanos));
+            System.out.printf("arm               %.2f ms%n", armNanos / 1e6);
+            System.out.printf("toggle            %.1f us p50 / %.1f us p99 / %.1f us max over %d toggles%n",
+                    toggleNanos[TOGGLES / 2] / 1e3, toggleNanos[(int) (TOGGLES * 0.99)] / 1e3, toggleNanos[TOGGLES - 1] / 1e3, TOGGLES);
+            System.out.printf("heap              %.1f MB (%d bytes per sensor)%n", heapLoaded / 1048576.0, heapLoaded / Math.max(1, loaded));
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(SensorScaleEvaluation::delete);
+            }
+        }
+    }
+
+    private static SecurityRepository open(String kind, Path directory) {
+        switch (kind) {
+            case "wal":
+                return new WriteAheadLogSecurityRepositoryImpl(directory);
+            case "mapped":
+                return new MappedFileSecurityRepositoryImpl(directory);
+            default:
+                throw new IllegalArgumentException("Unknown repository: " + kind);
+        }
+    }
+
+    private static void close(SecurityRepository repository) {
+        if (repository instanceof WriteAheadLogSecurityRepositoryImpl) {
+            ((WriteAheadLogSecurityRepositoryImpl) repository).close();
+        } else {
+            ((MappedFileSecurityRepositoryImpl) repository).close();
+        }
+    }
+
+    /**
+     * @return bytes of heap in use after a full collection
+     */
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.delete(path);
+        } catch (IOException e) {
+            System.err.println("cannot delete " + path);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.udacity.catpoint.camera;
+
+import javax.imageio.stream.ImageInputStreamImpl;
+
+/**
+ * ImageInputStream over part of a byte array. Unlike MemoryCacheImageInputStream it reads the
+ * array in place instead of copying it into a cache.
+ */
+final class ByteArrayImageInputStream extends ImageInputStreamImpl {
+
+    private final byte[] data;
+    private final int length;
+
+    ByteArrayImageInputStream(byte[] data, int length) {
+        this.data = data;
+        this.length = length;
+    }
+
+    @Override
+    public int read() {
+        bitOffset = 0;
+        if (streamPos >= length) {
+            return -1;
+        }
+        return data[(int) streamPos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        bitOffset = 0;
+        if (streamPos >= length) {
+            return -1;
+        }
+        int count = (int) Math.min(len, length - streamPos);
+        System.arraycopy(data, (int) streamPos, b, off, count);
+        streamPos += count;
+        return count;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+}
@@ -0,0 +1,25 @@
+package com.udacity.catpoint.camera;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Somewhere camera frames come from, still encoded, one at a time. A source is read from a single
+ * thread; {@link #close()} may be called from any thread to stop a read that is waiting.
+ */
+public interface CameraSource extends Closeable {
+
+    /**
+     * Waits for the next frame and copies its encoded bytes into the buffer, growing it if
+     * necessary.
+     * @return false if the source has no more frames or was closed
+     */
+    boolean nextFrame(EncodedFrame frame) throws IOException, InterruptedException;
+
+    /**
+     * @return frames the source skipped because their bytes were damaged
+     */
+    default long getCorruptFrameCount() {
+        return 0;
+    }
+}
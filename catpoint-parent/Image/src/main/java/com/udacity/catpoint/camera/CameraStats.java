@@ -0,0 +1,82 @@
+package com.udacity.catpoint.camera;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of a CameraStream's counters.
+ */
+public final class CameraStats {
+
+    private final long framesReceived;
+    private final long framesDecoded;
+    private final long framesDropped;
+    private final long decodeErrors;
+    private final long framesSampled;
+    private final long totalDecodeNanos;
+    private final long maxDecodeNanos;
+    private final long elapsedNanos;
+
+    CameraStats(long framesReceived, long framesDecoded, long framesDropped, long decodeErrors, long framesSampled,
+                long totalDecodeNanos, long maxDecodeNanos, long elapsedNanos) {
+        this.framesReceived = framesReceived;
+        this.framesDecoded = framesDecoded;
+        this.framesDropped = framesDropped;
+        this.decodeErrors = decodeErrors;
+        this.framesSampled = framesSampled;
+        this.totalDecodeNanos = totalDecodeNanos;
+        this.maxDecodeNanos = maxDecodeNanos;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getFramesReceived() {
+        return framesReceived;
+    }
+
+    public long getFramesDecoded() {
+        return framesDecoded;
+    }
+
+    /**
+     * @return frames that were never decoded, because a newer frame arrived before the decoder was
+     *         free or because every pooled frame was in use
+     */
+    public long getFramesDropped() {
+        return framesDropped;
+    }
+
+    /**
+     * @return frames that couldn't be decoded, including damaged ones the source skipped
+     */
+    public long getDecodeErrors() {
+        return decodeErrors;
+    }
+
+    public long getFramesSampled() {
+        return framesSampled;
+    }
+
+    /**
+     * @return the mean time taken to decode a frame, including drawing its preview
+     */
+    public double getMeanDecodeMillis() {
+        return framesDecoded == 0 ? 0 : totalDecodeNanos / (double) framesDecoded / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getMaxDecodeMillis() {
+        return maxDecodeNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return frames decoded per second since the stream started
+     */
+    public double getDecodedFramesPerSecond() {
+        return elapsedNanos == 0 ? 0 : framesDecoded * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d received, %d decoded (%.1f fps), %d dropped, %d errors, %d sampled, decode %.2fms mean / %.2fms max",
+                framesReceived, framesDecoded, getDecodedFramesPerSecond(), framesDropped, decodeErrors, framesSampled,
+                getMeanDecodeMillis(), getMaxDecodeMillis());
+    }
+}
@@ -0,0 +1,272 @@
+package com.udacity.catpoint.camera;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams one camera: reads encoded frames from a CameraSource, decodes them into pooled images,
+ * keeps the most recent ones in a FrameRingBuffer and hands a sample of them to a FrameSink, such
+ * as the SecurityService, at most once per sample period. A stream can also give every frame a
+ * preview, scaled down once as the frame is decoded; the sink then gets the preview, so motion
+ * detection and classification work on the same small picture a display would show.
+ *
+ * Reading and decoding run on two threads of their own with a single frame slot between them, so
+ * a slow decode never stalls the source. A frame that arrives while the previous one is still
+ * waiting to be decoded replaces it and is counted as dropped, as is a frame that finds every
+ * pooled image in use. Frames that can't be decoded, or that the source had to skip as damaged,
+ * are counted as decode errors and the stream carries on.
+ *
+ * The encoded buffers and decoded images are allocated once and reused, so streaming creates no
+ * long-lived garbage. The JDK JPEG reader still copies each decoded row through a temporary array
+ * of its own, which adds up to about one image's worth of short-lived garbage per frame, some
+ * 0.9 MB at 640x480; the ImageIO API offers no way to avoid it.
+ */
+public class CameraStream implements AutoCloseable {
+
+    private static final int INITIAL_FRAME_CAPACITY = 128 * 1024;
+    //decoded frames that can be outside the ring buffer at once: the one being decoded and the
+    // two an AsyncImageClassifier holds per camera
+    private static final int FRAMES_OUTSIDE_RING = 3;
+
+    private final Logger log = LoggerFactory.getLogger(CameraStream.class);
+
+    private final String cameraId;
+    private final CameraSource source;
+    private final FrameSink sink;
+    private final long samplePeriodNanos;
+    private final FrameRingBuffer frames;
+    private final FrameDecoder decoder;
+    private final Thread readerThread;
+    private final Thread decoderThread;
+
+    //hands encoded frames from the reader to the decoder; the fields below are guarded by it
+    private final Object handoff = new Object();
+    private EncodedFrame waiting;
+    private final ArrayDeque<EncodedFrame> spare = new ArrayDeque<>();
+    private boolean sourceFinished;
+
+    private volatile boolean closed;
+    private volatile long startedAt;
+    //only used by the decoder thread
+    private long lastSampleAt;
+    private boolean sampled;
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong decoded = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong decodeErrors = new AtomicLong();
+    private final AtomicLong samples = new AtomicLong();
+    private final AtomicLong totalDecodeNanos = new AtomicLong();
+    private final AtomicLong maxDecodeNanos = new AtomicLong();
+
+    /**
+     * @param cameraId Name the camera's frames are reported under
+     * @param source Where the frames come from; closed with the stream
+     * @param ringSize Number of recent frames kept
+     * @param samplePeriod Shortest time between two frames handed to the sink
+     * @param sink Receiver of the sampled frames
+     */
+    public CameraStream(String cameraId, CameraSource source, int ringSize, long samplePeriod, TimeUnit unit, FrameSink sink) {
+        this(cameraId, source, ringSize, samplePeriod, unit, 0, 0, sink);
+    }
+
+    /**
+     * Creates a stream whose frames carry a preview of the given size.
+     * @param previewWidth Width of each frame's preview, or 0 for no previews
+     * @param previewHeight Height of each frame's preview, or 0 for no previews
+     */
+    public CameraStream(String cameraId, CameraSource source, int ringSize, long samplePeriod, TimeUnit unit,
+                        int previewWidth, int previewHeight, FrameSink sink) {
+        if (samplePeriod < 0) {
+            throw new IllegalArgumentException("samplePeriod must not be negative");
+        }
+        this.cameraId = cameraId;
+        this.source = source;
+        this.sink = sink;
+        this.samplePeriodNanos = unit.toNanos(samplePeriod);
+        this.frames = new FrameRingBuffer(ringSize);
+        this.decoder = new FrameDecoder(new FramePool(ringSize + FRAMES_OUTSIDE_RING, previewWidth, previewHeight));
+        //one buffer being filled, one waiting and one being decoded
+        spare.push(new EncodedFrame(INITIAL_FRAME_CAPACITY));
+        spare.push(new EncodedFrame(INITIAL_FRAME_CAPACITY));
+        this.readerThread = new Thread(this::readFrames, "camera-" + cameraId + "-reader");
+        this.decoderThread = new Thread(this::decodeFrames, "camera-" + cameraId + "-decoder");
+        readerThread.setDaemon(true);
+        decoderThread.setDaemon(true);
+    }
+
+    public void start() {
+        startedAt = System.nanoTime();
+        readerThread.start();
+        decoderThread.start();
+    }
+
+    public String getCameraId() {
+        return cameraId;
+    }
+
+    /**
+     * @return the camera's most recent frames
+     */
+    public FrameRingBuffer getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return true until the source runs out of frames or the stream is closed, and the last frame
+     *         has been decoded
+     */
+    public boolean isRunning() {
+        return decoderThread.isAlive();
+    }
+
+    public CameraStats getStats() {
+        long started = startedAt;
+        long errors = decodeErrors.get() + source.getCorruptFrameCount();
+        return new CameraStats(received.get(), decoded.get(), dropped.get(), errors, samples.get(),
+                totalDecodeNanos.get(), maxDecodeNanos.get(), started == 0 ? 0 : System.nanoTime() - started);
+    }
+
+    /**
+     * Waits for the stream to stop by itself, for example at the end of a file.
+     * @return true if it stopped within the timeout
+     */
+    public boolean awaitEnd(long timeout, TimeUnit unit) throws InterruptedException {
+        decoderThread.join(Math.max(1, unit.toMillis(timeout)));
+        return !decoderThread.isAlive();
+    }
+
+    /**
+     * Stops both threads, closes the source and releases the frames held.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            source.close();
+        } catch (IOException e) {
+            log.warn("Error closing camera {}", cameraId, e);
+        }
+        readerThread.interrupt();
+        decoderThread.interrupt();
+        try {
+            readerThread.join(1000);
+            decoderThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void readFrames() {
+        EncodedFrame filling = new EncodedFrame(INITIAL_FRAME_CAPACITY);
+        try {
+            while (!closed && source.nextFrame(filling)) {
+                filling.setReceivedAtNanos(System.nanoTime());
+                filling.setSequence(received.getAndIncrement());
+                synchronized (handoff) {
+                    EncodedFrame replaced = waiting;
+                    waiting = filling;
+                    if (replaced != null) {
+                        dropped.incrementAndGet();
+                        filling = replaced;
+                    } else {
+                        filling = spare.pop();
+                    }
+                    handoff.notifyAll();
+                }
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                log.warn("Camera {} stopped", cameraId, e);
+            }
+        } catch (InterruptedException e) {
+            //closed
+        } finally {
+            synchronized (handoff) {
+                sourceFinished = true;
+                handoff.notifyAll();
+            }
+        }
+    }
+
+    private void decodeFrames() {
+        EncodedFrame current = null;
+        try {
+            while (true) {
+                synchronized (handoff) {
+                    if (current != null) {
+                        spare.push(current);
+                    }
+                    while (waiting == null && !sourceFinished) {
+                        handoff.wait();
+                    }
+                    if (waiting == null) {
+                        return;
+                    }
+                    current = waiting;
+                    waiting = null;
+                }
+                decode(current);
+            }
+        } catch (InterruptedException e) {
+            //closed
+        } finally {
+            decoder.dispose();
+            frames.clear();
+        }
+    }
+
+    private void decode(EncodedFrame encoded) {
+        long start = System.nanoTime();
+        Frame frame;
+        try {
+            frame = decoder.decode(encoded, cameraId, encoded.getSequence());
+        } catch (IOException | RuntimeException e) {
+            decodeErrors.incrementAndGet();
+            log.debug("Undecodable frame from camera {}", cameraId, e);
+            return;
+        }
+        if (frame == null) {
+            dropped.incrementAndGet();
+            return;
+        }
+        long took = System.nanoTime() - start;
+        decoded.incrementAndGet();
+        totalDecodeNanos.addAndGet(took);
+        maxDecodeNanos.accumulateAndGet(took, Math::max);
+        try {
+            frames.add(frame);
+            if (!sampled || start - lastSampleAt >= samplePeriodNanos) {
+                sampled = true;
+                lastSampleAt = start;
+                sample(frame);
+            }
+        } finally {
+            frame.release();
+        }
+    }
+
+    private void sample(Frame frame) {
+        frame.retain();
+        samples.incrementAndGet();
+        CompletableFuture<?> done;
+        try {
+            done = sink.sample(cameraId, frame.getPreview() != null ? frame.getPreview() : frame.getImage());
+        } catch (RuntimeException e) {
+            frame.release();
+            log.warn("Camera {} frame rejected", cameraId, e);
+            return;
+        }
+        if (done == null) {
+            frame.release();
+        } else {
+            done.whenComplete((result, error) -> frame.release());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.udacity.catpoint.camera;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Treats a directory as a camera: every image file created in it, or rewritten, is a new frame.
+ * Files already in the directory when the source is opened are ignored. Cameras or scripts
+ * feeding the directory should write each frame under a temporary name and move it into place,
+ * so a frame is never read half written.
+ */
+public class DirectoryCameraSource implements CameraSource {
+
+    private static final Set<String> IMAGE_EXTENSIONS = Set.of("jpg", "jpeg", "png", "bmp", "gif");
+
+    private final Path directory;
+    private final WatchService watcher;
+    //files reported by the watcher and not yet read, without duplicates
+    private final Set<Path> ready = new LinkedHashSet<>();
+
+    public DirectoryCameraSource(Path directory) throws IOException {
+        this.directory = directory;
+        this.watcher = directory.getFileSystem().newWatchService();
+        directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    @Override
+    public boolean nextFrame(EncodedFrame frame) throws IOException, InterruptedException {
+        while (true) {
+            while (ready.isEmpty()) {
+                if (!awaitFiles()) {
+                    return false;
+                }
+            }
+            Path file = ready.iterator().next();
+            ready.remove(file);
+            try {
+                read(file, frame);
+                return true;
+            } catch (NoSuchFileException e) {
+                //already moved away or deleted; wait for the next one
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watcher.close();
+    }
+
+    /**
+     * Waits for the watcher to report changes and queues the image files among them.
+     * @return false if the source was closed
+     */
+    private boolean awaitFiles() throws InterruptedException {
+        WatchKey key;
+        try {
+            key = watcher.take();
+        } catch (ClosedWatchServiceException e) {
+            return false;
+        }
+        for (WatchEvent<?> event : key.pollEvents()) {
+            //an overflow loses events, but the next file written is picked up as usual
+            if (event.kind() != StandardWatchEventKinds.OVERFLOW) {
+                Path file = directory.resolve((Path) event.context());
+                if (isImage(file)) {
+                    ready.add(file);
+                }
+            }
+        }
+        return key.reset();
+    }
+
+    private static boolean isImage(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && IMAGE_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private static void read(Path file, EncodedFrame frame) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Frame too large: " + file);
+            }
+            ByteBuffer target = ByteBuffer.wrap(frame.ensureCapacity((int) size), 0, (int) size);
+            while (target.hasRemaining() && channel.read(target) >= 0) {
+                //keep reading until the file's bytes are all in
+            }
+            frame.setLength(target.position());
+        }
+    }
+}
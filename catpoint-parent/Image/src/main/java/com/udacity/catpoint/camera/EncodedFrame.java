@@ -0,0 +1,80 @@
+package com.udacity.catpoint.camera;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Reusable buffer holding one encoded frame, such as a JPEG, as it came from a camera. The
+ * buffer only ever grows, so once it has held the largest frame a camera sends, reading more
+ * frames into it allocates nothing.
+ */
+public final class EncodedFrame {
+
+    private byte[] data;
+    private int length;
+    private long receivedAtNanos;
+    private long sequence;
+
+    public EncodedFrame(int initialCapacity) {
+        data = new byte[Math.max(initialCapacity, 16)];
+    }
+
+    /**
+     * @return the backing array; the frame is its first {@link #length()} bytes
+     */
+    public byte[] data() {
+        return data;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Grows the backing array, keeping its contents, so it holds at least the given number of
+     * bytes.
+     * @return the backing array, which may be a new one
+     */
+    public byte[] ensureCapacity(int capacity) {
+        if (capacity > data.length) {
+            data = Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+        }
+        return data;
+    }
+
+    public void setLength(int length) {
+        if (length < 0 || length > data.length) {
+            throw new IllegalArgumentException("length out of range");
+        }
+        this.length = length;
+    }
+
+    /**
+     * @return the System.nanoTime() at which the frame was read from its source
+     */
+    public long getReceivedAtNanos() {
+        return receivedAtNanos;
+    }
+
+    public void setReceivedAtNanos(long receivedAtNanos) {
+        this.receivedAtNanos = receivedAtNanos;
+    }
+
+    /**
+     * @return the frame's position in its camera's stream
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * @return a buffer over the frame's bytes, sharing the backing array
+     */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(data, 0, length);
+    }
+}
@@ -0,0 +1,92 @@
+package com.udacity.catpoint.camera;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A decoded camera frame borrowed from a pool. The image is reused for later frames once every
+ * holder has let go of it, so the frame is reference counted: whoever hands a frame to someone
+ * else who keeps it calls {@link #retain()} first, and everyone who holds a reference calls
+ * {@link #release()} exactly once when they are done. The image must not be used after that.
+ *
+ * A frame can also carry a preview, the same picture scaled down once when it was decoded, so
+ * that displaying and classifying the frame don't each have to scale or scan the full image.
+ */
+public final class Frame {
+
+    private final FramePool pool;
+    private final BufferedImage image;
+    private final BufferedImage preview;
+    final int generation;
+    private final AtomicInteger references = new AtomicInteger();
+    private String cameraId;
+    private long sequence;
+    private long capturedAtNanos;
+
+    Frame(FramePool pool, BufferedImage image, BufferedImage preview, int generation) {
+        this.pool = pool;
+        this.image = image;
+        this.preview = preview;
+        this.generation = generation;
+    }
+
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * @return the scaled-down picture, or null if the frame's stream doesn't make previews
+     */
+    public BufferedImage getPreview() {
+        return preview;
+    }
+
+    public String getCameraId() {
+        return cameraId;
+    }
+
+    /**
+     * @return the frame's position in its camera's stream, counting every frame received
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the System.nanoTime() at which the encoded frame was received
+     */
+    public long getCapturedAtNanos() {
+        return capturedAtNanos;
+    }
+
+    /**
+     * Adds a reference to the frame.
+     * @return this frame
+     */
+    public Frame retain() {
+        if (references.getAndIncrement() <= 0) {
+            throw new IllegalStateException("frame has already been released");
+        }
+        return this;
+    }
+
+    /**
+     * Drops a reference; the last one returns the frame to its pool.
+     */
+    public void release() {
+        int remaining = references.decrementAndGet();
+        if (remaining == 0) {
+            pool.release(this);
+        } else if (remaining < 0) {
+            throw new IllegalStateException("frame released more often than retained");
+        }
+    }
+
+    //called by the pool when lending the frame out again
+    void reset(String cameraId, long sequence, long capturedAtNanos) {
+        this.cameraId = cameraId;
+        this.sequence = sequence;
+        this.capturedAtNanos = capturedAtNanos;
+        references.set(1);
+    }
+}
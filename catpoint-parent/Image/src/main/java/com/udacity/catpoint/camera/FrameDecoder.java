@@ -0,0 +1,79 @@
+package com.udacity.catpoint.camera;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Decodes a camera's encoded frames into pooled images. The ImageReader is kept between frames as
+ * long as it can read them, and each frame is decoded straight into an image borrowed from the
+ * pool, so decoding doesn't allocate an image per frame. Frames that have a preview get it drawn
+ * right after decoding. Not safe for use by several threads at once.
+ */
+final class FrameDecoder {
+
+    private final FramePool pool;
+    private final FrameScaler scaler = new FrameScaler();
+    private ImageReader reader;
+
+    FrameDecoder(FramePool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @return the decoded frame, holding one reference, or null if the pool has no free frame
+     * @throws IOException if the bytes can't be decoded
+     */
+    Frame decode(EncodedFrame encoded, String cameraId, long sequence) throws IOException {
+        try (ImageInputStream in = new ByteArrayImageInputStream(encoded.data(), encoded.length())) {
+            ImageReader imageReader = readerFor(in);
+            imageReader.setInput(in, true, true);
+            int width = imageReader.getWidth(0);
+            int height = imageReader.getHeight(0);
+            Iterator<ImageTypeSpecifier> types = imageReader.getImageTypes(0);
+            if (!types.hasNext()) {
+                throw new IOException("no image type to decode into");
+            }
+            Frame frame = pool.acquire(types.next(), width, height, cameraId, sequence, encoded.getReceivedAtNanos());
+            if (frame == null) {
+                return null;
+            }
+            ImageReadParam param = imageReader.getDefaultReadParam();
+            param.setDestination(frame.getImage());
+            try {
+                imageReader.read(0, param);
+                if (frame.getPreview() != null) {
+                    scaler.scale(frame.getImage(), frame.getPreview());
+                }
+            } catch (IOException | RuntimeException e) {
+                frame.release();
+                throw e;
+            }
+            return frame;
+        }
+    }
+
+    void dispose() {
+        if (reader != null) {
+            reader.dispose();
+            reader = null;
+        }
+    }
+
+    private ImageReader readerFor(ImageInputStream in) throws IOException {
+        if (reader != null && reader.getOriginatingProvider() != null && reader.getOriginatingProvider().canDecodeInput(in)) {
+            return reader;
+        }
+        dispose();
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+        if (!readers.hasNext()) {
+            throw new IOException("Unrecognized image format");
+        }
+        reader = readers.next();
+        return reader;
+    }
+}
@@ -0,0 +1,84 @@
+package com.udacity.catpoint.camera;
+
+import javax.imageio.ImageTypeSpecifier;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+
+/**
+ * Bounded pool of frames of one size and image type, each optionally with a preview image of a
+ * fixed size. Frames are created on demand up to the capacity and handed out again after they are
+ * released. When a camera's frame size or type
+ * changes, the pool starts over with the new format and frames of the old one are dropped as they
+ * come back.
+ */
+final class FramePool {
+
+    private final int capacity;
+    private final int previewWidth;
+    private final int previewHeight;
+
+    //guarded by this
+    private final ArrayDeque<Frame> free = new ArrayDeque<>();
+    private ImageTypeSpecifier type;
+    private int width;
+    private int height;
+    //changes with the format, so frames of an older format aren't taken back
+    private int generation;
+    private int created;
+
+    FramePool(int capacity) {
+        this(capacity, 0, 0);
+    }
+
+    /**
+     * @param previewWidth Width of each frame's preview, or 0 for frames without one
+     */
+    FramePool(int capacity, int previewWidth, int previewHeight) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        if (previewWidth < 0 || previewHeight < 0 || (previewWidth == 0) != (previewHeight == 0)) {
+            throw new IllegalArgumentException("preview size must be positive, or 0 by 0 for no previews");
+        }
+        this.capacity = capacity;
+        this.previewWidth = previewWidth;
+        this.previewHeight = previewHeight;
+    }
+
+    /**
+     * Lends out a frame with an image of the given format, holding one reference.
+     * @return the frame, or null if every frame is in use
+     */
+    synchronized Frame acquire(ImageTypeSpecifier type, int width, int height, String cameraId, long sequence, long capturedAtNanos) {
+        if (!type.equals(this.type) || width != this.width || height != this.height) {
+            free.clear();
+            created = 0;
+            generation++;
+            this.type = type;
+            this.width = width;
+            this.height = height;
+        }
+        Frame frame = free.poll();
+        if (frame == null) {
+            if (created == capacity) {
+                return null;
+            }
+            created++;
+            BufferedImage preview = previewWidth == 0 ? null
+                    : new BufferedImage(previewWidth, previewHeight, BufferedImage.TYPE_INT_RGB);
+            frame = new Frame(this, type.createBufferedImage(width, height), preview, generation);
+        }
+        frame.reset(cameraId, sequence, capturedAtNanos);
+        return frame;
+    }
+
+    synchronized void release(Frame frame) {
+        if (frame.generation == generation) {
+            free.push(frame);
+        }
+    }
+
+    synchronized int available() {
+        return free.size() + capacity - created;
+    }
+}
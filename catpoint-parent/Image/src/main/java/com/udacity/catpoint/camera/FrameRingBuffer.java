@@ -0,0 +1,81 @@
+package com.udacity.catpoint.camera;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps a camera's most recent frames. Adding a frame to a full buffer pushes out the oldest one,
+ * which is released so its image can be reused.
+ */
+public class FrameRingBuffer {
+
+    //guarded by this
+    private final Frame[] frames;
+    private int next;
+    private int size;
+
+    public FrameRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        frames = new Frame[capacity];
+    }
+
+    /**
+     * Adds a frame, taking a reference to it of its own.
+     */
+    public synchronized void add(Frame frame) {
+        frame.retain();
+        Frame oldest = frames[next];
+        frames[next] = frame;
+        next = (next + 1) % frames.length;
+        if (oldest != null) {
+            oldest.release();
+        } else {
+            size++;
+        }
+    }
+
+    /**
+     * @return the newest frame with a reference the caller must release, or null if there is none
+     */
+    public synchronized Frame latest() {
+        if (size == 0) {
+            return null;
+        }
+        return frames[(next - 1 + frames.length) % frames.length].retain();
+    }
+
+    /**
+     * @return the frames held, newest first, each with a reference the caller must release
+     */
+    public synchronized List<Frame> recent() {
+        List<Frame> recent = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            recent.add(frames[(next - i + frames.length) % frames.length].retain());
+        }
+        return recent;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return frames.length;
+    }
+
+    /**
+     * Releases every frame held.
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < frames.length; i++) {
+            if (frames[i] != null) {
+                frames[i].release();
+                frames[i] = null;
+            }
+        }
+        next = 0;
+        size = 0;
+    }
+}
@@ -0,0 +1,110 @@
+package com.udacity.catpoint.camera;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * Scales frames to a fixed size, reusing the images it draws into. Unlike
+ * Image.getScaledInstance, which builds a new image through a slow area-averaging filter on every
+ * call, this draws with bilinear interpolation, halving the frame in steps while it is more than
+ * twice the wanted size so that large frames don't lose detail. The intermediate images of those
+ * steps are kept for the next frame of the same size.
+ *
+ * Not safe for use by several threads at once; the image returned by {@link #scale(BufferedImage)}
+ * is overwritten by the next call.
+ */
+public class FrameScaler {
+
+    private final BufferedImage target;
+    //intermediate images, largest first, for the frame size last scaled
+    private BufferedImage[] steps = new BufferedImage[0];
+
+    /**
+     * Scales into an image of type TYPE_INT_RGB, which Java2D draws quickly on most displays.
+     */
+    public FrameScaler(int width, int height) {
+        this(new BufferedImage(checkSize(width), checkSize(height), BufferedImage.TYPE_INT_RGB));
+    }
+
+    /**
+     * @param target The image to scale into, for example one created by
+     *               GraphicsConfiguration.createCompatibleImage so it can be painted without conversion
+     */
+    public FrameScaler(BufferedImage target) {
+        this.target = target;
+    }
+
+    //for scaling into images supplied with each call only
+    FrameScaler() {
+        this.target = null;
+    }
+
+    /**
+     * @return the image every call to {@link #scale(BufferedImage)} draws into
+     */
+    public BufferedImage getTarget() {
+        return target;
+    }
+
+    /**
+     * Scales the frame into the target image.
+     * @return the target image
+     */
+    public BufferedImage scale(BufferedImage source) {
+        scale(source, target);
+        return target;
+    }
+
+    /**
+     * Scales the frame to fill another image, which may be of a different size than the target.
+     */
+    public void scale(BufferedImage source, BufferedImage destination) {
+        int width = destination.getWidth();
+        int height = destination.getHeight();
+        BufferedImage from = source;
+        int step = 0;
+        while (from.getWidth() >= width * 2 || from.getHeight() >= height * 2) {
+            int stepWidth = Math.max(width, from.getWidth() / 2);
+            int stepHeight = Math.max(height, from.getHeight() / 2);
+            BufferedImage halved = step(step++, stepWidth, stepHeight);
+            draw(from, halved, stepWidth, stepHeight);
+            from = halved;
+        }
+        draw(from, destination, width, height);
+    }
+
+    private BufferedImage step(int index, int width, int height) {
+        if (index >= steps.length) {
+            BufferedImage[] grown = new BufferedImage[index + 1];
+            System.arraycopy(steps, 0, grown, 0, steps.length);
+            steps = grown;
+        }
+        BufferedImage step = steps[index];
+        if (step == null || step.getWidth() != width || step.getHeight() != height) {
+            step = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            steps[index] = step;
+        }
+        return step;
+    }
+
+    private static void draw(BufferedImage from, BufferedImage to, int width, int height) {
+        Graphics2D g = to.createGraphics();
+        try {
+            g.setComposite(AlphaComposite.Src);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+            g.drawImage(from, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    private static int checkSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("width and height must be positive");
+        }
+        return size;
+    }
+}
@@ -0,0 +1,19 @@
+package com.udacity.catpoint.camera;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Receives the frames a CameraStream samples, for example SecurityService::processImage.
+ */
+@FunctionalInterface
+public interface FrameSink {
+
+    /**
+     * @param cameraId Camera the frame came from
+     * @param image The frame. It belongs to a pool and must not be used once the returned future
+     *              has completed
+     * @return a future that completes when the sink is done with the image
+     */
+    CompletableFuture<?> sample(String cameraId, BufferedImage image);
+}
@@ -0,0 +1,260 @@
+package com.udacity.catpoint.camera;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads JPEG frames from a Motion JPEG stream: a multipart HTTP camera feed, or a file of JPEG
+ * images one after another. Whatever lies between the images, such as multipart boundaries and
+ * headers, is skipped. Each image is delimited by walking its marker segments rather than by
+ * searching for the end-of-image marker, so embedded thumbnails don't cut a frame short.
+ *
+ * A frame whose marker segments don't add up, because bytes were lost or garbled on the way, is
+ * skipped: reading picks up again at the next start-of-image marker and the frame is counted as
+ * corrupt. Only the end of the stream, or an error reading it, ends the source.
+ *
+ * A file has no timing of its own, so a frame rate can be given to play it back in real time;
+ * a live stream is read as fast as the camera sends it.
+ */
+public class MjpegCameraSource implements CameraSource {
+
+    private static final int SOI = 0xD8;
+    private static final int EOI = 0xD9;
+    private static final int SOS = 0xDA;
+
+    private final InputStream in;
+    private final long frameIntervalNanos;
+    private final byte[] buffer = new byte[64 * 1024];
+    private int position;
+    private int limit;
+    private long nextFrameAt;
+    //a corrupt frame ended at the start-of-image marker of the next one, which has been consumed
+    private boolean atStartOfImage;
+    private final AtomicLong corruptFrames = new AtomicLong();
+
+    /**
+     * @param in The stream, which is closed with this source
+     * @param framesPerSecond Rate at which to hand out frames, or 0 to hand them out as fast as
+     *                        they can be read
+     */
+    public MjpegCameraSource(InputStream in, double framesPerSecond) {
+        if (framesPerSecond < 0) {
+            throw new IllegalArgumentException("framesPerSecond must not be negative");
+        }
+        this.in = in;
+        this.frameIntervalNanos = framesPerSecond == 0 ? 0 : (long) (TimeUnit.SECONDS.toNanos(1) / framesPerSecond);
+    }
+
+    /**
+     * Plays back a file of JPEG frames at the given rate.
+     */
+    public static MjpegCameraSource open(Path file, double framesPerSecond) throws IOException {
+        return new MjpegCameraSource(Files.newInputStream(file), framesPerSecond);
+    }
+
+    /**
+     * Reads a camera's MJPEG feed as it arrives.
+     */
+    public static MjpegCameraSource open(URL url) throws IOException {
+        return new MjpegCameraSource(url.openStream(), 0);
+    }
+
+    @Override
+    public boolean nextFrame(EncodedFrame frame) throws IOException, InterruptedException {
+        while (true) {
+            if (!atStartOfImage && !skipToStartOfImage()) {
+                return false;
+            }
+            atStartOfImage = false;
+            try {
+                frame.setLength(readImage(frame));
+            } catch (EOFException e) {
+                //the stream ended part way through a frame
+                return false;
+            } catch (CorruptFrameException e) {
+                corruptFrames.incrementAndGet();
+                continue;
+            }
+            pace();
+            return true;
+        }
+    }
+
+    @Override
+    public long getCorruptFrameCount() {
+        return corruptFrames.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Consumes everything up to and including the next start-of-image marker.
+     * @return false if the stream ended first
+     */
+    private boolean skipToStartOfImage() throws IOException {
+        int previous = -1;
+        int b;
+        while ((b = read()) != -1) {
+            if (previous == 0xFF && b == SOI) {
+                return true;
+            }
+            previous = b;
+        }
+        return false;
+    }
+
+    /**
+     * Copies one image, from its start-of-image marker to its end-of-image marker, into the frame.
+     * @return the image's length
+     */
+    private int readImage(EncodedFrame frame) throws IOException {
+        byte[] data = frame.ensureCapacity(2);
+        data[0] = (byte) 0xFF;
+        data[1] = (byte) SOI;
+        int length = 2;
+        int marker = nextMarker(frame, length);
+        length += 2;
+        while (true) {
+            if (marker == EOI) {
+                return length;
+            }
+            if (marker == SOI) {
+                //the frame was cut short and the next one has already begun
+                atStartOfImage = true;
+                throw new CorruptFrameException("JPEG frame interrupted by the next one");
+            }
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                //markers without a segment
+                marker = nextMarker(frame, length);
+                length += 2;
+                continue;
+            }
+            int high = require(read());
+            int low = require(read());
+            int segmentLength = (high << 8) | low;
+            if (segmentLength < 2) {
+                throw new CorruptFrameException("Corrupt JPEG segment length " + segmentLength);
+            }
+            data = frame.ensureCapacity(length + segmentLength);
+            data[length] = (byte) high;
+            data[length + 1] = (byte) low;
+            readFully(data, length + 2, segmentLength - 2);
+            length += segmentLength;
+            if (marker == SOS) {
+                //entropy-coded data follows, up to the next marker that isn't stuffing or a restart
+                length = copyScan(frame, length);
+                marker = frame.data()[length - 1] & 0xff;
+            } else {
+                marker = nextMarker(frame, length);
+                length += 2;
+            }
+        }
+    }
+
+    /**
+     * Reads a marker, skipping fill bytes, and appends it to the frame at the given position.
+     * @return the marker code
+     */
+    private int nextMarker(EncodedFrame frame, int length) throws IOException {
+        if (require(read()) != 0xFF) {
+            throw new CorruptFrameException("Expected a JPEG marker");
+        }
+        int marker;
+        while ((marker = require(read())) == 0xFF) {
+            //fill byte
+        }
+        byte[] data = frame.ensureCapacity(length + 2);
+        data[length] = (byte) 0xFF;
+        data[length + 1] = (byte) marker;
+        return marker;
+    }
+
+    /**
+     * Copies entropy-coded data, and the marker that ends it, into the frame.
+     * @return the frame's length, which ends with the marker
+     */
+    private int copyScan(EncodedFrame frame, int length) throws IOException {
+        byte[] data = frame.data();
+        boolean afterFF = false;
+        while (true) {
+            int b = require(read());
+            if (length == data.length) {
+                data = frame.ensureCapacity(length + 1);
+            }
+            data[length++] = (byte) b;
+            if (afterFF && b != 0x00 && b != 0xFF && !(b >= 0xD0 && b <= 0xD7)) {
+                return length;
+            }
+            afterFF = b == 0xFF;
+        }
+    }
+
+    private void pace() throws InterruptedException {
+        if (frameIntervalNanos == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (nextFrameAt == 0 || now - nextFrameAt > frameIntervalNanos) {
+            //first frame, or far behind schedule: don't try to catch up with a burst
+            nextFrameAt = now;
+        } else if (nextFrameAt > now) {
+            TimeUnit.NANOSECONDS.sleep(nextFrameAt - now);
+        }
+        nextFrameAt += frameIntervalNanos;
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    private void readFully(byte[] target, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (position == limit && read() != -1) {
+                //refilled the buffer; put the byte back
+                position--;
+            }
+            int available = limit - position;
+            if (available == 0) {
+                throw new EOFException();
+            }
+            int count = Math.min(available, length);
+            System.arraycopy(buffer, position, target, offset, count);
+            position += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    private static int require(int b) throws EOFException {
+        if (b == -1) {
+            throw new EOFException();
+        }
+        return b;
+    }
+
+    /**
+     * Thrown when a frame's bytes aren't a well formed JPEG, as opposed to the stream failing.
+     */
+    private static final class CorruptFrameException extends IOException {
+        CorruptFrameException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.udacity.catpoint.service;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs an ImageService off the caller's thread. Classifications run on a fixed pool of worker
+ * threads, so a slow classifier never blocks the caller and cameras don't wait on each other.
+ *
+ * Each camera has at most one frame being classified and one frame waiting. A frame submitted
+ * while another one from the same camera is still waiting replaces it, and the stale frame's
+ * future is cancelled, since only the latest picture matters. This keeps the amount of queued
+ * work bounded by the number of cameras however fast frames arrive.
+ *
+ * Every frame has a deadline measured from when it was submitted. A frame that is still waiting
+ * at its deadline is never classified, and one that is still being classified is interrupted;
+ * either way its future completes with a TimeoutException. Cancelling a returned future also
+ * removes the frame from its camera's queue or interrupts its classification.
+ *
+ * With a {@link MotionGate}, each decoded frame is first compared with what its camera last showed.
+ * A frame without motion isn't sent to the ImageService; it gets the camera's previous answer
+ * instead. Encoded frames are passed to the ImageService untouched, so they bypass the gate.
+ */
+public class AsyncImageClassifier implements AutoCloseable {
+
+    private final ImageService imageService;
+    private final MotionGate motionGate;
+    private final long timeoutNanos;
+    private final ExecutorService workers;
+    private final ScheduledThreadPoolExecutor deadlines;
+
+    //guarded by this
+    private final Map<String, CameraQueue> cameras = new HashMap<>();
+    private final Map<String, ClassificationResult> lastResults = new HashMap<>();
+    private boolean closed;
+
+    /**
+     * @param imageService Service that does the classifying
+     * @param workerThreads Maximum number of frames classified at the same time
+     * @param timeout How long after submission a frame's result is still wanted
+     */
+    public AsyncImageClassifier(ImageService imageService, int workerThreads, long timeout, TimeUnit unit) {
+        this(imageService, workerThreads, timeout, unit, null);
+    }
+
+    /**
+     * @param motionGate Gate that frames must pass before they are classified, or null to classify
+     *                   every frame
+     */
+    public AsyncImageClassifier(ImageService imageService, int workerThreads, long timeout, TimeUnit unit, MotionGate motionGate) {
+        if (workerThreads < 1 || timeout <= 0) {
+            throw new IllegalArgumentException("workerThreads and timeout must be positive");
+        }
+        this.imageService = imageService;
+        this.motionGate = motionGate;
+        this.timeoutNanos = unit.toNanos(timeout);
+        this.workers = Executors.newFixedThreadPool(workerThreads, daemonThreads("image-classifier"));
+        this.deadlines = new ScheduledThreadPoolExecutor(1, daemonThreads("image-classifier-deadline"));
+        this.deadlines.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Queues a frame for classification.
+     * @param cameraId Camera the frame came from; frames from one camera are classified in order
+     * @param image The frame, which must not be modified until the returned future completes
+     * @param confidenceThreshold Passed through to the ImageService
+     * @return the classification result; it is cancelled if a newer frame from the same camera
+     *         replaces this one before it starts, and fails with a TimeoutException if no result
+     *         is available by the deadline
+     */
+    public CompletableFuture<ClassificationResult> classify(String cameraId, BufferedImage image, float confidenceThreshold) {
+        return submit(new Frame(cameraId, image, null, confidenceThreshold));
+    }
+
+    /**
+     * Queues an encoded frame, such as a camera's JPEG, for classification. The bytes are handed to
+     * {@link ImageService#classify(ByteBuffer, float)} as they are, and otherwise this behaves like
+     * {@link #classify(String, BufferedImage, float)}.
+     * @param encodedImage The frame's bytes, which must not be modified until the returned future
+     *                     completes
+     */
+    public CompletableFuture<ClassificationResult> classify(String cameraId, ByteBuffer encodedImage, float confidenceThreshold) {
+        return submit(new Frame(cameraId, null, encodedImage, confidenceThreshold));
+    }
+
+    private CompletableFuture<ClassificationResult> submit(Frame frame) {
+        String cameraId = frame.cameraId;
+        Frame stale = null;
+        synchronized (this) {
+            if (closed) {
+                frame.result.completeExceptionally(new RejectedExecutionException("classifier is closed"));
+                return frame.result;
+            }
+            frame.timeout = deadlines.schedule(() -> {
+                frame.result.completeExceptionally(new TimeoutException("no result for camera " + cameraId + " within the deadline"));
+            }, timeoutNanos, TimeUnit.NANOSECONDS);
+            CameraQueue queue = cameras.computeIfAbsent(cameraId, k -> new CameraQueue());
+            if (queue.running == null) {
+                queue.running = frame;
+                start(frame);
+            } else {
+                stale = queue.waiting;
+                queue.waiting = frame;
+                if (stale != null) {
+                    //abandon() no longer finds the stale frame in the queue, so stop its deadline here
+                    stale.timeout.cancel(false);
+                }
+            }
+        }
+        frame.result.whenComplete((cat, error) -> {
+            if (error != null) {
+                abandon(frame);
+            }
+        });
+        if (stale != null) {
+            stale.result.cancel(false);
+        }
+        return frame.result;
+    }
+
+    /**
+     * Cancels the camera's frame being classified and the one waiting, if any, for example because
+     * the camera has been removed. Frames the camera sends afterwards are classified as usual.
+     */
+    public void cancel(String cameraId) {
+        List<Frame> outstanding = new ArrayList<>();
+        synchronized (this) {
+            CameraQueue queue = cameras.get(cameraId);
+            if (queue != null) {
+                //the running frame stays in the queue until its worker is done with it, so a new
+                // frame from this camera can't be classified alongside it
+                outstanding.add(queue.running);
+                if (queue.waiting != null) {
+                    outstanding.add(queue.waiting);
+                }
+            }
+            lastResults.remove(cameraId);
+        }
+        outstanding.forEach(frame -> frame.result.cancel(false));
+    }
+
+    /**
+     * Cancels every outstanding frame and stops the worker threads.
+     */
+    @Override
+    public void close() {
+        List<Frame> outstanding = new ArrayList<>();
+        synchronized (this) {
+            closed = true;
+            for (CameraQueue queue : cameras.values()) {
+                outstanding.add(queue.running);
+                if (queue.waiting != null) {
+                    outstanding.add(queue.waiting);
+                }
+            }
+            cameras.clear();
+        }
+        workers.shutdownNow();
+        deadlines.shutdownNow();
+        outstanding.forEach(frame -> frame.result.cancel(false));
+    }
+
+    /**
+     * @return the number of frame deadlines still scheduled
+     */
+    int pendingDeadlines() {
+        return deadlines.getQueue().size();
+    }
+
+    //must hold the lock
+    private void start(Frame frame) {
+        workers.execute(() -> run(frame));
+    }
+
+    private void run(Frame frame) {
+        synchronized (this) {
+            frame.worker = Thread.currentThread();
+        }
+        try {
+            if (!frame.result.isDone()) {
+                ClassificationResult previous = unchangedSceneResult(frame);
+                ClassificationResult result = previous != null ? previous : classify(frame);
+                synchronized (this) {
+                    lastResults.put(frame.cameraId, result);
+                }
+                frame.result.complete(result);
+            }
+        } catch (RuntimeException e) {
+            frame.result.completeExceptionally(e);
+        } finally {
+            finished(frame);
+        }
+    }
+
+    private ClassificationResult classify(Frame frame) {
+        if (frame.encodedImage != null) {
+            return imageService.classify(frame.encodedImage, frame.confidenceThreshold);
+        }
+        return imageService.classify(frame.image, frame.confidenceThreshold);
+    }
+
+    /**
+     * Runs the frame through the motion gate. Frames from one camera are never processed
+     * concurrently, which is what the gate requires.
+     * @return the camera's previous answer if the frame has no motion, or null if it has to be
+     *         classified
+     */
+    private ClassificationResult unchangedSceneResult(Frame frame) {
+        if (motionGate == null || frame.image == null) {
+            return null;
+        }
+        boolean motion = motionGate.hasMotion(frame.cameraId, frame.image);
+        synchronized (this) {
+            if (motion) {
+                //the old answer no longer describes the scene, even if this frame's classification fails
+                lastResults.remove(frame.cameraId);
+                return null;
+            }
+            //without a previous answer, for example because it timed out, classify anyway
+            return lastResults.get(frame.cameraId);
+        }
+    }
+
+    /**
+     * Moves the camera on to its waiting frame, if any, once the running frame is done.
+     */
+    private synchronized void finished(Frame frame) {
+        frame.worker = null;
+        //an interrupt aimed at this frame may have arrived after the classifier returned, so don't
+        // let it leak into the next task on this thread
+        Thread.interrupted();
+        frame.timeout.cancel(false);
+        CameraQueue queue = cameras.get(frame.cameraId);
+        if (queue == null || queue.running != frame) {
+            return;
+        }
+        queue.running = queue.waiting;
+        queue.waiting = null;
+        if (queue.running == null) {
+            cameras.remove(frame.cameraId);
+        } else {
+            start(queue.running);
+        }
+    }
+
+    /**
+     * Stops work on a frame whose result is no longer wanted because it was cancelled, timed out
+     * or failed.
+     */
+    private synchronized void abandon(Frame frame) {
+        CameraQueue queue = cameras.get(frame.cameraId);
+        if (queue != null && queue.waiting == frame) {
+            queue.waiting = null;
+            frame.timeout.cancel(false);
+        } else if (frame.worker != null) {
+            //interrupts the classification; finished() then starts the camera's next frame
+            frame.worker.interrupt();
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static class CameraQueue {
+        private Frame running;
+        private Frame waiting;
+    }
+
+    private static class Frame {
+        private final String cameraId;
+        private final BufferedImage image;
+        private final ByteBuffer encodedImage;
+        private final float confidenceThreshold;
+        private final CompletableFuture<ClassificationResult> result = new CompletableFuture<>();
+        //guarded by the classifier's lock
+        private ScheduledFuture<?> timeout;
+        private Thread worker;
+
+        Frame(String cameraId, BufferedImage image, ByteBuffer encodedImage, float confidenceThreshold) {
+            this.cameraId = cameraId;
+            this.image = image;
+            this.encodedImage = encodedImage;
+            this.confidenceThreshold = confidenceThreshold;
+        }
+    }
+}
@@ -17,6 +17,8 @@ import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Comparator;
 import java.util.Properties;
 import java.util.stream.Collectors;
 
@@ -32,8 +34,12 @@ import java.util.stream.Collectors;
  *      aws.id=[your access key id]
  *      aws.secret=[your Secret access key]
  *      aws.region=[an aws region of choice. For example: us-east-2]
+ *
+ * Rekognition labels one image per request, so classifyAll sends the images one after another. To
+ * have many cameras' frames in flight at once, wrap this in a PipelinedImageService; the client is
+ * shared and safe to use from several threads.
  */
-public class AwsImageService {
+public class AwsImageService implements ImageService {
 
     private Logger log = LoggerFactory.getLogger(AwsImageService.class);
 
@@ -43,9 +49,13 @@ public class AwsImageService {
     public AwsImageService() {
         Properties props = new Properties();
         try (InputStream is = getClass().getClassLoader().getResourceAsStream("config.properties")) {
+            if (is == null) {
+                log.error("Unable to initialize AWS Rekognition, no properties file found");
+                return;
+            }
             props.load(is);
         } catch (IOException ioe ) {
-            log.error("Unable to initialize AWS Rekognition, no properties file found", ioe);
+            log.error("Unable to initialize AWS Rekognition, properties file could not be read", ioe);
             return;
         }
 
@@ -60,25 +70,66 @@ public class AwsImageService {
                 .build();
     }
 
+    /**
+     * Rekognition needs an image to look at, so without one there is never a cat.
+     */
+    @Override
+    public boolean imageContainsCat() {
+        return false;
+    }
+
     /**
      * Returns true if the provided image contains a cat.
      * @param image Image to scan
      * @param confidenceThreshhold Minimum threshhold to consider for cat. For example, 90.0f would require 90% confidence minimum
      * @return
      */
+    @Override
     public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
-        Image awsImage = null;
+        return classify(image, confidenceThreshhold).isCat();
+    }
+
+    /**
+     * Encodes the image as a JPEG for Rekognition. Callers that already have the encoded frame
+     * should use {@link #classify(ByteBuffer, float)} instead.
+     */
+    @Override
+    public ClassificationResult classify(BufferedImage image, float confidenceThreshold) {
         try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
             ImageIO.write(image, "jpg", os);
-            awsImage = Image.builder().bytes(SdkBytes.fromByteArray(os.toByteArray())).build();
+            return detectCat(SdkBytes.fromByteArrayUnsafe(os.toByteArray()), confidenceThreshold);
         } catch (IOException ioe) {
             log.error("Error building image byte array", ioe);
-            return false;
+            return ClassificationResult.of(false);
+        }
+    }
+
+    /**
+     * Sends the encoded image to Rekognition as it is. When the buffer is a whole array the bytes
+     * aren't copied either.
+     */
+    @Override
+    public ClassificationResult classify(ByteBuffer encodedImage, float confidenceThreshold) {
+        ByteBuffer bytes = encodedImage.duplicate();
+        if (bytes.hasArray() && bytes.arrayOffset() == 0 && bytes.position() == 0 && bytes.remaining() == bytes.array().length) {
+            return detectCat(SdkBytes.fromByteArrayUnsafe(bytes.array()), confidenceThreshold);
+        }
+        return detectCat(SdkBytes.fromByteBuffer(bytes), confidenceThreshold);
+    }
+
+    private ClassificationResult detectCat(SdkBytes imageBytes, float confidenceThreshold) {
+        if (rekognitionClient == null) {
+            throw new IllegalStateException("AWS Rekognition is not configured; see config.properties");
         }
-        DetectLabelsRequest detectLabelsRequest = DetectLabelsRequest.builder().image(awsImage).minConfidence(confidenceThreshhold).build();
+        Image awsImage = Image.builder().bytes(imageBytes).build();
+        DetectLabelsRequest detectLabelsRequest = DetectLabelsRequest.builder().image(awsImage).minConfidence(confidenceThreshold).build();
         DetectLabelsResponse response = rekognitionClient.detectLabels(detectLabelsRequest);
         logLabelsForFun(response);
-        return response.labels().stream().filter(l -> l.name().toLowerCase().contains("cat")).findFirst().isPresent();
+        return response.labels().stream()
+                .filter(l -> l.name().toLowerCase().contains("cat"))
+                .map(l -> new ClassificationResult(true, l.confidence()))
+                .max(Comparator.comparing(ClassificationResult::getConfidence))
+                .orElse(ClassificationResult.of(false));
     }
 
     private void logLabelsForFun(DetectLabelsResponse response) {
@@ -0,0 +1,224 @@
+package com.udacity.catpoint.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * ImageService decorator that remembers recent answers, so a camera looking at an unchanged scene
+ * doesn't send the same picture to the classifier over and over.
+ *
+ * Frames are identified by a 64-bit difference hash (dHash): the frame is shrunk to 9x8 grayscale
+ * pixels and each bit records whether a pixel is brighter than its right-hand neighbour. The hash
+ * ignores scaling, compression noise and small lighting changes, and two frames whose hashes differ
+ * in at most the configured number of bits are treated as the same picture. A tolerance of 0 only
+ * matches identical hashes.
+ *
+ * The cache holds a bounded number of entries, evicting the least recently used one when it's full,
+ * and forgets entries older than the maximum age so a changed answer from the classifier is picked
+ * up eventually.
+ */
+public class CachingImageService implements ImageService {
+
+    private static final int HASH_WIDTH = 9;
+    private static final int HASH_HEIGHT = 8;
+
+    private final ImageService delegate;
+    private final int maxEntries;
+    private final long maxAgeNanos;
+    private final int hammingTolerance;
+    private final LongSupplier clock;
+
+    //hash to cached answer in least recently used order; guarded by itself
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param delegate The service that does the actual classifying
+     * @param maxEntries Maximum number of frames remembered. Near matches are found by scanning
+     *                   every entry, so this should stay in the hundreds
+     * @param maxAge How long an answer may be reused
+     * @param hammingTolerance Maximum number of differing hash bits for two frames to match, 0 to 64
+     */
+    public CachingImageService(ImageService delegate, int maxEntries, long maxAge, TimeUnit unit, int hammingTolerance) {
+        this(delegate, maxEntries, maxAge, unit, hammingTolerance, System::nanoTime);
+    }
+
+    CachingImageService(ImageService delegate, int maxEntries, long maxAge, TimeUnit unit, int hammingTolerance, LongSupplier clock) {
+        if (maxEntries < 1 || maxAge <= 0) {
+            throw new IllegalArgumentException("maxEntries and maxAge must be positive");
+        }
+        if (hammingTolerance < 0 || hammingTolerance > Long.SIZE) {
+            throw new IllegalArgumentException("hammingTolerance must be between 0 and 64");
+        }
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.maxAgeNanos = unit.toNanos(maxAge);
+        this.hammingTolerance = hammingTolerance;
+        this.clock = clock;
+    }
+
+    /**
+     * There is no frame to recognize, so this always goes to the delegate.
+     */
+    @Override
+    public boolean imageContainsCat() {
+        return delegate.imageContainsCat();
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        if (image == null) {
+            return delegate.imageContainsCat(null, confidenceThreshold);
+        }
+        return classify(image, confidenceThreshold).isCat();
+    }
+
+    @Override
+    public ClassificationResult classify(BufferedImage image, float confidenceThreshold) {
+        if (image == null) {
+            return delegate.classify((BufferedImage) null, confidenceThreshold);
+        }
+        return cached(differenceHash(image), confidenceThreshold, () -> delegate.classify(image, confidenceThreshold));
+    }
+
+    /**
+     * The image has to be decoded to be hashed, but on a miss the delegate still gets the
+     * original bytes.
+     */
+    @Override
+    public ClassificationResult classify(ByteBuffer encodedImage, float confidenceThreshold) {
+        long hash = differenceHash(ImageService.decode(encodedImage));
+        return cached(hash, confidenceThreshold, () -> delegate.classify(encodedImage, confidenceThreshold));
+    }
+
+    private ClassificationResult cached(long hash, float confidenceThreshold, Supplier<ClassificationResult> classifier) {
+        ClassificationResult cached = lookup(hash, confidenceThreshold);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        //classify without holding the lock; two threads missing on the same frame both classify it
+        ClassificationResult result = classifier.get();
+        store(hash, confidenceThreshold, result);
+        return result;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return entries dropped because the cache was full or they were too old
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Computes the 64-bit difference hash of an image.
+     */
+    static long differenceHash(BufferedImage image) {
+        BufferedImage small = new BufferedImage(HASH_WIDTH, HASH_HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = small.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(image, 0, 0, HASH_WIDTH, HASH_HEIGHT, null);
+        } finally {
+            g.dispose();
+        }
+        byte[] pixels = ((DataBufferByte) small.getRaster().getDataBuffer()).getData();
+        long hash = 0;
+        for (int y = 0; y < HASH_HEIGHT; y++) {
+            int row = y * HASH_WIDTH;
+            for (int x = 0; x < HASH_WIDTH - 1; x++) {
+                hash <<= 1;
+                if ((pixels[row + x] & 0xff) > (pixels[row + x + 1] & 0xff)) {
+                    hash |= 1;
+                }
+            }
+        }
+        return hash;
+    }
+
+    private ClassificationResult lookup(long hash, float confidenceThreshold) {
+        long now = clock.getAsLong();
+        synchronized (entries) {
+            Entry exact = entries.get(hash);
+            if (exact != null && matches(exact, confidenceThreshold, now)) {
+                return exact.result;
+            }
+            Long nearest = null;
+            int nearestDistance = Integer.MAX_VALUE;
+            Iterator<Map.Entry<Long, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Long, Entry> e = it.next();
+                if (now - e.getValue().storedAt > maxAgeNanos) {
+                    it.remove();
+                    evictions.incrementAndGet();
+                    continue;
+                }
+                int distance = Long.bitCount(e.getKey() ^ hash);
+                if (distance <= hammingTolerance && distance < nearestDistance
+                        && e.getValue().confidenceThreshold == confidenceThreshold) {
+                    nearest = e.getKey();
+                    nearestDistance = distance;
+                }
+            }
+            //get() marks the entry as recently used
+            return nearest == null ? null : entries.get(nearest).result;
+        }
+    }
+
+    private boolean matches(Entry entry, float confidenceThreshold, long now) {
+        return entry.confidenceThreshold == confidenceThreshold && now - entry.storedAt <= maxAgeNanos;
+    }
+
+    private void store(long hash, float confidenceThreshold, ClassificationResult result) {
+        Entry entry = new Entry(result, confidenceThreshold, clock.getAsLong());
+        synchronized (entries) {
+            entries.put(hash, entry);
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (entries.size() > maxEntries) {
+                eldest.next();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private static class Entry {
+        private final ClassificationResult result;
+        private final float confidenceThreshold;
+        private final long storedAt;
+
+        Entry(ClassificationResult result, float confidenceThreshold, long storedAt) {
+            this.result = result;
+            this.confidenceThreshold = confidenceThreshold;
+            this.storedAt = storedAt;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.udacity.catpoint.service;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+
+/**
+ * Pure-Java feature extractor used by LocalImageService. A frame is sampled on a fixed grid, so the
+ * cost doesn't depend on its resolution, and summarized as a handful of color and texture statistics,
+ * each between 0 and 1.
+ */
+final class CatFeatures {
+
+    static final String[] NAMES = {
+            "furTone", "fineTexture", "green", "skyBlue", "meanSaturation", "edgeDensity", "meanGradient", "luminanceSpread", "dark"
+    };
+
+    //frames are sampled on a GRID x GRID lattice
+    private static final int GRID = 64;
+    //luminance steps between neighbouring samples: fur shows up as many small steps, outlines as large ones
+    private static final int TEXTURE_THRESHOLD = 8;
+    private static final int EDGE_THRESHOLD = 40;
+
+    private CatFeatures() {
+    }
+
+    /**
+     * @return the features of the image, in the order of {@link #NAMES}
+     */
+    static double[] extract(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] luminance = new int[GRID * GRID];
+        float[] hsb = new float[3];
+        int furTone = 0;
+        int green = 0;
+        int skyBlue = 0;
+        int dark = 0;
+        double saturation = 0;
+        double luminanceSum = 0;
+        double luminanceSquares = 0;
+        for (int gy = 0; gy < GRID; gy++) {
+            int y = (int) ((2L * gy + 1) * height / (2L * GRID));
+            for (int gx = 0; gx < GRID; gx++) {
+                int x = (int) ((2L * gx + 1) * width / (2L * GRID));
+                int rgb = image.getRGB(x, y);
+                int r = (rgb >> 16) & 0xff;
+                int g = (rgb >> 8) & 0xff;
+                int b = rgb & 0xff;
+                Color.RGBtoHSB(r, g, b, hsb);
+                float hue = hsb[0] * 360;
+                float sat = hsb[1];
+                float value = hsb[2];
+                //tan, ginger and grey-brown coats: warm hues, muted saturation, not too dark
+                if (hue >= 10 && hue <= 50 && sat >= 0.25f && sat <= 0.7f && value >= 0.3f) {
+                    furTone++;
+                }
+                if (hue >= 70 && hue <= 170 && sat >= 0.25f && value >= 0.2f) {
+                    green++;
+                }
+                if (hue >= 190 && hue <= 240 && sat >= 0.2f && value >= 0.5f) {
+                    skyBlue++;
+                }
+                if (value < 0.15f) {
+                    dark++;
+                }
+                saturation += sat;
+                int l = (r * 77 + g * 150 + b * 29) >> 8;
+                luminance[gy * GRID + gx] = l;
+                luminanceSum += l;
+                luminanceSquares += l * l;
+            }
+        }
+        int edges = 0;
+        int texture = 0;
+        double gradientSum = 0;
+        for (int gy = 0; gy < GRID - 1; gy++) {
+            for (int gx = 0; gx < GRID - 1; gx++) {
+                int i = gy * GRID + gx;
+                int gradient = Math.abs(luminance[i + 1] - luminance[i]) + Math.abs(luminance[i + GRID] - luminance[i]);
+                gradientSum += gradient;
+                if (gradient > EDGE_THRESHOLD) {
+                    edges++;
+                } else if (gradient >= TEXTURE_THRESHOLD) {
+                    texture++;
+                }
+            }
+        }
+        double samples = GRID * GRID;
+        double gradients = (GRID - 1) * (GRID - 1);
+        double mean = luminanceSum / samples;
+        double spread = Math.sqrt(Math.max(0, luminanceSquares / samples - mean * mean));
+        return new double[]{
+                furTone / samples,
+                texture / gradients,
+                green / samples,
+                skyBlue / samples,
+                saturation / samples,
+                edges / gradients,
+                gradientSum / gradients / 510,
+                spread / 128,
+                dark / samples
+        };
+    }
+}
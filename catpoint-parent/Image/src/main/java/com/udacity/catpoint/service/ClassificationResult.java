@@ -0,0 +1,59 @@
+package com.udacity.catpoint.service;
+
+/**
+ * The answer an ImageService gives for one image: whether it contains a cat, and how confident
+ * the service is that it does.
+ */
+public final class ClassificationResult {
+
+    private static final ClassificationResult CAT = new ClassificationResult(true, 100f);
+    private static final ClassificationResult NO_CAT = new ClassificationResult(false, 0f);
+
+    private final boolean cat;
+    private final float confidence;
+
+    /**
+     * @param cat Whether the image was judged to contain a cat
+     * @param confidence Confidence, from 0 to 100, that the image contains a cat
+     */
+    public ClassificationResult(boolean cat, float confidence) {
+        if (!(confidence >= 0 && confidence <= 100)) {
+            throw new IllegalArgumentException("confidence must be between 0 and 100");
+        }
+        this.cat = cat;
+        this.confidence = confidence;
+    }
+
+    /**
+     * @return a result for services that only give a yes or no answer, with full confidence in it
+     */
+    public static ClassificationResult of(boolean cat) {
+        return cat ? CAT : NO_CAT;
+    }
+
+    public boolean isCat() {
+        return cat;
+    }
+
+    public float getConfidence() {
+        return confidence;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ClassificationResult that = (ClassificationResult) o;
+        return cat == that.cat && Float.compare(confidence, that.confidence) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Boolean.hashCode(cat) + Float.hashCode(confidence);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%.1f%%)", cat ? "cat" : "no cat", confidence);
+    }
+}
@@ -1,5 +1,15 @@
 package com.udacity.catpoint.service;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
 public interface ImageService
 {
     /**
@@ -8,4 +18,98 @@ public interface ImageService
      * @return true if a cat is detected, false otherwise.
      */
     boolean imageContainsCat();
+
+    /**
+     * Determines if the given image contains a cat. Services that don't look at the image, such
+     * as FakeImageService, can rely on the default, which ignores it.
+     *
+     * @param image Image to scan
+     * @param confidenceThreshold Minimum confidence, in percent, required to report a cat
+     * @return true if a cat is detected, false otherwise.
+     */
+    default boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        return imageContainsCat();
+    }
+
+    /**
+     * Scores a decoded image. The default wraps {@link #imageContainsCat(BufferedImage, float)}, so
+     * services that only answer yes or no report full confidence in that answer.
+     *
+     * @param image Image to scan
+     * @param confidenceThreshold Minimum confidence, in percent, required to report a cat
+     */
+    default ClassificationResult classify(BufferedImage image, float confidenceThreshold) {
+        return ClassificationResult.of(imageContainsCat(image, confidenceThreshold));
+    }
+
+    /**
+     * Scores an image still in its encoded form, such as a JPEG frame straight from a camera.
+     * Services that send images elsewhere should override this to pass the bytes through as they
+     * are; the default decodes them and calls {@link #classify(BufferedImage, float)}.
+     *
+     * @param encodedImage The encoded image, from its position to its limit. The buffer's position
+     *                     isn't changed, and its contents must not be modified until this returns
+     * @param confidenceThreshold Minimum confidence, in percent, required to report a cat
+     * @throws IllegalArgumentException if the bytes aren't an image format ImageIO can read
+     */
+    default ClassificationResult classify(ByteBuffer encodedImage, float confidenceThreshold) {
+        return classify(decode(encodedImage), confidenceThreshold);
+    }
+
+    /**
+     * Scores several images in one call, for example the latest frame from every camera. The
+     * default scores them one after another; implementations that can overlap or combine requests
+     * override this.
+     *
+     * @param images Images to scan
+     * @param confidenceThreshold Minimum confidence, in percent, required to report a cat
+     * @return one result per image, in the same order
+     */
+    default List<ClassificationResult> classifyAll(List<BufferedImage> images, float confidenceThreshold) {
+        List<ClassificationResult> results = new ArrayList<>(images.size());
+        for (BufferedImage image : images) {
+            results.add(classify(image, confidenceThreshold));
+        }
+        return results;
+    }
+
+    /**
+     * Scores several encoded images in one call; see {@link #classifyAll(List, float)}.
+     *
+     * @param encodedImages Encoded images to scan, each as described for {@link #classify(ByteBuffer, float)}
+     * @param confidenceThreshold Minimum confidence, in percent, required to report a cat
+     * @return one result per image, in the same order
+     */
+    default List<ClassificationResult> classifyAllEncoded(List<ByteBuffer> encodedImages, float confidenceThreshold) {
+        List<ClassificationResult> results = new ArrayList<>(encodedImages.size());
+        for (ByteBuffer encodedImage : encodedImages) {
+            results.add(classify(encodedImage, confidenceThreshold));
+        }
+        return results;
+    }
+
+    /**
+     * Decodes an encoded image without copying the bytes when the buffer is backed by an array.
+     */
+    static BufferedImage decode(ByteBuffer encodedImage) {
+        ByteBuffer bytes = encodedImage.duplicate();
+        InputStream in;
+        if (bytes.hasArray()) {
+            in = new ByteArrayInputStream(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+        } else {
+            byte[] copy = new byte[bytes.remaining()];
+            bytes.get(copy);
+            in = new ByteArrayInputStream(copy);
+        }
+        BufferedImage image;
+        try {
+            image = ImageIO.read(in);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to decode image", ioe);
+        }
+        if (image == null) {
+            throw new IllegalArgumentException("Unrecognized image format");
+        }
+        return image;
+    }
 }
@@ -0,0 +1,99 @@
+package com.udacity.catpoint.service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Image service that recognizes cats on the local CPU, without network access. A frame is reduced
+ * to a few color and texture features by {@link CatFeatures}, and a linear model turns them into a
+ * confidence: the logistic function of the model's bias plus the weighted sum of the features. A
+ * frame contains a cat when that confidence, in percent, reaches the requested threshold.
+ *
+ * The model is a properties file with a "bias" entry and a "weight.&lt;feature&gt;" entry per
+ * feature used. The default model is bundled as local-cat-model.properties next to this class;
+ * another one can be supplied as a stream, for example after retraining on real camera footage.
+ * Classification samples a fixed number of pixels, so it takes about the same few milliseconds
+ * whatever the frame size.
+ */
+public class LocalImageService implements ImageService {
+
+    private static final String DEFAULT_MODEL = "local-cat-model.properties";
+
+    private final double bias;
+    private final double[] weights;
+
+    /**
+     * Creates a service using the bundled model.
+     */
+    public LocalImageService() {
+        this(LocalImageService.class.getResourceAsStream(DEFAULT_MODEL));
+    }
+
+    /**
+     * Creates a service using the model read from the stream, which is closed afterwards.
+     */
+    public LocalImageService(InputStream model) {
+        if (model == null) {
+            throw new IllegalArgumentException("no model to load");
+        }
+        Properties props = new Properties();
+        try (InputStream is = model) {
+            props.load(is);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to read the cat model", ioe);
+        }
+        List<String> features = Arrays.asList(CatFeatures.NAMES);
+        weights = new double[features.size()];
+        double modelBias = 0;
+        for (String key : props.stringPropertyNames()) {
+            double value = Double.parseDouble(props.getProperty(key).trim());
+            if (key.equals("bias")) {
+                modelBias = value;
+            } else if (key.startsWith("weight.") && features.contains(key.substring("weight.".length()))) {
+                weights[features.indexOf(key.substring("weight.".length()))] = value;
+            } else {
+                throw new IllegalArgumentException("Unknown model entry " + key);
+            }
+        }
+        bias = modelBias;
+    }
+
+    /**
+     * There is no image to look at, so there is never a cat.
+     */
+    @Override
+    public boolean imageContainsCat() {
+        return false;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        return classify(image, confidenceThreshold).isCat();
+    }
+
+    @Override
+    public ClassificationResult classify(BufferedImage image, float confidenceThreshold) {
+        if (image == null) {
+            return ClassificationResult.of(false);
+        }
+        float confidence = (float) confidence(image);
+        return new ClassificationResult(confidence >= confidenceThreshold, confidence);
+    }
+
+    /**
+     * @return the model's confidence, from 0 to 100, that the image shows a cat
+     */
+    public double confidence(BufferedImage image) {
+        double[] features = CatFeatures.extract(image);
+        double score = bias;
+        for (int i = 0; i < features.length; i++) {
+            score += weights[i] * features[i];
+        }
+        return 100 / (1 + Math.exp(-score));
+    }
+}
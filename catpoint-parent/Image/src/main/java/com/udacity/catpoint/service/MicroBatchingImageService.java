@@ -0,0 +1,313 @@
+package com.udacity.catpoint.service;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Front end that gathers frames arriving from many cameras into batches for the delegate's
+ * classifyAll methods. The first frame of a batch opens a short collection window; the batch is
+ * dispatched when the window closes or as soon as it holds the maximum number of frames, whichever
+ * comes first. Frames of one batch with different thresholds, or a mix of decoded and encoded
+ * frames, are sent as separate classifyAll calls.
+ *
+ * {@link #submit(BufferedImage, float)} returns immediately. The blocking ImageService methods wait
+ * for the frame's batch, so this can also stand in for the delegate anywhere an ImageService is
+ * expected; frames only get batched together if enough threads call it at once, for example an
+ * AsyncImageClassifier with a worker thread per camera.
+ */
+public class MicroBatchingImageService implements ImageService, AutoCloseable {
+
+    private final ImageService delegate;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final ScheduledThreadPoolExecutor windows;
+    private final ExecutorService dispatchers;
+
+    //guarded by this
+    private List<Request> pending = new ArrayList<>();
+    private ScheduledFuture<?> window;
+    //counts taken batches, so a window that fires late can tell its batch has already gone
+    private long batchNumber;
+    private boolean closed;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong frames = new AtomicLong();
+
+    /**
+     * @param delegate The service that classifies each batch
+     * @param maxBatchSize Number of frames that dispatches a batch without waiting for the window
+     * @param maxDelay How long the first frame of a batch may wait for others to join it
+     * @param dispatchThreads Maximum number of batches being classified at the same time
+     */
+    public MicroBatchingImageService(ImageService delegate, int maxBatchSize, long maxDelay, TimeUnit unit, int dispatchThreads) {
+        if (maxBatchSize < 1 || maxDelay < 0 || dispatchThreads < 1) {
+            throw new IllegalArgumentException("maxBatchSize and dispatchThreads must be positive and maxDelay not negative");
+        }
+        this.delegate = delegate;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.windows = new ScheduledThreadPoolExecutor(1, daemonThreads("image-batch-window"));
+        this.windows.setRemoveOnCancelPolicy(true);
+        this.dispatchers = Executors.newFixedThreadPool(dispatchThreads, daemonThreads("image-batch"));
+    }
+
+    /**
+     * Adds a frame to the current batch.
+     * @param image The frame, which must not be modified until the returned future completes
+     * @return the frame's result, completed once its batch has been classified
+     */
+    public CompletableFuture<ClassificationResult> submit(BufferedImage image, float confidenceThreshold) {
+        return submit(new Request(image, null, confidenceThreshold));
+    }
+
+    /**
+     * Adds an encoded frame to the current batch.
+     * @param encodedImage The frame's bytes, which must not be modified until the returned future
+     *                     completes
+     * @return the frame's result, completed once its batch has been classified
+     */
+    public CompletableFuture<ClassificationResult> submit(ByteBuffer encodedImage, float confidenceThreshold) {
+        return submit(new Request(null, encodedImage, confidenceThreshold));
+    }
+
+    /**
+     * There is no frame to batch, so this goes straight to the delegate.
+     */
+    @Override
+    public boolean imageContainsCat() {
+        return delegate.imageContainsCat();
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        return classify(image, confidenceThreshold).isCat();
+    }
+
+    @Override
+    public ClassificationResult classify(BufferedImage image, float confidenceThreshold) {
+        return await(submit(image, confidenceThreshold));
+    }
+
+    @Override
+    public ClassificationResult classify(ByteBuffer encodedImage, float confidenceThreshold) {
+        return await(submit(encodedImage, confidenceThreshold));
+    }
+
+    @Override
+    public List<ClassificationResult> classifyAll(List<BufferedImage> images, float confidenceThreshold) {
+        List<CompletableFuture<ClassificationResult>> results = new ArrayList<>(images.size());
+        for (BufferedImage image : images) {
+            results.add(submit(image, confidenceThreshold));
+        }
+        return awaitAll(results);
+    }
+
+    @Override
+    public List<ClassificationResult> classifyAllEncoded(List<ByteBuffer> encodedImages, float confidenceThreshold) {
+        List<CompletableFuture<ClassificationResult>> results = new ArrayList<>(encodedImages.size());
+        for (ByteBuffer encodedImage : encodedImages) {
+            results.add(submit(encodedImage, confidenceThreshold));
+        }
+        return awaitAll(results);
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * @return the number of frames sent to the delegate in batches
+     */
+    public long getFrameCount() {
+        return frames.get();
+    }
+
+    /**
+     * Cancels frames that haven't been dispatched and stops the worker threads.
+     */
+    @Override
+    public void close() {
+        List<Request> outstanding;
+        synchronized (this) {
+            closed = true;
+            outstanding = takeBatch();
+        }
+        windows.shutdownNow();
+        //batches still queued for a dispatcher will never run
+        for (Runnable batch : dispatchers.shutdownNow()) {
+            outstanding.addAll(((Batch) batch).requests);
+        }
+        outstanding.forEach(request -> request.result.cancel(false));
+    }
+
+    private CompletableFuture<ClassificationResult> submit(Request request) {
+        List<Request> full = null;
+        synchronized (this) {
+            if (closed) {
+                request.result.completeExceptionally(new RejectedExecutionException("batcher is closed"));
+                return request.result;
+            }
+            pending.add(request);
+            if (pending.size() >= maxBatchSize) {
+                full = takeBatch();
+            } else if (pending.size() == 1) {
+                long batch = batchNumber;
+                window = windows.schedule(() -> windowClosed(batch), maxDelayNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return request.result;
+    }
+
+    private void windowClosed(long batchNumber) {
+        List<Request> batch;
+        synchronized (this) {
+            if (batchNumber != this.batchNumber) {
+                return;
+            }
+            batch = takeBatch();
+        }
+        dispatch(batch);
+    }
+
+    //must hold the lock
+    private List<Request> takeBatch() {
+        List<Request> batch = pending;
+        pending = new ArrayList<>();
+        batchNumber++;
+        if (window != null) {
+            window.cancel(false);
+            window = null;
+        }
+        return batch;
+    }
+
+    private void dispatch(List<Request> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            dispatchers.execute(new Batch(batch));
+        } catch (RejectedExecutionException e) {
+            batch.forEach(request -> request.result.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * Splits the batch into groups the delegate can classify in one call and completes every
+     * request with its result.
+     */
+    private void classifyBatch(List<Request> batch) {
+        Map<String, List<Request>> groups = new LinkedHashMap<>();
+        for (Request request : batch) {
+            //frames that were cancelled while waiting aren't worth classifying
+            if (!request.result.isDone()) {
+                String key = (request.encodedImage != null ? "encoded " : "decoded ") + request.confidenceThreshold;
+                groups.computeIfAbsent(key, k -> new ArrayList<>()).add(request);
+            }
+        }
+        for (List<Request> group : groups.values()) {
+            batches.incrementAndGet();
+            frames.addAndGet(group.size());
+            try {
+                List<ClassificationResult> results = classifyGroup(group);
+                if (results.size() != group.size()) {
+                    throw new IllegalStateException("expected " + group.size() + " results but got " + results.size());
+                }
+                for (int i = 0; i < group.size(); i++) {
+                    group.get(i).result.complete(results.get(i));
+                }
+            } catch (RuntimeException e) {
+                group.forEach(request -> request.result.completeExceptionally(e));
+            }
+        }
+    }
+
+    private List<ClassificationResult> classifyGroup(List<Request> group) {
+        float confidenceThreshold = group.get(0).confidenceThreshold;
+        if (group.get(0).encodedImage != null) {
+            List<ByteBuffer> encodedImages = new ArrayList<>(group.size());
+            group.forEach(request -> encodedImages.add(request.encodedImage));
+            return delegate.classifyAllEncoded(encodedImages, confidenceThreshold);
+        }
+        List<BufferedImage> images = new ArrayList<>(group.size());
+        group.forEach(request -> images.add(request.image));
+        return delegate.classifyAll(images, confidenceThreshold);
+    }
+
+    private static ClassificationResult await(CompletableFuture<ClassificationResult> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("interrupted while waiting for the batch");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Image classification failed", e.getCause());
+        }
+    }
+
+    private static List<ClassificationResult> awaitAll(List<CompletableFuture<ClassificationResult>> results) {
+        List<ClassificationResult> answers = new ArrayList<>(results.size());
+        for (CompletableFuture<ClassificationResult> result : results) {
+            answers.add(await(result));
+        }
+        return answers;
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private class Batch implements Runnable {
+        private final List<Request> requests;
+
+        Batch(List<Request> requests) {
+            this.requests = requests;
+        }
+
+        @Override
+        public void run() {
+            classifyBatch(requests);
+        }
+    }
+
+    private static class Request {
+        private final BufferedImage image;
+        private final ByteBuffer encodedImage;
+        private final float confidenceThreshold;
+        private final CompletableFuture<ClassificationResult> result = new CompletableFuture<>();
+
+        Request(BufferedImage image, ByteBuffer encodedImage, float confidenceThreshold) {
+            this.image = image;
+            this.encodedImage = encodedImage;
+            this.confidenceThreshold = confidenceThreshold;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.udacity.catpoint.service;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.IndexColorModel;
+import java.awt.image.WritableRaster;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides whether a camera frame differs enough from what the camera last showed to be worth
+ * classifying.
+ *
+ * Each frame is reduced to a coarse grid of average luminance values, sampling a fixed number of
+ * pixels per cell so the cost doesn't depend on the frame's resolution. The grid is compared cell by
+ * cell with the camera's reference grid: a cell has changed if its luminance moved by more than the
+ * pixel threshold, and the frame has motion if enough cells changed. The reference is the last
+ * frame that had motion rather than simply the previous frame, so a scene that changes slowly
+ * still trips the gate once the changes add up.
+ *
+ * The grids are allocated once per camera and reused, and pixels are read through the raster, so
+ * checking a frame allocates nothing. Frames from one camera must not be
+ * checked concurrently with each other; different cameras may be checked in parallel.
+ */
+public class MotionGate {
+
+    //pixels sampled along each side of a grid cell
+    private static final int SAMPLES_PER_SIDE = 4;
+
+    private final int gridWidth;
+    private final int gridHeight;
+    private final int pixelThreshold;
+    private final double changedCellFraction;
+    private final Map<String, CameraState> cameras = new ConcurrentHashMap<>();
+
+    private final AtomicLong framesChecked = new AtomicLong();
+    private final AtomicLong framesSkipped = new AtomicLong();
+
+    /**
+     * Creates a gate with a 32x24 grid that forwards a frame when 2% of its cells changed by more
+     * than 24 luminance levels.
+     */
+    public MotionGate() {
+        this(32, 24, 24, 0.02);
+    }
+
+    /**
+     * @param gridWidth Number of grid columns a frame is reduced to
+     * @param gridHeight Number of grid rows a frame is reduced to
+     * @param pixelThreshold Change in average luminance, 0 to 255, for a cell to count as changed
+     * @param changedCellFraction Fraction of cells that must change for the frame to have motion;
+     *                            at least one cell always has to change
+     */
+    public MotionGate(int gridWidth, int gridHeight, int pixelThreshold, double changedCellFraction) {
+        if (gridWidth < 1 || gridHeight < 1) {
+            throw new IllegalArgumentException("grid dimensions must be positive");
+        }
+        if (pixelThreshold < 0 || pixelThreshold > 255 || changedCellFraction < 0 || changedCellFraction > 1) {
+            throw new IllegalArgumentException("thresholds out of range");
+        }
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        this.pixelThreshold = pixelThreshold;
+        this.changedCellFraction = changedCellFraction;
+    }
+
+    /**
+     * Checks a frame against the camera's reference frame. The first frame from a camera always
+     * has motion. A frame with motion becomes the camera's new reference.
+     * @return true if the frame should be classified
+     */
+    public boolean hasMotion(String cameraId, BufferedImage frame) {
+        CameraState camera = cameras.computeIfAbsent(cameraId, k -> new CameraState(gridWidth * gridHeight));
+        boolean motion = camera.check(frame);
+        framesChecked.incrementAndGet();
+        if (!motion) {
+            framesSkipped.incrementAndGet();
+        }
+        return motion;
+    }
+
+    /**
+     * Forgets the camera's reference frame, so its next frame has motion.
+     */
+    public void reset(String cameraId) {
+        cameras.remove(cameraId);
+    }
+
+    public long getFramesChecked() {
+        return framesChecked.get();
+    }
+
+    public long getFramesSkipped() {
+        return framesSkipped.get();
+    }
+
+    /**
+     * @return the fraction of checked frames that had no motion, or 0 before any frame was checked
+     */
+    public double getSkipRatio() {
+        long checked = framesChecked.get();
+        return checked == 0 ? 0 : (double) framesSkipped.get() / checked;
+    }
+
+    public int getPixelThreshold() {
+        return pixelThreshold;
+    }
+
+    public double getChangedCellFraction() {
+        return changedCellFraction;
+    }
+
+    private class CameraState {
+        private int[] reference;
+        private int[] current;
+        private boolean hasReference;
+
+        CameraState(int cells) {
+            reference = new int[cells];
+            current = new int[cells];
+        }
+
+        synchronized boolean check(BufferedImage frame) {
+            reduce(frame, current);
+            if (hasReference && !changed()) {
+                return false;
+            }
+            int[] swap = reference;
+            reference = current;
+            current = swap;
+            hasReference = true;
+            return true;
+        }
+
+        private boolean changed() {
+            int required = Math.max(1, (int) Math.ceil(changedCellFraction * current.length));
+            int changedCells = 0;
+            for (int i = 0; i < current.length; i++) {
+                if (Math.abs(current[i] - reference[i]) > pixelThreshold && ++changedCells >= required) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Fills the grid with the average luminance of each cell.
+     */
+    private void reduce(BufferedImage frame, int[] grid) {
+        int columns = gridWidth * SAMPLES_PER_SIDE;
+        int rows = gridHeight * SAMPLES_PER_SIDE;
+        for (int gy = 0; gy < gridHeight; gy++) {
+            for (int gx = 0; gx < gridWidth; gx++) {
+                int sum = 0;
+                for (int sy = 0; sy < SAMPLES_PER_SIDE; sy++) {
+                    int y = sampleCoordinate(gy * SAMPLES_PER_SIDE + sy, rows, frame.getHeight());
+                    for (int sx = 0; sx < SAMPLES_PER_SIDE; sx++) {
+                        int x = sampleCoordinate(gx * SAMPLES_PER_SIDE + sx, columns, frame.getWidth());
+                        sum += luminance(frame, x, y);
+                    }
+                }
+                grid[gy * gridWidth + gx] = sum / (SAMPLES_PER_SIDE * SAMPLES_PER_SIDE);
+            }
+        }
+    }
+
+    /**
+     * @return the pixel at the centre of the index'th of count equal slices of size pixels
+     */
+    private static int sampleCoordinate(int index, int count, int size) {
+        return (int) ((2L * index + 1) * size / (2L * count));
+    }
+
+    /**
+     * Reads the luminance of one pixel. Direct and component color models are read band by band
+     * through the raster, which doesn't allocate; indexed images fall back to getRGB, which does.
+     */
+    private static int luminance(BufferedImage image, int x, int y) {
+        ColorModel colorModel = image.getColorModel();
+        if (!(colorModel instanceof IndexColorModel)) {
+            WritableRaster raster = image.getRaster();
+            if (raster.getNumBands() >= 3) {
+                return luma(sample(raster, x, y, 0), sample(raster, x, y, 1), sample(raster, x, y, 2));
+            } else if (raster.getNumBands() == 1) {
+                return sample(raster, x, y, 0);
+            }
+        }
+        int rgb = image.getRGB(x, y);
+        return luma((rgb >> 16) & 0xff, (rgb >> 8) & 0xff, rgb & 0xff);
+    }
+
+    /**
+     * @return the band's value scaled to 0-255 whatever its bit depth
+     */
+    private static int sample(WritableRaster raster, int x, int y, int band) {
+        int bits = raster.getSampleModel().getSampleSize(band);
+        int value = raster.getSample(x, y, band);
+        return bits == 8 ? value : bits > 8 ? value >>> (bits - 8) : value * 255 / ((1 << bits) - 1);
+    }
+
+    private static int luma(int r, int g, int b) {
+        return (r * 77 + g * 150 + b * 29) >> 8;
+    }
+}
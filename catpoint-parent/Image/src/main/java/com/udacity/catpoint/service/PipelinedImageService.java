@@ -0,0 +1,139 @@
+package com.udacity.catpoint.service;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * ImageService decorator that overlaps the requests of a batch. Each image of a batch is sent to the
+ * delegate on its own worker thread, so a batch takes about as long as its slowest image rather
+ * than the sum of all of them, which is what a remote service such as AwsImageService needs when
+ * dozens of cameras report at once.
+ *
+ * At most the configured number of requests reach the delegate at any time, counting single-image
+ * calls from other threads as well as batches, so one shared client is never flooded. The
+ * delegate must be safe to call from several threads.
+ */
+public class PipelinedImageService implements ImageService, AutoCloseable {
+
+    private final ImageService delegate;
+    private final int maxConcurrentRequests;
+    private final Semaphore permits;
+    private final ExecutorService requests;
+
+    /**
+     * @param delegate The service that does the actual classifying
+     * @param maxConcurrentRequests Maximum number of requests in flight to the delegate
+     */
+    public PipelinedImageService(ImageService delegate, int maxConcurrentRequests) {
+        if (maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException("maxConcurrentRequests must be positive");
+        }
+        this.delegate = delegate;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.permits = new Semaphore(maxConcurrentRequests);
+        AtomicInteger count = new AtomicInteger();
+        this.requests = Executors.newFixedThreadPool(maxConcurrentRequests, r -> {
+            Thread t = new Thread(r, "image-request-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public boolean imageContainsCat() {
+        return withPermit(delegate::imageContainsCat);
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        return classify(image, confidenceThreshold).isCat();
+    }
+
+    @Override
+    public ClassificationResult classify(BufferedImage image, float confidenceThreshold) {
+        return withPermit(() -> delegate.classify(image, confidenceThreshold));
+    }
+
+    @Override
+    public ClassificationResult classify(ByteBuffer encodedImage, float confidenceThreshold) {
+        return withPermit(() -> delegate.classify(encodedImage, confidenceThreshold));
+    }
+
+    @Override
+    public List<ClassificationResult> classifyAll(List<BufferedImage> images, float confidenceThreshold) {
+        return pipeline(images, image -> delegate.classify(image, confidenceThreshold));
+    }
+
+    @Override
+    public List<ClassificationResult> classifyAllEncoded(List<ByteBuffer> encodedImages, float confidenceThreshold) {
+        return pipeline(encodedImages, encodedImage -> delegate.classify(encodedImage, confidenceThreshold));
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    /**
+     * Stops the worker threads. Batches still running are interrupted.
+     */
+    @Override
+    public void close() {
+        requests.shutdownNow();
+    }
+
+    /**
+     * Classifies every frame on the worker threads and waits for all of them. If any frame fails,
+     * the rest of the batch is cancelled and the first failure is thrown.
+     */
+    private <T> List<ClassificationResult> pipeline(List<T> frames, Function<T, ClassificationResult> classifier) {
+        if (frames.size() == 1) {
+            return List.of(withPermit(() -> classifier.apply(frames.get(0))));
+        }
+        List<Future<ClassificationResult>> pending = new ArrayList<>(frames.size());
+        for (T frame : frames) {
+            pending.add(requests.submit(() -> withPermit(() -> classifier.apply(frame))));
+        }
+        List<ClassificationResult> results = new ArrayList<>(frames.size());
+        try {
+            for (Future<ClassificationResult> request : pending) {
+                results.add(request.get());
+            }
+        } catch (InterruptedException e) {
+            pending.forEach(request -> request.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new CancellationException("interrupted while waiting for the batch");
+        } catch (ExecutionException e) {
+            pending.forEach(request -> request.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Image classification failed", e.getCause());
+        }
+        return results;
+    }
+
+    private <T> T withPermit(Supplier<T> request) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("interrupted while waiting to classify");
+        }
+        try {
+            return request.get();
+        } finally {
+            permits.release();
+        }
+    }
+}
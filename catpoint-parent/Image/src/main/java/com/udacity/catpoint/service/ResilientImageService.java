@@ -0,0 +1,299 @@
+package com.udacity.catpoint.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * ImageService decorator that keeps a slow or failing backend, such as AwsImageService without a
+ * network, from holding up or breaking its callers. Whatever happens to the backend, every call
+ * returns an answer within a bounded time, from the fallback service if necessary.
+ *
+ * <ul>
+ *     <li>Each call to the backend runs on a separate thread and is abandoned, and interrupted, once
+ *     it exceeds the call timeout.</li>
+ *     <li>A call that fails or times out is retried up to the configured number of attempts. Before
+ *     each retry the caller waits a random time of up to the backoff, doubled for every retry, so
+ *     callers that failed together don't all come back at the same moment.</li>
+ *     <li>After the configured number of consecutive failed attempts the circuit opens, and calls
+ *     go straight to the fallback without touching the backend. Once the open duration has passed,
+ *     a single trial call is let through: if it succeeds the circuit closes again, otherwise it
+ *     stays open for another open duration.</li>
+ *     <li>When the backend can't answer, the fallback service does. Its failures are passed on to
+ *     the caller.</li>
+ * </ul>
+ *
+ * A call therefore takes at most maxAttempts call timeouts plus the backoff waits, and callers with
+ * a deadline of their own should leave room in it for that and the fallback. A caller interrupted
+ * while an attempt is still waiting on the backend has given up on it, so that attempt counts as a
+ * timed out failure towards opening the circuit. Batch methods
+ * classify frame by frame through the same protection; to overlap a batch's requests, wrap this in
+ * a PipelinedImageService rather than the other way round.
+ */
+public class ResilientImageService implements ImageService, AutoCloseable {
+
+    public enum CircuitState { CLOSED, OPEN, HALF_OPEN }
+
+    private final Logger log = LoggerFactory.getLogger(ResilientImageService.class);
+
+    private final ImageService delegate;
+    private final ImageService fallback;
+    private final long callTimeoutNanos;
+    private final int maxAttempts;
+    private final long retryBackoffNanos;
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final LongSupplier clock;
+    private final DoubleSupplier jitter;
+    private final ExecutorService calls;
+
+    //guarded by this
+    private CircuitState state = CircuitState.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    /**
+     * Creates a service that gives the backend 4 seconds per attempt and 2 attempts, with a 100ms
+     * backoff, and opens the circuit for 30 seconds after 5 consecutive failures. The backend gets
+     * at most 8.1 seconds per call, which leaves the fallback time to answer within the 10 second
+     * deadline SecurityService gives each camera frame.
+     * @param delegate The backend
+     * @param fallback Service that answers when the backend can't
+     */
+    public ResilientImageService(ImageService delegate, ImageService fallback) {
+        this(delegate, fallback, 4000, 2, 100, 5, 30000, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param delegate The backend; it should give up when its thread is interrupted
+     * @param fallback Service that answers when the backend can't
+     * @param callTimeout How long a single attempt may take
+     * @param maxAttempts Number of attempts per call, including the first
+     * @param retryBackoff Longest wait before the first retry; later retries wait up to twice as
+     *                     long as the one before
+     * @param failureThreshold Consecutive failed attempts that open the circuit
+     * @param openDuration How long the circuit stays open before a trial call
+     */
+    public ResilientImageService(ImageService delegate, ImageService fallback, long callTimeout, int maxAttempts,
+                                 long retryBackoff, int failureThreshold, long openDuration, TimeUnit unit) {
+        this(delegate, fallback, callTimeout, maxAttempts, retryBackoff, failureThreshold, openDuration, unit,
+                System::nanoTime, () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    ResilientImageService(ImageService delegate, ImageService fallback, long callTimeout, int maxAttempts,
+                          long retryBackoff, int failureThreshold, long openDuration, TimeUnit unit,
+                          LongSupplier clock, DoubleSupplier jitter) {
+        if (callTimeout <= 0 || maxAttempts < 1 || failureThreshold < 1) {
+            throw new IllegalArgumentException("callTimeout, maxAttempts and failureThreshold must be positive");
+        }
+        if (retryBackoff < 0 || openDuration < 0) {
+            throw new IllegalArgumentException("retryBackoff and openDuration must not be negative");
+        }
+        this.delegate = delegate;
+        this.fallback = fallback;
+        this.callTimeoutNanos = unit.toNanos(callTimeout);
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffNanos = unit.toNanos(retryBackoff);
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = unit.toNanos(openDuration);
+        this.clock = clock;
+        this.jitter = jitter;
+        AtomicInteger count = new AtomicInteger();
+        //unbounded, but a backend that keeps hanging opens the circuit after failureThreshold calls
+        this.calls = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "image-call-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public boolean imageContainsCat() {
+        return call(ImageService::imageContainsCat);
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        return classify(image, confidenceThreshold).isCat();
+    }
+
+    @Override
+    public ClassificationResult classify(BufferedImage image, float confidenceThreshold) {
+        return call(service -> service.classify(image, confidenceThreshold));
+    }
+
+    @Override
+    public ClassificationResult classify(ByteBuffer encodedImage, float confidenceThreshold) {
+        return call(service -> service.classify(encodedImage, confidenceThreshold));
+    }
+
+    public synchronized CircuitState getCircuitState() {
+        return state;
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    /**
+     * @return attempts that failed, including those that timed out
+     */
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    public long getFallbackCount() {
+        return fallbacks.get();
+    }
+
+    /**
+     * @return the longest a call can spend on the backend, counting every attempt and backoff wait
+     */
+    long maxBackendNanos() {
+        long total = maxAttempts * callTimeoutNanos;
+        for (int attempt = 1; attempt < maxAttempts; attempt++) {
+            total += retryBackoffNanos << Math.min(attempt - 1, 20);
+        }
+        return total;
+    }
+
+    /**
+     * Stops the call threads, interrupting any backend calls still running.
+     */
+    @Override
+    public void close() {
+        calls.shutdownNow();
+    }
+
+    private <T> T call(Function<ImageService, T> request) {
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            if (!allowAttempt()) {
+                break;
+            }
+            if (attempt > 1) {
+                retries.incrementAndGet();
+            }
+            try {
+                T answer = attempt(request);
+                succeeded();
+                return answer;
+            } catch (InterruptedException e) {
+                //the caller's own deadline ran out before the backend answered
+                timeouts.incrementAndGet();
+                failed(e);
+                Thread.currentThread().interrupt();
+                break;
+            } catch (TimeoutException | RuntimeException e) {
+                failed(e);
+            }
+            if (attempt < maxAttempts && !backOff(attempt)) {
+                break;
+            }
+        }
+        fallbacks.incrementAndGet();
+        return request.apply(fallback);
+    }
+
+    private <T> T attempt(Function<ImageService, T> request) throws InterruptedException, TimeoutException {
+        Future<T> answer = calls.submit(() -> request.apply(delegate));
+        try {
+            return answer.get(callTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            timeouts.incrementAndGet();
+            answer.cancel(true);
+            throw e;
+        } catch (InterruptedException e) {
+            answer.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Image classification failed", e.getCause());
+        }
+    }
+
+    /**
+     * Waits a random time before the next attempt.
+     * @return false if the caller was interrupted while waiting
+     */
+    private boolean backOff(int attempt) {
+        long limit = retryBackoffNanos << Math.min(attempt - 1, 20);
+        try {
+            TimeUnit.NANOSECONDS.sleep((long) (jitter.getAsDouble() * limit));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * @return true if the circuit lets an attempt through to the backend
+     */
+    private synchronized boolean allowAttempt() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (clock.getAsLong() - openedAt < openDurationNanos) {
+                    return false;
+                }
+                state = CircuitState.HALF_OPEN;
+                trialInFlight = true;
+                log.info("Trying the image service again");
+                return true;
+            default:
+                //only one trial call at a time
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    private synchronized void succeeded() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        if (state != CircuitState.CLOSED) {
+            log.info("Image service recovered");
+            state = CircuitState.CLOSED;
+        }
+    }
+
+    private synchronized void failed(Exception e) {
+        failures.incrementAndGet();
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == CircuitState.HALF_OPEN || (state == CircuitState.CLOSED && consecutiveFailures >= failureThreshold)) {
+            log.warn("Image service failing, using the fallback for the next {}ms", TimeUnit.NANOSECONDS.toMillis(openDurationNanos), e);
+            state = CircuitState.OPEN;
+            openedAt = clock.getAsLong();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.udacity.catpoint.service;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Stand-in for a remote image recognition service, so batching and pipelining can be tried out
+ * and tested without AWS. Every request takes the same round-trip latency, whether it carries one
+ * image or a whole batch, and the answers come from another ImageService such as
+ * LocalImageService. The service counts the requests it receives and the largest number that were
+ * ever in flight at once.
+ *
+ * The latency can be changed while the service is in use, and failures can be injected, to see
+ * how callers cope with a slow or broken backend.
+ */
+public class StubRemoteImageService implements ImageService {
+
+    private final ImageService answers;
+    private volatile long latencyNanos;
+    private final AtomicInteger failuresToInject = new AtomicInteger();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    /**
+     * @param answers Service that decides what each image contains
+     * @param latency Time every request takes on top of what answers needs
+     */
+    public StubRemoteImageService(ImageService answers, long latency, TimeUnit unit) {
+        if (latency < 0) {
+            throw new IllegalArgumentException("latency must not be negative");
+        }
+        this.answers = answers;
+        this.latencyNanos = unit.toNanos(latency);
+    }
+
+    @Override
+    public boolean imageContainsCat() {
+        return request(answers::imageContainsCat);
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        return classify(image, confidenceThreshold).isCat();
+    }
+
+    @Override
+    public ClassificationResult classify(BufferedImage image, float confidenceThreshold) {
+        return request(() -> answers.classify(image, confidenceThreshold));
+    }
+
+    @Override
+    public ClassificationResult classify(ByteBuffer encodedImage, float confidenceThreshold) {
+        return request(() -> answers.classify(encodedImage, confidenceThreshold));
+    }
+
+    /**
+     * Answers the whole batch in a single request.
+     */
+    @Override
+    public List<ClassificationResult> classifyAll(List<BufferedImage> images, float confidenceThreshold) {
+        return request(() -> answers.classifyAll(images, confidenceThreshold));
+    }
+
+    /**
+     * Answers the whole batch in a single request.
+     */
+    @Override
+    public List<ClassificationResult> classifyAllEncoded(List<ByteBuffer> encodedImages, float confidenceThreshold) {
+        return request(() -> answers.classifyAllEncoded(encodedImages, confidenceThreshold));
+    }
+
+    /**
+     * Changes the time each request takes from now on.
+     */
+    public void setLatency(long latency, TimeUnit unit) {
+        if (latency < 0) {
+            throw new IllegalArgumentException("latency must not be negative");
+        }
+        latencyNanos = unit.toNanos(latency);
+    }
+
+    /**
+     * Makes the next requests fail with an IllegalStateException once their latency has passed,
+     * as a service returning errors would.
+     * @param count Number of requests to fail
+     */
+    public void failNextRequests(int count) {
+        failuresToInject.set(count);
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * @return the largest number of requests that were being answered at the same time
+     */
+    public int getMaxConcurrentRequests() {
+        return maxInFlight.get();
+    }
+
+    private <T> T request(Supplier<T> answer) {
+        requests.incrementAndGet();
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            TimeUnit.NANOSECONDS.sleep(latencyNanos);
+            if (failuresToInject.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                throw new IllegalStateException("injected failure");
+            }
+            return answer.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("interrupted while waiting for the response");
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+}
@@ -2,6 +2,7 @@ module Image
 {
 
     exports com.udacity.catpoint.service;
+    exports com.udacity.catpoint.camera;
     requires org.slf4j;
     requires software.amazon.awssdk.auth;
     requires software.amazon.awssdk.core;
@@ -0,0 +1,146 @@
+package com.udacity.catpoint.camera;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static com.udacity.catpoint.camera.MjpegCameraSourceTest.jpeg;
+import static org.junit.Assert.*;
+
+public class CameraStreamTest {
+
+    private Path folder;
+
+    @After
+    public void deleteFolder() throws Exception {
+        if (folder != null) {
+            try (Stream<Path> files = Files.walk(folder)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void everyFrameIsDecodedOrCountedAsDropped_andImagesAreReused() throws Exception {
+        Set<BufferedImage> images = Collections.newSetFromMap(new IdentityHashMap<>());
+        FrameSink sink = (cameraId, image) -> {
+            synchronized (images) {
+                images.add(image);
+            }
+            return CompletableFuture.completedFuture(null);
+        };
+        CameraStream stream = new CameraStream("front", mjpeg(100, 0), 5, 0, TimeUnit.MILLISECONDS, sink);
+        stream.start();
+        assertTrue(stream.awaitEnd(5, TimeUnit.SECONDS));
+
+        CameraStats stats = stream.getStats();
+        assertEquals(100, stats.getFramesReceived());
+        assertEquals(0, stats.getDecodeErrors());
+        assertEquals(100, stats.getFramesDecoded() + stats.getFramesDropped());
+        assertEquals(stats.getFramesDecoded(), stats.getFramesSampled());
+        //a ring of 5 plus the frames outside it; never one image per frame
+        assertTrue(images.size() + " images", images.size() <= 8);
+        stream.close();
+    }
+
+    @Test(timeout = 10000)
+    public void pacedStream_sustains30FramesPerSecondWithoutDrops() throws Exception {
+        List<String> sampled = new CopyOnWriteArrayList<>();
+        CameraStream stream = new CameraStream("front", mjpeg(45, 30), 30, 200, TimeUnit.MILLISECONDS, (cameraId, image) -> {
+            sampled.add(cameraId);
+            return CompletableFuture.completedFuture(null);
+        });
+        long start = System.nanoTime();
+        stream.start();
+        assertTrue(stream.awaitEnd(5, TimeUnit.SECONDS));
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        CameraStats stats = stream.getStats();
+        assertEquals(45, stats.getFramesDecoded());
+        assertEquals(0, stats.getFramesDropped());
+        assertTrue("took " + seconds + "s", seconds > 1.3 && seconds < 3);
+        //one sample per 200ms over 1.5 seconds
+        assertTrue(sampled.size() + " samples", sampled.size() >= 6 && sampled.size() <= 9);
+        stream.close();
+    }
+
+    @Test(timeout = 10000)
+    public void ringBufferKeepsTheNewestFrames() throws Exception {
+        //frames are released once a stream ends, so look while this one is still running
+        CameraStream running = new CameraStream("back", mjpeg(1000, 100), 3, 0, TimeUnit.MILLISECONDS,
+                (cameraId, image) -> CompletableFuture.completedFuture(null));
+        running.start();
+        while (running.getFrames().size() < 3) {
+            Thread.sleep(10);
+        }
+        List<Frame> recent = running.getFrames().recent();
+        assertEquals(3, recent.size());
+        assertTrue(recent.get(0).getSequence() > recent.get(1).getSequence());
+        assertTrue(recent.get(1).getSequence() > recent.get(2).getSequence());
+        recent.forEach(Frame::release);
+        running.close();
+    }
+
+    @Test(timeout = 10000)
+    public void previewStream_samplesThePreview() throws Exception {
+        List<String> sizes = new CopyOnWriteArrayList<>();
+        CameraStream stream = new CameraStream("front", mjpeg(10, 0), 5, 0, TimeUnit.MILLISECONDS, 80, 60, (cameraId, image) -> {
+            sizes.add(image.getWidth() + "x" + image.getHeight());
+            return CompletableFuture.completedFuture(null);
+        });
+        stream.start();
+        assertTrue(stream.awaitEnd(5, TimeUnit.SECONDS));
+        assertFalse(sizes.isEmpty());
+        assertTrue(sizes.toString(), sizes.stream().allMatch("80x60"::equals));
+        stream.close();
+    }
+
+    @Test(timeout = 10000)
+    public void directorySource_picksUpFramesMovedIntoTheDirectory() throws Exception {
+        folder = Files.createTempDirectory("camera");
+        Path watched = Files.createDirectory(folder.resolve("camera"));
+        Path staging = Files.createDirectory(folder.resolve("staging"));
+        List<Integer> widths = new CopyOnWriteArrayList<>();
+        CameraStream stream = new CameraStream("yard", new DirectoryCameraSource(watched), 5, 0, TimeUnit.MILLISECONDS, (cameraId, image) -> {
+            widths.add(image.getWidth());
+            return CompletableFuture.completedFuture(null);
+        });
+        stream.start();
+        for (int i = 0; i < 3; i++) {
+            Path frame = staging.resolve("frame" + i + ".jpg");
+            Files.write(frame, jpeg(Color.ORANGE, 40 + i, 30));
+            Files.move(frame, watched.resolve(frame.getFileName()), StandardCopyOption.ATOMIC_MOVE);
+            //give the watcher a moment so frames aren't merged into one event batch and dropped
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+            while (widths.size() <= i && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+        }
+        stream.close();
+        assertEquals(List.of(40, 41, 42), widths);
+    }
+
+    private static MjpegCameraSource mjpeg(int frames, double framesPerSecond) throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (int i = 0; i < frames; i++) {
+            stream.write(jpeg(new Color(i * 37 % 256, 90, 160), 320, 240));
+        }
+        return new MjpegCameraSource(new ByteArrayInputStream(stream.toByteArray()), framesPerSecond);
+    }
+}
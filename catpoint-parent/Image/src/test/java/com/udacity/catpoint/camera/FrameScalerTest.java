@@ -0,0 +1,49 @@
+package com.udacity.catpoint.camera;
+
+import org.junit.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import static org.junit.Assert.*;
+
+public class FrameScalerTest {
+
+    @Test
+    public void scalesIntoTheSameTargetEveryTime() {
+        FrameScaler scaler = new FrameScaler(64, 48);
+        BufferedImage first = scaler.scale(halves(Color.RED, Color.BLUE, 640, 480));
+        BufferedImage second = scaler.scale(halves(Color.GREEN, Color.GREEN, 640, 480));
+        assertSame(scaler.getTarget(), first);
+        assertSame(first, second);
+        assertEquals(Color.GREEN.getRGB(), second.getRGB(10, 10));
+    }
+
+    @Test
+    public void largeFrame_keepsItsPictureWhenScaledDownInSteps() {
+        FrameScaler scaler = new FrameScaler(40, 30);
+        BufferedImage scaled = scaler.scale(halves(Color.RED, Color.BLUE, 1600, 1200));
+        assertEquals(40, scaled.getWidth());
+        assertEquals(Color.RED.getRGB(), scaled.getRGB(5, 15));
+        assertEquals(Color.BLUE.getRGB(), scaled.getRGB(34, 15));
+    }
+
+    @Test
+    public void smallFrame_isScaledUp() {
+        FrameScaler scaler = new FrameScaler(new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB));
+        BufferedImage scaled = scaler.scale(halves(Color.ORANGE, Color.ORANGE, 10, 10));
+        assertEquals(Color.ORANGE.getRGB(), scaled.getRGB(50, 50));
+    }
+
+    private static BufferedImage halves(Color left, Color right, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = image.createGraphics();
+        g.setColor(left);
+        g.fillRect(0, 0, width / 2, height);
+        g.setColor(right);
+        g.fillRect(width / 2, 0, width - width / 2, height);
+        g.dispose();
+        return image;
+    }
+}
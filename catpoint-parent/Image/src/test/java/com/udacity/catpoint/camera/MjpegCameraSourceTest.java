@@ -0,0 +1,113 @@
+package com.udacity.catpoint.camera;
+
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class MjpegCameraSourceTest {
+
+    @Test
+    public void multipartStream_yieldsEachJpegIntact() throws Exception {
+        byte[][] jpegs = {jpeg(Color.RED, 64, 48), withThumbnailMarker(jpeg(Color.GREEN, 64, 48)), jpeg(Color.BLUE, 32, 32)};
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (byte[] jpeg : jpegs) {
+            stream.write(("--frame\r\nContent-Type: image/jpeg\r\nContent-Length: " + jpeg.length + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            stream.write(jpeg);
+            stream.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+
+        EncodedFrame frame = new EncodedFrame(16);
+        try (MjpegCameraSource source = new MjpegCameraSource(new ByteArrayInputStream(stream.toByteArray()), 0)) {
+            for (byte[] jpeg : jpegs) {
+                assertTrue(source.nextFrame(frame));
+                assertArrayEquals(jpeg, Arrays.copyOf(frame.data(), frame.length()));
+            }
+            assertFalse(source.nextFrame(frame));
+        }
+    }
+
+    @Test
+    public void truncatedFrame_endsTheStream() throws Exception {
+        byte[] jpeg = jpeg(Color.RED, 64, 48);
+        byte[] truncated = Arrays.copyOf(jpeg, jpeg.length / 2);
+        try (MjpegCameraSource source = new MjpegCameraSource(new ByteArrayInputStream(truncated), 0)) {
+            assertFalse(source.nextFrame(new EncodedFrame(16)));
+        }
+    }
+
+    @Test
+    public void corruptFrames_areSkippedAndCounted() throws Exception {
+        byte[] first = jpeg(Color.RED, 64, 48);
+        byte[] last = jpeg(Color.BLUE, 32, 32);
+        byte[] badMarker = jpeg(Color.GREEN, 64, 48);
+        badMarker[2] = 0x00;
+        byte[] badLength = jpeg(Color.GREEN, 64, 48);
+        badLength[4] = 0x00;
+        badLength[5] = 0x01;
+        byte[] cutShort = jpeg(Color.GREEN, 64, 48);
+        cutShort = Arrays.copyOf(cutShort, startOfScanData(cutShort) + 8);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (byte[] part : new byte[][] {first, badMarker, badLength, cutShort, last}) {
+            stream.write(part);
+        }
+
+        EncodedFrame frame = new EncodedFrame(16);
+        try (MjpegCameraSource source = new MjpegCameraSource(new ByteArrayInputStream(stream.toByteArray()), 0)) {
+            assertTrue(source.nextFrame(frame));
+            assertArrayEquals(first, Arrays.copyOf(frame.data(), frame.length()));
+            //the frame cut short runs into the last one, which is still read whole
+            assertTrue(source.nextFrame(frame));
+            assertArrayEquals(last, Arrays.copyOf(frame.data(), frame.length()));
+            assertFalse(source.nextFrame(frame));
+            assertEquals(3, source.getCorruptFrameCount());
+        }
+    }
+
+    static byte[] jpeg(Color color, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(color);
+        g.fillRect(0, 0, width, height);
+        g.setColor(Color.WHITE);
+        g.drawLine(0, 0, width, height);
+        g.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+
+    /**
+     * @return the index of the first byte of entropy-coded data after the start-of-scan segment
+     */
+    private static int startOfScanData(byte[] jpeg) {
+        int i = 2;
+        while ((jpeg[i + 1] & 0xff) != 0xDA) {
+            i += 2 + (((jpeg[i + 2] & 0xff) << 8) | (jpeg[i + 3] & 0xff));
+        }
+        return i + 2 + (((jpeg[i + 2] & 0xff) << 8) | (jpeg[i + 3] & 0xff));
+    }
+
+    /**
+     * Inserts an APP1 segment containing an end-of-image marker, as an embedded thumbnail would,
+     * right after the start-of-image marker.
+     */
+    private static byte[] withThumbnailMarker(byte[] jpeg) {
+        byte[] app1 = {(byte) 0xFF, (byte) 0xE1, 0x00, 0x06, (byte) 0xFF, (byte) 0xD9, (byte) 0xFF, (byte) 0xD8};
+        byte[] result = new byte[jpeg.length + app1.length];
+        System.arraycopy(jpeg, 0, result, 0, 2);
+        System.arraycopy(app1, 0, result, 2, app1.length);
+        System.arraycopy(jpeg, 2, result, 2 + app1.length, jpeg.length - 2);
+        return result;
+    }
+}
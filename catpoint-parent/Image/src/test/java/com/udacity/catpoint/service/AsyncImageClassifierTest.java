@@ -0,0 +1,172 @@
+package com.udacity.catpoint.service;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AsyncImageClassifierTest {
+
+    private final BufferedImage image = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+    private AsyncImageClassifier classifier;
+
+    @After
+    public void closeClassifier() {
+        if (classifier != null) {
+            classifier.close();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void slowClassification_doesNotBlockCallerOrOtherCameras() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        classifier = new AsyncImageClassifier(blockingService(bothStarted, release), 2, 10, TimeUnit.SECONDS);
+
+        CompletableFuture<ClassificationResult> front = classifier.classify("front", image, 50f);
+        CompletableFuture<ClassificationResult> back = classifier.classify("back", image, 50f);
+        assertFalse(front.isDone());
+
+        //both cameras are being classified at the same time
+        assertTrue(bothStarted.await(2, TimeUnit.SECONDS));
+        release.countDown();
+        assertTrue(front.get().isCat());
+        assertTrue(back.get().isCat());
+    }
+
+    @Test(timeout = 5000)
+    public void newerFrame_replacesWaitingFrameFromSameCamera() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        classifier = new AsyncImageClassifier(new ImageService() {
+            @Override
+            public boolean imageContainsCat() {
+                throw new AssertionError("the image variant should be used");
+            }
+
+            @Override
+            public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+                calls.incrementAndGet();
+                started.countDown();
+                await(release);
+                return true;
+            }
+        }, 1, 10, TimeUnit.SECONDS);
+
+        CompletableFuture<ClassificationResult> running = classifier.classify("front", image, 50f);
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        CompletableFuture<ClassificationResult> stale = classifier.classify("front", image, 50f);
+        CompletableFuture<ClassificationResult> latest = classifier.classify("front", image, 50f);
+        assertTrue(stale.isCancelled());
+        //only the running and the latest frame still have a deadline
+        assertEquals(2, classifier.pendingDeadlines());
+
+        release.countDown();
+        assertTrue(running.get().isCat());
+        assertTrue(latest.get().isCat());
+        assertEquals(2, calls.get());
+    }
+
+    @Test(timeout = 5000)
+    public void frameMissingItsDeadline_timesOutAndFreesTheCamera() throws Exception {
+        BlockingQueue<Boolean> interrupted = new LinkedBlockingQueue<>();
+        classifier = new AsyncImageClassifier(new ImageService() {
+            private boolean first = true;
+
+            @Override
+            public boolean imageContainsCat() {
+                if (!first) {
+                    return false;
+                }
+                first = false;
+                try {
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                    interrupted.add(false);
+                } catch (InterruptedException e) {
+                    interrupted.add(true);
+                }
+                return true;
+            }
+        }, 1, 200, TimeUnit.MILLISECONDS);
+
+        CompletableFuture<ClassificationResult> hung = classifier.classify("front", image, 50f);
+        try {
+            hung.get();
+            fail("expected a timeout");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertTrue(interrupted.take());
+        assertFalse(classifier.classify("front", image, 50f).get().isCat());
+    }
+
+    @Test(timeout = 5000)
+    public void cancellingRunningFrame_interruptsClassification() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        classifier = new AsyncImageClassifier(new ImageService() {
+            @Override
+            public boolean imageContainsCat() {
+                started.countDown();
+                try {
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return true;
+            }
+        }, 1, 10, TimeUnit.SECONDS);
+
+        CompletableFuture<ClassificationResult> frame = classifier.classify("front", image, 50f);
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        frame.cancel(true);
+        assertTrue(interrupted.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 5000)
+    public void cancellingCamera_cancelsItsFramesButNotOtherCameras() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        classifier = new AsyncImageClassifier(blockingService(bothStarted, release), 2, 10, TimeUnit.SECONDS);
+
+        CompletableFuture<ClassificationResult> running = classifier.classify("front", image, 50f);
+        CompletableFuture<ClassificationResult> other = classifier.classify("back", image, 50f);
+        assertTrue(bothStarted.await(2, TimeUnit.SECONDS));
+        CompletableFuture<ClassificationResult> waiting = classifier.classify("front", image, 50f);
+
+        classifier.cancel("front");
+        assertTrue(running.isCancelled());
+        assertTrue(waiting.isCancelled());
+        release.countDown();
+        assertTrue(other.get().isCat());
+        //the camera can send frames again
+        assertTrue(classifier.classify("front", image, 50f).get().isCat());
+    }
+
+    private static ImageService blockingService(CountDownLatch started, CountDownLatch release) {
+        return () -> {
+            started.countDown();
+            await(release);
+            return true;
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.udacity.catpoint.service;
+
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class CachingImageServiceTest {
+
+    private final AtomicInteger classifierCalls = new AtomicInteger();
+    private final AtomicLong now = new AtomicLong();
+    private final ImageService classifier = new ImageService() {
+        @Override
+        public boolean imageContainsCat() {
+            return false;
+        }
+
+        @Override
+        public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+            classifierCalls.incrementAndGet();
+            return true;
+        }
+    };
+
+    @Test
+    public void repeatedFrame_isClassifiedOnce() {
+        CachingImageService cache = cache(16, 0);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(cache.imageContainsCat(scene(0), 50f));
+        }
+        assertEquals(1, classifierCalls.get());
+        assertEquals(9, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void slightlyChangedFrame_matchesWithinTolerance() {
+        BufferedImage frame = scene(0);
+        BufferedImage noisy = scene(0);
+        //a few pixels of sensor noise shouldn't move the hash much
+        noisy.setRGB(10, 10, Color.WHITE.getRGB());
+        noisy.setRGB(40, 30, Color.BLACK.getRGB());
+        int distance = Long.bitCount(CachingImageService.differenceHash(frame) ^ CachingImageService.differenceHash(noisy));
+
+        CachingImageService cache = cache(16, Math.max(distance, 1));
+        cache.imageContainsCat(frame, 50f);
+        cache.imageContainsCat(noisy, 50f);
+        assertEquals(1, classifierCalls.get());
+
+        cache.imageContainsCat(scene(1), 50f);
+        assertEquals(2, classifierCalls.get());
+    }
+
+    @Test
+    public void differentThreshold_isNotServedFromCache() {
+        CachingImageService cache = cache(16, 0);
+        cache.imageContainsCat(scene(0), 50f);
+        cache.imageContainsCat(scene(0), 90f);
+        assertEquals(2, classifierCalls.get());
+    }
+
+    @Test
+    public void leastRecentlyUsedFrameIsEvictedWhenFull() {
+        CachingImageService cache = cache(2, 0);
+        cache.imageContainsCat(scene(0), 50f);
+        cache.imageContainsCat(scene(1), 50f);
+        cache.imageContainsCat(scene(0), 50f);
+        cache.imageContainsCat(scene(2), 50f);
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.size());
+
+        //scene 0 was used more recently than scene 1, so it survived
+        cache.imageContainsCat(scene(0), 50f);
+        assertEquals(3, classifierCalls.get());
+        cache.imageContainsCat(scene(1), 50f);
+        assertEquals(4, classifierCalls.get());
+    }
+
+    @Test
+    public void expiredFrameIsClassifiedAgain() {
+        CachingImageService cache = cache(16, 0);
+        cache.imageContainsCat(scene(0), 50f);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        cache.imageContainsCat(scene(0), 50f);
+        assertEquals(1, classifierCalls.get());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        cache.imageContainsCat(scene(0), 50f);
+        assertEquals(2, classifierCalls.get());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void encodedFrame_reachesDelegateUndecodedAndSharesCacheEntries() throws Exception {
+        List<ByteBuffer> received = new ArrayList<>();
+        ImageService remote = new ImageService() {
+            @Override
+            public boolean imageContainsCat() {
+                return false;
+            }
+
+            @Override
+            public ClassificationResult classify(ByteBuffer encodedImage, float confidenceThreshold) {
+                received.add(encodedImage);
+                return new ClassificationResult(true, 87f);
+            }
+        };
+        CachingImageService cache = new CachingImageService(remote, 16, 60, TimeUnit.SECONDS, 0, now::get);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(scene(0), "png", png);
+        ByteBuffer frame = ByteBuffer.wrap(png.toByteArray());
+
+        assertEquals(new ClassificationResult(true, 87f), cache.classify(frame, 50f));
+        assertEquals(1, received.size());
+        assertSame(frame, received.get(0));
+        assertEquals(0, frame.position());
+
+        //the decoded picture hashes the same, so it's answered from the entry the bytes created
+        assertEquals(87f, cache.classify(scene(0), 50f).getConfidence(), 0f);
+        assertEquals(1, cache.getHitCount());
+    }
+
+    private CachingImageService cache(int maxEntries, int tolerance) {
+        return new CachingImageService(classifier, maxEntries, 60, TimeUnit.SECONDS, tolerance, now::get);
+    }
+
+    /**
+     * Draws one of a few clearly different test scenes.
+     */
+    private static BufferedImage scene(int variant) {
+        BufferedImage image = new BufferedImage(90, 80, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.GRAY);
+        g.fillRect(0, 0, 90, 80);
+        g.setColor(Color.WHITE);
+        switch (variant) {
+            case 0:
+                g.fillRect(0, 0, 45, 80);
+                break;
+            case 1:
+                g.fillRect(0, 0, 90, 40);
+                break;
+            default:
+                g.fillOval(20, 20, 40, 40);
+        }
+        g.dispose();
+        return image;
+    }
+}
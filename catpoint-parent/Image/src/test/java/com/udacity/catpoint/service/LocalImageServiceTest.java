@@ -0,0 +1,65 @@
+package com.udacity.catpoint.service;
+
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class LocalImageServiceTest {
+
+    @Test
+    public void bundledModelLoads() {
+        LocalImageService service = new LocalImageService();
+        double confidence = service.confidence(solid(new Color(60, 160, 60)));
+        assertTrue(confidence >= 0 && confidence <= 100);
+        assertFalse(service.imageContainsCat(null, 50f));
+    }
+
+    @Test
+    public void confidenceIsLogisticOfWeightedFeatures() {
+        //an all-green frame has green = 1 and no texture, so only the green weight and bias count
+        LocalImageService service = new LocalImageService(model("bias=1.0\nweight.green=-2.0\n"));
+        BufferedImage green = solid(new Color(60, 160, 60));
+        assertEquals(100 / (1 + Math.exp(1.0)), service.confidence(green), 1e-9);
+        assertFalse(service.imageContainsCat(green, 50f));
+        assertTrue(service.imageContainsCat(green, 25f));
+    }
+
+    @Test
+    public void encodedImage_isDecodedAndScored() throws Exception {
+        LocalImageService service = new LocalImageService(model("bias=1.0\nweight.green=-2.0\n"));
+        BufferedImage green = solid(new Color(60, 160, 60));
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(green, "png", png);
+
+        ClassificationResult result = service.classify(ByteBuffer.wrap(png.toByteArray()), 25f);
+        assertTrue(result.isCat());
+        assertEquals(service.confidence(green), result.getConfidence(), 1e-4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownModelEntry_isRejected() {
+        new LocalImageService(model("bias=0\nweight.whiskers=3\n"));
+    }
+
+    private static ByteArrayInputStream model(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static BufferedImage solid(Color color) {
+        BufferedImage image = new BufferedImage(128, 96, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(color);
+        g.fillRect(0, 0, 128, 96);
+        g.dispose();
+        return image;
+    }
+}
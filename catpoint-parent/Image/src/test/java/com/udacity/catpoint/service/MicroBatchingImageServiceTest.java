@@ -0,0 +1,68 @@
+package com.udacity.catpoint.service;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.udacity.catpoint.service.PipelinedImageServiceTest.*;
+import static org.junit.Assert.*;
+
+public class MicroBatchingImageServiceTest {
+
+    private MicroBatchingImageService batcher;
+
+    @After
+    public void closeBatcher() {
+        if (batcher != null) {
+            batcher.close();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void framesArrivingTogether_shareOneRequest() throws Exception {
+        StubRemoteImageService remote = new StubRemoteImageService(widthIsConfidence(), 5, TimeUnit.MILLISECONDS);
+        batcher = new MicroBatchingImageService(remote, 100, 200, TimeUnit.MILLISECONDS, 1);
+
+        List<CompletableFuture<ClassificationResult>> pending = new ArrayList<>();
+        for (BufferedImage frame : frames(10)) {
+            pending.add(batcher.submit(frame, 50f));
+        }
+        List<ClassificationResult> results = new ArrayList<>();
+        for (CompletableFuture<ClassificationResult> result : pending) {
+            results.add(result.get());
+        }
+
+        assertEquals(1, remote.getRequestCount());
+        assertEquals(1, batcher.getBatchCount());
+        assertInOrder(results);
+    }
+
+    @Test(timeout = 5000)
+    public void fullBatch_isDispatchedWithoutWaitingForTheWindow() {
+        StubRemoteImageService remote = new StubRemoteImageService(widthIsConfidence(), 0, TimeUnit.MILLISECONDS);
+        //a window this long would time the test out if full batches waited for it
+        batcher = new MicroBatchingImageService(remote, 4, 1, TimeUnit.HOURS, 2);
+
+        assertInOrder(batcher.classifyAll(frames(8), 50f));
+        assertEquals(2, batcher.getBatchCount());
+        assertEquals(8, batcher.getFrameCount());
+    }
+
+    @Test(timeout = 5000)
+    public void differentThresholds_areSentSeparately() throws Exception {
+        StubRemoteImageService remote = new StubRemoteImageService(widthIsConfidence(), 0, TimeUnit.MILLISECONDS);
+        batcher = new MicroBatchingImageService(remote, 100, 50, TimeUnit.MILLISECONDS, 1);
+
+        CompletableFuture<ClassificationResult> strict = batcher.submit(new BufferedImage(60, 1, BufferedImage.TYPE_INT_RGB), 90f);
+        CompletableFuture<ClassificationResult> lenient = batcher.submit(new BufferedImage(60, 1, BufferedImage.TYPE_INT_RGB), 50f);
+
+        assertFalse(strict.get().isCat());
+        assertTrue(lenient.get().isCat());
+        assertEquals(2, remote.getRequestCount());
+    }
+}
@@ -0,0 +1,98 @@
+package com.udacity.catpoint.service;
+
+import org.junit.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class MotionGateTest {
+
+    @Test
+    public void firstFrameHasMotion_identicalFrameDoesNot() {
+        MotionGate gate = new MotionGate();
+        assertTrue(gate.hasMotion("front", scene(BufferedImage.TYPE_INT_RGB, -1)));
+        assertFalse(gate.hasMotion("front", scene(BufferedImage.TYPE_INT_RGB, -1)));
+        assertEquals(2, gate.getFramesChecked());
+        assertEquals(0.5, gate.getSkipRatio(), 1e-9);
+    }
+
+    @Test
+    public void objectEnteringTheScene_isMotion() {
+        for (int type : new int[]{BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_BYTE_INDEXED}) {
+            MotionGate gate = new MotionGate();
+            gate.hasMotion("front", scene(type, -1));
+            assertTrue("image type " + type, gate.hasMotion("front", scene(type, 100)));
+        }
+    }
+
+    @Test
+    public void camerasAreComparedSeparately() {
+        MotionGate gate = new MotionGate();
+        gate.hasMotion("front", scene(BufferedImage.TYPE_INT_RGB, -1));
+        assertTrue(gate.hasMotion("back", scene(BufferedImage.TYPE_INT_RGB, 100)));
+        assertFalse(gate.hasMotion("front", scene(BufferedImage.TYPE_INT_RGB, -1)));
+    }
+
+    @Test
+    public void slowChange_isComparedWithLastForwardedFrame() {
+        MotionGate gate = new MotionGate(32, 24, 24, 0.02);
+        gate.hasMotion("front", brightness(100));
+        //each step is below the threshold, but together they add up
+        assertFalse(gate.hasMotion("front", brightness(115)));
+        assertTrue(gate.hasMotion("front", brightness(130)));
+    }
+
+    @Test(timeout = 5000)
+    public void classifierSkipsFramesWithoutMotion() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        ImageService service = () -> calls.incrementAndGet() == 1;
+        MotionGate gate = new MotionGate();
+        try (AsyncImageClassifier classifier = new AsyncImageClassifier(service, 1, 10, TimeUnit.SECONDS, gate)) {
+            assertTrue(classify(classifier, scene(BufferedImage.TYPE_INT_RGB, -1)));
+            //unchanged scene reuses the first answer without calling the service
+            assertTrue(classify(classifier, scene(BufferedImage.TYPE_INT_RGB, -1)));
+            assertEquals(1, calls.get());
+            assertFalse(classify(classifier, scene(BufferedImage.TYPE_INT_RGB, 100)));
+            assertEquals(2, calls.get());
+        }
+        assertEquals(1, gate.getFramesSkipped());
+    }
+
+    private static boolean classify(AsyncImageClassifier classifier, BufferedImage frame) throws Exception {
+        CompletableFuture<ClassificationResult> result = classifier.classify("front", frame, 50f);
+        return result.get().isCat();
+    }
+
+    /**
+     * A fixed background, with a dark square at the given x position unless it's negative.
+     */
+    private static BufferedImage scene(int type, int objectX) {
+        BufferedImage image = new BufferedImage(320, 240, type);
+        Graphics2D g = image.createGraphics();
+        g.setColor(new Color(200, 190, 170));
+        g.fillRect(0, 0, 320, 240);
+        g.setColor(new Color(90, 120, 60));
+        g.fillRect(0, 180, 320, 60);
+        if (objectX >= 0) {
+            g.setColor(Color.BLACK);
+            g.fillRect(objectX, 80, 80, 80);
+        }
+        g.dispose();
+        return image;
+    }
+
+    private static BufferedImage brightness(int level) {
+        BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = image.createGraphics();
+        g.setColor(new Color(level, level, level));
+        g.fillRect(0, 0, 64, 48);
+        g.dispose();
+        return image;
+    }
+}
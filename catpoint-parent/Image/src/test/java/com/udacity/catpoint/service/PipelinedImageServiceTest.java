@@ -0,0 +1,92 @@
+package com.udacity.catpoint.service;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class PipelinedImageServiceTest {
+
+    private PipelinedImageService pipeline;
+
+    @After
+    public void closePipeline() {
+        if (pipeline != null) {
+            pipeline.close();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void batchIsClassifiedConcurrentlyWithinTheCap() {
+        StubRemoteImageService remote = new StubRemoteImageService(widthIsConfidence(), 50, TimeUnit.MILLISECONDS);
+        pipeline = new PipelinedImageService(remote, 4);
+
+        long start = System.nanoTime();
+        List<ClassificationResult> results = pipeline.classifyAll(frames(12), 50f);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(12, remote.getRequestCount());
+        assertEquals(4, remote.getMaxConcurrentRequests());
+        //three waves of four rather than twelve requests in a row
+        assertTrue("took " + elapsed + "ms", elapsed < 12 * 50);
+        assertInOrder(results);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failedFrame_failsTheBatch() {
+        pipeline = new PipelinedImageService(new ImageService() {
+            @Override
+            public boolean imageContainsCat() {
+                return false;
+            }
+
+            @Override
+            public ClassificationResult classify(BufferedImage image, float confidenceThreshold) {
+                if (image.getWidth() == 3) {
+                    throw new IllegalStateException("service unavailable");
+                }
+                return ClassificationResult.of(false);
+            }
+        }, 2);
+        pipeline.classifyAll(frames(5), 50f);
+    }
+
+    /**
+     * Frame i is i + 1 pixels wide.
+     */
+    static List<BufferedImage> frames(int count) {
+        List<BufferedImage> frames = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            frames.add(new BufferedImage(i + 1, 1, BufferedImage.TYPE_INT_RGB));
+        }
+        return frames;
+    }
+
+    /**
+     * Answers with the frame's width as its confidence, so results can be matched to frames.
+     */
+    static ImageService widthIsConfidence() {
+        return new ImageService() {
+            @Override
+            public boolean imageContainsCat() {
+                return false;
+            }
+
+            @Override
+            public ClassificationResult classify(BufferedImage image, float confidenceThreshold) {
+                return new ClassificationResult(image.getWidth() >= confidenceThreshold, image.getWidth());
+            }
+        };
+    }
+
+    static void assertInOrder(List<ClassificationResult> results) {
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i + 1, results.get(i).getConfidence(), 0f);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.udacity.catpoint.service;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class ResilientImageServiceTest {
+
+    private static final ClassificationResult BACKEND_ANSWER = new ClassificationResult(true, 97f);
+    private static final ClassificationResult FALLBACK_ANSWER = new ClassificationResult(false, 10f);
+
+    private final BufferedImage image = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+    private final StubRemoteImageService backend = new StubRemoteImageService(answer(BACKEND_ANSWER), 0, TimeUnit.MILLISECONDS);
+    private final AtomicLong now = new AtomicLong();
+    private ResilientImageService service;
+
+    @After
+    public void closeService() {
+        if (service != null) {
+            service.close();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void hungBackend_timesOutAndFallsBack() {
+        backend.setLatency(1, TimeUnit.HOURS);
+        service = resilient(1, 3);
+
+        long start = System.nanoTime();
+        assertEquals(FALLBACK_ANSWER, service.classify(image, 50f));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertEquals(1, service.getTimeoutCount());
+        assertEquals(1, service.getFallbackCount());
+    }
+
+    @Test(timeout = 5000)
+    public void failedAttempt_isRetried() {
+        backend.failNextRequests(2);
+        service = resilient(3, 5);
+
+        assertEquals(BACKEND_ANSWER, service.classify(image, 50f));
+        assertEquals(3, backend.getRequestCount());
+        assertEquals(2, service.getRetryCount());
+        assertEquals(0, service.getFallbackCount());
+    }
+
+    @Test(timeout = 5000)
+    public void repeatedFailures_openTheCircuitUntilATrialSucceeds() {
+        backend.failNextRequests(3);
+        service = resilient(1, 3);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(FALLBACK_ANSWER, service.classify(image, 50f));
+        }
+        assertEquals(ResilientImageService.CircuitState.OPEN, service.getCircuitState());
+
+        //while open, the backend isn't called at all
+        assertEquals(FALLBACK_ANSWER, service.classify(image, 50f));
+        assertEquals(3, backend.getRequestCount());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        assertEquals(BACKEND_ANSWER, service.classify(image, 50f));
+        assertEquals(ResilientImageService.CircuitState.CLOSED, service.getCircuitState());
+    }
+
+    @Test(timeout = 5000)
+    public void failedTrial_reopensTheCircuit() {
+        backend.failNextRequests(2);
+        service = resilient(1, 1);
+        service.classify(image, 50f);
+        assertEquals(ResilientImageService.CircuitState.OPEN, service.getCircuitState());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        assertEquals(FALLBACK_ANSWER, service.classify(image, 50f));
+        assertEquals(ResilientImageService.CircuitState.OPEN, service.getCircuitState());
+        assertEquals(2, backend.getRequestCount());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(29));
+        service.classify(image, 50f);
+        assertEquals(2, backend.getRequestCount());
+    }
+
+    @Test(timeout = 5000)
+    public void callerInterruptedWhileBackendHangs_countsAsFailure() throws Exception {
+        backend.setLatency(1, TimeUnit.HOURS);
+        service = new ResilientImageService(backend, answer(FALLBACK_ANSWER), 10, 1, 1, 2,
+                30, TimeUnit.SECONDS, now::get, () -> 1.0);
+        for (int i = 0; i < 2; i++) {
+            //the caller's deadline runs out long before the call timeout
+            Thread caller = new Thread(() -> service.classify(image, 50f));
+            caller.start();
+            Thread.sleep(50);
+            caller.interrupt();
+            caller.join();
+        }
+        assertEquals(2, service.getFailureCount());
+        assertEquals(2, service.getTimeoutCount());
+        assertEquals(ResilientImageService.CircuitState.OPEN, service.getCircuitState());
+    }
+
+    @Test
+    public void defaultRetryBudget_fitsWithinTheClassifierDeadline() {
+        service = new ResilientImageService(backend, answer(FALLBACK_ANSWER));
+        //SecurityService gives each frame 10 seconds, and the fallback needs some of them
+        assertTrue(service.maxBackendNanos() < TimeUnit.SECONDS.toNanos(9));
+    }
+
+    /**
+     * A service with a 100ms call timeout, 1ms backoff without jitter and a 30 second open circuit.
+     */
+    private ResilientImageService resilient(int maxAttempts, int failureThreshold) {
+        return new ResilientImageService(backend, answer(FALLBACK_ANSWER), 100, maxAttempts, 1, failureThreshold,
+                30000, TimeUnit.MILLISECONDS, now::get, () -> 1.0);
+    }
+
+    private static ImageService answer(ClassificationResult result) {
+        return new ImageService() {
+            @Override
+            public boolean imageContainsCat() {
+                return result.isCat();
+            }
+
+            @Override
+            public ClassificationResult classify(BufferedImage image, float confidenceThreshold) {
+                return result;
+            }
+        };
+    }
+}
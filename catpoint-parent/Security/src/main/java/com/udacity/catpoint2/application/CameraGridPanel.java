@@ -0,0 +1,145 @@
+package com.udacity.catpoint2.application;
+
+import com.udacity.catpoint.camera.CameraStream;
+import com.udacity.catpoint.camera.Frame;
+import com.udacity.catpoint.camera.FrameScaler;
+import com.udacity.catpoint2.data.AlarmStatus;
+import com.udacity.catpoint2.data.Camera;
+import com.udacity.catpoint2.service.SecurityService;
+import com.udacity.catpoint2.service.StyleService;
+import net.miginfocom.swing.MigLayout;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Panel showing several live cameras side by side, each in a tile with its name, framed in red
+ * while it sees a cat. A single timer checks every camera for a new frame, and only the tiles
+ * whose picture or cat detection changed are repainted.
+ */
+public class CameraGridPanel extends JPanel implements StatusListener {
+
+    private static final int TILE_WIDTH = 180;
+    private static final int TILE_HEIGHT = 135;
+    private static final int TILES_PER_ROW = 3;
+    //how often the cameras are checked for a new frame
+    private static final int POLL_MILLIS = 1000 / 30;
+
+    private final SecurityService securityService;
+    private final Map<String, CameraTile> tiles = new LinkedHashMap<>();
+    private final Timer refreshTimer = new Timer(POLL_MILLIS, e -> refreshTiles());
+
+    public CameraGridPanel(SecurityService securityService) {
+        super();
+        setLayout(new MigLayout("wrap " + TILES_PER_ROW));
+        this.securityService = securityService;
+        securityService.addStatusListener(this, SwingUtilities::invokeLater);
+    }
+
+    /**
+     * Adds a tile for a registered camera and shows its stream's newest frames.
+     */
+    public void addCamera(Camera camera, CameraStream stream) {
+        CameraTile tile = new CameraTile(camera, stream);
+        tile.setCatDetected(securityService.isCatDetected(camera.getCameraId()));
+        tiles.put(camera.getCameraId(), tile);
+        add(tile);
+        revalidate();
+        if (!refreshTimer.isRunning()) {
+            refreshTimer.start();
+        }
+    }
+
+    private void refreshTiles() {
+        for (CameraTile tile : tiles.values()) {
+            tile.showLatestFrame();
+        }
+    }
+
+    @Override
+    public void notify(AlarmStatus status) {
+        //no behavior necessary
+    }
+
+    @Override
+    public void catDetected(boolean catDetected) {
+        //the tiles follow their own camera
+    }
+
+    @Override
+    public void cameraStatusChanged(String cameraId, boolean catDetected) {
+        CameraTile tile = tiles.get(cameraId);
+        if (tile != null) {
+            tile.setCatDetected(catDetected);
+        }
+    }
+
+    @Override
+    public void sensorStatusChanged() {
+        //no behavior necessary
+    }
+
+    /**
+     * One camera's picture, scaled into an image of its own that is reused for every frame.
+     */
+    private static class CameraTile extends JComponent {
+        private static final Color CAT_COLOR = StyleService.getColor(AlarmStatus.ALARM);
+
+        private final Camera camera;
+        private final CameraStream stream;
+        private final FrameScaler scaler = new FrameScaler(ImagePanel.createDisplayImage(TILE_WIDTH, TILE_HEIGHT));
+        private long shownSequence = -1;
+        private boolean hasPicture;
+        private boolean catDetected;
+
+        CameraTile(Camera camera, CameraStream stream) {
+            this.camera = camera;
+            this.stream = stream;
+            setPreferredSize(new Dimension(TILE_WIDTH, TILE_HEIGHT));
+            setToolTipText(camera.getName());
+        }
+
+        void showLatestFrame() {
+            Frame frame = stream.getFrames().latest();
+            if (frame == null) {
+                return;
+            }
+            try {
+                if (frame.getSequence() != shownSequence) {
+                    shownSequence = frame.getSequence();
+                    scaler.scale(frame.getPreview() != null ? frame.getPreview() : frame.getImage());
+                    hasPicture = true;
+                    repaint();
+                }
+            } finally {
+                frame.release();
+            }
+        }
+
+        void setCatDetected(boolean catDetected) {
+            if (this.catDetected != catDetected) {
+                this.catDetected = catDetected;
+                repaint();
+            }
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            if (hasPicture) {
+                g.drawImage(scaler.getTarget(), 0, 0, null);
+            } else {
+                g.setColor(Color.DARK_GRAY);
+                g.fillRect(0, 0, TILE_WIDTH, TILE_HEIGHT);
+            }
+            g.setColor(catDetected ? CAT_COLOR : Color.DARK_GRAY);
+            g.drawRect(0, 0, TILE_WIDTH - 1, TILE_HEIGHT - 1);
+            if (catDetected) {
+                g.drawRect(1, 1, TILE_WIDTH - 3, TILE_HEIGHT - 3);
+            }
+            g.setColor(Color.WHITE);
+            g.drawString(catDetected ? camera.getName() + " - CAT" : camera.getName(), 6, TILE_HEIGHT - 6);
+        }
+    }
+}
@@ -1,11 +1,134 @@
 package com.udacity.catpoint2.application;
 
+import com.udacity.catpoint.camera.CameraSource;
+import com.udacity.catpoint.camera.CameraStream;
+import com.udacity.catpoint.camera.DirectoryCameraSource;
+import com.udacity.catpoint.camera.MjpegCameraSource;
+import com.udacity.catpoint.service.AwsImageService;
+import com.udacity.catpoint.service.FakeImageService;
+import com.udacity.catpoint.service.ImageService;
+import com.udacity.catpoint.service.LocalImageService;
+import com.udacity.catpoint.service.ResilientImageService;
+import com.udacity.catpoint2.data.Camera;
+import com.udacity.catpoint2.data.MappedFileSecurityRepositoryImpl;
+import com.udacity.catpoint2.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint2.data.SecurityRepository;
+import com.udacity.catpoint2.data.WriteAheadLogSecurityRepositoryImpl;
+import com.udacity.catpoint2.service.SecurityService;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
 /**
  * This is the main class that launches the application.
+ *
+ * The storage used for system state can be chosen with the catpoint.repository system property:
+ * "prefs" (the default) keeps using user preferences, "wal" stores state in an append-only log and
+ * "mapped" stores it in memory-mapped files. Both file-based stores live in the directory named by
+ * catpoint.dataDir (default ~/.catpoint), and "mapped" imports the preferences data on first use.
+ *
+ * The image service is chosen with catpoint.imageService: "fake" (the default) guesses at random,
+ * "local" runs the offline LocalImageService and "aws" uses AWS Rekognition, falling back to the
+ * local classifier whenever Rekognition is unreachable or not configured.
+ *
+ * Setting catpoint.camera to a directory of pictures, an MJPEG file or an MJPEG URL shows that
+ * camera live in the GUI; several cameras can be given separated by commas. A camera's frames are sent to the image service once every
+ * catpoint.sampleMillis milliseconds (1000 by default).
+ *
+ * catpoint.sensorLimit sets the largest number of sensors that can be added (50000 by default).
+ * catpoint.entryDelay, catpoint.exitDelay and catpoint.alarmResetDelay set the panel's entry delay,
+ * exit delay and alarm auto-reset in seconds; each is off (0) by default.
+ *
+ * Passing --headless starts {@link HeadlessCatpointApp} instead of the GUI, for machines without a
+ * display.
  */
 public class CatpointApp {
-    public static void main(String[] args) {
-        CatpointGui gui = new CatpointGui();
+
+    //the size the GUI shows a camera at; frames are scaled to it once and also classified at it
+    static final int CAMERA_PREVIEW_WIDTH = 300;
+    static final int CAMERA_PREVIEW_HEIGHT = 225;
+    private static final int CAMERA_RING_SIZE = 30;
+    private static final double MJPEG_FILE_FRAMES_PER_SECOND = 30;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--headless")) {
+            HeadlessCatpointApp.main(args);
+            return;
+        }
+        CatpointGui gui = new CatpointGui(createRepository(), createImageService());
+        String cameras = System.getProperty("catpoint.camera");
+        if (cameras != null) {
+            gui.streamCameras(Arrays.asList(cameras.split("\\s*,\\s*")));
+        }
         gui.setVisible(true);
     }
+
+    static SecurityRepository createRepository() {
+        String repository = System.getProperty("catpoint.repository", "prefs");
+        switch (repository) {
+            case "prefs":
+                return new PretendDatabaseSecurityRepositoryImpl();
+            case "wal":
+                return new WriteAheadLogSecurityRepositoryImpl(dataDir());
+            case "mapped":
+                return MappedFileSecurityRepositoryImpl.migrateFromPreferences(dataDir());
+            default:
+                throw new IllegalArgumentException("Unknown catpoint.repository: " + repository);
+        }
+    }
+
+    static ImageService createImageService() {
+        String imageService = System.getProperty("catpoint.imageService", "fake");
+        switch (imageService) {
+            case "fake":
+                return new FakeImageService();
+            case "local":
+                return new LocalImageService();
+            case "aws":
+                return new ResilientImageService(new AwsImageService(), new LocalImageService());
+            default:
+                throw new IllegalArgumentException("Unknown catpoint.imageService: " + imageService);
+        }
+    }
+
+    /**
+     * Registers a camera with the SecurityService and creates a stream for it, not yet started,
+     * that sends the camera's sampled frames to the service.
+     * @param location A directory of pictures, an MJPEG file or the URL of an MJPEG stream
+     */
+    static CameraStream createCameraStream(String cameraId, String location, SecurityService securityService) throws IOException {
+        CameraSource source;
+        Path path = Paths.get(location);
+        if (Files.isDirectory(path)) {
+            source = new DirectoryCameraSource(path);
+        } else if (Files.isRegularFile(path)) {
+            source = MjpegCameraSource.open(path, MJPEG_FILE_FRAMES_PER_SECOND);
+        } else {
+            source = MjpegCameraSource.open(new URL(location));
+        }
+        securityService.addCamera(new Camera(cameraId, location));
+        return new CameraStream(cameraId, source, CAMERA_RING_SIZE, Long.getLong("catpoint.sampleMillis", 1000),
+                TimeUnit.MILLISECONDS, CAMERA_PREVIEW_WIDTH, CAMERA_PREVIEW_HEIGHT, securityService::processImage);
+    }
+
+    static int sensorLimit() {
+        return Integer.getInteger("catpoint.sensorLimit", SecurityService.DEFAULT_SENSOR_LIMIT);
+    }
+
+    static void configureDelays(SecurityService securityService) {
+        securityService.setEntryDelay(Duration.ofSeconds(Long.getLong("catpoint.entryDelay", 0)));
+        securityService.setExitDelay(Duration.ofSeconds(Long.getLong("catpoint.exitDelay", 0)));
+        securityService.setAlarmResetDelay(Duration.ofSeconds(Long.getLong("catpoint.alarmResetDelay", 0)));
+    }
+
+    private static Path dataDir() {
+        return Paths.get(System.getProperty("catpoint.dataDir",
+                Paths.get(System.getProperty("user.home"), ".catpoint").toString()));
+    }
 }
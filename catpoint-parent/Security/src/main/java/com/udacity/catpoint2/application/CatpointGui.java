@@ -1,12 +1,19 @@
 package com.udacity.catpoint2.application;
 
+import com.udacity.catpoint.camera.CameraStream;
 import com.udacity.catpoint2.data.PretendDatabaseSecurityRepositoryImpl;
 import com.udacity.catpoint2.data.SecurityRepository;
 import com.udacity.catpoint.service.FakeImageService;
+import com.udacity.catpoint.service.ImageService;
 import com.udacity.catpoint2.service.SecurityService;
+import com.udacity.catpoint2.service.StatusEventBus;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.util.List;
 
 /**
  * This is the primary JFrame for the application that contains all the top-level JPanels.
@@ -15,21 +22,56 @@ import javax.swing.*;
  * all our dependencies and providing them to other classes as necessary.
  */
 public class CatpointGui extends JFrame {
-    private SecurityRepository securityRepository = new PretendDatabaseSecurityRepositoryImpl();
-    private FakeImageService imageService = new FakeImageService();
-    private SecurityService securityService = new SecurityService(securityRepository, imageService);
-    private DisplayPanel displayPanel = new DisplayPanel(securityService);
-    private ControlPanel controlPanel = new ControlPanel(securityService);
-    private SensorPanel sensorPanel = new SensorPanel(securityService);
-    private ImagePanel imagePanel = new ImagePanel(securityService);
+    private SecurityRepository securityRepository;
+    private ImageService imageService;
+    private SecurityService securityService;
+    private DisplayPanel displayPanel;
+    private ControlPanel controlPanel;
+    private SensorPanel sensorPanel;
+    private ImagePanel imagePanel;
+    private JPanel mainPanel;
 
     public CatpointGui() {
+        this(new PretendDatabaseSecurityRepositoryImpl());
+    }
+
+    /**
+     * Builds the application around the provided repository, which allows the storage
+     * implementation to be chosen at startup.
+     * @param securityRepository The repository the SecurityService will read and persist state with
+     */
+    public CatpointGui(SecurityRepository securityRepository) {
+        this(securityRepository, new FakeImageService());
+    }
+
+    /**
+     * @param securityRepository The repository the SecurityService will read and persist state with
+     * @param imageService The service used to look for cats in camera images
+     */
+    public CatpointGui(SecurityRepository securityRepository, ImageService imageService) {
+        this.securityRepository = securityRepository;
+        this.imageService = imageService;
+        //listener callbacks are delivered off the caller's thread, and the panels ask for theirs on the EDT
+        securityService = new SecurityService(securityRepository, imageService, StatusEventBus.asynchronous());
+        securityService.setSensorLimit(CatpointApp.sensorLimit());
+        CatpointApp.configureDelays(securityService);
+        displayPanel = new DisplayPanel(securityService);
+        controlPanel = new ControlPanel(securityService);
+        sensorPanel = new SensorPanel(securityService);
+        imagePanel = new ImagePanel(securityService);
+
         setLocation(100, 100);
         setSize(600, 850);
         setTitle("Very Secure App");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                securityService.close();
+            }
+        });
 
-        JPanel mainPanel = new JPanel();
+        mainPanel = new JPanel();
         mainPanel.setLayout(new MigLayout());
         mainPanel.add(displayPanel, "wrap");
         mainPanel.add(imagePanel, "wrap");
@@ -39,4 +81,28 @@ public class CatpointGui extends JFrame {
         getContentPane().add(mainPanel);
 
     }
+
+    /**
+     * Shows live cameras and scans their frames for cats. A single camera is shown in the image
+     * panel; several get a grid of their own below it.
+     * @param locations For each camera, a directory of pictures, an MJPEG file or the URL of an
+     *                  MJPEG stream
+     */
+    public void streamCameras(List<String> locations) throws IOException {
+        if (locations.size() == 1) {
+            CameraStream stream = CatpointApp.createCameraStream(SecurityService.DEFAULT_CAMERA_ID, locations.get(0), securityService);
+            imagePanel.showStream(stream);
+            stream.start();
+            return;
+        }
+        CameraGridPanel cameraGridPanel = new CameraGridPanel(securityService);
+        for (int i = 0; i < locations.size(); i++) {
+            String cameraId = "camera-" + (i + 1);
+            CameraStream stream = CatpointApp.createCameraStream(cameraId, locations.get(i), securityService);
+            cameraGridPanel.addCamera(securityService.getCamera(cameraId), stream);
+            stream.start();
+        }
+        mainPanel.add(cameraGridPanel, "wrap", 2);
+        setSize(getWidth(), getHeight() + cameraGridPanel.getPreferredSize().height);
+    }
 }
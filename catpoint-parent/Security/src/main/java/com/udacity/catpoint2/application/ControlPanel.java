@@ -1,6 +1,8 @@
 package com.udacity.catpoint2.application;
 
+import com.udacity.catpoint2.data.AlarmStatus;
 import com.udacity.catpoint2.data.ArmingStatus;
+import com.udacity.catpoint2.data.Partition;
 import com.udacity.catpoint2.service.SecurityService;
 import com.udacity.catpoint2.service.StyleService;
 import net.miginfocom.swing.MigLayout;
@@ -8,21 +10,29 @@ import net.miginfocom.swing.MigLayout;
 import javax.swing.*;
 import java.util.Arrays;
 import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 /**
- * JPanel containing the buttons to manipulate arming status of the system.
+ * JPanel containing the buttons to manipulate arming status of the system. The scope selector
+ * chooses whether the buttons arm the whole site or a single partition, and shows the partition
+ * layout along with each scope's alarm status.
  */
-public class ControlPanel extends JPanel {
+public class ControlPanel extends JPanel implements StatusListener {
 
     private SecurityService securityService;
     private Map<ArmingStatus, JButton> buttonMap;
+    private DefaultComboBoxModel<Scope> scopeModel = new DefaultComboBoxModel<>();
+    private JComboBox<Scope> scopeDropdown = new JComboBox<>(scopeModel);
+    private JLabel scopeStatusLabel = new JLabel();
 
 
     public ControlPanel(SecurityService securityService) {
         super();
         setLayout(new MigLayout());
         this.securityService = securityService;
+        securityService.addStatusListener(this, SwingUtilities::invokeLater);
 
         JLabel panelLabel = new JLabel("System Control");
         panelLabel.setFont(StyleService.HEADING_FONT);
@@ -33,20 +43,129 @@ public class ControlPanel extends JPanel {
         buttonMap = Arrays.stream(ArmingStatus.values())
                 .collect(Collectors.toMap(status -> status, status -> new JButton(status.getDescription())));
 
-        //add an action listener to each button that applies its arming status and recolors all the buttons
+        //add an action listener to each button that applies its arming status to the selected scope
         buttonMap.forEach((k, v) -> {
             v.addActionListener(e -> {
-                securityService.setArmingStatus(k);
-                buttonMap.forEach((status, button) -> button.setBackground(status == k ? status.getColor() : null));
+                Scope scope = (Scope) scopeDropdown.getSelectedItem();
+                if (scope == null || scope.site) {
+                    securityService.setArmingStatus(k);
+                } else {
+                    securityService.setArmingStatus(scope.partitionId, k);
+                }
+                showScopeStatus();
             });
         });
 
+        JButton addPartitionButton = new JButton("Add Partition");
+        addPartitionButton.addActionListener(e -> addPartition());
+        scopeDropdown.addActionListener(e -> showScopeStatus());
+        refreshScopes();
+
+        add(new JLabel("Scope:"));
+        add(scopeDropdown, "width 150:200:250");
+        add(addPartitionButton, "wrap");
+
         //map order above is arbitrary, so loop again in order to add buttons in enum-order
         Arrays.stream(ArmingStatus.values()).forEach(status -> add(buttonMap.get(status)));
+        add(scopeStatusLabel, "newline, span 3");
+
+        showScopeStatus();
+    }
+
+    private void addPartition() {
+        String name = JOptionPane.showInputDialog(this, "Partition name:");
+        if (name != null && !name.isBlank()) {
+            securityService.addPartition(new Partition(name.trim()));
+            refreshScopes();
+        }
+    }
+
+    /**
+     * Rebuilds the scope list from the current partitions, keeping the selection.
+     */
+    private void refreshScopes() {
+        Scope selected = (Scope) scopeDropdown.getSelectedItem();
+        scopeModel.removeAllElements();
+        scopeModel.addElement(new Scope(true, null, "Whole site"));
+        scopeModel.addElement(new Scope(false, null, "Main"));
+        for (Partition partition : securityService.getPartitions()) {
+            scopeModel.addElement(new Scope(false, partition.getPartitionId(), partition.getName()));
+        }
+        for (int i = 0; i < scopeModel.getSize(); i++) {
+            if (selected != null && scopeModel.getElementAt(i).sameScope(selected)) {
+                scopeDropdown.setSelectedIndex(i);
+            }
+        }
+    }
+
+    /**
+     * Colors the button of the selected scope's arming status and shows its alarm status.
+     */
+    private void showScopeStatus() {
+        Scope scope = (Scope) scopeDropdown.getSelectedItem();
+        if (scope == null) {
+            return;
+        }
+        ArmingStatus armingStatus;
+        AlarmStatus alarmStatus;
+        int sensorCount;
+        if (scope.site) {
+            armingStatus = securityService.getSiteArmingStatus();
+            alarmStatus = securityService.getSiteAlarmStatus();
+            sensorCount = securityService.getSensorCount();
+        } else if (scope.partitionId == null || securityService.getPartition(scope.partitionId) != null) {
+            armingStatus = securityService.getArmingStatus(scope.partitionId);
+            alarmStatus = securityService.getAlarmStatus(scope.partitionId);
+            sensorCount = securityService.getSensorsInPartition(scope.partitionId).size();
+        } else {
+            //removed elsewhere; the next refresh drops it
+            return;
+        }
+        buttonMap.forEach((status, button) -> button.setBackground(status == armingStatus ? StyleService.getColor(status) : null));
+        scopeStatusLabel.setText(alarmStatus.getDescription() + " (" + sensorCount + " sensors)");
+        scopeStatusLabel.setBackground(StyleService.getColor(alarmStatus));
+        scopeStatusLabel.setOpaque(true);
+    }
+
+    @Override
+    public void notify(AlarmStatus status) {
+        showScopeStatus();
+    }
+
+    @Override
+    public void catDetected(boolean catDetected) {
+        // no behavior necessary
+    }
+
+    @Override
+    public void sensorStatusChanged() {
+        if (scopeModel.getSize() != securityService.getPartitions().size() + 2) {
+            refreshScopes();
+        }
+        showScopeStatus();
+    }
+
+    /**
+     * An entry of the scope selector: the whole site, the main partition or another partition.
+     */
+    private static class Scope {
+        private final boolean site;
+        private final UUID partitionId;
+        private final String label;
 
-        ArmingStatus currentStatus = securityService.getArmingStatus();
-        buttonMap.get(currentStatus).setBackground(currentStatus.getColor());
+        Scope(boolean site, UUID partitionId, String label) {
+            this.site = site;
+            this.partitionId = partitionId;
+            this.label = label;
+        }
 
+        boolean sameScope(Scope other) {
+            return site == other.site && Objects.equals(partitionId, other.partitionId);
+        }
 
+        @Override
+        public String toString() {
+            return label;
+        }
     }
 }
@@ -8,8 +8,9 @@ import net.miginfocom.swing.MigLayout;
 import javax.swing.*;
 
 /**
- * Displays the current status of the system. Implements the StatusListener
- * interface so that it can be notified whenever the status changes.
+ * Displays the current status of the system, which is the most severe alarm status of any
+ * partition. Implements the StatusListener interface so that it can be notified whenever the
+ * status changes.
  */
 public class DisplayPanel extends JPanel implements StatusListener {
 
@@ -19,7 +20,7 @@ public class DisplayPanel extends JPanel implements StatusListener {
         super();
         setLayout(new MigLayout());
 
-        securityService.addStatusListener(this);
+        securityService.addStatusListener(this, SwingUtilities::invokeLater);
 
         JLabel panelLabel = new JLabel("Very Secure Home Security");
         JLabel systemStatusLabel = new JLabel("System Status:");
@@ -27,7 +28,7 @@ public class DisplayPanel extends JPanel implements StatusListener {
 
         panelLabel.setFont(StyleService.HEADING_FONT);
 
-        notify(securityService.getAlarmStatus());
+        notify(securityService.getSiteAlarmStatus());
 
         add(panelLabel, "span 2, wrap");
         add(systemStatusLabel);
@@ -38,7 +39,7 @@ public class DisplayPanel extends JPanel implements StatusListener {
     @Override
     public void notify(AlarmStatus status) {
         currentStatusLabel.setText(status.getDescription());
-        currentStatusLabel.setBackground(status.getColor());
+        currentStatusLabel.setBackground(StyleService.getColor(status));
         currentStatusLabel.setOpaque(true);
     }
 
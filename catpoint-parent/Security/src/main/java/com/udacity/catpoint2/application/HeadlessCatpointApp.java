@@ -0,0 +1,361 @@
+package com.udacity.catpoint2.application;
+
+import com.udacity.catpoint.camera.CameraStream;
+import com.udacity.catpoint2.data.AlarmStatus;
+import com.udacity.catpoint2.data.ArmingStatus;
+import com.udacity.catpoint2.data.Partition;
+import com.udacity.catpoint2.data.Sensor;
+import com.udacity.catpoint2.data.SensorType;
+import com.udacity.catpoint2.service.SecurityService;
+import com.udacity.catpoint2.service.SensorDebouncer;
+import com.udacity.catpoint2.service.TimerWheel;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the security system without a display. Only the repository, image service and
+ * SecurityService are created, and the system is driven by text commands read one per line
+ * from standard input. Nothing here touches Swing or AWT; scanned picture files are passed to the
+ * image service still encoded, so only a service that decodes them loads the AWT image classes.
+ * Camera streams started with the stream command do decode their frames, but need no display.
+ *
+ * A stream sends one frame every catpoint.sampleMillis milliseconds (1000 by default) to the
+ * image service.
+ *
+ * The sense command stands in for sensor hardware: its readings go through a
+ * {@link SensorDebouncer}, so a sensor only changes once a reading has held for the debounce time
+ * of its type. Activate and deactivate change a sensor at once, as the GUI does.
+ *
+ * Status changes are printed as they happen. Type "help" for the list of commands.
+ */
+public class HeadlessCatpointApp implements StatusListener {
+
+    private static final String HELP = String.join(System.lineSeparator(),
+            "status                     show alarm and arming status",
+            "sensors [active]           list all sensors, or only the active ones",
+            "add <type> <name>          add a sensor; type is DOOR, WINDOW or MOTION",
+            "remove <sensor>            remove a sensor",
+            "activate <sensor>          mark a sensor active",
+            "deactivate <sensor>        mark a sensor inactive",
+            "sense <sensor> on|off      report a reading from sensor hardware, applied once it settles",
+            "arm home|away [partition]  arm the whole site, or one partition (main for sensors in none)",
+            "disarm [partition]         disarm the whole site, or one partition",
+            "partitions                 list partitions with their status",
+            "partition <name>           add a partition",
+            "unpartition <partition>    remove a partition, moving its sensors to main",
+            "assign <sensor> <part>     move a sensor to a partition",
+            "scan [image file]          check the camera, or the given picture, for a cat",
+            "stream <dir|mjpeg|url>     watch a directory of pictures or an MJPEG file or stream",
+            "streams                    show camera streams, whether they see a cat and their statistics",
+            "quit                       exit",
+            "A sensor or partition can be given by id or by name.");
+
+    private static final String CAMERA_ID = SecurityService.DEFAULT_CAMERA_ID;
+
+    private final SecurityService securityService;
+    private final SensorDebouncer debouncer;
+    private final TimerWheel debounceWheel;
+    private final PrintStream out;
+    private final List<CameraStream> streams = new ArrayList<>();
+
+    public HeadlessCatpointApp(SecurityService securityService, PrintStream out) {
+        this(securityService, new TimerWheel(System::nanoTime, 10, TimeUnit.MILLISECONDS, 512), out);
+        debounceWheel.start();
+    }
+
+    /**
+     * @param debounceWheel Wheel sensor readings are debounced on; the caller starts it or advances
+     *                      it, and it is stopped when {@link #run} returns
+     */
+    public HeadlessCatpointApp(SecurityService securityService, TimerWheel debounceWheel, PrintStream out) {
+        this.securityService = securityService;
+        this.debounceWheel = debounceWheel;
+        this.debouncer = new SensorDebouncer(securityService, debounceWheel);
+        this.out = out;
+        securityService.addStatusListener(this);
+    }
+
+    public static void main(String[] args) throws IOException {
+        try (SecurityService securityService = new SecurityService(CatpointApp.createRepository(), CatpointApp.createImageService())) {
+            securityService.setSensorLimit(CatpointApp.sensorLimit());
+            CatpointApp.configureDelays(securityService);
+            HeadlessCatpointApp app = new HeadlessCatpointApp(securityService, System.out);
+            app.run(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+        }
+    }
+
+    /**
+     * Executes commands from the reader until it is exhausted or a quit command is read.
+     */
+    public void run(BufferedReader in) throws IOException {
+        printStatus();
+        String line;
+        try {
+            while ((line = in.readLine()) != null) {
+                if (!execute(line)) {
+                    return;
+                }
+            }
+        } finally {
+            streams.forEach(CameraStream::close);
+            try {
+                debounceWheel.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Executes a single command line.
+     * @return false if the command asks to exit
+     */
+    public boolean execute(String line) {
+        String[] words = line.trim().split("\\s+", 3);
+        String command = words[0].toLowerCase(Locale.ROOT);
+        try {
+            switch (command) {
+                case "":
+                    break;
+                case "status":
+                    printStatus();
+                    break;
+                case "sensors":
+                    boolean activeOnly = words.length > 1 && words[1].equalsIgnoreCase("active");
+                    for (Sensor sensor : activeOnly ? securityService.getActiveSensors() : securityService.getSortedSensors()) {
+                        out.printf("%s  %-6s  %-8s  %s%n", sensor.getSensorId(), sensor.getSensorType(),
+                                sensor.getActive() ? "active" : "inactive", sensor.getName());
+                    }
+                    break;
+                case "add":
+                    requireArguments(words, 3);
+                    Sensor sensor = new Sensor(words[2], SensorType.valueOf(words[1].toUpperCase(Locale.ROOT)));
+                    securityService.addSensor(sensor);
+                    out.println("added " + sensor.getSensorId());
+                    break;
+                case "remove":
+                    Sensor removedSensor = findSensor(words);
+                    securityService.removeSensor(removedSensor);
+                    debouncer.forget(removedSensor.getSensorId());
+                    break;
+                case "activate":
+                    securityService.changeSensorActivationStatus(findSensor(words), true);
+                    break;
+                case "deactivate":
+                    securityService.changeSensorActivationStatus(findSensor(words), false);
+                    break;
+                case "sense":
+                    requireArguments(words, 3);
+                    //the reading is the last word, so sensor names may contain spaces
+                    String[] reading = (words[1] + " " + words[2]).split("\\s+(?=\\S+$)");
+                    Sensor sensed = findSensor(new String[] {command, reading[0]});
+                    debouncer.offer(sensed.getSensorId(), parseReading(reading[1]));
+                    break;
+                case "arm":
+                    requireArguments(words, 2);
+                    ArmingStatus armingStatus = ArmingStatus.valueOf("ARMED_" + words[1].toUpperCase(Locale.ROOT));
+                    if (words.length > 2) {
+                        securityService.setArmingStatus(findPartitionId(words[2]), armingStatus);
+                    } else {
+                        securityService.setArmingStatus(armingStatus);
+                    }
+                    printStatus();
+                    break;
+                case "disarm":
+                    if (words.length > 1) {
+                        securityService.setArmingStatus(findPartitionId(words.length > 2 ? words[1] + " " + words[2] : words[1]),
+                                ArmingStatus.DISARMED);
+                    } else {
+                        securityService.setArmingStatus(ArmingStatus.DISARMED);
+                    }
+                    printStatus();
+                    break;
+                case "partitions":
+                    printPartition(null, "main");
+                    for (Partition partition : securityService.getPartitions()) {
+                        printPartition(partition.getPartitionId(), partition.getName());
+                    }
+                    break;
+                case "partition":
+                    requireArguments(words, 2);
+                    Partition partition = new Partition(words.length > 2 ? words[1] + " " + words[2] : words[1]);
+                    securityService.addPartition(partition);
+                    out.println("added " + partition.getPartitionId());
+                    break;
+                case "unpartition":
+                    requireArguments(words, 2);
+                    UUID removed = findPartitionId(words.length > 2 ? words[1] + " " + words[2] : words[1]);
+                    if (removed == null) {
+                        throw new IllegalArgumentException("the main partition cannot be removed");
+                    }
+                    securityService.removePartition(securityService.getPartition(removed));
+                    break;
+                case "assign":
+                    requireArguments(words, 3);
+                    securityService.assignSensor(findSensor(new String[] {command, words[1]}), findPartitionId(words[2]));
+                    break;
+                case "scan":
+                    if (words.length > 1) {
+                        scanFile(words.length > 2 ? words[1] + " " + words[2] : words[1]);
+                    } else {
+                        securityService.processImage();
+                    }
+                    break;
+                case "stream":
+                    requireArguments(words, 2);
+                    startStream(words.length > 2 ? words[1] + " " + words[2] : words[1]);
+                    break;
+                case "streams":
+                    for (CameraStream stream : streams) {
+                        out.printf("%s  %-7s  %-6s  %s%n", stream.getCameraId(), stream.isRunning() ? "running" : "ended",
+                                securityService.isCatDetected(stream.getCameraId()) ? "cat" : "no cat", stream.getStats());
+                    }
+                    break;
+                case "help":
+                    out.println(HELP);
+                    break;
+                case "quit":
+                case "exit":
+                    return false;
+                default:
+                    out.println("unknown command: " + command + " (try help)");
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            out.println("error: " + e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Classifies a picture from disk and waits for the result.
+     */
+    private void scanFile(String path) {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(Paths.get(path));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot read " + path);
+        }
+        try {
+            out.println("camera: " + securityService.processImage(CAMERA_ID, ByteBuffer.wrap(bytes)).get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            out.println("error: scan failed: " + e.getCause());
+        }
+    }
+
+    /**
+     * Starts streaming from a directory, an MJPEG file or an MJPEG URL. Each stream is a camera of
+     * its own, named camera-1, camera-2 and so on.
+     */
+    private void startStream(String location) {
+        CameraStream stream;
+        try {
+            stream = CatpointApp.createCameraStream("camera-" + (streams.size() + 1), location, securityService);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot open " + location);
+        }
+        streams.add(stream);
+        stream.start();
+        out.println("streaming " + location + " as " + stream.getCameraId());
+    }
+
+    private void printStatus() {
+        out.println("alarm: " + securityService.getSiteAlarmStatus().getDescription()
+                + ", arming: " + securityService.getSiteArmingStatus().getDescription()
+                + ", active sensors: " + securityService.getActiveSensorCount()
+                + "/" + securityService.getSensorCount());
+    }
+
+    private Sensor findSensor(String[] words) {
+        requireArguments(words, 2);
+        String key = words.length > 2 ? words[1] + " " + words[2] : words[1];
+        try {
+            Sensor sensor = securityService.getSensor(UUID.fromString(key));
+            if (sensor != null) {
+                return sensor;
+            }
+        } catch (IllegalArgumentException e) {
+            //not an id, so look it up by name
+        }
+        for (Sensor sensor : securityService.getSortedSensors()) {
+            if (sensor.getName().equals(key)) {
+                return sensor;
+            }
+        }
+        throw new IllegalArgumentException("no sensor " + key);
+    }
+
+    private void printPartition(UUID partitionId, String name) {
+        out.printf("%-36s  %-16s  %-16s  %6d sensors  %s%n", partitionId == null ? "-" : partitionId,
+                securityService.getArmingStatus(partitionId).getDescription(),
+                securityService.getAlarmStatus(partitionId).getDescription(),
+                securityService.getSensorsInPartition(partitionId).size(), name);
+    }
+
+    /**
+     * @return the id of the partition with the given id or name, or null for "main"
+     */
+    private UUID findPartitionId(String key) {
+        if (key.equalsIgnoreCase("main")) {
+            return null;
+        }
+        for (Partition partition : securityService.getPartitions()) {
+            if (partition.getPartitionId().toString().equals(key) || key.equals(partition.getName())) {
+                return partition.getPartitionId();
+            }
+        }
+        throw new IllegalArgumentException("no partition " + key);
+    }
+
+    private static boolean parseReading(String reading) {
+        switch (reading.toLowerCase(Locale.ROOT)) {
+            case "on":
+                return true;
+            case "off":
+                return false;
+            default:
+                throw new IllegalArgumentException("reading must be on or off, not " + reading);
+        }
+    }
+
+    private static void requireArguments(String[] words, int count) {
+        if (words.length < count) {
+            throw new IllegalArgumentException("missing arguments (try help)");
+        }
+    }
+
+    @Override
+    public void notify(AlarmStatus status) {
+        out.println("alarm: " + status.getDescription());
+    }
+
+    @Override
+    public void catDetected(boolean catDetected) {
+        out.println(catDetected ? "cameras: cat visible" : "cameras: no cat visible");
+    }
+
+    @Override
+    public void cameraStatusChanged(String cameraId, boolean catDetected) {
+        out.println(cameraId + (catDetected ? ": cat detected" : ": cat gone"));
+    }
+
+    @Override
+    public void sensorStatusChanged() {
+        // the status command reports sensor state on demand
+    }
+}
@@ -1,5 +1,9 @@
 package com.udacity.catpoint2.application;
 
+import com.udacity.catpoint.camera.CameraStream;
+import com.udacity.catpoint.camera.Frame;
+import com.udacity.catpoint.camera.FrameScaler;
+import com.udacity.catpoint.service.ClassificationResult;
 import com.udacity.catpoint2.data.AlarmStatus;
 import com.udacity.catpoint2.service.SecurityService;
 import com.udacity.catpoint2.service.StyleService;
@@ -9,11 +13,20 @@ import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /** Panel containing the 'camera' output. Allows users to 'refresh' the camera
- * by uploading their own picture, and 'scan' the picture, sending it for image analysis
+ * by uploading their own picture, and 'scan' the picture, sending it for image analysis.
+ *
+ * The panel can also show a live CameraStream. Pictures are scaled into one reused image that the
+ * camera label keeps showing, and the label is only repainted when there is a new picture.
  */
 public class ImagePanel extends JPanel implements StatusListener {
     private SecurityService securityService;
@@ -21,15 +34,28 @@ public class ImagePanel extends JPanel implements StatusListener {
     private JLabel cameraHeader;
     private JLabel cameraLabel;
     private BufferedImage currentCameraImage;
+    //the picture as it was read from disk, which is what gets scanned
+    private byte[] currentCameraBytes;
 
-    private int IMAGE_WIDTH = 300;
-    private int IMAGE_HEIGHT = 225;
+    //the panel shows a single camera
+    private static final String CAMERA_ID = SecurityService.DEFAULT_CAMERA_ID;
+
+    private int IMAGE_WIDTH = CatpointApp.CAMERA_PREVIEW_WIDTH;
+    private int IMAGE_HEIGHT = CatpointApp.CAMERA_PREVIEW_HEIGHT;
+    //how often a live stream is checked for a new frame
+    private static final int STREAM_POLL_MILLIS = 1000 / 30;
+
+    private final FrameScaler displayScaler = new FrameScaler(createDisplayImage(IMAGE_WIDTH, IMAGE_HEIGHT));
+    private final ImageIcon cameraIcon = new ImageIcon(displayScaler.getTarget());
+    private CameraStream shownStream;
+    private Timer streamTimer;
+    private long shownSequence = -1;
 
     public ImagePanel(SecurityService securityService) {
         super();
         setLayout(new MigLayout());
         this.securityService = securityService;
-        securityService.addStatusListener(this);
+        securityService.addStatusListener(this, SwingUtilities::invokeLater);
 
         cameraHeader = new JLabel("Camera Feed");
         cameraHeader.setFont(StyleService.HEADING_FONT);
@@ -50,19 +76,36 @@ public class ImagePanel extends JPanel implements StatusListener {
                 return;
             }
             try {
-                currentCameraImage = ImageIO.read(chooser.getSelectedFile());
-                Image tmp = new ImageIcon(currentCameraImage).getImage();
-                cameraLabel.setIcon(new ImageIcon(tmp.getScaledInstance(IMAGE_WIDTH, IMAGE_HEIGHT, Image.SCALE_SMOOTH)));
+                byte[] bytes = Files.readAllBytes(chooser.getSelectedFile().toPath());
+                currentCameraImage = ImageIO.read(new ByteArrayInputStream(bytes));
+                currentCameraBytes = bytes;
+                show(currentCameraImage);
             } catch (IOException |NullPointerException ioe) {
                 JOptionPane.showMessageDialog(null, "Invalid image selected.");
             }
-            repaint();
         });
 
-        //button that sends the image to the image service
+        //button that sends the image to the image service. Scanning happens in the background and
+        // the result arrives through catDetected, so a slow image service doesn't freeze the window.
+        // The file's own bytes are sent, so the image service doesn't get a re-encoded copy
         JButton scanPictureButton = new JButton("Scan Picture");
         scanPictureButton.addActionListener(e -> {
-            securityService.processImage();
+            cameraHeader.setText("Camera Feed - Scanning...");
+            Frame liveFrame = currentCameraBytes == null && currentCameraImage == null && shownStream != null
+                    ? shownStream.getFrames().latest() : null;
+            CompletableFuture<ClassificationResult> scan;
+            if (currentCameraBytes != null) {
+                scan = securityService.processImage(CAMERA_ID, ByteBuffer.wrap(currentCameraBytes));
+            } else if (liveFrame != null) {
+                scan = scan(liveFrame);
+            } else {
+                scan = securityService.processImage(CAMERA_ID, currentCameraImage);
+            }
+            scan.whenComplete((result, error) -> {
+                if (error != null && !isSuperseded(error)) {
+                    SwingUtilities.invokeLater(() -> cameraHeader.setText("Camera Feed - Scan Failed"));
+                }
+            });
         });
 
         add(cameraHeader, "span 3, wrap");
@@ -71,6 +114,80 @@ public class ImagePanel extends JPanel implements StatusListener {
         add(scanPictureButton);
     }
 
+    /**
+     * Shows the stream's newest frame until the stream ends or another stream is shown. The
+     * stream's own sampling takes care of scanning its frames.
+     */
+    public void showStream(CameraStream stream) {
+        if (streamTimer != null) {
+            streamTimer.stop();
+        }
+        shownStream = stream;
+        shownSequence = -1;
+        streamTimer = new Timer(STREAM_POLL_MILLIS, e -> showLatestFrame(stream, (Timer) e.getSource()));
+        streamTimer.start();
+    }
+
+    private void showLatestFrame(CameraStream stream, Timer timer) {
+        Frame frame = stream.getFrames().latest();
+        if (frame == null) {
+            if (!stream.isRunning()) {
+                timer.stop();
+            }
+            return;
+        }
+        try {
+            if (frame.getSequence() != shownSequence) {
+                shownSequence = frame.getSequence();
+                //the live frame replaces any picture loaded from a file
+                currentCameraImage = null;
+                currentCameraBytes = null;
+                show(frame.getPreview() != null ? frame.getPreview() : frame.getImage());
+            }
+        } finally {
+            frame.release();
+        }
+    }
+
+    /**
+     * Scans a live frame, holding on to it until the scan is done so its image isn't reused for a
+     * later frame in the meantime.
+     * @param frame The frame, whose reference is released once the scan is done
+     */
+    private CompletableFuture<ClassificationResult> scan(Frame frame) {
+        CompletableFuture<ClassificationResult> scan = securityService.processImage(CAMERA_ID,
+                frame.getPreview() != null ? frame.getPreview() : frame.getImage());
+        scan.whenComplete((result, error) -> frame.release());
+        return scan;
+    }
+
+    private void show(BufferedImage image) {
+        displayScaler.scale(image);
+        if (cameraLabel.getIcon() == null) {
+            cameraLabel.setIcon(cameraIcon);
+        }
+        cameraLabel.repaint();
+    }
+
+    /**
+     * @return an image in the screen's own format, so painting it needs no conversion
+     */
+    static BufferedImage createDisplayImage(int width, int height) {
+        if (GraphicsEnvironment.isHeadless()) {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        }
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDefaultConfiguration().createCompatibleImage(width, height);
+    }
+
+    /**
+     * @return true if the scan was cancelled because a newer scan replaced it
+     */
+    private static boolean isSuperseded(Throwable error) {
+        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+        return cause instanceof CancellationException;
+    }
+
     @Override
     public void notify(AlarmStatus status) {
         //no behavior necessary
@@ -1,11 +1,14 @@
 package com.udacity.catpoint2.application;
 import com.udacity.catpoint2.data.AlarmStatus;
+import com.udacity.catpoint2.data.Partition;
 import com.udacity.catpoint2.data.Sensor;
 import com.udacity.catpoint2.data.SensorType;
 import com.udacity.catpoint2.service.SecurityService;
 import com.udacity.catpoint2.service.StyleService;
 import net.miginfocom.swing.MigLayout;
 import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
 /**
  * Panel that allows users to add sensors to their system. Sensors may be
  * manually set to "active" and "inactive" to test the system.
@@ -17,25 +20,37 @@ public class SensorPanel extends JPanel implements StatusListener {
     private JLabel newSensorType = new JLabel("Sensor Type:");
     private JTextField newSensorNameField = new JTextField();
     private JComboBox newSensorTypeDropdown = new JComboBox(SensorType.values());
+    private JLabel newSensorPartition = new JLabel("Partition:");
+    //index 0 is the main partition, the rest follow partitions
+    private JComboBox<String> newSensorPartitionDropdown = new JComboBox<>();
+    private List<Partition> partitions = new ArrayList<>();
     private JButton addNewSensorButton = new JButton("Add New Sensor");
-    private JPanel sensorListPanel;
+    private JButton removeSensorsButton = new JButton("Remove Selected Sensors");
+    private SensorTableModel sensorTableModel;
+    private JTable sensorTable;
     private JPanel newSensorPanel;
     public SensorPanel(SecurityService securityService) {
         super();
         setLayout(new MigLayout());
         this.securityService = securityService;
-        securityService.addStatusListener(this);
+        securityService.addStatusListener(this, SwingUtilities::invokeLater);
         panelLabel.setFont(StyleService.HEADING_FONT);
-        addNewSensorButton.addActionListener(e ->
-                addSensor(new Sensor(newSensorNameField.getText(),
-                        SensorType.valueOf(newSensorTypeDropdown.getSelectedItem().toString()))));
+        addNewSensorButton.addActionListener(e -> {
+            Sensor sensor = new Sensor(newSensorNameField.getText(),
+                    SensorType.valueOf(newSensorTypeDropdown.getSelectedItem().toString()));
+            int partition = newSensorPartitionDropdown.getSelectedIndex();
+            sensor.setPartitionId(partition > 0 ? partitions.get(partition - 1).getPartitionId() : null);
+            addSensor(sensor);
+        });
+        refreshPartitions();
+        removeSensorsButton.addActionListener(e -> removeSelectedSensors());
         newSensorPanel = buildAddSensorPanel();
-        sensorListPanel = new JPanel();
-        sensorListPanel.setLayout(new MigLayout());
-        updateSensorList(sensorListPanel);
+        sensorTableModel = new SensorTableModel(securityService);
+        sensorTable = buildSensorTable(sensorTableModel);
         add(panelLabel, "wrap");
         add(newSensorPanel, "span");
-        add(sensorListPanel, "span");
+        add(new JScrollPane(sensorTable), "span, width 500:500:500, height 60:200:400");
+        add(removeSensorsButton, "span");
     }
     /**
      * Builds the panel with the form for adding a new sensor
@@ -47,58 +62,58 @@ public class SensorPanel extends JPanel implements StatusListener {
         p.add(newSensorNameField, "width 50:100:200");
         p.add(newSensorType);
         p.add(newSensorTypeDropdown, "wrap");
+        p.add(newSensorPartition);
+        p.add(newSensorPartitionDropdown, "width 50:100:200, wrap");
         p.add(addNewSensorButton, "span 3");
         return p;
     }
     /**
-     * Requests the current list of sensors and updates the provided panel to display them. Sensors
-     * will display in the order that they are created.
-     * @param p The Panel to populate with the current list of sensors
-     */
-    private void updateSensorList(JPanel p) {
-        p.removeAll();
-        securityService.getSensors().stream().sorted().forEach(s -> {
-            JLabel sensorLabel = new JLabel(String.format("%s(%s): %s", s.getName(),  s.getSensorType().toString(),(s.getActive() ? "Active" : "Inactive")));
-            JButton sensorToggleButton = new JButton((s.getActive() ? "Deactivate" : "Activate"));
-            JButton sensorRemoveButton = new JButton("Remove Sensor");
-            sensorToggleButton.addActionListener(e -> setSensorActivity(s, !s.getActive()) );
-            sensorRemoveButton.addActionListener(e -> removeSensor(s));
-            //hard code some sizes, tsk tsk
-            p.add(sensorLabel, "width 300:300:300");
-            p.add(sensorToggleButton, "width 100:100:100");
-            p.add(sensorRemoveButton, "wrap");
-        });
-        repaint();
-        revalidate();
-    }
-    /**
-     * Asks the securityService to change a sensor activation status and then rebuilds the current sensor list
-     * @param sensor The sensor to update
-     * @param isActive The sensor's activation status
+     * Builds the sensor list. The table only creates components for the rows on screen, using one
+     * shared renderer per column, so the number of sensors doesn't matter to Swing.
      */
-    private void setSensorActivity(Sensor sensor, Boolean isActive) {
-        securityService.changeSensorActivationStatus(sensor, isActive);
-        updateSensorList(sensorListPanel);
+    private JTable buildSensorTable(SensorTableModel model) {
+        JTable table = new JTable(model);
+        table.setFillsViewportHeight(true);
+        table.getColumnModel().getColumn(SensorTableModel.NAME_COLUMN).setPreferredWidth(300);
+        table.getColumnModel().getColumn(SensorTableModel.TYPE_COLUMN).setPreferredWidth(100);
+        table.getColumnModel().getColumn(SensorTableModel.ACTIVE_COLUMN).setPreferredWidth(100);
+        return table;
     }
     /**
-     * Adds a sensor to the securityService and then rebuilds the sensor list
+     * Adds a sensor to the securityService and then updates the sensor list
      * @param sensor The sensor to add
      */
     private void addSensor(Sensor sensor) {
-        if(securityService.getSensors().size() < 4) {
+        try {
             securityService.addSensor(sensor);
-            updateSensorList(sensorListPanel);
-        } else {
-            JOptionPane.showMessageDialog(null, "To add more than 4 sensors, please subscribe to our Premium Membership!");
+            sensorTableModel.refresh();
+        } catch (IllegalStateException e) {
+            JOptionPane.showMessageDialog(null, "Cannot add the sensor: " + e.getMessage());
         }
     }
     /**
-     * Remove a sensor from the securityService and then rebuild the sensor list
-     * @param sensor The sensor to remove
+     * Remove the sensors selected in the list from the securityService and then update the list
      */
-    private void removeSensor(Sensor sensor) {
-        securityService.removeSensor(sensor);
-        updateSensorList(sensorListPanel);
+    private void removeSelectedSensors() {
+        List<Sensor> selected = new ArrayList<>();
+        for (int row : sensorTable.getSelectedRows()) {
+            selected.add(sensorTableModel.getSensor(sensorTable.convertRowIndexToModel(row)));
+        }
+        selected.forEach(securityService::removeSensor);
+        sensorTableModel.refresh();
+    }
+    /**
+     * Lists the partitions a new sensor can be put in, keeping the selection.
+     */
+    private void refreshPartitions() {
+        Object selected = newSensorPartitionDropdown.getSelectedItem();
+        partitions = securityService.getPartitions();
+        newSensorPartitionDropdown.removeAllItems();
+        newSensorPartitionDropdown.addItem("Main");
+        partitions.forEach(partition -> newSensorPartitionDropdown.addItem(partition.getName()));
+        if (selected != null) {
+            newSensorPartitionDropdown.setSelectedItem(selected);
+        }
     }
     @Override
     public void notify(AlarmStatus status) {
@@ -108,6 +123,9 @@ public class SensorPanel extends JPanel implements StatusListener {
     }
     @Override
     public void sensorStatusChanged() {
-        updateSensorList(sensorListPanel);
+        if (!partitions.equals(securityService.getPartitions())) {
+            refreshPartitions();
+        }
+        sensorTableModel.refresh();
     }
 }
@@ -0,0 +1,124 @@
+package com.udacity.catpoint2.application;
+
+import com.udacity.catpoint2.data.Sensor;
+import com.udacity.catpoint2.service.SecurityService;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Table model listing the sensors in display order, read straight from the repository's sorted
+ * view rather than copied. {@link #refresh()} works out what changed since the table was last
+ * told: while no sensor has been added, removed or renamed the repository hands back the same
+ * sorted list, so only the rows whose active flag flipped are reported and repainted. Anything
+ * else redraws the visible rows, and JTable only ever renders those.
+ */
+class SensorTableModel extends AbstractTableModel {
+
+    static final int NAME_COLUMN = 0;
+    static final int TYPE_COLUMN = 1;
+    static final int ACTIVE_COLUMN = 2;
+    private static final String[] COLUMN_NAMES = {"Name", "Type", "Active"};
+
+    private final SecurityService securityService;
+    private List<Sensor> rows;
+    //each row's active flag as the table last saw it
+    private final BitSet shownActive = new BitSet();
+
+    SensorTableModel(SecurityService securityService) {
+        this.securityService = securityService;
+        this.rows = securityService.getSortedSensors();
+        rememberActiveFlags();
+    }
+
+    /**
+     * Tells the table about every sensor that changed since the last refresh.
+     */
+    void refresh() {
+        List<Sensor> sorted = securityService.getSortedSensors();
+        if (sorted != rows) {
+            rows = sorted;
+            rememberActiveFlags();
+            fireTableDataChanged();
+            return;
+        }
+        //report runs of neighbouring changed rows as one event
+        int first = -1;
+        for (int row = 0; row < rows.size(); row++) {
+            boolean active = rows.get(row).getActive();
+            if (active != shownActive.get(row)) {
+                shownActive.set(row, active);
+                if (first < 0) {
+                    first = row;
+                }
+            } else if (first >= 0) {
+                fireTableRowsUpdated(first, row - 1);
+                first = -1;
+            }
+        }
+        if (first >= 0) {
+            fireTableRowsUpdated(first, rows.size() - 1);
+        }
+    }
+
+    Sensor getSensor(int row) {
+        return rows.get(row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == ACTIVE_COLUMN ? Boolean.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Sensor sensor = rows.get(row);
+        switch (column) {
+            case NAME_COLUMN:
+                return sensor.getName();
+            case TYPE_COLUMN:
+                return sensor.getSensorType().toString();
+            default:
+                return sensor.getActive();
+        }
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return column == ACTIVE_COLUMN;
+    }
+
+    /**
+     * Ticking or clearing the Active box activates or deactivates the sensor.
+     */
+    @Override
+    public void setValueAt(Object value, int row, int column) {
+        if (column == ACTIVE_COLUMN) {
+            securityService.changeSensorActivationStatus(rows.get(row), (Boolean) value);
+            refresh();
+        }
+    }
+
+    private void rememberActiveFlags() {
+        shownActive.clear();
+        for (int row = 0; row < rows.size(); row++) {
+            shownActive.set(row, rows.get(row).getActive());
+        }
+    }
+}
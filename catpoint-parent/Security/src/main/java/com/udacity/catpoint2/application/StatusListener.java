@@ -7,6 +7,16 @@ import com.udacity.catpoint2.data.AlarmStatus;
  */
 public interface StatusListener {
     void notify(AlarmStatus status);
+    /**
+     * Called with whether any camera currently sees a cat.
+     */
     void catDetected(boolean catDetected);
     void sensorStatusChanged();
+
+    /**
+     * Called when a camera starts or stops seeing a cat.
+     */
+    default void cameraStatusChanged(String cameraId, boolean catDetected) {
+        //no behavior necessary
+    }
 }
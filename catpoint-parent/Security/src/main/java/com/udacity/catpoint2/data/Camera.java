@@ -0,0 +1,65 @@
+package com.udacity.catpoint2.data;
+
+import com.google.common.collect.ComparisonChain;
+
+import java.util.Objects;
+
+/**
+ * Camera POJO. The id is the name its frames are reported under, as given to
+ * SecurityService.processImage. Needs to know how to sort itself for display purposes.
+ */
+public class Camera implements Comparable<Camera> {
+    private String cameraId;
+    private String name;
+    private Boolean catDetected;
+
+    public Camera(String cameraId, String name) {
+        this.cameraId = cameraId;
+        this.name = name;
+        this.catDetected = Boolean.FALSE;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Camera camera = (Camera) o;
+        return cameraId.equals(camera.cameraId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(cameraId);
+    }
+
+    public String getCameraId() {
+        return cameraId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return true if the camera's latest frame showed a cat
+     */
+    public Boolean getCatDetected() {
+        return catDetected;
+    }
+
+    public void setCatDetected(Boolean catDetected) {
+        this.catDetected = catDetected;
+    }
+
+    @Override
+    public int compareTo(Camera o) {
+        return ComparisonChain.start()
+                .compare(this.name, o.name)
+                .compare(this.cameraId, o.cameraId)
+                .result();
+    }
+}
@@ -0,0 +1,143 @@
+package com.udacity.catpoint2.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Repository that keeps everything in memory and never persists, for the service tests and for
+ * benchmarks that measure the service's own logic rather than storage. It is safe for use from
+ * several threads, and a new SecurityService opened on the same instance sees the state the
+ * previous one left behind, as it would after a restart.
+ */
+public class InMemorySecurityRepository implements SecurityRepository {
+
+    private final SensorRegistry sensors = new SensorRegistry();
+    private final Map<UUID, Partition> partitions = new LinkedHashMap<>();
+    private AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+    private ArmingStatus armingStatus = ArmingStatus.DISARMED;
+
+    @Override
+    public synchronized void addSensor(Sensor sensor) {
+        sensors.add(sensor);
+    }
+
+    @Override
+    public synchronized void removeSensor(Sensor sensor) {
+        sensors.remove(sensor);
+    }
+
+    @Override
+    public synchronized void updateSensor(Sensor sensor) {
+        sensors.update(sensor);
+    }
+
+    @Override
+    public synchronized void updateSensors(Collection<Sensor> updated) {
+        updated.forEach(sensors::update);
+    }
+
+    @Override
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus = alarmStatus;
+    }
+
+    @Override
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus = armingStatus;
+    }
+
+    @Override
+    public synchronized void addPartition(Partition partition) {
+        partitions.put(partition.getPartitionId(), partition);
+    }
+
+    @Override
+    public synchronized void removePartition(Partition partition) {
+        partitions.remove(partition.getPartitionId());
+    }
+
+    @Override
+    public synchronized void updatePartition(Partition partition) {
+        partitions.put(partition.getPartitionId(), partition);
+    }
+
+    @Override
+    public synchronized Collection<Partition> getPartitions() {
+        return new ArrayList<>(partitions.values());
+    }
+
+    @Override
+    public synchronized Partition getPartition(UUID partitionId) {
+        return partitions.get(partitionId);
+    }
+
+    @Override
+    public synchronized Set<Sensor> getSensors() {
+        return sensors.snapshot();
+    }
+
+    @Override
+    public synchronized int getSensorCount() {
+        return sensors.size();
+    }
+
+    @Override
+    public synchronized Sensor getSensor(UUID sensorId) {
+        return sensors.get(sensorId);
+    }
+
+    @Override
+    public synchronized boolean anySensorActive() {
+        return sensors.anyActive();
+    }
+
+    @Override
+    public synchronized int getActiveSensorCount() {
+        return sensors.activeCount();
+    }
+
+    @Override
+    public synchronized int getActiveSensorCount(SensorType sensorType) {
+        return sensors.activeCount(sensorType);
+    }
+
+    @Override
+    public synchronized List<Sensor> getSortedSensors() {
+        return sensors.sortedView();
+    }
+
+    @Override
+    public synchronized List<Sensor> getActiveSensors() {
+        return sensors.activeSensors();
+    }
+
+    @Override
+    public synchronized List<Sensor> getSensorsInPartition(UUID partitionId) {
+        return sensors.inPartition(partitionId);
+    }
+
+    @Override
+    public synchronized List<Sensor> getActiveSensorsInPartition(UUID partitionId) {
+        return sensors.activeInPartition(partitionId);
+    }
+
+    @Override
+    public synchronized int getActiveSensorCountInPartition(UUID partitionId) {
+        return sensors.activeCountInPartition(partitionId);
+    }
+
+    @Override
+    public synchronized AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public synchronized ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+}
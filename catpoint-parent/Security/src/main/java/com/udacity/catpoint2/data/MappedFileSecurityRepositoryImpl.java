@@ -0,0 +1,540 @@
+package com.udacity.catpoint2.data;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Repository implementation backed by two memory-mapped files. sensors.dat holds a small header
+ * with the alarm and arming status and whether the preferences data has been imported, followed
+ * by one fixed-size record per sensor:
+ *
+ *   [long id msb][long id lsb][int name offset][byte type ordinal][byte active][2 bytes unused]
+ *   [int partition offset][4 bytes unused]
+ *
+ * names.dat is an append-only heap of length-prefixed UTF-8 sensor names, and each distinct name
+ * is only stored once. The partition offset points at the sensor's partition id in the same heap,
+ * or is 0 for the main partition, which is what stores from before partitions existed hold there.
+ * partitions.dat holds a count and one record per partition:
+ *
+ *   [int id offset][int name offset][byte arming ordinal][byte alarm ordinal][6 bytes unused]
+ *
+ *  Opening the repository just maps the files; sensor objects are decoded the
+ * first time they are needed, and flipping a sensor's active flag is a single in-place byte write.
+ */
+public class MappedFileSecurityRepositoryImpl implements SecurityRepository {
+
+    private static final String SENSOR_FILE = "sensors.dat";
+    private static final String NAME_FILE = "names.dat";
+    private static final String PARTITION_FILE = "partitions.dat";
+
+    private static final int SENSOR_MAGIC = 0x43505346; // "CPSF"
+    private static final int NAME_MAGIC = 0x4350534e; // "CPSN"
+    private static final int PARTITION_MAGIC = 0x43505350; // "CPSP"
+    private static final int FORMAT_VERSION = 1;
+
+    //sensors.dat header layout
+    private static final int HEADER_BYTES = 32;
+    private static final int COUNT_OFFSET = 8;
+    private static final int ALARM_OFFSET = 12;
+    private static final int ARMING_OFFSET = 13;
+    private static final int MIGRATED_OFFSET = 14;
+
+    //sensor record layout
+    private static final int RECORD_BYTES = 32;
+    private static final int NAME_FIELD = 16;
+    private static final int TYPE_FIELD = 20;
+    private static final int ACTIVE_FIELD = 21;
+    private static final int PARTITION_FIELD = 24;
+
+    //names.dat header layout
+    private static final int NAME_HEADER_BYTES = 8;
+    private static final int NAME_USED_OFFSET = 4;
+
+    //partitions.dat layout
+    private static final int PARTITION_HEADER_BYTES = 16;
+    private static final int PARTITION_COUNT_OFFSET = 8;
+    private static final int PARTITION_RECORD_BYTES = 16;
+    private static final int PARTITION_NAME_FIELD = 4;
+    private static final int PARTITION_ARMING_FIELD = 8;
+    private static final int PARTITION_ALARM_FIELD = 9;
+    private static final int INITIAL_PARTITION_CAPACITY = 16;
+
+    private static final int INITIAL_SENSOR_CAPACITY = 64;
+    private static final int INITIAL_NAME_BYTES = 4096;
+
+    private final FileChannel sensorChannel;
+    private final FileChannel nameChannel;
+    private final FileChannel partitionChannel;
+    private MappedByteBuffer sensorMap;
+    private MappedByteBuffer nameMap;
+    private MappedByteBuffer partitionMap;
+
+    //decoded when the store is opened; partitions are few
+    private final Map<UUID, Partition> partitions = new LinkedHashMap<>();
+    private final Map<UUID, Integer> partitionSlots = new HashMap<>();
+
+    //decoded lazily, see ensureLoaded()
+    private SensorRegistry sensors;
+    private Map<UUID, Integer> slotsById;
+    private Map<String, Integer> nameOffsets;
+
+    public MappedFileSecurityRepositoryImpl(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            sensorChannel = FileChannel.open(directory.resolve(SENSOR_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            nameChannel = FileChannel.open(directory.resolve(NAME_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            partitionChannel = FileChannel.open(directory.resolve(PARTITION_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            boolean created = sensorChannel.size() == 0;
+            sensorMap = map(sensorChannel, created ? HEADER_BYTES + (long) INITIAL_SENSOR_CAPACITY * RECORD_BYTES : sensorChannel.size());
+            nameMap = map(nameChannel, created ? INITIAL_NAME_BYTES : nameChannel.size());
+            if (created) {
+                sensorMap.putInt(0, SENSOR_MAGIC);
+                sensorMap.putInt(4, FORMAT_VERSION);
+                sensorMap.putInt(COUNT_OFFSET, 0);
+                sensorMap.put(ALARM_OFFSET, (byte) AlarmStatus.NO_ALARM.ordinal());
+                sensorMap.put(ARMING_OFFSET, (byte) ArmingStatus.DISARMED.ordinal());
+                nameMap.putInt(0, NAME_MAGIC);
+                nameMap.putInt(NAME_USED_OFFSET, NAME_HEADER_BYTES);
+            } else if (sensorMap.getInt(0) != SENSOR_MAGIC || sensorMap.getInt(4) != FORMAT_VERSION
+                    || nameMap.getInt(0) != NAME_MAGIC) {
+                throw new IOException("Unrecognized sensor store in " + directory);
+            }
+            //stores from before partitions existed have no partition file yet
+            boolean noPartitions = partitionChannel.size() == 0;
+            partitionMap = map(partitionChannel, noPartitions
+                    ? PARTITION_HEADER_BYTES + (long) INITIAL_PARTITION_CAPACITY * PARTITION_RECORD_BYTES : partitionChannel.size());
+            if (noPartitions) {
+                partitionMap.putInt(0, PARTITION_MAGIC);
+                partitionMap.putInt(4, FORMAT_VERSION);
+                partitionMap.putInt(PARTITION_COUNT_OFFSET, 0);
+            } else if (partitionMap.getInt(0) != PARTITION_MAGIC || partitionMap.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("Unrecognized partition store in " + directory);
+            }
+            loadPartitions();
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to open sensor store in " + directory, ioe);
+        }
+    }
+
+    /**
+     * Opens the store in the given directory. The first time, and only if the store is still
+     * empty, the sensors and statuses saved by {@link PretendDatabaseSecurityRepositoryImpl} in
+     * user preferences are imported. Later opens never import again, even once every sensor has
+     * been removed.
+     * @param directory Directory holding the mapped files
+     * @return the opened repository
+     */
+    public static MappedFileSecurityRepositoryImpl migrateFromPreferences(Path directory) {
+        return migrateFrom(directory, PretendDatabaseSecurityRepositoryImpl::new);
+    }
+
+    static MappedFileSecurityRepositoryImpl migrateFrom(Path directory, Supplier<SecurityRepository> legacy) {
+        MappedFileSecurityRepositoryImpl repository = new MappedFileSecurityRepositoryImpl(directory);
+        repository.migrateOnce(legacy);
+        return repository;
+    }
+
+    private synchronized void migrateOnce(Supplier<SecurityRepository> legacy) {
+        if (sensorMap.get(MIGRATED_OFFSET) != 0) {
+            return;
+        }
+        if (sensorCount() == 0) {
+            importFrom(legacy.get());
+        }
+        sensorMap.put(MIGRATED_OFFSET, (byte) 1);
+    }
+
+    /**
+     * Copies all sensors and the alarm and arming status from another repository into this one.
+     * @param source The repository to copy from
+     */
+    public synchronized void importFrom(SecurityRepository source) {
+        for (Partition partition : source.getPartitions()) {
+            addPartition(partition);
+        }
+        for (Sensor sensor : source.getSensors()) {
+            addSensor(sensor);
+        }
+        setAlarmStatus(source.getAlarmStatus());
+        setArmingStatus(source.getArmingStatus());
+    }
+
+    @Override
+    public synchronized void addSensor(Sensor sensor) {
+        ensureLoaded();
+        if (slotsById.containsKey(sensor.getSensorId())) {
+            updateSensor(sensor);
+            return;
+        }
+        int slot = sensorCount();
+        ensureSensorCapacity(slot + 1);
+        int base = recordBase(slot);
+        sensorMap.putLong(base, sensor.getSensorId().getMostSignificantBits());
+        sensorMap.putLong(base + 8, sensor.getSensorId().getLeastSignificantBits());
+        writeMutableFields(base, sensor);
+        sensorMap.putInt(COUNT_OFFSET, slot + 1);
+        slotsById.put(sensor.getSensorId(), slot);
+        sensors.add(sensor);
+    }
+
+    @Override
+    public synchronized void removeSensor(Sensor sensor) {
+        ensureLoaded();
+        Integer slot = slotsById.remove(sensor.getSensorId());
+        if (slot == null) {
+            return;
+        }
+        sensors.remove(sensor);
+        //keep records dense by moving the last record into the freed slot
+        int last = sensorCount() - 1;
+        if (slot != last) {
+            int from = recordBase(last);
+            int to = recordBase(slot);
+            for (int i = 0; i < RECORD_BYTES; i += 8) {
+                sensorMap.putLong(to + i, sensorMap.getLong(from + i));
+            }
+            slotsById.put(new UUID(sensorMap.getLong(to), sensorMap.getLong(to + 8)), slot);
+        }
+        sensorMap.putInt(COUNT_OFFSET, last);
+    }
+
+    @Override
+    public synchronized void updateSensor(Sensor sensor) {
+        ensureLoaded();
+        Integer slot = slotsById.get(sensor.getSensorId());
+        if (slot == null) {
+            addSensor(sensor);
+            return;
+        }
+        sensors.update(sensor);
+        writeMutableFields(recordBase(slot), sensor);
+    }
+
+    @Override
+    public synchronized void updateSensors(Collection<Sensor> updated) {
+        //records are written in place, so a batch costs nothing beyond the individual writes
+        for (Sensor sensor : updated) {
+            updateSensor(sensor);
+        }
+    }
+
+    @Override
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
+        sensorMap.put(ALARM_OFFSET, (byte) alarmStatus.ordinal());
+    }
+
+    @Override
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
+        sensorMap.put(ARMING_OFFSET, (byte) armingStatus.ordinal());
+    }
+
+    @Override
+    public synchronized void addPartition(Partition partition) {
+        ensureLoaded();
+        Integer slot = partitionSlots.get(partition.getPartitionId());
+        if (slot == null) {
+            slot = partitions.size();
+            ensurePartitionCapacity(slot + 1);
+            partitionMap.putInt(partitionBase(slot), internName(partition.getPartitionId().toString()));
+            partitionMap.putInt(PARTITION_COUNT_OFFSET, slot + 1);
+            partitionSlots.put(partition.getPartitionId(), slot);
+        }
+        partitions.put(partition.getPartitionId(), partition);
+        int base = partitionBase(slot);
+        partitionMap.putInt(base + PARTITION_NAME_FIELD, internName(partition.getName()));
+        partitionMap.put(base + PARTITION_ARMING_FIELD, (byte) partition.getArmingStatus().ordinal());
+        partitionMap.put(base + PARTITION_ALARM_FIELD, (byte) partition.getAlarmStatus().ordinal());
+    }
+
+    @Override
+    public synchronized void removePartition(Partition partition) {
+        Integer slot = partitionSlots.remove(partition.getPartitionId());
+        if (slot == null) {
+            return;
+        }
+        partitions.remove(partition.getPartitionId());
+        int last = partitions.size();
+        if (slot != last) {
+            int from = partitionBase(last);
+            int to = partitionBase(slot);
+            partitionMap.putLong(to, partitionMap.getLong(from));
+            partitionMap.putLong(to + 8, partitionMap.getLong(from + 8));
+            partitionSlots.put(UUID.fromString(readName(partitionMap.getInt(to))), slot);
+        }
+        partitionMap.putInt(PARTITION_COUNT_OFFSET, last);
+    }
+
+    @Override
+    public synchronized void updatePartition(Partition partition) {
+        addPartition(partition);
+    }
+
+    @Override
+    public synchronized Collection<Partition> getPartitions() {
+        return new ArrayList<>(partitions.values());
+    }
+
+    @Override
+    public synchronized Partition getPartition(UUID partitionId) {
+        return partitions.get(partitionId);
+    }
+
+    @Override
+    public synchronized Set<Sensor> getSensors() {
+        ensureLoaded();
+        return sensors.snapshot();
+    }
+
+    @Override
+    public synchronized int getSensorCount() {
+        return sensorCount();
+    }
+
+    @Override
+    public synchronized Sensor getSensor(UUID sensorId) {
+        ensureLoaded();
+        return sensors.get(sensorId);
+    }
+
+    @Override
+    public synchronized boolean anySensorActive() {
+        ensureLoaded();
+        return sensors.anyActive();
+    }
+
+    @Override
+    public synchronized int getActiveSensorCount() {
+        ensureLoaded();
+        return sensors.activeCount();
+    }
+
+    @Override
+    public synchronized int getActiveSensorCount(SensorType sensorType) {
+        ensureLoaded();
+        return sensors.activeCount(sensorType);
+    }
+
+    @Override
+    public synchronized List<Sensor> getSortedSensors() {
+        ensureLoaded();
+        return sensors.sortedView();
+    }
+
+    @Override
+    public synchronized List<Sensor> getActiveSensors() {
+        ensureLoaded();
+        return sensors.activeSensors();
+    }
+
+    @Override
+    public synchronized List<Sensor> getSensorsInPartition(UUID partitionId) {
+        ensureLoaded();
+        return sensors.inPartition(partitionId);
+    }
+
+    @Override
+    public synchronized List<Sensor> getActiveSensorsInPartition(UUID partitionId) {
+        ensureLoaded();
+        return sensors.activeInPartition(partitionId);
+    }
+
+    @Override
+    public synchronized int getActiveSensorCountInPartition(UUID partitionId) {
+        ensureLoaded();
+        return sensors.activeCountInPartition(partitionId);
+    }
+
+    @Override
+    public synchronized AlarmStatus getAlarmStatus() {
+        return AlarmStatus.values()[sensorMap.get(ALARM_OFFSET)];
+    }
+
+    @Override
+    public synchronized ArmingStatus getArmingStatus() {
+        return ArmingStatus.values()[sensorMap.get(ARMING_OFFSET)];
+    }
+
+    /**
+     * Forces any changes in the mapped files out to the storage device.
+     */
+    public synchronized void flush() {
+        sensorMap.force();
+        nameMap.force();
+        partitionMap.force();
+    }
+
+    /**
+     * Flushes and releases the mapped files. The repository must not be used afterwards.
+     */
+    public synchronized void close() {
+        flush();
+        try {
+            sensorChannel.close();
+            nameChannel.close();
+            partitionChannel.close();
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    private int sensorCount() {
+        return sensorMap.getInt(COUNT_OFFSET);
+    }
+
+    private static int recordBase(int slot) {
+        return HEADER_BYTES + slot * RECORD_BYTES;
+    }
+
+    private void writeMutableFields(int base, Sensor sensor) {
+        sensorMap.putInt(base + NAME_FIELD, internName(sensor.getName()));
+        sensorMap.put(base + TYPE_FIELD, (byte) (sensor.getSensorType() == null ? -1 : sensor.getSensorType().ordinal()));
+        sensorMap.put(base + ACTIVE_FIELD, (byte) (Boolean.TRUE.equals(sensor.getActive()) ? 1 : 0));
+        sensorMap.putInt(base + PARTITION_FIELD, sensor.getPartitionId() == null ? 0 : internName(sensor.getPartitionId().toString()));
+    }
+
+    private static int partitionBase(int slot) {
+        return PARTITION_HEADER_BYTES + slot * PARTITION_RECORD_BYTES;
+    }
+
+    private void loadPartitions() {
+        int count = partitionMap.getInt(PARTITION_COUNT_OFFSET);
+        for (int slot = 0; slot < count; slot++) {
+            int base = partitionBase(slot);
+            Partition partition = new Partition();
+            partition.setPartitionId(UUID.fromString(readName(partitionMap.getInt(base))));
+            int nameOffset = partitionMap.getInt(base + PARTITION_NAME_FIELD);
+            partition.setName(nameOffset < 0 ? null : readName(nameOffset));
+            partition.setArmingStatus(ArmingStatus.values()[partitionMap.get(base + PARTITION_ARMING_FIELD)]);
+            partition.setAlarmStatus(AlarmStatus.values()[partitionMap.get(base + PARTITION_ALARM_FIELD)]);
+            partitions.put(partition.getPartitionId(), partition);
+            partitionSlots.put(partition.getPartitionId(), slot);
+        }
+    }
+
+    /**
+     * Decodes every record into a Sensor the first time the sensors are needed.
+     */
+    private void ensureLoaded() {
+        if (sensors != null) {
+            return;
+        }
+        int count = sensorCount();
+        SensorRegistry decoded = new SensorRegistry();
+        slotsById = new HashMap<>(count * 2);
+        nameOffsets = new HashMap<>();
+        Map<Integer, String> namesByOffset = new HashMap<>();
+        for (Integer slot : partitionSlots.values()) {
+            int idOffset = partitionMap.getInt(partitionBase(slot));
+            nameOffsets.putIfAbsent(readName(idOffset), idOffset);
+        }
+        for (int slot = 0; slot < count; slot++) {
+            int base = recordBase(slot);
+            Sensor sensor = new Sensor();
+            sensor.setSensorId(new UUID(sensorMap.getLong(base), sensorMap.getLong(base + 8)));
+            int nameOffset = sensorMap.getInt(base + NAME_FIELD);
+            if (nameOffset >= 0) {
+                sensor.setName(namesByOffset.computeIfAbsent(nameOffset, this::readName));
+                nameOffsets.putIfAbsent(sensor.getName(), nameOffset);
+            }
+            byte type = sensorMap.get(base + TYPE_FIELD);
+            sensor.setSensorType(type < 0 ? null : SensorType.values()[type]);
+            sensor.setActive(sensorMap.get(base + ACTIVE_FIELD) == 1);
+            int partitionOffset = sensorMap.getInt(base + PARTITION_FIELD);
+            if (partitionOffset > 0) {
+                String partitionId = namesByOffset.computeIfAbsent(partitionOffset, this::readName);
+                sensor.setPartitionId(UUID.fromString(partitionId));
+                nameOffsets.putIfAbsent(partitionId, partitionOffset);
+            }
+            slotsById.put(sensor.getSensorId(), slot);
+            decoded.add(sensor);
+        }
+        sensors = decoded;
+    }
+
+    private String readName(int offset) {
+        int length = nameMap.getInt(offset);
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = nameMap.get(offset + 4 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int internName(String name) {
+        if (name == null) {
+            return -1;
+        }
+        Integer existing = nameOffsets.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int offset = nameMap.getInt(NAME_USED_OFFSET);
+        ensureNameCapacity(offset + 4 + bytes.length);
+        nameMap.putInt(offset, bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+            nameMap.put(offset + 4 + i, bytes[i]);
+        }
+        nameMap.putInt(NAME_USED_OFFSET, offset + 4 + bytes.length);
+        nameOffsets.put(name, offset);
+        return offset;
+    }
+
+    private void ensureSensorCapacity(int records) {
+        long required = HEADER_BYTES + (long) records * RECORD_BYTES;
+        if (required > sensorMap.capacity()) {
+            sensorMap = grow(sensorChannel, sensorMap, required);
+        }
+    }
+
+    private void ensurePartitionCapacity(int records) {
+        long required = PARTITION_HEADER_BYTES + (long) records * PARTITION_RECORD_BYTES;
+        if (required > partitionMap.capacity()) {
+            partitionMap = grow(partitionChannel, partitionMap, required);
+        }
+    }
+
+    private void ensureNameCapacity(int bytes) {
+        if (bytes > nameMap.capacity()) {
+            nameMap = grow(nameChannel, nameMap, bytes);
+        }
+    }
+
+    private static MappedByteBuffer grow(FileChannel channel, MappedByteBuffer current, long required) {
+        long size = current.capacity();
+        while (size < required) {
+            size *= 2;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Sensor store is full");
+        }
+        try {
+            current.force();
+            return map(channel, size);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to grow sensor store", ioe);
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+}
@@ -0,0 +1,84 @@
+package com.udacity.catpoint2.data;
+
+import com.google.common.collect.ComparisonChain;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Partition POJO. A partition is a group of sensors, such as a wing of the house, that is armed
+ * and disarmed on its own and keeps its own alarm status. Sensors that belong to no partition make
+ * up the main partition, whose status is the repository's own arming and alarm status. Needs to
+ * know how to sort itself for display purposes.
+ */
+public class Partition implements Comparable<Partition> {
+    private UUID partitionId;
+    private String name;
+    private ArmingStatus armingStatus;
+    private AlarmStatus alarmStatus;
+
+    // No-argument constructor for Gson
+    public Partition() {
+        this.partitionId = UUID.randomUUID();
+        this.armingStatus = ArmingStatus.DISARMED;
+        this.alarmStatus = AlarmStatus.NO_ALARM;
+    }
+
+    public Partition(String name) {
+        this();
+        this.name = name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Partition partition = (Partition) o;
+        return partitionId.equals(partition.partitionId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(partitionId);
+    }
+
+    public UUID getPartitionId() {
+        return partitionId;
+    }
+
+    public void setPartitionId(UUID partitionId) {
+        this.partitionId = partitionId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus = armingStatus;
+    }
+
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus = alarmStatus;
+    }
+
+    @Override
+    public int compareTo(Partition o) {
+        return ComparisonChain.start()
+                .compare(this.name, o.name)
+                .compare(this.partitionId, o.partitionId)
+                .result();
+    }
+}
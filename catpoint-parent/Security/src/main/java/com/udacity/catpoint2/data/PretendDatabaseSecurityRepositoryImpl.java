@@ -4,27 +4,43 @@ import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
 
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.UUID;
+import java.util.prefs.BackingStoreException;
 import java.util.prefs.Preferences;
 
 /**
  * Fake repository implementation for demo purposes. Stores state information in local
  * memory and writes it to user preferences between app loads. This implementation is
  * intentionally a little hard to use in unit tests, so watch out!
+ *
+ * Each sensor is stored as JSON under its own key in a child node, so a change only rewrites the
+ * sensors it touches and the store isn't limited by the 8 KB Preferences allows per value. State
+ * saved by older versions as a single JSON array is moved to that layout when loaded. Partitions
+ * are stored the same way in a node of their own.
  */
 public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository{
 
-    private Set<Sensor> sensors;
-    private AlarmStatus alarmStatus;
-    private ArmingStatus armingStatus;
+    private SensorRegistry sensors = new SensorRegistry();
+    private volatile AlarmStatus alarmStatus;
+    private volatile ArmingStatus armingStatus;
+    private final Map<UUID, Partition> partitions = new LinkedHashMap<>();
 
-    //preference keys
+    //preference keys; SENSORS is the single-value layout of older versions
     private static final String SENSORS = "SENSORS";
+    private static final String SENSOR_NODE = "sensors";
+    private static final String PARTITION_NODE = "partitions";
     private static final String ALARM_STATUS = "ALARM_STATUS";
     private static final String ARMING_STATUS = "ARMING_STATUS";
 
     private static final Preferences prefs = Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class);
+    private static final Preferences sensorPrefs = prefs.node(SENSOR_NODE);
+    private static final Preferences partitionPrefs = prefs.node(PARTITION_NODE);
     private static final Gson gson = new Gson(); //used to serialize objects into JSON
 
     public PretendDatabaseSecurityRepositoryImpl() {
@@ -34,50 +50,154 @@ public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository
 
         //we've serialized our sensor objects for storage, which should be a good warning sign that
         // this is likely an impractical solution for a real system
-        String sensorString = prefs.get(SENSORS, null);
-        if(sensorString == null) {
-            sensors = new TreeSet<>();
-        } else {
+        try {
+            for (String key : sensorPrefs.keys()) {
+                String sensorString = sensorPrefs.get(key, null);
+                if (sensorString != null) {
+                    sensors.add(gson.fromJson(sensorString, Sensor.class));
+                }
+            }
+            for (String key : partitionPrefs.keys()) {
+                String partitionString = partitionPrefs.get(key, null);
+                if (partitionString != null) {
+                    Partition partition = gson.fromJson(partitionString, Partition.class);
+                    partitions.put(partition.getPartitionId(), partition);
+                }
+            }
+        } catch (BackingStoreException e) {
+            throw new IllegalStateException("Cannot read sensors and partitions from preferences", e);
+        }
+        String legacySensors = prefs.get(SENSORS, null);
+        if(legacySensors != null) {
             Type type = new TypeToken<Set<Sensor>>() {
             }.getType();
-            sensors = gson.fromJson(sensorString, type);
+            Set<Sensor> saved = gson.fromJson(legacySensors, type);
+            for (Sensor sensor : saved) {
+                sensors.add(sensor);
+                storeSensor(sensor);
+            }
+            prefs.remove(SENSORS);
         }
     }
 
     @Override
-    public void addSensor(Sensor sensor) {
+    public synchronized void addSensor(Sensor sensor) {
         sensors.add(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+        storeSensor(sensor);
     }
 
     @Override
-    public void removeSensor(Sensor sensor) {
+    public synchronized void removeSensor(Sensor sensor) {
         sensors.remove(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+        sensorPrefs.remove(sensor.getSensorId().toString());
     }
 
     @Override
-    public void updateSensor(Sensor sensor) {
-        sensors.remove(sensor);
-        sensors.add(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+    public synchronized void updateSensor(Sensor sensor) {
+        sensors.update(sensor);
+        storeSensor(sensor);
+    }
+
+    @Override
+    public synchronized void updateSensors(Collection<Sensor> updated) {
+        for(Sensor sensor : updated) {
+            sensors.update(sensor);
+            storeSensor(sensor);
+        }
     }
 
     @Override
-    public void setAlarmStatus(AlarmStatus alarmStatus) {
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
         this.alarmStatus = alarmStatus;
         prefs.put(ALARM_STATUS, this.alarmStatus.toString());
     }
 
     @Override
-    public void setArmingStatus(ArmingStatus armingStatus) {
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
         this.armingStatus = armingStatus;
         prefs.put(ARMING_STATUS, this.armingStatus.toString());
     }
 
     @Override
-    public Set<Sensor> getSensors() {
-        return sensors;
+    public synchronized void addPartition(Partition partition) {
+        partitions.put(partition.getPartitionId(), partition);
+        partitionPrefs.put(partition.getPartitionId().toString(), gson.toJson(partition));
+    }
+
+    @Override
+    public synchronized void removePartition(Partition partition) {
+        partitions.remove(partition.getPartitionId());
+        partitionPrefs.remove(partition.getPartitionId().toString());
+    }
+
+    @Override
+    public synchronized void updatePartition(Partition partition) {
+        addPartition(partition);
+    }
+
+    @Override
+    public synchronized Collection<Partition> getPartitions() {
+        return new ArrayList<>(partitions.values());
+    }
+
+    @Override
+    public synchronized Partition getPartition(UUID partitionId) {
+        return partitions.get(partitionId);
+    }
+
+    @Override
+    public synchronized Set<Sensor> getSensors() {
+        return sensors.snapshot();
+    }
+
+    @Override
+    public synchronized int getSensorCount() {
+        return sensors.size();
+    }
+
+    @Override
+    public synchronized Sensor getSensor(UUID sensorId) {
+        return sensors.get(sensorId);
+    }
+
+    @Override
+    public synchronized boolean anySensorActive() {
+        return sensors.anyActive();
+    }
+
+    @Override
+    public synchronized int getActiveSensorCount() {
+        return sensors.activeCount();
+    }
+
+    @Override
+    public synchronized int getActiveSensorCount(SensorType sensorType) {
+        return sensors.activeCount(sensorType);
+    }
+
+    @Override
+    public synchronized List<Sensor> getSortedSensors() {
+        return sensors.sortedView();
+    }
+
+    @Override
+    public synchronized List<Sensor> getActiveSensors() {
+        return sensors.activeSensors();
+    }
+
+    @Override
+    public synchronized List<Sensor> getSensorsInPartition(UUID partitionId) {
+        return sensors.inPartition(partitionId);
+    }
+
+    @Override
+    public synchronized List<Sensor> getActiveSensorsInPartition(UUID partitionId) {
+        return sensors.activeInPartition(partitionId);
+    }
+
+    @Override
+    public synchronized int getActiveSensorCountInPartition(UUID partitionId) {
+        return sensors.activeCountInPartition(partitionId);
     }
 
     @Override
@@ -89,4 +209,8 @@ public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository
     public ArmingStatus getArmingStatus() {
         return armingStatus;
     }
+
+    private void storeSensor(Sensor sensor) {
+        sensorPrefs.put(sensor.getSensorId().toString(), gson.toJson(sensor));
+    }
 }
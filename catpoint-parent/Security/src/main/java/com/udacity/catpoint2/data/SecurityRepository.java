@@ -1,6 +1,11 @@
 package com.udacity.catpoint2.data;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * Interface showing the methods our security repository will need to support
@@ -9,11 +14,125 @@ public interface SecurityRepository {
     void addSensor(Sensor sensor);
     void removeSensor(Sensor sensor);
     void updateSensor(Sensor sensor);
+
+    /**
+     * Updates several sensors as one unit of work. Implementations should persist the whole batch
+     * at once rather than once per sensor.
+     * @param sensors The sensors to update
+     */
+    default void updateSensors(Collection<Sensor> sensors) {
+        sensors.forEach(this::updateSensor);
+    }
+
+    /**
+     * Sets the alarm status of the main partition, made up of the sensors in no other partition.
+     */
     void setAlarmStatus(AlarmStatus alarmStatus);
+    /**
+     * Sets the arming status of the main partition.
+     */
     void setArmingStatus(ArmingStatus armingStatus);
+    /**
+     * @return a snapshot of the sensors that later changes don't affect, so it can be iterated
+     *         while other threads add or remove sensors. It can't be modified.
+     */
     Set<Sensor> getSensors();
     AlarmStatus getAlarmStatus();
     ArmingStatus getArmingStatus();
 
+    /**
+     * Adds a partition, or replaces the stored partition with the same id.
+     */
+    void addPartition(Partition partition);
+    void removePartition(Partition partition);
+    /**
+     * Stores a change to a partition's name, arming status or alarm status.
+     */
+    void updatePartition(Partition partition);
+    /**
+     * @return the partitions other than the main partition, in no particular order
+     */
+    Collection<Partition> getPartitions();
+
+    /**
+     * @return the partition with the given id, or null if there is none
+     */
+    default Partition getPartition(UUID partitionId) {
+        return getPartitions().stream().filter(p -> p.getPartitionId().equals(partitionId)).findFirst().orElse(null);
+    }
+
+    /**
+     * @param partitionId The partition, or null for the main partition
+     * @return the partition's sensors, in no particular order
+     */
+    default List<Sensor> getSensorsInPartition(UUID partitionId) {
+        return getSensors().stream().filter(s -> Objects.equals(s.getPartitionId(), partitionId)).collect(Collectors.toList());
+    }
+
+    /**
+     * @param partitionId The partition, or null for the main partition
+     * @return the partition's active sensors, in no particular order
+     */
+    default List<Sensor> getActiveSensorsInPartition(UUID partitionId) {
+        return getSensors().stream().filter(s -> s.getActive() && Objects.equals(s.getPartitionId(), partitionId))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param partitionId The partition, or null for the main partition
+     * @return the number of active sensors in the partition
+     */
+    default int getActiveSensorCountInPartition(UUID partitionId) {
+        return getActiveSensorsInPartition(partitionId).size();
+    }
+
+    /**
+     * @return the sensor with the given id, or null if there is none
+     */
+    default Sensor getSensor(UUID sensorId) {
+        return getSensors().stream().filter(s -> s.getSensorId().equals(sensorId)).findFirst().orElse(null);
+    }
+
+    /**
+     * @return the number of sensors
+     */
+    default int getSensorCount() {
+        return getSensors().size();
+    }
+
+    /**
+     * @return true if at least one sensor is active
+     */
+    default boolean anySensorActive() {
+        return getSensors().stream().anyMatch(Sensor::getActive);
+    }
+
+    /**
+     * @return the number of active sensors
+     */
+    default int getActiveSensorCount() {
+        return (int) getSensors().stream().filter(Sensor::getActive).count();
+    }
+
+    /**
+     * @return the number of active sensors of the given type
+     */
+    default int getActiveSensorCount(SensorType sensorType) {
+        return (int) getSensors().stream().filter(s -> s.getSensorType() == sensorType && s.getActive()).count();
+    }
+
+    /**
+     * @return the sensors that are active, in no particular order
+     */
+    default List<Sensor> getActiveSensors() {
+        return getSensors().stream().filter(Sensor::getActive).collect(Collectors.toList());
+    }
+
+    /**
+     * @return the sensors in display order
+     */
+    default List<Sensor> getSortedSensors() {
+        return getSensors().stream().sorted().collect(Collectors.toList());
+    }
 
 }
@@ -8,12 +8,15 @@ import java.util.UUID;
 
 /**
  * Sensor POJO. Needs to know how to sort itself for display purposes.
+ *
+ * A sensor whose partition id is null belongs to the main partition.
  */
 public class Sensor implements Comparable<Sensor> {
     private UUID sensorId;
     private String name;
     private Boolean active;
     private SensorType sensorType;
+    private UUID partitionId;
 
     // No-argument constructor for Gson
     public Sensor() {
@@ -73,6 +76,17 @@ public class Sensor implements Comparable<Sensor> {
         this.sensorId = sensorId;
     }
 
+    /**
+     * @return the id of the partition the sensor belongs to, or null for the main partition
+     */
+    public UUID getPartitionId() {
+        return partitionId;
+    }
+
+    public void setPartitionId(UUID partitionId) {
+        this.partitionId = partitionId;
+    }
+
     @Override
     public int compareTo(Sensor o) {
         return ComparisonChain.start()
@@ -0,0 +1,350 @@
+package com.udacity.catpoint2.data;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Sensor storage used by the repositories. Sensors are kept in a dense array and indexed by
+ * their id, so lookups, updates and removals are constant time and don't depend on the sensor's
+ * name the way a sorted set does. Active flags are mirrored in a BitSet, and running counts of
+ * active sensors (overall and per SensorType) are kept up to date on every change, so questions
+ * like "is any sensor active" never need to look at the sensors themselves.
+ *
+ * Each partition, the main partition included, has a BitSet of the slots its sensors occupy and
+ * a running count of its active sensors, so a partition's sensors can be found without looking at
+ * the sensors of any other partition.
+ *
+ * The registry is itself a Set of sensors using id equality. Repositories hand out a
+ * {@link #snapshot()} of it from {@link SecurityRepository#getSensors()} rather than the registry
+ * itself, since callers iterate without holding the repository's lock. Iteration order is
+ * unspecified; callers that need the display ordering should use {@link #sortedView()}.
+ */
+public class SensorRegistry extends AbstractSet<Sensor> {
+
+    private final Map<UUID, Integer> slotsById = new HashMap<>();
+    private final BitSet active = new BitSet();
+    private final int[] activeByType = new int[SensorType.values().length];
+    private int activeCount;
+    private Sensor[] sensors = new Sensor[16];
+    //name and type at the time each sensor was stored, so renames can be detected even though
+    // callers mutate the same Sensor instance they later pass back in
+    private String[] names = new String[16];
+    private SensorType[] types = new SensorType[16];
+    private UUID[] partitions = new UUID[16];
+    //keyed by partition id, with null for the main partition
+    private final Map<UUID, PartitionIndex> partitionIndexes = new HashMap<>();
+    private int size;
+    private int modCount;
+
+    private List<Sensor> sortedView;
+
+    /**
+     * Adds the sensor, or replaces the stored sensor with the same id.
+     * @return true if the sensor was not already present
+     */
+    @Override
+    public boolean add(Sensor sensor) {
+        Integer slot = slotsById.get(sensor.getSensorId());
+        if (slot != null) {
+            store(slot, sensor);
+            return false;
+        }
+        if (size == sensors.length) {
+            int capacity = size * 2;
+            sensors = Arrays.copyOf(sensors, capacity);
+            names = Arrays.copyOf(names, capacity);
+            types = Arrays.copyOf(types, capacity);
+            partitions = Arrays.copyOf(partitions, capacity);
+        }
+        slotsById.put(sensor.getSensorId(), size);
+        store(size++, sensor);
+        sortedView = null;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Replaces the stored sensor with the same id and refreshes its active flag. Sensors that are
+     * not yet registered are added.
+     */
+    public void update(Sensor sensor) {
+        add(sensor);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Sensor)) {
+            return false;
+        }
+        Integer slot = slotsById.remove(((Sensor) o).getSensorId());
+        if (slot == null) {
+            return false;
+        }
+        removeSlot(slot);
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Sensor && slotsById.containsKey(((Sensor) o).getSensorId());
+    }
+
+    /**
+     * @return the sensor with the given id, or null if it isn't registered
+     */
+    public Sensor get(UUID sensorId) {
+        Integer slot = slotsById.get(sensorId);
+        return slot == null ? null : sensors[slot];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(sensors, 0, size, null);
+        Arrays.fill(names, 0, size, null);
+        Arrays.fill(types, 0, size, null);
+        Arrays.fill(partitions, 0, size, null);
+        partitionIndexes.clear();
+        slotsById.clear();
+        active.clear();
+        Arrays.fill(activeByType, 0);
+        activeCount = 0;
+        size = 0;
+        sortedView = null;
+        modCount++;
+    }
+
+    /**
+     * @return true if at least one registered sensor is active
+     */
+    public boolean anyActive() {
+        return activeCount > 0;
+    }
+
+    /**
+     * @return true if no registered sensor is active
+     */
+    public boolean allInactive() {
+        return activeCount == 0;
+    }
+
+    /**
+     * @return the number of registered sensors that are active
+     */
+    public int activeCount() {
+        return activeCount;
+    }
+
+    /**
+     * @return the number of registered sensors of the given type that are active
+     */
+    public int activeCount(SensorType type) {
+        return activeByType[type.ordinal()];
+    }
+
+    /**
+     * @return a new list of the active sensors, found through the active flags, which skip
+     *         inactive sensors 64 at a time without looking at them
+     */
+    public List<Sensor> activeSensors() {
+        return collect(active);
+    }
+
+    /**
+     * @param partitionId The partition, or null for the main partition
+     * @return the number of active sensors in the partition
+     */
+    public int activeCountInPartition(UUID partitionId) {
+        PartitionIndex index = partitionIndexes.get(partitionId);
+        return index == null ? 0 : index.active;
+    }
+
+    /**
+     * @param partitionId The partition, or null for the main partition
+     * @return a new list of the partition's sensors
+     */
+    public List<Sensor> inPartition(UUID partitionId) {
+        PartitionIndex index = partitionIndexes.get(partitionId);
+        return index == null ? new ArrayList<>() : collect(index.members);
+    }
+
+    /**
+     * @param partitionId The partition, or null for the main partition
+     * @return a new list of the partition's active sensors
+     */
+    public List<Sensor> activeInPartition(UUID partitionId) {
+        PartitionIndex index = partitionIndexes.get(partitionId);
+        if (index == null || index.active == 0) {
+            return new ArrayList<>();
+        }
+        BitSet slots = (BitSet) index.members.clone();
+        slots.and(active);
+        return collect(slots);
+    }
+
+    /**
+     * @return an unmodifiable copy of the current set of sensors, unaffected by later changes
+     */
+    public Set<Sensor> snapshot() {
+        return Collections.unmodifiableSet(new HashSet<>(this));
+    }
+
+    /**
+     * Returns the sensors sorted for display. The list is cached until a sensor is added, removed
+     * or renamed, and must not be modified.
+     */
+    public List<Sensor> sortedView() {
+        if (sortedView == null) {
+            List<Sensor> sorted = new ArrayList<>(Arrays.asList(sensors).subList(0, size));
+            Collections.sort(sorted);
+            sortedView = Collections.unmodifiableList(sorted);
+        }
+        return sortedView;
+    }
+
+    @Override
+    public Iterator<Sensor> iterator() {
+        return new Iterator<>() {
+            private int next;
+            private int last = -1;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Sensor next() {
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                last = next++;
+                return sensors[last];
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                slotsById.remove(sensors[last].getSensorId());
+                removeSlot(last);
+                //the last sensor was moved into the removed slot, so visit that slot again
+                next = last;
+                last = -1;
+                expectedModCount = modCount;
+            }
+        };
+    }
+
+    private List<Sensor> collect(BitSet slots) {
+        List<Sensor> result = new ArrayList<>(slots.cardinality());
+        for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+            result.add(sensors[slot]);
+        }
+        return result;
+    }
+
+    private void store(int slot, Sensor sensor) {
+        if (sortedView != null && (!Objects.equals(names[slot], sensor.getName()) || types[slot] != sensor.getSensorType())) {
+            sortedView = null;
+        }
+        boolean stored = sensors[slot] != null;
+        //take the slot's previous state out of the counters before counting the new one
+        if (active.get(slot)) {
+            countActive(types[slot], partitions[slot], -1);
+        }
+        if (stored && !Objects.equals(partitions[slot], sensor.getPartitionId())) {
+            leavePartition(partitions[slot], slot);
+            stored = false;
+        }
+        if (!stored) {
+            partitionIndex(sensor.getPartitionId()).members.set(slot);
+        }
+        boolean isActive = Boolean.TRUE.equals(sensor.getActive());
+        if (isActive) {
+            countActive(sensor.getSensorType(), sensor.getPartitionId(), 1);
+        }
+        sensors[slot] = sensor;
+        names[slot] = sensor.getName();
+        types[slot] = sensor.getSensorType();
+        partitions[slot] = sensor.getPartitionId();
+        active.set(slot, isActive);
+    }
+
+    private void countActive(SensorType type, UUID partitionId, int delta) {
+        activeCount += delta;
+        if (type != null) {
+            activeByType[type.ordinal()] += delta;
+        }
+        partitionIndex(partitionId).active += delta;
+    }
+
+    private PartitionIndex partitionIndex(UUID partitionId) {
+        return partitionIndexes.computeIfAbsent(partitionId, id -> new PartitionIndex());
+    }
+
+    private void leavePartition(UUID partitionId, int slot) {
+        PartitionIndex index = partitionIndexes.get(partitionId);
+        index.members.clear(slot);
+        if (index.members.isEmpty()) {
+            partitionIndexes.remove(partitionId);
+        }
+    }
+
+    private void removeSlot(int slot) {
+        if (active.get(slot)) {
+            countActive(types[slot], partitions[slot], -1);
+        }
+        leavePartition(partitions[slot], slot);
+        int last = --size;
+        if (slot != last) {
+            //keep the array dense by moving the last sensor into the freed slot
+            sensors[slot] = sensors[last];
+            names[slot] = names[last];
+            types[slot] = types[last];
+            partitions[slot] = partitions[last];
+            active.set(slot, active.get(last));
+            PartitionIndex moved = partitionIndexes.get(partitions[slot]);
+            moved.members.clear(last);
+            moved.members.set(slot);
+            slotsById.put(sensors[slot].getSensorId(), slot);
+        }
+        sensors[last] = null;
+        names[last] = null;
+        types[last] = null;
+        partitions[last] = null;
+        active.clear(last);
+        sortedView = null;
+        modCount++;
+    }
+
+    private static class PartitionIndex {
+        private final BitSet members = new BitSet();
+        private int active;
+    }
+}
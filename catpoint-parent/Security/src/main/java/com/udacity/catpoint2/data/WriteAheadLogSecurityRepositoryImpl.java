@@ -0,0 +1,495 @@
+package com.udacity.catpoint2.data;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Repository implementation that stores every mutation as a small checksummed record at the end
+ * of an append-only log file, so each add/remove/update costs one record of I/O regardless of how
+ * many sensors exist. Once the log grows past a threshold it is compacted into a snapshot file and
+ * truncated. On startup the snapshot is loaded and the log tail is replayed on top of it.
+ *
+ * Each record is framed as [int length][int crc32][byte type][payload]. A record that is cut short
+ * or fails its checksum (for example because the process died mid-write) ends the replay, and the
+ * log is truncated back to the last good record.
+ *
+ * Partitions are stored as records of their own, and a sensor record ends with the id of the
+ * sensor's partition. Sensor records written before partitions existed have no partition and
+ * load into the main partition.
+ */
+public class WriteAheadLogSecurityRepositoryImpl implements SecurityRepository {
+
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 10_000;
+
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final String LOG_FILE = "wal.bin";
+
+    private static final int SNAPSHOT_MAGIC = 0x43505353; // "CPSS"
+    private static final int FORMAT_VERSION = 2;
+    //snapshots from before partitions hold no partition records but are otherwise the same
+    private static final int FIRST_FORMAT_VERSION = 1;
+    private static final int FRAME_HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 64 * 1024;
+
+    //record types
+    private static final byte PUT_SENSOR = 1;
+    private static final byte REMOVE_SENSOR = 2;
+    private static final byte ALARM_STATUS = 3;
+    private static final byte ARMING_STATUS = 4;
+    private static final byte PUT_PARTITION = 5;
+    private static final byte REMOVE_PARTITION = 6;
+
+    private final Path snapshotPath;
+    private final Path logPath;
+    private final int compactionThreshold;
+    private final boolean syncOnWrite;
+    private final ByteBuffer recordBuffer = ByteBuffer.allocate(MAX_RECORD_BYTES + FRAME_HEADER_BYTES);
+    private final CRC32 crc = new CRC32();
+
+    private final SensorRegistry sensors = new SensorRegistry();
+    private volatile AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+    private volatile ArmingStatus armingStatus = ArmingStatus.DISARMED;
+    private final Map<UUID, Partition> partitions = new LinkedHashMap<>();
+
+    private FileChannel log;
+    private int logRecordCount;
+
+    public WriteAheadLogSecurityRepositoryImpl(Path directory) {
+        this(directory, DEFAULT_COMPACTION_THRESHOLD, false);
+    }
+
+    /**
+     * @param directory Directory holding the snapshot and log files. Created if missing.
+     * @param compactionThreshold Number of log records after which the log is folded into a new snapshot
+     * @param syncOnWrite If true, every record is forced to the storage device before the call returns
+     */
+    public WriteAheadLogSecurityRepositoryImpl(Path directory, int compactionThreshold, boolean syncOnWrite) {
+        if (compactionThreshold < 1) {
+            throw new IllegalArgumentException("compactionThreshold must be positive");
+        }
+        this.snapshotPath = directory.resolve(SNAPSHOT_FILE);
+        this.logPath = directory.resolve(LOG_FILE);
+        this.compactionThreshold = compactionThreshold;
+        this.syncOnWrite = syncOnWrite;
+        try {
+            Files.createDirectories(directory);
+            Map<UUID, Sensor> loaded = new LinkedHashMap<>();
+            loadSnapshot(loaded);
+            replayLog(loaded);
+            sensors.addAll(loaded.values());
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to open security log in " + directory, ioe);
+        }
+    }
+
+    @Override
+    public synchronized void addSensor(Sensor sensor) {
+        sensors.add(sensor);
+        appendSensor(sensor);
+    }
+
+    @Override
+    public synchronized void removeSensor(Sensor sensor) {
+        sensors.remove(sensor);
+        ByteBuffer b = beginRecord(REMOVE_SENSOR);
+        b.putLong(sensor.getSensorId().getMostSignificantBits());
+        b.putLong(sensor.getSensorId().getLeastSignificantBits());
+        append();
+    }
+
+    @Override
+    public synchronized void updateSensor(Sensor sensor) {
+        sensors.update(sensor);
+        appendSensor(sensor);
+    }
+
+    @Override
+    public synchronized void updateSensors(Collection<Sensor> updated) {
+        if (updated.isEmpty()) {
+            return;
+        }
+        for (Sensor sensor : updated) {
+            sensors.update(sensor);
+            encodeSensor(sensor);
+            write();
+        }
+        //sync and check for compaction once for the whole batch
+        afterWrite(updated.size());
+    }
+
+    @Override
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus = alarmStatus;
+        beginRecord(ALARM_STATUS).put((byte) alarmStatus.ordinal());
+        append();
+    }
+
+    @Override
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus = armingStatus;
+        beginRecord(ARMING_STATUS).put((byte) armingStatus.ordinal());
+        append();
+    }
+
+    @Override
+    public synchronized void addPartition(Partition partition) {
+        partitions.put(partition.getPartitionId(), partition);
+        encodePartition(partition);
+        append();
+    }
+
+    @Override
+    public synchronized void removePartition(Partition partition) {
+        partitions.remove(partition.getPartitionId());
+        ByteBuffer b = beginRecord(REMOVE_PARTITION);
+        b.putLong(partition.getPartitionId().getMostSignificantBits());
+        b.putLong(partition.getPartitionId().getLeastSignificantBits());
+        append();
+    }
+
+    @Override
+    public synchronized void updatePartition(Partition partition) {
+        addPartition(partition);
+    }
+
+    @Override
+    public synchronized Collection<Partition> getPartitions() {
+        return new ArrayList<>(partitions.values());
+    }
+
+    @Override
+    public synchronized Partition getPartition(UUID partitionId) {
+        return partitions.get(partitionId);
+    }
+
+    @Override
+    public synchronized Set<Sensor> getSensors() {
+        return sensors.snapshot();
+    }
+
+    @Override
+    public synchronized int getSensorCount() {
+        return sensors.size();
+    }
+
+    @Override
+    public synchronized Sensor getSensor(UUID sensorId) {
+        return sensors.get(sensorId);
+    }
+
+    @Override
+    public synchronized boolean anySensorActive() {
+        return sensors.anyActive();
+    }
+
+    @Override
+    public synchronized int getActiveSensorCount() {
+        return sensors.activeCount();
+    }
+
+    @Override
+    public synchronized int getActiveSensorCount(SensorType sensorType) {
+        return sensors.activeCount(sensorType);
+    }
+
+    @Override
+    public synchronized List<Sensor> getSortedSensors() {
+        return sensors.sortedView();
+    }
+
+    @Override
+    public synchronized List<Sensor> getActiveSensors() {
+        return sensors.activeSensors();
+    }
+
+    @Override
+    public synchronized List<Sensor> getSensorsInPartition(UUID partitionId) {
+        return sensors.inPartition(partitionId);
+    }
+
+    @Override
+    public synchronized List<Sensor> getActiveSensorsInPartition(UUID partitionId) {
+        return sensors.activeInPartition(partitionId);
+    }
+
+    @Override
+    public synchronized int getActiveSensorCountInPartition(UUID partitionId) {
+        return sensors.activeCountInPartition(partitionId);
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    /**
+     * Writes the current state to a fresh snapshot and empties the log. Called automatically once
+     * the log reaches the compaction threshold, but may also be called directly, e.g. on shutdown.
+     */
+    public synchronized void compact() {
+        Path tmp = snapshotPath.resolveSibling(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(8).putInt(SNAPSHOT_MAGIC).putInt(FORMAT_VERSION);
+            header.flip();
+            writeFully(out, header);
+            for (Partition partition : partitions.values()) {
+                encodePartition(partition);
+                writeFully(out, finishRecord());
+            }
+            for (Sensor sensor : sensors) {
+                encodeSensor(sensor);
+                writeFully(out, finishRecord());
+            }
+            beginRecord(ALARM_STATUS).put((byte) alarmStatus.ordinal());
+            writeFully(out, finishRecord());
+            beginRecord(ARMING_STATUS).put((byte) armingStatus.ordinal());
+            writeFully(out, finishRecord());
+            out.force(true);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to write security snapshot", ioe);
+        }
+        try {
+            //the snapshot only becomes visible once it is complete. If we crash before the log is
+            // truncated, replaying the old log over the new snapshot still ends in the same state
+            Files.move(tmp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.truncate(0);
+            log.force(true);
+            logRecordCount = 0;
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to install security snapshot", ioe);
+        }
+    }
+
+    /**
+     * Releases the log file handle. The repository must not be used afterwards.
+     */
+    public synchronized void close() {
+        try {
+            log.close();
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    private void appendSensor(Sensor sensor) {
+        encodeSensor(sensor);
+        append();
+    }
+
+    private void encodeSensor(Sensor sensor) {
+        ByteBuffer b = beginRecord(PUT_SENSOR);
+        b.putLong(sensor.getSensorId().getMostSignificantBits());
+        b.putLong(sensor.getSensorId().getLeastSignificantBits());
+        b.put((byte) (Boolean.TRUE.equals(sensor.getActive()) ? 1 : 0));
+        b.put((byte) (sensor.getSensorType() == null ? -1 : sensor.getSensorType().ordinal()));
+        //keep room for the partition id that follows
+        putName(b, sensor.getName(), 17, "Sensor");
+        if (sensor.getPartitionId() == null) {
+            b.put((byte) 0);
+        } else {
+            b.put((byte) 1);
+            b.putLong(sensor.getPartitionId().getMostSignificantBits());
+            b.putLong(sensor.getPartitionId().getLeastSignificantBits());
+        }
+    }
+
+    private void encodePartition(Partition partition) {
+        ByteBuffer b = beginRecord(PUT_PARTITION);
+        b.putLong(partition.getPartitionId().getMostSignificantBits());
+        b.putLong(partition.getPartitionId().getLeastSignificantBits());
+        b.put((byte) partition.getArmingStatus().ordinal());
+        b.put((byte) partition.getAlarmStatus().ordinal());
+        putName(b, partition.getName(), 0, "Partition");
+    }
+
+    private static void putName(ByteBuffer b, String name, int reserve, String owner) {
+        if (name == null) {
+            b.putInt(-1);
+            return;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > b.remaining() - 4 - reserve) {
+            throw new IllegalArgumentException(owner + " name is too long to store");
+        }
+        b.putInt(bytes.length);
+        b.put(bytes);
+    }
+
+    private static String getName(ByteBuffer body) {
+        int length = body.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] name = new byte[length];
+        body.get(name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    private ByteBuffer beginRecord(byte type) {
+        recordBuffer.clear();
+        recordBuffer.position(FRAME_HEADER_BYTES);
+        recordBuffer.put(type);
+        return recordBuffer;
+    }
+
+    private ByteBuffer finishRecord() {
+        int end = recordBuffer.position();
+        int bodyLength = end - FRAME_HEADER_BYTES;
+        crc.reset();
+        crc.update(recordBuffer.array(), FRAME_HEADER_BYTES, bodyLength);
+        recordBuffer.putInt(0, bodyLength);
+        recordBuffer.putInt(4, (int) crc.getValue());
+        recordBuffer.flip();
+        return recordBuffer;
+    }
+
+    private void append() {
+        write();
+        afterWrite(1);
+    }
+
+    private void write() {
+        try {
+            writeFully(log, finishRecord());
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to append to security log", ioe);
+        }
+    }
+
+    private void afterWrite(int records) {
+        if (syncOnWrite) {
+            try {
+                log.force(false);
+            } catch (IOException ioe) {
+                throw new UncheckedIOException("Unable to sync security log", ioe);
+            }
+        }
+        logRecordCount += records;
+        if (logRecordCount >= compactionThreshold) {
+            compact();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void loadSnapshot(Map<UUID, Sensor> loaded) throws IOException {
+        if (!Files.exists(snapshotPath)) {
+            return;
+        }
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(snapshotPath));
+        if (data.remaining() < 8 || data.getInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Unrecognized snapshot file " + snapshotPath);
+        }
+        int version = data.getInt();
+        if (version != FORMAT_VERSION && version != FIRST_FORMAT_VERSION) {
+            throw new IOException("Unrecognized snapshot file " + snapshotPath);
+        }
+        while (data.hasRemaining()) {
+            if (!applyNextRecord(data, loaded)) {
+                throw new IOException("Corrupt snapshot file " + snapshotPath);
+            }
+        }
+    }
+
+    private void replayLog(Map<UUID, Sensor> loaded) throws IOException {
+        log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(logPath));
+        int lastGood = 0;
+        while (data.hasRemaining() && applyNextRecord(data, loaded)) {
+            lastGood = data.position();
+            logRecordCount++;
+        }
+        if (lastGood < data.limit()) {
+            //drop the torn or corrupt tail so new records follow the last good one
+            log.truncate(lastGood);
+            log.force(true);
+        }
+        log.position(lastGood);
+    }
+
+    /**
+     * Reads and applies one framed record, advancing the buffer past it.
+     * @return false if the remaining bytes don't hold a complete record with a valid checksum
+     */
+    private boolean applyNextRecord(ByteBuffer data, Map<UUID, Sensor> loaded) {
+        if (data.remaining() < FRAME_HEADER_BYTES) {
+            return false;
+        }
+        int start = data.position();
+        int length = data.getInt(start);
+        int checksum = data.getInt(start + 4);
+        if (length < 1 || length > MAX_RECORD_BYTES || length > data.remaining() - FRAME_HEADER_BYTES) {
+            return false;
+        }
+        crc.reset();
+        crc.update(data.array(), start + FRAME_HEADER_BYTES, length);
+        if ((int) crc.getValue() != checksum) {
+            return false;
+        }
+        ByteBuffer body = data.duplicate();
+        body.position(start + FRAME_HEADER_BYTES).limit(start + FRAME_HEADER_BYTES + length);
+        try {
+            applyRecord(body, loaded);
+        } catch (RuntimeException e) {
+            return false;
+        }
+        data.position(start + FRAME_HEADER_BYTES + length);
+        return true;
+    }
+
+    private void applyRecord(ByteBuffer body, Map<UUID, Sensor> loaded) {
+        byte type = body.get();
+        switch (type) {
+            case PUT_SENSOR -> {
+                Sensor sensor = new Sensor();
+                sensor.setSensorId(new UUID(body.getLong(), body.getLong()));
+                sensor.setActive(body.get() == 1);
+                byte typeOrdinal = body.get();
+                sensor.setSensorType(typeOrdinal < 0 ? null : SensorType.values()[typeOrdinal]);
+                sensor.setName(getName(body));
+                if (body.hasRemaining() && body.get() == 1) {
+                    sensor.setPartitionId(new UUID(body.getLong(), body.getLong()));
+                }
+                loaded.put(sensor.getSensorId(), sensor);
+            }
+            case REMOVE_SENSOR -> loaded.remove(new UUID(body.getLong(), body.getLong()));
+            case PUT_PARTITION -> {
+                Partition partition = new Partition();
+                partition.setPartitionId(new UUID(body.getLong(), body.getLong()));
+                partition.setArmingStatus(ArmingStatus.values()[body.get()]);
+                partition.setAlarmStatus(AlarmStatus.values()[body.get()]);
+                partition.setName(getName(body));
+                partitions.put(partition.getPartitionId(), partition);
+            }
+            case REMOVE_PARTITION -> partitions.remove(new UUID(body.getLong(), body.getLong()));
+            case ALARM_STATUS -> alarmStatus = AlarmStatus.values()[body.get()];
+            case ARMING_STATUS -> armingStatus = ArmingStatus.values()[body.get()];
+            default -> throw new IllegalStateException("Unknown record type " + type);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.udacity.catpoint2.service;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Whether each camera's latest frame showed a cat, kept as one bit per camera, with a running
+ * count of the cameras that currently see one. The count changes only when a camera's bit flips,
+ * so asking whether any cat is visible doesn't depend on the number of cameras.
+ *
+ * Updates must not run concurrently with each other, which the SecurityService's state lock
+ * ensures; reads take no lock.
+ */
+final class CameraDetections {
+
+    private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+    private final BitSet usedSlots = new BitSet();
+    private volatile AtomicLongArray bits = new AtomicLongArray(1);
+    private final AtomicInteger catCount = new AtomicInteger();
+
+    /**
+     * Records a camera's latest answer.
+     * @return true if it differs from the camera's previous answer
+     */
+    boolean set(String cameraId, boolean cat) {
+        int slot = slots.computeIfAbsent(cameraId, id -> allocate());
+        AtomicLongArray words = bits;
+        int word = slot >>> 6;
+        long mask = 1L << slot;
+        long current = words.get(word);
+        if (((current & mask) != 0) == cat) {
+            return false;
+        }
+        words.set(word, cat ? current | mask : current & ~mask);
+        catCount.addAndGet(cat ? 1 : -1);
+        return true;
+    }
+
+    /**
+     * Forgets a camera, which no longer counts towards the cats visible.
+     * @return true if the camera was seeing a cat
+     */
+    boolean remove(String cameraId) {
+        Integer slot = slots.get(cameraId);
+        if (slot == null) {
+            return false;
+        }
+        boolean wasCat = set(cameraId, false);
+        slots.remove(cameraId);
+        usedSlots.clear(slot);
+        return wasCat;
+    }
+
+    boolean isCatDetected(String cameraId) {
+        Integer slot = slots.get(cameraId);
+        if (slot == null) {
+            return false;
+        }
+        AtomicLongArray words = bits;
+        int word = slot >>> 6;
+        return word < words.length() && (words.get(word) & (1L << slot)) != 0;
+    }
+
+    boolean anyCatDetected() {
+        return catCount.get() > 0;
+    }
+
+    int getCatCount() {
+        return catCount.get();
+    }
+
+    private int allocate() {
+        int slot = usedSlots.nextClearBit(0);
+        usedSlots.set(slot);
+        AtomicLongArray words = bits;
+        if (slot >>> 6 >= words.length()) {
+            AtomicLongArray grown = new AtomicLongArray(words.length() * 2);
+            for (int i = 0; i < words.length(); i++) {
+                grown.set(i, words.get(i));
+            }
+            bits = grown;
+        }
+        return slot;
+    }
+}
@@ -1,119 +1,302 @@
 package com.udacity.catpoint2.service;
+import com.udacity.catpoint.service.AsyncImageClassifier;
+import com.udacity.catpoint.service.ClassificationResult;
 import com.udacity.catpoint.service.ImageService;
 import com.udacity.catpoint2.application.StatusListener;
 import com.udacity.catpoint2.data.AlarmStatus;
 import com.udacity.catpoint2.data.ArmingStatus;
+import com.udacity.catpoint2.data.Camera;
+import com.udacity.catpoint2.data.Partition;
 import com.udacity.catpoint2.data.SecurityRepository;
 import com.udacity.catpoint2.data.Sensor;
+import com.udacity.catpoint2.data.SensorType;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 /**
  * Service that receives information about changes to the security system. Responsible for
  * forwarding updates to the repository and making any decisions about changing the system state.
  *
  * This is the class that should contain most of the business logic for our system, and it is the
  * class you will be writing unit tests for.
+ *
+ * The service may be called from several threads at once (the GUI, a camera thread, the sensor
+ * event pipeline). Every state transition runs under a single lock, so each one observes and
+ * updates the alarm, arming and sensor state as one step. Reads such as getAlarmStatus() don't
+ * take the lock and go straight to the repository.
+ *
+ * Each camera's cat detection is tracked separately, so one camera reporting no cat doesn't clear
+ * another camera's detection. The alarm rules look at whether any camera currently sees a cat.
+ *
+ * Sensors can be grouped into partitions that are armed and alarmed on their own. A sensor event
+ * only involves its own partition's state and sensors. Sensors in no partition make up the main
+ * partition, whose status is what getArmingStatus() and getAlarmStatus() return, so a system
+ * without partitions behaves exactly as before. The status of the whole site is derived from all
+ * partitions and reported to listeners.
+ *
+ * Like a real panel, the service can run timers per partition. With an entry delay, an alarm that
+ * stays pending that long goes off even if no other sensor fires. With an exit delay, sensors
+ * activated just after arming don't start a pending alarm; a sensor still active when the delay
+ * ends does. With an alarm reset delay, an alarm that has gone off resets to NO_ALARM after that
+ * long. All delays are zero, that is off, until set. The timers run on a {@link TimerWheel}; one
+ * can be passed in to drive the timers from a test clock. Timers aren't stored, so after a restart
+ * a partition left pending or alarmed runs its full entry or reset delay again once that delay is
+ * set.
+ *
+ * A service that wasn't given an image classifier or timer wheel creates its own when it first
+ * needs one, so constructing a service starts nothing. {@link #close()} stops the ones it created;
+ * ones passed in are left for the caller to shut down.
  */
-public class SecurityService {
+public class SecurityService implements AutoCloseable {
+    //camera whose frames processImage() classifies
+    public static final String DEFAULT_CAMERA_ID = "camera";
+    //minimum confidence, in percent, for a camera frame to count as showing a cat
+    private static final float CAT_CONFIDENCE_THRESHOLD = 50.0f;
+    private static final int CLASSIFIER_THREADS = 2;
+    private static final long CLASSIFIER_TIMEOUT_SECONDS = 10;
+    //largest number of sensors the system accepts unless told otherwise
+    public static final int DEFAULT_SENSOR_LIMIT = 50_000;
+    //resolution and size of the timer wheel the service creates when not given one
+    private static final long TIMER_TICK_MILLIS = 100;
+    private static final int TIMER_WHEEL_TICKS = 512;
     private ImageService imageService;
+    //created on first use when ownsImageClassifier; a classifier the service created itself is also closed by it
+    private volatile AsyncImageClassifier imageClassifier;
+    private final boolean ownsImageClassifier;
     private SecurityRepository securityRepository;
-    private Set<StatusListener> statusListeners = new HashSet<>();
-    private boolean catDetected = false;
+    private StatusEventBus statusEventBus;
+    // held by every operation that reads and then changes the system state; plain getters don't take it
+    private final ReentrantLock stateLock = new ReentrantLock();
+    private final CameraDetections cameraDetections = new CameraDetections();
+    private final Map<String, Camera> cameras = new ConcurrentHashMap<>();
+    private volatile int sensorLimit = DEFAULT_SENSOR_LIMIT;
+    private final SiteStatus siteStatus = new SiteStatus();
+    private final PartitionState mainPartition = new MainPartitionState();
+    //created on first use when ownsTimerWheel, guarded by stateLock; a wheel the service created
+    //itself is also advanced by its own thread
+    private TimerWheel timerWheel;
+    private final boolean ownsTimerWheel;
+    private volatile Duration entryDelay = Duration.ZERO;
+    private volatile Duration exitDelay = Duration.ZERO;
+    private volatile Duration alarmResetDelay = Duration.ZERO;
+    //running timers by partition id, with null for the main partition; guarded by stateLock
+    private final Map<UUID, TimerWheel.Timeout> entryTimers = new HashMap<>();
+    private final Map<UUID, TimerWheel.Timeout> exitTimers = new HashMap<>();
+    private final Map<UUID, TimerWheel.Timeout> resetTimers = new HashMap<>();
     public SecurityService(SecurityRepository securityRepository, ImageService imageService) {
+        this(securityRepository, imageService, StatusEventBus.synchronous());
+    }
+    /**
+     * @param statusEventBus Bus used to deliver status updates to listeners, which decides whether
+     *                       listeners are called on the calling thread or asynchronously
+     */
+    public SecurityService(SecurityRepository securityRepository, ImageService imageService, StatusEventBus statusEventBus) {
+        this(securityRepository, imageService, statusEventBus, null, true, null, true);
+    }
+    /**
+     * @param imageClassifier Classifier used by {@link #processImage(String, BufferedImage)}
+     */
+    public SecurityService(SecurityRepository securityRepository, ImageService imageService, StatusEventBus statusEventBus,
+                           AsyncImageClassifier imageClassifier) {
+        this(securityRepository, imageService, statusEventBus, imageClassifier, false, null, true);
+    }
+    /**
+     * @param timerWheel Wheel the entry, exit and alarm reset delays are timed on. The service
+     *                   doesn't advance it; the caller starts it or advances it by hand.
+     */
+    public SecurityService(SecurityRepository securityRepository, ImageService imageService, StatusEventBus statusEventBus,
+                           AsyncImageClassifier imageClassifier, TimerWheel timerWheel) {
+        this(securityRepository, imageService, statusEventBus, imageClassifier, false, timerWheel, false);
+    }
+    private SecurityService(SecurityRepository securityRepository, ImageService imageService, StatusEventBus statusEventBus,
+                            AsyncImageClassifier imageClassifier, boolean ownsImageClassifier,
+                            TimerWheel timerWheel, boolean ownsTimerWheel) {
+        this.ownsImageClassifier = ownsImageClassifier;
+        this.timerWheel = timerWheel;
+        this.ownsTimerWheel = ownsTimerWheel;
         this.securityRepository = securityRepository;
         this.imageService = imageService;
+        this.statusEventBus = statusEventBus;
+        this.imageClassifier = imageClassifier;
+        siteStatus.setArmingStatus(null, securityRepository.getArmingStatus());
+        siteStatus.setAlarmStatus(null, securityRepository.getAlarmStatus());
+        for (Partition partition : securityRepository.getPartitions()) {
+            siteStatus.setArmingStatus(partition.getPartitionId(), partition.getArmingStatus());
+            siteStatus.setAlarmStatus(partition.getPartitionId(), partition.getAlarmStatus());
+        }
     }
     /**
-     * Sets the current arming status for the system. Changing the arming status
-     * may update both the alarm status.
+     * Sets the current arming status for the whole site, that is for every partition. Changing the
+     * arming status may update the alarm status.
      * @param armingStatus
      */
     public void setArmingStatus(ArmingStatus armingStatus) {
+        stateLock.lock();
+        try {
+            // Check if the system is transitioning to an armed state
+            if (armingStatus != ArmingStatus.DISARMED) {
+                // Reset all sensors to inactive when arming the system; only active ones need a change
+                resetToInactive(securityRepository.getActiveSensors());
+            }
+            for (PartitionState partition : partitionStates()) {
+                applyArmingStatus(partition, armingStatus);
+            }
+            notifyStatusListeners();
+        } finally {
+            stateLock.unlock();
+        }
+    }
+    /**
+     * Sets the arming status of a single partition. Arming it only resets that partition's
+     * sensors, and only its alarm status can change.
+     * @param partitionId The partition, or null for the main partition
+     * @throws IllegalArgumentException if there is no such partition
+     */
+    public void setArmingStatus(UUID partitionId, ArmingStatus armingStatus) {
+        stateLock.lock();
+        try {
+            PartitionState partition = partitionState(partitionId);
+            if (armingStatus != ArmingStatus.DISARMED) {
+                resetToInactive(securityRepository.getActiveSensorsInPartition(partitionId));
+            }
+            applyArmingStatus(partition, armingStatus);
+            notifyStatusListeners();
+        } finally {
+            stateLock.unlock();
+        }
+    }
+    private void applyArmingStatus(PartitionState partition, ArmingStatus armingStatus) {
         // Fetch the current state before any changes.
-        ArmingStatus currentStatus = this.securityRepository.getArmingStatus();
-        if(armingStatus == ArmingStatus.DISARMED) {
-            setAlarmStatus(AlarmStatus.NO_ALARM);
+        ArmingStatus currentStatus = partition.getArmingStatus();
+        UUID partitionId = partition.getPartitionId();
+        if (armingStatus == ArmingStatus.DISARMED) {
+            cancelTimers(partitionId);
+        } else if (currentStatus == ArmingStatus.DISARMED && !exitDelay.isZero()) {
+            // give whoever armed the partition time to leave
+            cancel(exitTimers, partitionId);
+            exitTimers.put(partitionId, schedule(timeout -> exitDelayExpired(partitionId, timeout), exitDelay));
         }
-        // Check if the system is transitioning to an armed state
-        if (armingStatus != ArmingStatus.DISARMED) {
-            // Reset all sensors to inactive when arming the system
-            deactivateAllSensors();
+        if(armingStatus == ArmingStatus.DISARMED) {
+            partition.setAlarmStatus(AlarmStatus.NO_ALARM);
         }
         // Check if the system is transitioning from armed to disarmed
         if (currentStatus != ArmingStatus.DISARMED && armingStatus == ArmingStatus.DISARMED) {
             // Set the alarm status to NO_ALARM when disarmed
-            setAlarmStatus(AlarmStatus.NO_ALARM);
-        } else if (catDetected && armingStatus == ArmingStatus.ARMED_HOME) {
+            partition.setAlarmStatus(AlarmStatus.NO_ALARM);
+        } else if (cameraDetections.anyCatDetected() && armingStatus == ArmingStatus.ARMED_HOME) {
             // Set the alarm status to ALARM if a cat is detected while armed at home
-            setAlarmStatus(AlarmStatus.ALARM);
+            partition.setAlarmStatus(AlarmStatus.ALARM);
         }
         // Update arming status after handling sensor states
-        this.securityRepository.setArmingStatus(armingStatus);
-        statusListeners.forEach(sl -> sl.sensorStatusChanged());
-    }
-    private void deactivateAllSensors() {
-        List<Sensor> sensors = new ArrayList<>(this.securityRepository.getSensors());
-        for (Sensor sensor : sensors) {
-            sensor.setActive(false);
-            this.securityRepository.updateSensor(sensor);
-        }
+        partition.setArmingStatus(armingStatus);
     }
     private void notifyStatusListeners() {
-        statusListeners.forEach(StatusListener::sensorStatusChanged);
+        statusEventBus.publishSensorStatusChanged();
     }
     /**
-     * Resets all sensors to inactive state.
+     * Resets sensors to inactive state. Only sensors that are currently active are changed,
+     * and they are handed to the repository as a single batch so it persists once.
      */
-    private void resetAllSensorsToInactive() {
-        List<Sensor> sensorsToUpdate = new ArrayList<>(securityRepository.getSensors());
-        for (Sensor sensor : sensorsToUpdate) {
-            if (sensor.getActive()) { // Only update if the sensor is active
+    private void resetToInactive(Iterable<Sensor> sensors) {
+        List<Sensor> sensorsToUpdate = new ArrayList<>();
+        for (Sensor sensor : sensors) {
+            if (sensor.getActive()) {
                 sensor.setActive(false);
-                securityRepository.updateSensor(sensor);
+                sensorsToUpdate.add(sensor);
             }
         }
+        if (!sensorsToUpdate.isEmpty()) {
+            securityRepository.updateSensors(sensorsToUpdate);
+        }
     }
 
     /**
      * Internal method that handles alarm status changes based on whether
-     * the camera currently shows a cat.
+     * a camera currently shows a cat. The alarm is only cleared once no camera sees a cat.
+     * @param cameraId The camera the answer is for
      * @param cat True if a cat is detected, otherwise false.
      */
-    private void catDetected(Boolean cat) {
-        catDetected = cat;
-        if (!cat && allSensorsInactive() && getAlarmStatus() != AlarmStatus.NO_ALARM) {
-            setAlarmStatus(AlarmStatus.NO_ALARM);
-        }else if(cat && getArmingStatus() == ArmingStatus.ARMED_HOME) {
-            setAlarmStatus(AlarmStatus.ALARM);
+    private void catDetected(String cameraId, Boolean cat) {
+        boolean changed = cameraDetections.set(cameraId, cat);
+        Camera camera = cameras.get(cameraId);
+        if (camera != null) {
+            camera.setCatDetected(cat);
+        }
+        boolean anyCat = cameraDetections.anyCatDetected();
+        // cameras watch the whole site, so every partition applies the rules
+        for (PartitionState partition : partitionStates()) {
+            if (!anyCat && partition.allSensorsInactive() && partition.getAlarmStatus() != AlarmStatus.NO_ALARM) {
+                partition.setAlarmStatus(AlarmStatus.NO_ALARM);
+            }else if(cat && partition.getArmingStatus() == ArmingStatus.ARMED_HOME) {
+                partition.setAlarmStatus(AlarmStatus.ALARM);
+            }
+        }
+        if (changed) {
+            statusEventBus.publishCameraStatus(cameraId, cat);
         }
-        statusListeners.forEach(sl -> sl.catDetected(cat));
+        statusEventBus.publishCatDetected(anyCat);
     }
     /**
      * Register the StatusListener for alarm system updates from within the SecurityService.
      * @param statusListener
      */
     public void addStatusListener(StatusListener statusListener) {
-        statusListeners.add(statusListener);
+        statusEventBus.register(statusListener);
+    }
+    /**
+     * Register a StatusListener whose callbacks must run on a particular executor, such as the
+     * Swing event thread.
+     * @param statusListener
+     * @param deliveryExecutor
+     */
+    public void addStatusListener(StatusListener statusListener, Executor deliveryExecutor) {
+        statusEventBus.register(statusListener, deliveryExecutor);
     }
     public void removeStatusListener(StatusListener statusListener) {
-        statusListeners.remove(statusListener);
+        statusEventBus.unregister(statusListener);
     }
     /**
-     * Change the alarm status of the system and notify all listeners.
+     * @return queue depth and delivery latency figures for a registered listener
+     */
+    public StatusEventBus.Metrics getStatusListenerMetrics(StatusListener statusListener) {
+        return statusEventBus.getMetrics(statusListener);
+    }
+    /**
+     * Change the alarm status of the main partition and notify all listeners of the site's alarm
+     * status.
      * @param status
      */
     public void setAlarmStatus(AlarmStatus status) {
-        securityRepository.setAlarmStatus(status);
-        statusListeners.forEach(sl -> sl.notify(status));
+        stateLock.lock();
+        try {
+            securityRepository.setAlarmStatus(status);
+            alarmStatusChanged(null, status);
+            siteStatus.setAlarmStatus(null, status);
+            statusEventBus.publishAlarmStatus(siteStatus.getAlarmStatus());
+        } finally {
+            stateLock.unlock();
+        }
     }
+    /**
+     * Arms or disarms the system. Arming resets all sensors to inactive as one batch.
+     * @param armingStatus
+     */
     public void armSystem(ArmingStatus armingStatus) {
         setArmingStatus(armingStatus);
-        // Check if the system is armed before resetting sensors
-        if (armingStatus != ArmingStatus.DISARMED) {
-            resetAllSensorsToInactive();
-        }
     }
     /**
      * Internal method for updating the alarm status when a sensor has been activated.
@@ -143,63 +326,748 @@ public class SecurityService {
     /**
      * Send an image to the SecurityService for processing. The securityService will use its provided
      * ImageService to analyze the image for cats and update the alarm status accordingly.
+     * This runs the image service on the calling thread; see {@link #processImage(String, BufferedImage)}
+     * for the asynchronous version.
      */
     public void processImage() {
+        // classify outside the lock so a slow image service doesn't hold up sensor events
         boolean catDetected = imageService.imageContainsCat();
-        catDetected(catDetected);
+        stateLock.lock();
+        try {
+            catDetected(DEFAULT_CAMERA_ID, catDetected);
+        } finally {
+            stateLock.unlock();
+        }
+    }
+    /**
+     * Sends a camera frame for classification without waiting for it. Once the image service has
+     * an answer, the result is applied exactly as processImage() would apply it. Frames from the
+     * same camera are handled in order and a newer frame supersedes one that hasn't started yet,
+     * in which case the older frame's future is cancelled and it has no effect. A frame that
+     * can't be classified before the classifier's deadline fails with a TimeoutException and
+     * doesn't change the system state either, nor does a frame from a registered camera that is
+     * removed before the frame's answer is in.
+     * @param cameraId Camera the frame came from
+     * @param image The frame to scan
+     * @return the image service's answer, completed after the system state has been updated
+     */
+    public CompletableFuture<ClassificationResult> processImage(String cameraId, BufferedImage image) {
+        Camera camera = cameras.get(cameraId);
+        return applyResult(cameraId, camera, imageClassifier().classify(cameraId, image, CAT_CONFIDENCE_THRESHOLD));
     }
     /**
-     * Checks if all sensors are inactive.
-     * @return true if all sensors are inactive, false otherwise.
+     * Like {@link #processImage(String, BufferedImage)}, for a frame that is still encoded, such as
+     * a JPEG from a camera or a file. The bytes reach the image service as they are, so a remote
+     * service gets them without a decode and re-encode.
+     * @param encodedImage The frame's bytes, which must not be modified until the result is in
      */
-    private boolean allSensorsInactive() {
-        return getSensors().stream().noneMatch(Sensor::getActive);
+    public CompletableFuture<ClassificationResult> processImage(String cameraId, ByteBuffer encodedImage) {
+        Camera camera = cameras.get(cameraId);
+        return applyResult(cameraId, camera, imageClassifier().classify(cameraId, encodedImage, CAT_CONFIDENCE_THRESHOLD));
+    }
+    /**
+     * @param camera The camera registered under the id when the frame was sent, or null
+     */
+    private CompletableFuture<ClassificationResult> applyResult(String cameraId, Camera camera,
+                                                                CompletableFuture<ClassificationResult> classification) {
+        return classification.thenApply(result -> {
+            stateLock.lock();
+            try {
+                //an answer for a camera removed in the meantime must not bring its detection back
+                if (camera == null || cameras.get(cameraId) == camera) {
+                    catDetected(cameraId, result.isCat());
+                }
+            } finally {
+                stateLock.unlock();
+            }
+            return result;
+        });
     }
+    /**
+     * @return the alarm status of the main partition
+     */
     public AlarmStatus getAlarmStatus() {
         return securityRepository.getAlarmStatus();
     }
+    /**
+     * @param partitionId The partition, or null for the main partition
+     * @throws IllegalArgumentException if there is no such partition
+     */
+    public AlarmStatus getAlarmStatus(UUID partitionId) {
+        return partitionState(partitionId).getAlarmStatus();
+    }
+    /**
+     * @param partitionId The partition, or null for the main partition
+     * @throws IllegalArgumentException if there is no such partition
+     */
+    public ArmingStatus getArmingStatus(UUID partitionId) {
+        return partitionState(partitionId).getArmingStatus();
+    }
+    /**
+     * @return the most severe alarm status of any partition
+     */
+    public AlarmStatus getSiteAlarmStatus() {
+        return siteStatus.getAlarmStatus();
+    }
+    /**
+     * @return the most armed status of any partition
+     */
+    public ArmingStatus getSiteArmingStatus() {
+        return siteStatus.getArmingStatus();
+    }
+    /**
+     * Adds a partition, with the arming and alarm status it holds, or replaces a partition with
+     * the same id.
+     */
+    public void addPartition(Partition partition) {
+        stateLock.lock();
+        try {
+            securityRepository.addPartition(partition);
+            siteStatus.setArmingStatus(partition.getPartitionId(), partition.getArmingStatus());
+            siteStatus.setAlarmStatus(partition.getPartitionId(), partition.getAlarmStatus());
+            statusEventBus.publishAlarmStatus(siteStatus.getAlarmStatus());
+            notifyStatusListeners();
+        } finally {
+            stateLock.unlock();
+        }
+    }
+    /**
+     * Removes a partition. Its sensors move to the main partition, and its alarm no longer counts
+     * towards the site's.
+     */
+    public void removePartition(Partition partition) {
+        stateLock.lock();
+        try {
+            List<Sensor> members = securityRepository.getSensorsInPartition(partition.getPartitionId());
+            members.forEach(sensor -> sensor.setPartitionId(null));
+            if (!members.isEmpty()) {
+                securityRepository.updateSensors(members);
+            }
+            securityRepository.removePartition(partition);
+            cancelTimers(partition.getPartitionId());
+            siteStatus.remove(partition.getPartitionId());
+            statusEventBus.publishAlarmStatus(siteStatus.getAlarmStatus());
+            notifyStatusListeners();
+        } finally {
+            stateLock.unlock();
+        }
+    }
+    /**
+     * Moves a sensor to another partition. Alarm statuses are left as they are until the next
+     * event in either partition.
+     * @param partitionId The partition, or null for the main partition
+     * @throws IllegalArgumentException if there is no such partition
+     */
+    public void assignSensor(Sensor sensor, UUID partitionId) {
+        stateLock.lock();
+        try {
+            partitionState(partitionId);
+            sensor.setPartitionId(partitionId);
+            securityRepository.updateSensor(sensor);
+            notifyStatusListeners();
+        } finally {
+            stateLock.unlock();
+        }
+    }
+    /**
+     * @return the partitions other than the main partition, in display order
+     */
+    public List<Partition> getPartitions() {
+        List<Partition> sorted = new ArrayList<>(securityRepository.getPartitions());
+        sorted.sort(null);
+        return sorted;
+    }
+    /**
+     * @return the partition with the given id, or null if there is none
+     */
+    public Partition getPartition(UUID partitionId) {
+        return securityRepository.getPartition(partitionId);
+    }
+    /**
+     * @param partitionId The partition, or null for the main partition
+     * @return the partition's sensors, in no particular order
+     */
+    public List<Sensor> getSensorsInPartition(UUID partitionId) {
+        return securityRepository.getSensorsInPartition(partitionId);
+    }
+    /**
+     * @return true if any camera's latest frame showed a cat
+     */
+    public boolean isCatDetected() {
+        return cameraDetections.anyCatDetected();
+    }
+    /**
+     * @return true if the camera's latest frame showed a cat
+     */
+    public boolean isCatDetected(String cameraId) {
+        return cameraDetections.isCatDetected(cameraId);
+    }
+    /**
+     * @return the number of cameras whose latest frame showed a cat
+     */
+    public int getCatDetectedCameraCount() {
+        return cameraDetections.getCatCount();
+    }
+    /**
+     * Registers a camera so it is listed by getCameras(). Frames can be processed for any camera
+     * id, registered or not.
+     */
+    public void addCamera(Camera camera) {
+        stateLock.lock();
+        try {
+            camera.setCatDetected(cameraDetections.isCatDetected(camera.getCameraId()));
+            cameras.put(camera.getCameraId(), camera);
+        } finally {
+            stateLock.unlock();
+        }
+    }
+    /**
+     * Removes a camera. A cat it was seeing no longer counts, as if it had reported no cat, and its
+     * frames still being classified are cancelled.
+     */
+    public void removeCamera(Camera camera) {
+        stateLock.lock();
+        try {
+            if (cameraDetections.isCatDetected(camera.getCameraId())) {
+                catDetected(camera.getCameraId(), false);
+            }
+            cameraDetections.remove(camera.getCameraId());
+            cameras.remove(camera.getCameraId());
+        } finally {
+            stateLock.unlock();
+        }
+        AsyncImageClassifier classifier = imageClassifier;
+        if (classifier != null) {
+            classifier.cancel(camera.getCameraId());
+        }
+    }
+    /**
+     * @return the registered cameras in display order
+     */
+    public List<Camera> getCameras() {
+        List<Camera> sorted = new ArrayList<>(cameras.values());
+        sorted.sort(null);
+        return sorted;
+    }
+    /**
+     * @return the registered camera with the given id, or null if there is none
+     */
+    public Camera getCamera(String cameraId) {
+        return cameras.get(cameraId);
+    }
+    /**
+     * @return a snapshot of the sensors that later changes don't affect
+     */
     public Set<Sensor> getSensors() {
         return securityRepository.getSensors();
     }
+    public int getSensorCount() {
+        return securityRepository.getSensorCount();
+    }
+    /**
+     * @return the number of active sensors, kept current by the repository rather than counted
+     */
+    public int getActiveSensorCount() {
+        return securityRepository.getActiveSensorCount();
+    }
+    /**
+     * @return the number of active sensors of the given type
+     */
+    public int getActiveSensorCount(SensorType sensorType) {
+        return securityRepository.getActiveSensorCount(sensorType);
+    }
+    /**
+     * @return the sensors that are active, in no particular order
+     */
+    public List<Sensor> getActiveSensors() {
+        return securityRepository.getActiveSensors();
+    }
+    /**
+     * @return the sensors in display order
+     */
+    public List<Sensor> getSortedSensors() {
+        return securityRepository.getSortedSensors();
+    }
+    /**
+     * @return the sensor with the given id, or null if there is none
+     */
+    public Sensor getSensor(UUID sensorId) {
+        return securityRepository.getSensor(sensorId);
+    }
+    /**
+     * Adds a sensor, or replaces the stored copy of one that is already known.
+     * @throws IllegalStateException if the sensor is new and the sensor limit has been reached
+     */
     public void addSensor(Sensor sensor) {
-        securityRepository.addSensor(sensor);
+        stateLock.lock();
+        try {
+            if (securityRepository.getSensorCount() >= sensorLimit && securityRepository.getSensor(sensor.getSensorId()) == null) {
+                throw new IllegalStateException("cannot add more than " + sensorLimit + " sensors");
+            }
+            securityRepository.addSensor(sensor);
+            notifyStatusListeners();
+        } finally {
+            stateLock.unlock();
+        }
+    }
+    public int getSensorLimit() {
+        return sensorLimit;
+    }
+    /**
+     * Sets the largest number of sensors addSensor accepts. Lowering it below the number of sensors
+     * already present removes none of them; it only stops new ones from being added.
+     */
+    public void setSensorLimit(int sensorLimit) {
+        if (sensorLimit < 0) {
+            throw new IllegalArgumentException("sensorLimit must not be negative");
+        }
+        this.sensorLimit = sensorLimit;
     }
     public void removeSensor(Sensor sensor) {
-        securityRepository.removeSensor(sensor);
+        stateLock.lock();
+        try {
+            securityRepository.removeSensor(sensor);
+            notifyStatusListeners();
+        } finally {
+            stateLock.unlock();
+        }
     }
     public ArmingStatus getArmingStatus() {
         return securityRepository.getArmingStatus();
     }
     public void changeSensorActivationStatus(Sensor sensor, Boolean active) {
-        // Fetch the current alarm and arming statuses
-        AlarmStatus currentAlarmStatus = getAlarmStatus();
-        ArmingStatus currentArmingStatus = getArmingStatus();
-        // Update the sensor's activation status
-        sensor.setActive(active);
-        securityRepository.updateSensor(sensor);
-        // If the alarm is active, do not change the alarm state regardless of sensor changes
-        if (currentAlarmStatus == AlarmStatus.ALARM) {
-            return; // Early exit to ensure alarm state is unaffected by sensor changes
-        }
-        // Handle sensor activation
-        if (active) {
-            if (currentArmingStatus != ArmingStatus.DISARMED && currentAlarmStatus == AlarmStatus.NO_ALARM) {
-                setAlarmStatus(AlarmStatus.PENDING_ALARM);
-            }
-            else if (currentAlarmStatus == AlarmStatus.PENDING_ALARM) {
-                setAlarmStatus(AlarmStatus.ALARM);
-            }
-            // If the system is in NO_ALARM state but disarmed, activating a sensor does not change the alarm status.
-        } else {
-            // If sensor is deactivated, check the state of all other sensors and current alarm status
-            boolean allSensorsInactive = getSensors().stream().noneMatch(Sensor::getActive);
-            // If all other sensors are inactive and system is in PENDING_ALARM, revert to NO_ALARM
-            if (allSensorsInactive && currentAlarmStatus == AlarmStatus.PENDING_ALARM) {
-                setAlarmStatus(AlarmStatus.NO_ALARM);
-            }
-            else if (!catDetected && allSensorsInactive()) {
-                setAlarmStatus(AlarmStatus.NO_ALARM);
+        stateLock.lock();
+        try {
+            // Only the sensor's own partition is involved
+            PartitionState partition = partitionState(sensor.getPartitionId());
+            // Fetch the current alarm and arming statuses
+            AlarmStatus currentAlarmStatus = partition.getAlarmStatus();
+            ArmingStatus currentArmingStatus = partition.getArmingStatus();
+            // Update the sensor's activation status
+            sensor.setActive(active);
+            securityRepository.updateSensor(sensor);
+            notifyStatusListeners();
+            // If the alarm is active, do not change the alarm state regardless of sensor changes
+            if (currentAlarmStatus == AlarmStatus.ALARM) {
+                return; // Early exit to ensure alarm state is unaffected by sensor changes
+            }
+            // Handle sensor activation
+            if (active) {
+                if (currentArmingStatus != ArmingStatus.DISARMED && currentAlarmStatus == AlarmStatus.NO_ALARM) {
+                    // sensors tripped while leaving are checked once the exit delay ends
+                    if (!exitTimers.containsKey(partition.getPartitionId())) {
+                        partition.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+                    }
+                }
+                else if (currentAlarmStatus == AlarmStatus.PENDING_ALARM) {
+                    partition.setAlarmStatus(AlarmStatus.ALARM);
+                }
+                // If the system is in NO_ALARM state but disarmed, activating a sensor does not change the alarm status.
+            } else {
+                // If sensor is deactivated, check the state of all other sensors and current alarm status
+                boolean allSensorsInactive = partition.allSensorsInactive();
+                // If all other sensors are inactive and system is in PENDING_ALARM, revert to NO_ALARM
+                if (allSensorsInactive && currentAlarmStatus == AlarmStatus.PENDING_ALARM) {
+                    partition.setAlarmStatus(AlarmStatus.NO_ALARM);
+                }
+                else if (!cameraDetections.anyCatDetected() && allSensorsInactive) {
+                    partition.setAlarmStatus(AlarmStatus.NO_ALARM);
+                }
+            }
+        } finally {
+            stateLock.unlock();
+        }
+    }
+    public Duration getEntryDelay() {
+        return entryDelay;
+    }
+    /**
+     * Sets how long an alarm stays pending before it goes off on its own. Zero turns the entry
+     * delay off, so only another sensor firing sets off a pending alarm. A partition whose alarm is
+     * already pending, for example because the system restarted that way, starts its entry delay
+     * now.
+     */
+    public void setEntryDelay(Duration entryDelay) {
+        checkDelay(entryDelay);
+        stateLock.lock();
+        try {
+            this.entryDelay = entryDelay;
+            rearmTimers();
+        } finally {
+            stateLock.unlock();
+        }
+    }
+    public Duration getExitDelay() {
+        return exitDelay;
+    }
+    /**
+     * Sets how long after arming a disarmed partition its sensors are ignored. Zero turns the exit
+     * delay off.
+     */
+    public void setExitDelay(Duration exitDelay) {
+        this.exitDelay = checkDelay(exitDelay);
+    }
+    public Duration getAlarmResetDelay() {
+        return alarmResetDelay;
+    }
+    /**
+     * Sets how long an alarm sounds before it resets to NO_ALARM. Zero turns the auto-reset off.
+     * A partition whose alarm is already sounding, for example because the system restarted that
+     * way, starts its reset delay now.
+     */
+    public void setAlarmResetDelay(Duration alarmResetDelay) {
+        checkDelay(alarmResetDelay);
+        stateLock.lock();
+        try {
+            this.alarmResetDelay = alarmResetDelay;
+            rearmTimers();
+        } finally {
+            stateLock.unlock();
+        }
+    }
+    /**
+     * @param partitionId The partition, or null for the main partition
+     * @return true while the partition's exit delay runs
+     */
+    public boolean isExitDelayRunning(UUID partitionId) {
+        stateLock.lock();
+        try {
+            return exitTimers.containsKey(partitionId);
+        } finally {
+            stateLock.unlock();
+        }
+    }
+    private static Duration checkDelay(Duration delay) {
+        if (delay.isNegative()) {
+            throw new IllegalArgumentException("delay must not be negative");
+        }
+        return delay;
+    }
+    /**
+     * Brings every partition's entry and reset timers in line with the current delays and its alarm
+     * status. Must hold stateLock.
+     */
+    private void rearmTimers() {
+        for (PartitionState partition : partitionStates()) {
+            UUID partitionId = partition.getPartitionId();
+            if (entryDelay.isZero()) {
+                cancel(entryTimers, partitionId);
+            }
+            if (alarmResetDelay.isZero()) {
+                cancel(resetTimers, partitionId);
+            }
+            alarmStatusChanged(partitionId, partition.getAlarmStatus());
+        }
+    }
+    /**
+     * Starts or stops the entry and reset timers that follow from a partition's new alarm status.
+     */
+    private void alarmStatusChanged(UUID partitionId, AlarmStatus status) {
+        if (status != AlarmStatus.PENDING_ALARM) {
+            cancel(entryTimers, partitionId);
+        } else if (!entryDelay.isZero() && !entryTimers.containsKey(partitionId)) {
+            entryTimers.put(partitionId, schedule(timeout -> entryDelayExpired(partitionId, timeout), entryDelay));
+        }
+        if (status != AlarmStatus.ALARM) {
+            cancel(resetTimers, partitionId);
+        } else if (!alarmResetDelay.isZero() && !resetTimers.containsKey(partitionId)) {
+            resetTimers.put(partitionId, schedule(timeout -> alarmResetDelayExpired(partitionId, timeout), alarmResetDelay));
+        }
+    }
+    private void entryDelayExpired(UUID partitionId, TimerWheel.Timeout timeout) {
+        stateLock.lock();
+        try {
+            // a timer that was replaced or cancelled after it fired has nothing left to do
+            if (entryTimers.remove(partitionId, timeout)) {
+                PartitionState partition = partitionState(partitionId);
+                if (partition.getAlarmStatus() == AlarmStatus.PENDING_ALARM) {
+                    partition.setAlarmStatus(AlarmStatus.ALARM);
+                    notifyStatusListeners();
+                }
+            }
+        } finally {
+            stateLock.unlock();
+        }
+    }
+    private void exitDelayExpired(UUID partitionId, TimerWheel.Timeout timeout) {
+        stateLock.lock();
+        try {
+            if (exitTimers.remove(partitionId, timeout)) {
+                PartitionState partition = partitionState(partitionId);
+                if (partition.getArmingStatus() != ArmingStatus.DISARMED
+                        && partition.getAlarmStatus() == AlarmStatus.NO_ALARM && !partition.allSensorsInactive()) {
+                    partition.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+                    notifyStatusListeners();
+                }
+            }
+        } finally {
+            stateLock.unlock();
+        }
+    }
+    private void alarmResetDelayExpired(UUID partitionId, TimerWheel.Timeout timeout) {
+        stateLock.lock();
+        try {
+            if (resetTimers.remove(partitionId, timeout)) {
+                PartitionState partition = partitionState(partitionId);
+                if (partition.getAlarmStatus() == AlarmStatus.ALARM) {
+                    partition.setAlarmStatus(AlarmStatus.NO_ALARM);
+                    notifyStatusListeners();
+                }
+            }
+        } finally {
+            stateLock.unlock();
+        }
+    }
+    private TimerWheel.Timeout schedule(Consumer<TimerWheel.Timeout> task, Duration delay) {
+        if (ownsTimerWheel) {
+            if (timerWheel == null) {
+                timerWheel = new TimerWheel(System::nanoTime, TIMER_TICK_MILLIS, TimeUnit.MILLISECONDS, TIMER_WHEEL_TICKS);
+            }
+            timerWheel.start();
+        }
+        return timerWheel.schedule(task, delay.toNanos(), TimeUnit.NANOSECONDS);
+    }
+    private static void cancel(Map<UUID, TimerWheel.Timeout> timers, UUID partitionId) {
+        TimerWheel.Timeout timeout = timers.remove(partitionId);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+    private void cancelTimers(UUID partitionId) {
+        cancel(entryTimers, partitionId);
+        cancel(exitTimers, partitionId);
+        cancel(resetTimers, partitionId);
+    }
+    private AsyncImageClassifier imageClassifier() {
+        AsyncImageClassifier classifier = imageClassifier;
+        if (classifier == null) {
+            synchronized (this) {
+                classifier = imageClassifier;
+                if (classifier == null) {
+                    classifier = new AsyncImageClassifier(imageService, CLASSIFIER_THREADS, CLASSIFIER_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                    imageClassifier = classifier;
+                }
+            }
+        }
+        return classifier;
+    }
+    /**
+     * Cancels the service's running timers and stops the threads of the image classifier and timer
+     * wheel it created. The repository, the event bus and anything else passed in stay open.
+     */
+    @Override
+    public void close() {
+        TimerWheel wheel;
+        stateLock.lock();
+        try {
+            for (Map<UUID, TimerWheel.Timeout> timers : List.of(entryTimers, exitTimers, resetTimers)) {
+                timers.values().forEach(TimerWheel.Timeout::cancel);
+                timers.clear();
             }
+            wheel = timerWheel;
+        } finally {
+            stateLock.unlock();
+        }
+        AsyncImageClassifier classifier = imageClassifier;
+        if (ownsImageClassifier && classifier != null) {
+            classifier.close();
+        }
+        if (ownsTimerWheel && wheel != null) {
+            try {
+                wheel.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    /**
+     * Applies a batch of sensor changes as if changeSensorActivationStatus had been called for each
+     * in order, but takes the lock once, hands every changed sensor to the repository as a single
+     * batch and sets each partition's alarm status once, to where the sequence of changes leads.
+     * Listeners only see the state after the whole batch.
+     * @param sensors The sensors that changed; a sensor may appear more than once
+     * @param states The new state of each sensor, in the same order
+     * @param count The number of changes to apply from the start of both arrays
+     */
+    public void changeSensorActivationStatuses(Sensor[] sensors, boolean[] states, int count) {
+        if (count == 0) {
+            return;
+        }
+        stateLock.lock();
+        try {
+            Map<UUID, PartitionBatch> batches = new HashMap<>();
+            Map<UUID, Sensor> changed = new LinkedHashMap<>();
+            boolean anyCat = cameraDetections.anyCatDetected();
+            for (int i = 0; i < count; i++) {
+                Sensor sensor = sensors[i];
+                boolean active = states[i];
+                UUID partitionId = sensor.getPartitionId();
+                PartitionBatch batch = batches.get(partitionId);
+                if (batch == null) {
+                    batch = new PartitionBatch(partitionState(partitionId));
+                    batches.put(partitionId, batch);
+                }
+                if (Boolean.TRUE.equals(sensor.getActive()) != active) {
+                    batch.activeSensors += active ? 1 : -1;
+                }
+                sensor.setActive(active);
+                changed.put(sensor.getSensorId(), sensor);
+                // the same rules as changeSensorActivationStatus, on the batch's running state
+                if (batch.alarmStatus == AlarmStatus.ALARM) {
+                    continue;
+                }
+                if (active) {
+                    if (batch.armingStatus != ArmingStatus.DISARMED && batch.alarmStatus == AlarmStatus.NO_ALARM) {
+                        if (!exitTimers.containsKey(partitionId)) {
+                            batch.alarmStatus = AlarmStatus.PENDING_ALARM;
+                        }
+                    } else if (batch.alarmStatus == AlarmStatus.PENDING_ALARM) {
+                        batch.alarmStatus = AlarmStatus.ALARM;
+                    }
+                } else if (batch.activeSensors == 0 && (batch.alarmStatus == AlarmStatus.PENDING_ALARM || !anyCat)) {
+                    batch.alarmStatus = AlarmStatus.NO_ALARM;
+                }
+            }
+            securityRepository.updateSensors(new ArrayList<>(changed.values()));
+            for (PartitionBatch batch : batches.values()) {
+                if (batch.alarmStatus != batch.partition.getAlarmStatus()) {
+                    batch.partition.setAlarmStatus(batch.alarmStatus);
+                }
+            }
+            notifyStatusListeners();
+        } finally {
+            stateLock.unlock();
+        }
+    }
+    private PartitionState partitionState(UUID partitionId) {
+        if (partitionId == null) {
+            return mainPartition;
+        }
+        Partition partition = securityRepository.getPartition(partitionId);
+        if (partition == null) {
+            throw new IllegalArgumentException("no partition " + partitionId);
+        }
+        return new NamedPartitionState(partition);
+    }
+    /**
+     * @return the main partition followed by every other partition
+     */
+    private List<PartitionState> partitionStates() {
+        Collection<Partition> partitions = securityRepository.getPartitions();
+        List<PartitionState> states = new ArrayList<>(partitions.size() + 1);
+        states.add(mainPartition);
+        for (Partition partition : partitions) {
+            states.add(new NamedPartitionState(partition));
+        }
+        return states;
+    }
+    /**
+     * A partition's arming and alarm status as the alarm rules see them. Setting either also
+     * updates the site status.
+     */
+    private abstract static class PartitionState {
+        abstract UUID getPartitionId();
+        abstract int activeSensorCount();
+        abstract ArmingStatus getArmingStatus();
+        abstract AlarmStatus getAlarmStatus();
+        abstract void setArmingStatus(ArmingStatus armingStatus);
+        abstract void setAlarmStatus(AlarmStatus alarmStatus);
+        abstract boolean allSensorsInactive();
+    }
+    /**
+     * The main partition keeps its status in the repository's own arming and alarm status.
+     */
+    private class MainPartitionState extends PartitionState {
+        @Override
+        UUID getPartitionId() {
+            return null;
+        }
+        @Override
+        int activeSensorCount() {
+            if (securityRepository.getPartitions().isEmpty()) {
+                return securityRepository.getActiveSensorCount();
+            }
+            return securityRepository.getActiveSensorCountInPartition(null);
+        }
+        @Override
+        ArmingStatus getArmingStatus() {
+            return securityRepository.getArmingStatus();
+        }
+        @Override
+        AlarmStatus getAlarmStatus() {
+            return securityRepository.getAlarmStatus();
+        }
+        @Override
+        void setArmingStatus(ArmingStatus armingStatus) {
+            securityRepository.setArmingStatus(armingStatus);
+            siteStatus.setArmingStatus(null, armingStatus);
+        }
+        @Override
+        void setAlarmStatus(AlarmStatus alarmStatus) {
+            SecurityService.this.setAlarmStatus(alarmStatus);
+        }
+        @Override
+        boolean allSensorsInactive() {
+            // without other partitions every sensor is in the main partition
+            if (securityRepository.getPartitions().isEmpty()) {
+                return !securityRepository.anySensorActive();
+            }
+            return securityRepository.getActiveSensorCountInPartition(null) == 0;
+        }
+    }
+    private class NamedPartitionState extends PartitionState {
+        private final Partition partition;
+        NamedPartitionState(Partition partition) {
+            this.partition = partition;
+        }
+        @Override
+        UUID getPartitionId() {
+            return partition.getPartitionId();
+        }
+        @Override
+        int activeSensorCount() {
+            return securityRepository.getActiveSensorCountInPartition(partition.getPartitionId());
+        }
+        @Override
+        ArmingStatus getArmingStatus() {
+            return partition.getArmingStatus();
+        }
+        @Override
+        AlarmStatus getAlarmStatus() {
+            return partition.getAlarmStatus();
+        }
+        @Override
+        void setArmingStatus(ArmingStatus armingStatus) {
+            partition.setArmingStatus(armingStatus);
+            securityRepository.updatePartition(partition);
+            siteStatus.setArmingStatus(partition.getPartitionId(), armingStatus);
+        }
+        @Override
+        void setAlarmStatus(AlarmStatus alarmStatus) {
+            partition.setAlarmStatus(alarmStatus);
+            securityRepository.updatePartition(partition);
+            alarmStatusChanged(partition.getPartitionId(), alarmStatus);
+            siteStatus.setAlarmStatus(partition.getPartitionId(), alarmStatus);
+            statusEventBus.publishAlarmStatus(siteStatus.getAlarmStatus());
+        }
+        @Override
+        boolean allSensorsInactive() {
+            return securityRepository.getActiveSensorCountInPartition(partition.getPartitionId()) == 0;
+        }
+    }
+    /**
+     * A partition's running state while a batch of sensor changes is applied.
+     */
+    private static class PartitionBatch {
+        private final PartitionState partition;
+        private final ArmingStatus armingStatus;
+        private AlarmStatus alarmStatus;
+        private int activeSensors;
+        PartitionBatch(PartitionState partition) {
+            this.partition = partition;
+            this.armingStatus = partition.getArmingStatus();
+            this.alarmStatus = partition.getAlarmStatus();
+            this.activeSensors = partition.activeSensorCount();
         }
     }
 }
@@ -0,0 +1,466 @@
+package com.udacity.catpoint2.service;
+
+import com.udacity.catpoint2.data.Sensor;
+import com.udacity.catpoint2.data.SensorType;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Debounce stage in front of the SecurityService for raw readings from sensor hardware. A contact
+ * that bounces reports several changes in a few milliseconds, and each one would move the alarm
+ * state machine a step. Here a change is only passed on once the sensor has held its new state for
+ * the debounce time of its {@link SensorType}; a burst that ends where it started is not passed on
+ * at all. Each burst therefore reaches changeSensorActivationStatus as at most one change.
+ *
+ * The state a burst is compared against is the sensor's state in the service when the burst starts
+ * and when it settles, not the last state passed on from here. Arming resets sensors and the GUI
+ * can toggle them, and a reading that differs from such a change is a real change to pass on.
+ *
+ * The stage also counts each sensor's bursts over a flap window. A sensor that starts more bursts
+ * than the flap threshold within one window is flapping, and its changes are held back until it has
+ * been quiet for a whole window. That is hysteresis: a faulty sensor settles into one reported
+ * state instead of toggling the system.
+ *
+ * Sensor state lives in parallel primitive arrays indexed by an open-addressing table keyed on the
+ * sensor id, so tracking a sensor costs no objects of its own. Settling is timed on a
+ * {@link TimerWheel}; a timer exists only while a sensor is settling, and it is not rescheduled for
+ * every bounce. Changes are applied to the service on the thread that advances the wheel, or on the
+ * offering thread when a sensor type has no debounce time.
+ */
+public class SensorDebouncer {
+
+    private static final long DEFAULT_CONTACT_DEBOUNCE_MILLIS = 50;
+    //motion detectors retrigger for a while after they see movement
+    private static final long DEFAULT_MOTION_DEBOUNCE_MILLIS = 500;
+    private static final int DEFAULT_FLAP_THRESHOLD = 10;
+    private static final long DEFAULT_FLAP_WINDOW_SECONDS = 60;
+    private static final int INITIAL_CAPACITY = 64;
+    //type of a sensor stored without one, which settles on the default contact debounce time
+    private static final byte UNTYPED = -1;
+
+    private final SecurityService securityService;
+    private final TimerWheel timerWheel;
+
+    //configuration, guarded by lock
+    private final long[] debounceNanos = new long[SensorType.values().length];
+    private int flapThreshold = DEFAULT_FLAP_THRESHOLD;
+    private long flapWindowNanos = TimeUnit.SECONDS.toNanos(DEFAULT_FLAP_WINDOW_SECONDS);
+
+    //open-addressing table with linear probing, guarded by lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private boolean[] used;
+    private long[] idMsb;
+    private long[] idLsb;
+    private byte[] types;
+    private boolean[] rawStates;
+    private boolean[] settling;
+    private boolean[] flapping;
+    private long[] lastChangeNanos;
+    private long[] windowStartNanos;
+    private int[] windowBursts;
+    private int mask;
+    private int size;
+
+    private long changes;
+    private long applied;
+    private long unknownSensors;
+    private int flappingSensors;
+
+    /**
+     * @param securityService The service settled changes are applied to
+     * @param timerWheel Wheel the debounce times run on; the caller starts it or advances it
+     */
+    public SensorDebouncer(SecurityService securityService, TimerWheel timerWheel) {
+        this.securityService = securityService;
+        this.timerWheel = timerWheel;
+        for (SensorType type : SensorType.values()) {
+            long millis = type == SensorType.MOTION ? DEFAULT_MOTION_DEBOUNCE_MILLIS : DEFAULT_CONTACT_DEBOUNCE_MILLIS;
+            debounceNanos[type.ordinal()] = TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Sets how long sensors of a type must hold a new state before it is passed on. Zero passes
+     * every change straight through.
+     */
+    public void setDebounceTime(SensorType type, Duration debounceTime) {
+        if (debounceTime.isNegative()) {
+            throw new IllegalArgumentException("debounce time must not be negative");
+        }
+        lock.lock();
+        try {
+            debounceNanos[type.ordinal()] = debounceTime.toNanos();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Duration getDebounceTime(SensorType type) {
+        lock.lock();
+        try {
+            return Duration.ofNanos(debounceNanos[type.ordinal()]);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param threshold Bursts within one window above which a sensor counts as flapping; zero
+     *                  turns flap suppression off
+     * @param window Length of the window bursts are counted over
+     */
+    public void setFlapSuppression(int threshold, Duration window) {
+        if (threshold < 0 || window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("threshold must not be negative and window must be positive");
+        }
+        lock.lock();
+        try {
+            flapThreshold = threshold;
+            flapWindowNanos = window.toNanos();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes a raw reading from a sensor.
+     * @param sensorId Id of the sensor that reported
+     * @param active The state the sensor reported
+     * @return false if the service has no such sensor
+     */
+    public boolean offer(UUID sensorId, boolean active) {
+        Sensor sensor = null;
+        lock.lock();
+        try {
+            int slot = find(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits());
+            if (slot < 0 || !settling[slot]) {
+                //between bursts the service may have changed the sensor, so start from its state there
+                sensor = securityService.getSensor(sensorId);
+                if (sensor == null) {
+                    if (slot >= 0) {
+                        delete(slot);
+                    }
+                    unknownSensors++;
+                    return false;
+                }
+                if (slot < 0) {
+                    slot = insert(sensorId, sensor);
+                }
+                rawStates[slot] = sensor.getActive();
+            }
+            if (rawStates[slot] == active) {
+                return true;
+            }
+            long now = timerWheel.nanoTime();
+            rawStates[slot] = active;
+            lastChangeNanos[slot] = now;
+            changes++;
+            if (settling[slot]) {
+                return true;
+            }
+            countBurst(slot, now);
+            long settleNanos = settleNanos(slot);
+            if (settleNanos > 0) {
+                settling[slot] = true;
+                scheduleSettle(sensorId, settleNanos);
+                return true;
+            }
+            applied++;
+        } finally {
+            lock.unlock();
+        }
+        securityService.changeSensorActivationStatus(sensor, active);
+        return true;
+    }
+
+    /**
+     * Stops tracking a sensor, such as one removed from the system. A change still settling for it
+     * is dropped.
+     */
+    public void forget(UUID sensorId) {
+        lock.lock();
+        try {
+            int slot = find(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits());
+            if (slot >= 0) {
+                delete(slot);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return true if the sensor started more bursts than the flap threshold within a window
+     *         and hasn't been quiet for a whole window since
+     */
+    public boolean isFlapping(UUID sensorId) {
+        lock.lock();
+        try {
+            int slot = find(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits());
+            return slot >= 0 && flapping[slot];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the sensor's bursts per second over its current flap window, or 0 for an unknown
+     *         sensor
+     */
+    public double getFlapRate(UUID sensorId) {
+        lock.lock();
+        try {
+            int slot = find(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits());
+            if (slot < 0) {
+                return 0;
+            }
+            long elapsed = Math.max(timerWheel.nanoTime() - windowStartNanos[slot], TimeUnit.SECONDS.toNanos(1));
+            return windowBursts[slot] * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of raw changes taken, not counting repeats of a sensor's current state
+     */
+    public long getChangeCount() {
+        lock.lock();
+        try {
+            return changes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of changes passed on to the service
+     */
+    public long getAppliedCount() {
+        lock.lock();
+        try {
+            return applied;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getUnknownSensorCount() {
+        lock.lock();
+        try {
+            return unknownSensors;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getFlappingSensorCount() {
+        lock.lock();
+        try {
+            return flappingSensors;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getTrackedSensorCount() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void scheduleSettle(UUID sensorId, long delayNanos) {
+        timerWheel.schedule(timeout -> settle(sensorId), delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Runs when a sensor's settle timer fires. If the sensor changed again since, the timer is
+     * scheduled again for the rest of the settle time; otherwise its state is passed on if it
+     * differs from the sensor's state in the service.
+     */
+    private void settle(UUID sensorId) {
+        Sensor sensor;
+        boolean state;
+        lock.lock();
+        try {
+            int slot = find(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits());
+            if (slot < 0) {
+                return;
+            }
+            long now = timerWheel.nanoTime();
+            long remaining = lastChangeNanos[slot] + settleNanos(slot) - now;
+            if (remaining > 0) {
+                scheduleSettle(sensorId, remaining);
+                return;
+            }
+            settling[slot] = false;
+            if (flapping[slot] && now - lastChangeNanos[slot] >= flapWindowNanos) {
+                flapping[slot] = false;
+                flappingSensors--;
+            }
+            state = rawStates[slot];
+            sensor = securityService.getSensor(sensorId);
+            if (sensor == null) {
+                unknownSensors++;
+                delete(slot);
+            } else if (sensor.getActive() == state) {
+                sensor = null;
+            } else {
+                applied++;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (sensor != null) {
+            securityService.changeSensorActivationStatus(sensor, state);
+        }
+    }
+
+    private long settleNanos(int slot) {
+        long debounce = types[slot] == UNTYPED
+                ? TimeUnit.MILLISECONDS.toNanos(DEFAULT_CONTACT_DEBOUNCE_MILLIS) : debounceNanos[types[slot]];
+        return flapping[slot] ? Math.max(debounce, flapWindowNanos) : debounce;
+    }
+
+    private void countBurst(int slot, long now) {
+        if (now - windowStartNanos[slot] >= flapWindowNanos) {
+            windowStartNanos[slot] = now;
+            windowBursts[slot] = 0;
+        }
+        windowBursts[slot]++;
+        if (!flapping[slot] && flapThreshold > 0 && windowBursts[slot] > flapThreshold) {
+            flapping[slot] = true;
+            flappingSensors++;
+        }
+    }
+
+    private int find(long msb, long lsb) {
+        for (int slot = hash(msb, lsb) & mask; used[slot]; slot = (slot + 1) & mask) {
+            if (idMsb[slot] == msb && idLsb[slot] == lsb) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int insert(UUID sensorId, Sensor sensor) {
+        //keep the table at most half full so probe sequences stay short
+        if ((size + 1) * 2 > mask + 1) {
+            grow();
+        }
+        long msb = sensorId.getMostSignificantBits();
+        long lsb = sensorId.getLeastSignificantBits();
+        int slot = hash(msb, lsb) & mask;
+        while (used[slot]) {
+            slot = (slot + 1) & mask;
+        }
+        used[slot] = true;
+        idMsb[slot] = msb;
+        idLsb[slot] = lsb;
+        types[slot] = sensor.getSensorType() == null ? UNTYPED : (byte) sensor.getSensorType().ordinal();
+        rawStates[slot] = sensor.getActive();
+        windowStartNanos[slot] = timerWheel.nanoTime();
+        size++;
+        return slot;
+    }
+
+    /**
+     * Empties a slot and shifts later entries of its probe sequence back, so lookups never stop
+     * early at the gap.
+     */
+    private void delete(int slot) {
+        if (flapping[slot]) {
+            flappingSensors--;
+        }
+        int gap = slot;
+        for (int next = (gap + 1) & mask; used[next]; next = (next + 1) & mask) {
+            int home = hash(idMsb[next], idLsb[next]) & mask;
+            //move the entry only if its home is not between the gap and its current slot
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                copy(next, gap);
+                gap = next;
+            }
+        }
+        clearSlot(gap);
+        size--;
+    }
+
+    private void grow() {
+        boolean[] oldUsed = used;
+        long[] oldMsb = idMsb;
+        long[] oldLsb = idLsb;
+        byte[] oldTypes = types;
+        boolean[] oldRaw = rawStates;
+        boolean[] oldSettling = settling;
+        boolean[] oldFlapping = flapping;
+        long[] oldLastChange = lastChangeNanos;
+        long[] oldWindowStart = windowStartNanos;
+        int[] oldWindowBursts = windowBursts;
+        allocate(oldUsed.length * 2);
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (!oldUsed[i]) {
+                continue;
+            }
+            int slot = hash(oldMsb[i], oldLsb[i]) & mask;
+            while (used[slot]) {
+                slot = (slot + 1) & mask;
+            }
+            used[slot] = true;
+            idMsb[slot] = oldMsb[i];
+            idLsb[slot] = oldLsb[i];
+            types[slot] = oldTypes[i];
+            rawStates[slot] = oldRaw[i];
+            settling[slot] = oldSettling[i];
+            flapping[slot] = oldFlapping[i];
+            lastChangeNanos[slot] = oldLastChange[i];
+            windowStartNanos[slot] = oldWindowStart[i];
+            windowBursts[slot] = oldWindowBursts[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        used = new boolean[capacity];
+        idMsb = new long[capacity];
+        idLsb = new long[capacity];
+        types = new byte[capacity];
+        rawStates = new boolean[capacity];
+        settling = new boolean[capacity];
+        flapping = new boolean[capacity];
+        lastChangeNanos = new long[capacity];
+        windowStartNanos = new long[capacity];
+        windowBursts = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private void copy(int from, int to) {
+        used[to] = true;
+        idMsb[to] = idMsb[from];
+        idLsb[to] = idLsb[from];
+        types[to] = types[from];
+        rawStates[to] = rawStates[from];
+        settling[to] = settling[from];
+        flapping[to] = flapping[from];
+        lastChangeNanos[to] = lastChangeNanos[from];
+        windowStartNanos[to] = windowStartNanos[from];
+        windowBursts[to] = windowBursts[from];
+    }
+
+    private void clearSlot(int slot) {
+        used[slot] = false;
+        settling[slot] = false;
+        flapping[slot] = false;
+        windowBursts[slot] = 0;
+    }
+
+    private static int hash(long msb, long lsb) {
+        long h = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
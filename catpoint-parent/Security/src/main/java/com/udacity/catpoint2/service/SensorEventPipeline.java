@@ -0,0 +1,391 @@
+package com.udacity.catpoint2.service;
+
+import com.udacity.catpoint2.data.Sensor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Headless entry point for sensor hardware. Producers offer raw (sensor id, active, timestamp)
+ * events into a bounded ring buffer, and a single writer thread drains them in batches and applies
+ * each batch to the SecurityService with changeSensorActivationStatuses. The alarm rules see the
+ * events in the same order they would from the GUI, but a batch is persisted and published once.
+ *
+ * The buffer stores events in parallel primitive arrays, so queued events don't create garbage.
+ * When it fills up the {@link OverflowPolicy} decides whether producers wait, the new event is
+ * rejected, or the oldest queued event is overwritten. With merging enabled, repeated events for the
+ * same sensor within one batch collapse to the sensor's final state, which suppresses flapping
+ * contacts at the cost of skipping the intermediate transitions.
+ *
+ * Given a {@link SensorDebouncer}, the writer hands each event to it instead, and the debouncer
+ * applies the changes that settle. Batching is then lost, but bouncing contacts reach the alarm
+ * rules as single changes.
+ *
+ * A batch that fails, for instance because the repository can't persist it, is logged and counted,
+ * and the writer goes on with the next one.
+ */
+public class SensorEventPipeline {
+
+    public enum OverflowPolicy {
+        /** Producers wait until the writer frees up space */
+        BLOCK,
+        /** The new event is rejected */
+        DROP_NEWEST,
+        /** The oldest queued event is overwritten */
+        DROP_OLDEST
+    }
+
+    private final Logger log = LoggerFactory.getLogger(SensorEventPipeline.class);
+
+    private final SecurityService securityService;
+    private final SensorDebouncer debouncer;
+    private final OverflowPolicy overflowPolicy;
+    private final boolean mergeWithinBatch;
+    private final int batchSize;
+
+    //ring buffer, guarded by lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final long[] idMsb;
+    private final long[] idLsb;
+    private final long[] timestamps;
+    private final boolean[] states;
+    private final int mask;
+    private long head;
+    private long tail;
+    private boolean stopped;
+
+    //batch arrays, only touched by the writer thread
+    private final long[] batchMsb;
+    private final long[] batchLsb;
+    private final long[] batchTimestamps;
+    private final boolean[] batchStates;
+    private final Sensor[] batchSensors;
+    private final boolean[] appliedStates;
+    private final Map<UUID, Integer> lastIndexInBatch = new HashMap<>();
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong merged = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong unknownSensors = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private volatile double eventsPerSecond;
+    private volatile long lastBatchLagNanos;
+    private long rateWindowStart = System.nanoTime();
+    private long rateWindowEvents;
+
+    private Thread writer;
+
+    /**
+     * @param securityService The service events are applied to
+     * @param capacity Maximum number of queued events; rounded up to a power of two
+     * @param batchSize Maximum number of events the writer applies per batch
+     * @param overflowPolicy What to do when an event is offered to a full buffer
+     * @param mergeWithinBatch If true, only the last event per sensor in a batch is applied
+     */
+    public SensorEventPipeline(SecurityService securityService, int capacity, int batchSize,
+                               OverflowPolicy overflowPolicy, boolean mergeWithinBatch) {
+        this(securityService, null, capacity, batchSize, overflowPolicy, mergeWithinBatch);
+    }
+
+    /**
+     * @param debouncer Stage the writer hands events to, or null to apply them to the service
+     *                  directly
+     * @see #SensorEventPipeline(SecurityService, int, int, OverflowPolicy, boolean)
+     */
+    public SensorEventPipeline(SecurityService securityService, SensorDebouncer debouncer, int capacity, int batchSize,
+                               OverflowPolicy overflowPolicy, boolean mergeWithinBatch) {
+        if (capacity < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("capacity and batchSize must be positive");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        size = Math.max(size, 1);
+        this.securityService = securityService;
+        this.debouncer = debouncer;
+        this.overflowPolicy = overflowPolicy;
+        this.mergeWithinBatch = mergeWithinBatch;
+        this.batchSize = Math.min(batchSize, size);
+        this.mask = size - 1;
+        idMsb = new long[size];
+        idLsb = new long[size];
+        timestamps = new long[size];
+        states = new boolean[size];
+        batchMsb = new long[this.batchSize];
+        batchLsb = new long[this.batchSize];
+        batchTimestamps = new long[this.batchSize];
+        batchStates = new boolean[this.batchSize];
+        batchSensors = new Sensor[this.batchSize];
+        appliedStates = new boolean[this.batchSize];
+    }
+
+    /**
+     * Starts the writer thread. Events offered before this are queued and applied once it starts.
+     */
+    public synchronized void start() {
+        if (writer != null) {
+            return;
+        }
+        writer = new Thread(this::runWriter, "sensor-event-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Stops accepting events, waits for the writer to apply everything already queued, and stops it.
+     */
+    public void stop() throws InterruptedException {
+        lock.lock();
+        try {
+            stopped = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        Thread started;
+        synchronized (this) {
+            started = writer;
+        }
+        if (started != null) {
+            started.join();
+        }
+    }
+
+    /**
+     * Offers an event stamped with the current time.
+     * @see #offer(UUID, boolean, long)
+     */
+    public boolean offer(UUID sensorId, boolean active) throws InterruptedException {
+        return offer(sensorId, active, System.nanoTime());
+    }
+
+    /**
+     * Queues a sensor event for the writer thread.
+     * @param sensorId Id of the sensor that changed
+     * @param active The sensor's new state
+     * @param timestampNanos When the change happened, on the System.nanoTime() clock
+     * @return false if the event was dropped because the pipeline is stopped or, under
+     *         DROP_NEWEST, because the buffer is full
+     */
+    public boolean offer(UUID sensorId, boolean active, long timestampNanos) throws InterruptedException {
+        lock.lock();
+        try {
+            while (!stopped && tail - head > mask) {
+                if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+                    dropped.incrementAndGet();
+                    return false;
+                } else if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+                    head++;
+                    dropped.incrementAndGet();
+                } else {
+                    notFull.await();
+                }
+            }
+            if (stopped) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            int i = (int) (tail++ & mask);
+            idMsb[i] = sensorId.getMostSignificantBits();
+            idLsb[i] = sensorId.getLeastSignificantBits();
+            timestamps[i] = timestampNanos;
+            states[i] = active;
+            accepted.incrementAndGet();
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueSize() {
+        lock.lock();
+        try {
+            return (int) (tail - head);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return how long the oldest queued event has been waiting, or 0 if the queue is empty
+     */
+    public long getQueueLagNanos() {
+        lock.lock();
+        try {
+            return tail == head ? 0 : System.nanoTime() - timestamps[(int) (head & mask)];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the age of the oldest event in the most recently applied batch
+     */
+    public long getLastBatchLagNanos() {
+        return lastBatchLagNanos;
+    }
+
+    /**
+     * @return events applied per second over the most recent measurement window of about a second
+     */
+    public double getEventsPerSecond() {
+        return eventsPerSecond;
+    }
+
+    public long getAcceptedCount() {
+        return accepted.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getMergedCount() {
+        return merged.get();
+    }
+
+    /**
+     * @return the number of events applied to the service, or handed to the debouncer if there is one
+     */
+    public long getAppliedCount() {
+        return applied.get();
+    }
+
+    public long getUnknownSensorCount() {
+        return unknownSensors.get();
+    }
+
+    /**
+     * @return the number of batches that threw while being applied; some of their events may
+     *         have been applied before the failure
+     */
+    public long getFailedBatchCount() {
+        return failedBatches.get();
+    }
+
+    private void runWriter() {
+        while (true) {
+            int count;
+            try {
+                count = takeBatch();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (count < 0) {
+                return;
+            }
+            try {
+                applyBatch(count);
+            } catch (RuntimeException e) {
+                failedBatches.incrementAndGet();
+                log.warn("Sensor event batch failed", e);
+            }
+        }
+    }
+
+    /**
+     * Moves up to batchSize events out of the ring buffer, waiting while it's empty.
+     * @return the number of events copied, or -1 once stopped and fully drained
+     */
+    private int takeBatch() throws InterruptedException {
+        lock.lock();
+        try {
+            while (tail == head) {
+                if (stopped) {
+                    return -1;
+                }
+                notEmpty.await();
+            }
+            int count = (int) Math.min(tail - head, batchSize);
+            for (int n = 0; n < count; n++) {
+                int i = (int) (head++ & mask);
+                batchMsb[n] = idMsb[i];
+                batchLsb[n] = idLsb[i];
+                batchTimestamps[n] = timestamps[i];
+                batchStates[n] = states[i];
+            }
+            notFull.signalAll();
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void applyBatch(int count) {
+        long now = System.nanoTime();
+        lastBatchLagNanos = now - batchTimestamps[0];
+        if (mergeWithinBatch) {
+            lastIndexInBatch.clear();
+            for (int n = 0; n < count; n++) {
+                lastIndexInBatch.put(new UUID(batchMsb[n], batchLsb[n]), n);
+            }
+            merged.addAndGet(count - lastIndexInBatch.size());
+        }
+        int appliedInBatch;
+        try {
+            appliedInBatch = collectBatch(count);
+            if (debouncer == null) {
+                securityService.changeSensorActivationStatuses(batchSensors, appliedStates, appliedInBatch);
+            }
+        } finally {
+            //don't keep sensors reachable from the batch, even when it failed
+            Arrays.fill(batchSensors, null);
+        }
+        applied.addAndGet(appliedInBatch);
+        updateRate(appliedInBatch, System.nanoTime());
+    }
+
+    /**
+     * Looks up the sensors of a batch into batchSensors and appliedStates, or hands the events to
+     * the debouncer if there is one.
+     * @return the number of events to apply
+     */
+    private int collectBatch(int count) {
+        int appliedInBatch = 0;
+        for (int n = 0; n < count; n++) {
+            UUID sensorId = new UUID(batchMsb[n], batchLsb[n]);
+            if (mergeWithinBatch && lastIndexInBatch.get(sensorId) != n) {
+                continue;
+            }
+            if (debouncer != null) {
+                if (debouncer.offer(sensorId, batchStates[n])) {
+                    appliedInBatch++;
+                } else {
+                    unknownSensors.incrementAndGet();
+                }
+                continue;
+            }
+            Sensor sensor = securityService.getSensor(sensorId);
+            if (sensor == null) {
+                unknownSensors.incrementAndGet();
+                continue;
+            }
+            batchSensors[appliedInBatch] = sensor;
+            appliedStates[appliedInBatch] = batchStates[n];
+            appliedInBatch++;
+        }
+        return appliedInBatch;
+    }
+
+    private void updateRate(int events, long now) {
+        rateWindowEvents += events;
+        long elapsed = now - rateWindowStart;
+        if (elapsed >= TimeUnit.SECONDS.toNanos(1)) {
+            eventsPerSecond = rateWindowEvents * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+            rateWindowStart = now;
+            rateWindowEvents = 0;
+        }
+    }
+}
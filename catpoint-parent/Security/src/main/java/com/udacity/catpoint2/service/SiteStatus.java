@@ -0,0 +1,80 @@
+package com.udacity.catpoint2.service;
+
+import com.udacity.catpoint2.data.AlarmStatus;
+import com.udacity.catpoint2.data.ArmingStatus;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The status of the whole site, derived from the status of every partition. The site's alarm
+ * status is the most severe alarm status of any partition, and its arming status is the most
+ * armed status of any partition. A count of partitions is kept for every status and adjusted as
+ * each partition changes, so the site status never needs to look at the partitions themselves.
+ *
+ * Changes are made under the SecurityService's state lock. The methods synchronize as well, so the
+ * site status can be read from any thread.
+ */
+final class SiteStatus {
+
+    //keyed by partition id, with null for the main partition
+    private final Map<UUID, AlarmStatus> alarms = new HashMap<>();
+    private final Map<UUID, ArmingStatus> armings = new HashMap<>();
+    private final int[] alarmCounts = new int[AlarmStatus.values().length];
+    private final int[] armingCounts = new int[ArmingStatus.values().length];
+
+    synchronized void setAlarmStatus(UUID partitionId, AlarmStatus alarmStatus) {
+        AlarmStatus previous = alarms.put(partitionId, alarmStatus == null ? AlarmStatus.NO_ALARM : alarmStatus);
+        if (previous != null) {
+            alarmCounts[previous.ordinal()]--;
+        }
+        alarmCounts[alarms.get(partitionId).ordinal()]++;
+    }
+
+    synchronized void setArmingStatus(UUID partitionId, ArmingStatus armingStatus) {
+        ArmingStatus previous = armings.put(partitionId, armingStatus == null ? ArmingStatus.DISARMED : armingStatus);
+        if (previous != null) {
+            armingCounts[previous.ordinal()]--;
+        }
+        armingCounts[armings.get(partitionId).ordinal()]++;
+    }
+
+    synchronized void remove(UUID partitionId) {
+        AlarmStatus alarm = alarms.remove(partitionId);
+        if (alarm != null) {
+            alarmCounts[alarm.ordinal()]--;
+        }
+        ArmingStatus arming = armings.remove(partitionId);
+        if (arming != null) {
+            armingCounts[arming.ordinal()]--;
+        }
+    }
+
+    /**
+     * @return the most severe alarm status of any partition
+     */
+    synchronized AlarmStatus getAlarmStatus() {
+        AlarmStatus[] statuses = AlarmStatus.values();
+        for (int i = statuses.length - 1; i > 0; i--) {
+            if (alarmCounts[i] > 0) {
+                return statuses[i];
+            }
+        }
+        return AlarmStatus.NO_ALARM;
+    }
+
+    /**
+     * @return ARMED_AWAY if any partition is armed away, otherwise ARMED_HOME if any is armed at
+     *         home, otherwise DISARMED
+     */
+    synchronized ArmingStatus getArmingStatus() {
+        ArmingStatus[] statuses = ArmingStatus.values();
+        for (int i = statuses.length - 1; i > 0; i--) {
+            if (armingCounts[i] > 0) {
+                return statuses[i];
+            }
+        }
+        return ArmingStatus.DISARMED;
+    }
+}
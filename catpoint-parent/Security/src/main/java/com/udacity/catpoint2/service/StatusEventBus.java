@@ -0,0 +1,291 @@
+package com.udacity.catpoint2.service;
+
+import com.udacity.catpoint2.application.StatusListener;
+import com.udacity.catpoint2.data.AlarmStatus;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Delivers status updates from the SecurityService to its StatusListeners.
+ *
+ * Each listener gets its own pending slot per kind of update rather than a queue of every event:
+ * if several alarm changes (or sensor changes, or camera results) are published before the
+ * listener gets to run, it only sees the latest one. Camera changes are kept per camera, so the
+ * listener sees the latest state of every camera that changed. Deliveries run on the executor the listener
+ * was registered with, which lets GUI components receive their updates on the Swing event thread
+ * while the rest run on the bus's own dispatch thread.
+ */
+public class StatusEventBus {
+
+    private final Executor dispatchExecutor;
+    private final Map<StatusListener, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    /**
+     * @param dispatchExecutor Executor used for listeners registered without one of their own
+     */
+    public StatusEventBus(Executor dispatchExecutor) {
+        this.dispatchExecutor = dispatchExecutor;
+    }
+
+    /**
+     * Creates a bus that delivers every update on the publishing thread before returning.
+     */
+    public static StatusEventBus synchronous() {
+        return new StatusEventBus(Runnable::run);
+    }
+
+    /**
+     * Creates a bus that delivers updates on a single dedicated daemon thread.
+     */
+    public static StatusEventBus asynchronous() {
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "status-event-dispatch");
+            t.setDaemon(true);
+            return t;
+        });
+        return new StatusEventBus(executor);
+    }
+
+    public void register(StatusListener listener) {
+        register(listener, dispatchExecutor);
+    }
+
+    /**
+     * Registers a listener whose callbacks must run on a particular executor, for example
+     * SwingUtilities::invokeLater for Swing components.
+     */
+    public void register(StatusListener listener, Executor deliveryExecutor) {
+        subscriptions.put(listener, new Subscription(listener, deliveryExecutor));
+    }
+
+    public void unregister(StatusListener listener) {
+        Subscription subscription = subscriptions.remove(listener);
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    public void publishAlarmStatus(AlarmStatus status) {
+        long now = System.nanoTime();
+        subscriptions.values().forEach(s -> s.offerAlarmStatus(status, now));
+    }
+
+    public void publishCatDetected(boolean catDetected) {
+        long now = System.nanoTime();
+        subscriptions.values().forEach(s -> s.offerCatDetected(catDetected, now));
+    }
+
+    public void publishCameraStatus(String cameraId, boolean catDetected) {
+        long now = System.nanoTime();
+        subscriptions.values().forEach(s -> s.offerCameraStatus(cameraId, catDetected, now));
+    }
+
+    public void publishSensorStatusChanged() {
+        long now = System.nanoTime();
+        subscriptions.values().forEach(s -> s.offerSensorStatusChanged(now));
+    }
+
+    /**
+     * @return delivery metrics for the listener, or null if it isn't registered
+     */
+    public Metrics getMetrics(StatusListener listener) {
+        Subscription subscription = subscriptions.get(listener);
+        return subscription == null ? null : subscription.metrics();
+    }
+
+    /**
+     * Point-in-time delivery statistics for one listener.
+     */
+    public static class Metrics {
+        private final int queueDepth;
+        private final long published;
+        private final long delivered;
+        private final long lastLatencyNanos;
+        private final long maxLatencyNanos;
+        private final long totalLatencyNanos;
+
+        Metrics(int queueDepth, long published, long delivered, long lastLatencyNanos, long maxLatencyNanos, long totalLatencyNanos) {
+            this.queueDepth = queueDepth;
+            this.published = published;
+            this.delivered = delivered;
+            this.lastLatencyNanos = lastLatencyNanos;
+            this.maxLatencyNanos = maxLatencyNanos;
+            this.totalLatencyNanos = totalLatencyNanos;
+        }
+
+        /**
+         * @return updates published to the listener that it has not received yet
+         */
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public long getPublished() {
+            return published;
+        }
+
+        /**
+         * @return callbacks actually made; lower than published when updates were coalesced
+         */
+        public long getDelivered() {
+            return delivered;
+        }
+
+        /**
+         * @return time between the oldest pending update being published and the latest delivery
+         */
+        public long getLastLatencyNanos() {
+            return lastLatencyNanos;
+        }
+
+        public long getMaxLatencyNanos() {
+            return maxLatencyNanos;
+        }
+
+        public long getAverageLatencyNanos() {
+            return delivered == 0 ? 0 : totalLatencyNanos / delivered;
+        }
+    }
+
+    /**
+     * Pending updates for one listener. Publishers fill in the latest value of each kind of
+     * update and schedule a drain if one isn't already scheduled; the drain hands everything
+     * pending to the listener at once.
+     */
+    private static class Subscription {
+        private final StatusListener listener;
+        private final Executor executor;
+
+        private AlarmStatus pendingAlarmStatus;
+        private Boolean pendingCatDetected;
+        private Map<String, Boolean> pendingCameraStatus = new LinkedHashMap<>();
+        private boolean pendingSensorStatus;
+        private int queueDepth;
+        private long oldestPendingNanos;
+        private boolean drainScheduled;
+        private boolean cancelled;
+
+        private long published;
+        private long delivered;
+        private long lastLatencyNanos;
+        private long maxLatencyNanos;
+        private long totalLatencyNanos;
+
+        Subscription(StatusListener listener, Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+
+        void offerAlarmStatus(AlarmStatus status, long now) {
+            synchronized (this) {
+                pendingAlarmStatus = status;
+                if (!enqueue(now)) {
+                    return;
+                }
+            }
+            executor.execute(this::drain);
+        }
+
+        void offerCatDetected(boolean catDetected, long now) {
+            synchronized (this) {
+                pendingCatDetected = catDetected;
+                if (!enqueue(now)) {
+                    return;
+                }
+            }
+            executor.execute(this::drain);
+        }
+
+        void offerCameraStatus(String cameraId, boolean catDetected, long now) {
+            synchronized (this) {
+                pendingCameraStatus.put(cameraId, catDetected);
+                if (!enqueue(now)) {
+                    return;
+                }
+            }
+            executor.execute(this::drain);
+        }
+
+        void offerSensorStatusChanged(long now) {
+            synchronized (this) {
+                pendingSensorStatus = true;
+                if (!enqueue(now)) {
+                    return;
+                }
+            }
+            executor.execute(this::drain);
+        }
+
+        /**
+         * Records a newly pending update.
+         * @return true if the caller must schedule a drain
+         */
+        private boolean enqueue(long now) {
+            published++;
+            if (queueDepth++ == 0) {
+                oldestPendingNanos = now;
+            }
+            if (drainScheduled || cancelled) {
+                return false;
+            }
+            drainScheduled = true;
+            return true;
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+        }
+
+        private void drain() {
+            AlarmStatus alarmStatus;
+            Boolean catDetected;
+            Map<String, Boolean> cameraStatus;
+            boolean sensorStatus;
+            synchronized (this) {
+                alarmStatus = pendingAlarmStatus;
+                catDetected = pendingCatDetected;
+                //only swap in a new map when there are camera changes, so other updates don't allocate one
+                cameraStatus = pendingCameraStatus.isEmpty() ? Collections.emptyMap() : pendingCameraStatus;
+                sensorStatus = pendingSensorStatus;
+                pendingAlarmStatus = null;
+                pendingCatDetected = null;
+                if (!cameraStatus.isEmpty()) {
+                    pendingCameraStatus = new LinkedHashMap<>();
+                }
+                pendingSensorStatus = false;
+                long latency = System.nanoTime() - oldestPendingNanos;
+                queueDepth = 0;
+                drainScheduled = false;
+                if (cancelled) {
+                    return;
+                }
+                int callbacks = (alarmStatus != null ? 1 : 0) + (catDetected != null ? 1 : 0) + cameraStatus.size()
+                        + (sensorStatus ? 1 : 0);
+                delivered += callbacks;
+                lastLatencyNanos = latency;
+                maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+                totalLatencyNanos += latency * callbacks;
+            }
+            if (alarmStatus != null) {
+                listener.notify(alarmStatus);
+            }
+            cameraStatus.forEach(listener::cameraStatusChanged);
+            if (catDetected != null) {
+                listener.catDetected(catDetected);
+            }
+            if (sensorStatus) {
+                listener.sensorStatusChanged();
+            }
+        }
+
+        synchronized Metrics metrics() {
+            return new Metrics(queueDepth, published, delivered, lastLatencyNanos, maxLatencyNanos, totalLatencyNanos);
+        }
+    }
+}
@@ -1,12 +1,38 @@
 package com.udacity.catpoint2.service;
 
+import com.udacity.catpoint2.data.AlarmStatus;
+import com.udacity.catpoint2.data.ArmingStatus;
+
 import java.awt.*;
+import java.util.EnumMap;
+import java.util.Map;
 
 /**
- * Simple "service" for providing style information.
+ * Simple "service" for providing style information. This is the only place the status enums are
+ * tied to AWT, so code that doesn't display anything never has to load it.
  */
 public class StyleService {
 
     public static final Font HEADING_FONT = new Font("Sans Serif", Font.BOLD, 24);
 
+    private static final Map<AlarmStatus, Color> ALARM_COLORS = new EnumMap<>(AlarmStatus.class);
+    private static final Map<ArmingStatus, Color> ARMING_COLORS = new EnumMap<>(ArmingStatus.class);
+
+    static {
+        ALARM_COLORS.put(AlarmStatus.NO_ALARM, new Color(120,200,30));
+        ALARM_COLORS.put(AlarmStatus.PENDING_ALARM, new Color(200,150,20));
+        ALARM_COLORS.put(AlarmStatus.ALARM, new Color(250,80,50));
+
+        ARMING_COLORS.put(ArmingStatus.DISARMED, new Color(120,200,30));
+        ARMING_COLORS.put(ArmingStatus.ARMED_HOME, new Color(190,180,50));
+        ARMING_COLORS.put(ArmingStatus.ARMED_AWAY, new Color(170,30,150));
+    }
+
+    public static Color getColor(AlarmStatus status) {
+        return ALARM_COLORS.get(status);
+    }
+
+    public static Color getColor(ArmingStatus status) {
+        return ARMING_COLORS.get(status);
+    }
 }
@@ -0,0 +1,299 @@
+package com.udacity.catpoint2.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Hashed timing wheel for the many short timers an alarm panel keeps: entry and exit delays,
+ * alarm auto-reset and sensor debounce. Time is cut into ticks, and the wheel is a ring of buckets,
+ * one per tick. A timer goes into the bucket of the tick it expires in, so scheduling and cancelling
+ * are constant time however many timers are pending. A timer further away than one turn of the
+ * wheel shares its bucket with nearer ones and is skipped until its turn comes round.
+ *
+ * Timers only fire when the wheel is advanced. {@link #advance()} reads the clock and runs every
+ * timer that expired since the last advance, on the calling thread; {@link #start()} instead starts
+ * a single thread that advances the wheel once per tick while timers are pending. Since the clock
+ * is injected, tests can move time forward by hand and advance the wheel themselves.
+ *
+ * Timers never fire early, and fire up to one tick late plus however late the wheel is advanced.
+ * Tasks run without the wheel's lock held, so they may schedule and cancel timers.
+ */
+public class TimerWheel {
+
+    private final Logger log = LoggerFactory.getLogger(TimerWheel.class);
+
+    private final LongSupplier clock;
+    private final long tickNanos;
+    private final long startNanos;
+
+    //guards the buckets and every timer's links and state
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition timerScheduled = lock.newCondition();
+    private final Timeout[] buckets;
+    private final int mask;
+    //first tick not yet processed
+    private long nextTick;
+    private int pending;
+    private boolean stopped;
+
+    private Thread ticker;
+
+    /**
+     * @param clock Source of the current time in nanoseconds, such as System::nanoTime
+     * @param tickDuration Length of one tick; timers are rounded up to whole ticks
+     * @param ticksPerWheel Number of buckets; rounded up to a power of two
+     */
+    public TimerWheel(LongSupplier clock, long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        if (tickDuration < 1 || ticksPerWheel < 1) {
+            throw new IllegalArgumentException("tickDuration and ticksPerWheel must be positive");
+        }
+        int size = Math.max(Integer.highestOneBit(ticksPerWheel - 1) << 1, 1);
+        this.clock = clock;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.startNanos = clock.getAsLong();
+        this.buckets = new Timeout[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Schedules a task to run once the delay has passed.
+     * @param task Called with the timer's own handle when it fires
+     * @return a handle that can cancel the timer
+     */
+    public Timeout schedule(Consumer<Timeout> task, long delay, TimeUnit unit) {
+        long deadline = clock.getAsLong() + Math.max(0, unit.toNanos(delay));
+        lock.lock();
+        try {
+            //round up so the timer never fires early
+            long deadlineTick = Math.max(nextTick, ceilDiv(deadline - startNanos, tickNanos));
+            Timeout timeout = new Timeout(task, deadlineTick);
+            link(timeout);
+            pending++;
+            timerScheduled.signal();
+            return timeout;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs every timer that has expired by the clock's current time, on the calling thread.
+     * @return the number of timers that fired
+     * @throws RuntimeException the first exception a task threw, after the other tasks have run
+     */
+    public int advance() {
+        List<Timeout> expired = new ArrayList<>();
+        lock.lock();
+        try {
+            long currentTick = Math.floorDiv(clock.getAsLong() - startNanos, tickNanos);
+            //past one full turn every bucket has been visited, so the rest would only repeat them
+            for (long tick = Math.max(nextTick, currentTick - mask); tick <= currentTick; tick++) {
+                Timeout timeout = buckets[(int) (tick & mask)];
+                while (timeout != null) {
+                    Timeout next = timeout.next;
+                    if (timeout.deadlineTick <= currentTick) {
+                        unlink(timeout);
+                        timeout.state = Timeout.EXPIRED;
+                        expired.add(timeout);
+                    }
+                    timeout = next;
+                }
+            }
+            nextTick = Math.max(nextTick, currentTick + 1);
+            pending -= expired.size();
+        } finally {
+            lock.unlock();
+        }
+        RuntimeException failure = null;
+        for (Timeout timeout : expired) {
+            try {
+                timeout.task.accept(timeout);
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return expired.size();
+    }
+
+    /**
+     * @return the current time on the wheel's clock, in nanoseconds
+     */
+    public long nanoTime() {
+        return clock.getAsLong();
+    }
+
+    /**
+     * @return the number of timers scheduled and not yet fired or cancelled
+     */
+    public int pendingTimers() {
+        lock.lock();
+        try {
+            return pending;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts a thread that advances the wheel once per tick. It sleeps while no timers are pending.
+     */
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        ticker = new Thread(this::runTicker, "timer-wheel");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    /**
+     * Stops the thread started by {@link #start()}. Pending timers stay scheduled and can still be
+     * fired by {@link #advance()}.
+     */
+    public void stop() throws InterruptedException {
+        lock.lock();
+        try {
+            stopped = true;
+            timerScheduled.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        Thread started;
+        synchronized (this) {
+            started = ticker;
+        }
+        if (started != null) {
+            started.interrupt();
+            started.join();
+        }
+    }
+
+    private void runTicker() {
+        try {
+            while (true) {
+                long wait;
+                lock.lock();
+                try {
+                    while (!stopped && pending == 0) {
+                        timerScheduled.await();
+                    }
+                    if (stopped) {
+                        return;
+                    }
+                    wait = startNanos + nextTick * tickNanos - clock.getAsLong();
+                } finally {
+                    lock.unlock();
+                }
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                try {
+                    advance();
+                } catch (RuntimeException e) {
+                    log.warn("Timer task failed", e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void link(Timeout timeout) {
+        int bucket = (int) (timeout.deadlineTick & mask);
+        timeout.next = buckets[bucket];
+        if (timeout.next != null) {
+            timeout.next.prev = timeout;
+        }
+        buckets[bucket] = timeout;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[(int) (timeout.deadlineTick & mask)] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+    /**
+     * Handle of a scheduled timer.
+     */
+    public final class Timeout {
+        private static final int PENDING = 0;
+        private static final int EXPIRED = 1;
+        private static final int CANCELLED = 2;
+
+        private final Consumer<Timeout> task;
+        private final long deadlineTick;
+        //bucket links and state, guarded by the wheel's lock
+        private Timeout prev;
+        private Timeout next;
+        private int state = PENDING;
+
+        private Timeout(Consumer<Timeout> task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Cancels the timer if it hasn't fired yet.
+         * @return true if the timer was pending and will now never fire
+         */
+        public boolean cancel() {
+            lock.lock();
+            try {
+                if (state != PENDING) {
+                    return false;
+                }
+                unlink(this);
+                state = CANCELLED;
+                pending--;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean isExpired() {
+            lock.lock();
+            try {
+                return state == EXPIRED;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean isCancelled() {
+            lock.lock();
+            try {
+                return state == CANCELLED;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -6,6 +6,7 @@ module Security
     requires guava;
     requires com.google.gson;
     requires java.prefs;
+    requires org.slf4j;
     opens com.udacity.catpoint2.data to com.google.gson, org.mockito;
 
 }
\ No newline at end of file
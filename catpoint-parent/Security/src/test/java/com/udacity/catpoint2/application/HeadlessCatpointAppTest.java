@@ -0,0 +1,86 @@
+package com.udacity.catpoint2.application;
+
+import com.udacity.catpoint2.data.AlarmStatus;
+import com.udacity.catpoint2.data.ArmingStatus;
+import com.udacity.catpoint2.data.Sensor;
+import com.udacity.catpoint2.data.WriteAheadLogSecurityRepositoryImpl;
+import com.udacity.catpoint2.service.SecurityService;
+import com.udacity.catpoint2.service.TimerWheel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HeadlessCatpointAppTest {
+    @TempDir
+    Path dir;
+
+    private SecurityService securityService;
+    private ByteArrayOutputStream output;
+    private HeadlessCatpointApp app;
+
+    @BeforeEach
+    void init() {
+        securityService = new SecurityService(new WriteAheadLogSecurityRepositoryImpl(dir), () -> true);
+        output = new ByteArrayOutputStream();
+        app = new HeadlessCatpointApp(securityService, new PrintStream(output, true, StandardCharsets.UTF_8));
+    }
+
+    @AfterEach
+    void close() {
+        securityService.close();
+    }
+
+    @Test
+    public void commandsDriveTheSecurityService() throws IOException {
+        app.run(new BufferedReader(new StringReader(String.join("\n",
+                "add door Front door", "arm away", "activate Front door", "quit", "disarm"))));
+
+        Sensor sensor = securityService.getSortedSensors().get(0);
+        assertEquals("Front door", sensor.getName());
+        assertTrue(sensor.getActive());
+        assertEquals(ArmingStatus.ARMED_AWAY, securityService.getArmingStatus());
+        assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+        assertTrue(output.toString(StandardCharsets.UTF_8).contains("alarm: " + AlarmStatus.PENDING_ALARM.getDescription()));
+    }
+
+    @Test
+    public void sensorReadingsAreAppliedOnceTheySettle() {
+        AtomicLong now = new AtomicLong();
+        TimerWheel wheel = new TimerWheel(now::get, 1, TimeUnit.MILLISECONDS, 64);
+        app = new HeadlessCatpointApp(securityService, wheel, new PrintStream(output, true, StandardCharsets.UTF_8));
+        app.execute("add door Front door");
+        app.execute("sense Front door on");
+        Sensor sensor = securityService.getSortedSensors().get(0);
+        assertFalse(securityService.getSensor(sensor.getSensorId()).getActive());
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        wheel.advance();
+        assertTrue(securityService.getSensor(sensor.getSensorId()).getActive());
+        app.execute("sense Front door ajar");
+        assertTrue(output.toString(StandardCharsets.UTF_8).contains("error: reading must be on or off, not ajar"));
+    }
+
+    @Test
+    public void badCommandsAreReportedWithoutStopping() {
+        assertTrue(app.execute("activate nobody"));
+        assertTrue(app.execute("add LASER beam"));
+        assertTrue(app.execute("frobnicate"));
+        assertTrue(securityService.getSensors().isEmpty());
+        String printed = output.toString(StandardCharsets.UTF_8);
+        assertTrue(printed.contains("error: no sensor nobody"));
+        assertTrue(printed.contains("unknown command: frobnicate"));
+    }
+}
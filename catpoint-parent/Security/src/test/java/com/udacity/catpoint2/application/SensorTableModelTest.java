@@ -0,0 +1,99 @@
+package com.udacity.catpoint2.application;
+
+import com.udacity.catpoint.service.FakeImageService;
+import com.udacity.catpoint2.data.ArmingStatus;
+import com.udacity.catpoint2.data.Sensor;
+import com.udacity.catpoint2.data.SensorType;
+import com.udacity.catpoint2.data.WriteAheadLogSecurityRepositoryImpl;
+import com.udacity.catpoint2.service.SecurityService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.swing.event.TableModelEvent;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SensorTableModelTest {
+    @TempDir
+    Path dir;
+
+    private WriteAheadLogSecurityRepositoryImpl repository;
+    private SecurityService securityService;
+    private SensorTableModel model;
+    private final List<String> events = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        repository = new WriteAheadLogSecurityRepositoryImpl(dir);
+        securityService = new SecurityService(repository, new FakeImageService());
+        for (int i = 0; i < 1000; i++) {
+            securityService.addSensor(new Sensor(String.format("Zone %04d", i), SensorType.values()[i % 3]));
+        }
+        model = new SensorTableModel(securityService);
+        model.addTableModelListener(e -> events.add(describe(e)));
+    }
+
+    @AfterEach
+    public void close() {
+        securityService.close();
+        repository.close();
+    }
+
+    @Test
+    public void whenOneSensorToggles_onlyItsRowIsUpdated() {
+        Sensor sensor = securityService.getSortedSensors().get(417);
+        securityService.changeSensorActivationStatus(sensor, true);
+        model.refresh();
+        assertEquals(List.of("update 417-417"), events);
+        assertEquals(true, model.getValueAt(417, SensorTableModel.ACTIVE_COLUMN));
+
+        events.clear();
+        model.refresh();
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void whenActiveBoxIsTicked_sensorIsActivated() {
+        model.setValueAt(true, 3, SensorTableModel.ACTIVE_COLUMN);
+        assertTrue(model.getSensor(3).getActive());
+        assertEquals(1, securityService.getActiveSensorCount());
+        assertEquals(List.of("update 3-3"), events);
+    }
+
+    @Test
+    public void whenNeighbouringSensorsChange_theyAreReportedAsOneRange() {
+        List<Sensor> sorted = securityService.getSortedSensors();
+        for (int row : new int[]{10, 11, 12, 500}) {
+            securityService.changeSensorActivationStatus(sorted.get(row), true);
+        }
+        model.refresh();
+        assertEquals(List.of("update 10-12", "update 500-500"), events);
+
+        //arming resets every active sensor at once
+        events.clear();
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        model.refresh();
+        assertEquals(List.of("update 10-12", "update 500-500"), events);
+    }
+
+    @Test
+    public void whenSensorIsAdded_tableIsRedrawn() {
+        securityService.addSensor(new Sensor("Attic", SensorType.WINDOW));
+        model.refresh();
+        assertEquals(1001, model.getRowCount());
+        assertEquals("Attic", model.getValueAt(0, SensorTableModel.NAME_COLUMN));
+        assertEquals(List.of("data"), events);
+    }
+
+    private static String describe(TableModelEvent e) {
+        if (e.getFirstRow() == 0 && e.getLastRow() == Integer.MAX_VALUE) {
+            return "data";
+        }
+        return "update " + e.getFirstRow() + "-" + e.getLastRow();
+    }
+}
@@ -0,0 +1,124 @@
+package com.udacity.catpoint2.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedFileSecurityRepositoryImplTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void whenReopened_sensorsAndStatusArePreserved() {
+        MappedFileSecurityRepositoryImpl repository = new MappedFileSecurityRepositoryImpl(dir);
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        repository.addSensor(door);
+        door.setActive(true);
+        repository.updateSensor(door);
+        repository.setArmingStatus(ArmingStatus.ARMED_HOME);
+        repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        repository.close();
+
+        MappedFileSecurityRepositoryImpl reopened = new MappedFileSecurityRepositoryImpl(dir);
+        assertEquals(ArmingStatus.ARMED_HOME, reopened.getArmingStatus());
+        assertEquals(AlarmStatus.PENDING_ALARM, reopened.getAlarmStatus());
+        Sensor loaded = reopened.getSensors().iterator().next();
+        assertEquals(door.getSensorId(), loaded.getSensorId());
+        assertEquals("Door", loaded.getName());
+        assertEquals(SensorType.DOOR, loaded.getSensorType());
+        assertTrue(loaded.getActive());
+        reopened.close();
+    }
+
+    @Test
+    public void whenStoreGrowsAndSensorsRemoved_remainingSensorsSurvive() {
+        MappedFileSecurityRepositoryImpl repository = new MappedFileSecurityRepositoryImpl(dir);
+        Sensor[] added = new Sensor[500];
+        for (int i = 0; i < added.length; i++) {
+            added[i] = new Sensor("Zone " + (i % 10), SensorType.values()[i % 3]);
+            repository.addSensor(added[i]);
+        }
+        for (int i = 0; i < added.length; i += 2) {
+            repository.removeSensor(added[i]);
+        }
+        repository.close();
+
+        MappedFileSecurityRepositoryImpl reopened = new MappedFileSecurityRepositoryImpl(dir);
+        Set<UUID> ids = reopened.getSensors().stream().map(Sensor::getSensorId).collect(Collectors.toSet());
+        assertEquals(250, ids.size());
+        for (int i = 1; i < added.length; i += 2) {
+            assertTrue(ids.contains(added[i].getSensorId()));
+        }
+        reopened.close();
+    }
+
+    @Test
+    public void whenImportingFromAnotherRepository_copiesSensorsAndStatus() {
+        WriteAheadLogSecurityRepositoryImpl source = new WriteAheadLogSecurityRepositoryImpl(dir.resolve("wal"));
+        source.addSensor(new Sensor("Window", SensorType.WINDOW));
+        source.setArmingStatus(ArmingStatus.ARMED_AWAY);
+
+        MappedFileSecurityRepositoryImpl repository = new MappedFileSecurityRepositoryImpl(dir.resolve("mapped"));
+        repository.importFrom(source);
+        assertEquals(1, repository.getSensors().size());
+        assertEquals(ArmingStatus.ARMED_AWAY, repository.getArmingStatus());
+        source.close();
+        repository.close();
+    }
+
+    @Test
+    public void whenReopened_partitionsAndMembershipArePreserved() {
+        MappedFileSecurityRepositoryImpl repository = new MappedFileSecurityRepositoryImpl(dir);
+        Partition garage = new Partition("Garage");
+        Partition attic = new Partition("Attic");
+        repository.addPartition(garage);
+        repository.addPartition(attic);
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        door.setPartitionId(garage.getPartitionId());
+        door.setActive(true);
+        repository.addSensor(door);
+        repository.addSensor(new Sensor("Window", SensorType.WINDOW));
+        garage.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        garage.setAlarmStatus(AlarmStatus.ALARM);
+        repository.updatePartition(garage);
+        repository.removePartition(attic);
+        repository.close();
+
+        MappedFileSecurityRepositoryImpl reopened = new MappedFileSecurityRepositoryImpl(dir);
+        assertEquals(1, reopened.getPartitions().size());
+        Partition loaded = reopened.getPartition(garage.getPartitionId());
+        assertEquals("Garage", loaded.getName());
+        assertEquals(ArmingStatus.ARMED_AWAY, loaded.getArmingStatus());
+        assertEquals(AlarmStatus.ALARM, loaded.getAlarmStatus());
+        assertNull(reopened.getPartition(attic.getPartitionId()));
+        assertEquals(door.getSensorId(), reopened.getSensorsInPartition(garage.getPartitionId()).get(0).getSensorId());
+        assertEquals(1, reopened.getActiveSensorCountInPartition(garage.getPartitionId()));
+        assertEquals(1, reopened.getSensorsInPartition(null).size());
+        reopened.close();
+    }
+
+    @Test
+    public void whenRestartedWithEmptyStore_legacyDataIsNotImportedAgain() {
+        WriteAheadLogSecurityRepositoryImpl legacy = new WriteAheadLogSecurityRepositoryImpl(dir.resolve("legacy"));
+        legacy.addSensor(new Sensor("Window", SensorType.WINDOW));
+        legacy.setArmingStatus(ArmingStatus.ARMED_AWAY);
+
+        MappedFileSecurityRepositoryImpl repository = MappedFileSecurityRepositoryImpl.migrateFrom(dir.resolve("mapped"), () -> legacy);
+        assertEquals(1, repository.getSensors().size());
+        repository.removeSensor(repository.getSensors().iterator().next());
+        repository.setArmingStatus(ArmingStatus.DISARMED);
+        repository.close();
+
+        MappedFileSecurityRepositoryImpl reopened = MappedFileSecurityRepositoryImpl.migrateFrom(dir.resolve("mapped"), () -> legacy);
+        assertTrue(reopened.getSensors().isEmpty());
+        assertEquals(ArmingStatus.DISARMED, reopened.getArmingStatus());
+        reopened.close();
+        legacy.close();
+    }
+}
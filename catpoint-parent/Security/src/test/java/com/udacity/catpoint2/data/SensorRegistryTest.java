@@ -0,0 +1,151 @@
+package com.udacity.catpoint2.data;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SensorRegistryTest {
+    private SensorRegistry registry;
+
+    @BeforeEach
+    public void setup() {
+        registry = new SensorRegistry();
+    }
+
+    @Test
+    public void whenSensorRenamed_updateReplacesInsteadOfDuplicating() {
+        Sensor sensor = new Sensor("Door", SensorType.DOOR);
+        registry.add(sensor);
+        List<Sensor> before = registry.sortedView();
+        sensor.setName("Back Door");
+        registry.update(sensor);
+        assertEquals(1, registry.size());
+        assertSame(sensor, registry.get(sensor.getSensorId()));
+        assertFalse(before == registry.sortedView());
+    }
+
+    @Test
+    public void whenSensorsToggled_activeFlagsFollow() {
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        Sensor window = new Sensor("Window", SensorType.WINDOW);
+        registry.add(door);
+        registry.add(window);
+        assertTrue(registry.allInactive());
+        window.setActive(true);
+        registry.update(window);
+        assertTrue(registry.anyActive());
+        registry.remove(window);
+        assertTrue(registry.allInactive());
+        assertTrue(registry.contains(door));
+        assertFalse(registry.contains(window));
+    }
+
+    @Test
+    public void whenRemovingThroughIterator_everySensorIsVisitedOnce() {
+        for (int i = 0; i < 10; i++) {
+            registry.add(new Sensor("Sensor " + i, SensorType.MOTION));
+        }
+        int visited = 0;
+        for (Iterator<Sensor> it = registry.iterator(); it.hasNext(); ) {
+            it.next();
+            visited++;
+            if (visited % 2 == 0) {
+                it.remove();
+            }
+        }
+        assertEquals(10, visited);
+        assertEquals(5, registry.size());
+    }
+
+    @Test
+    public void sortedView_usesSensorOrdering() {
+        registry.add(new Sensor("C", SensorType.DOOR));
+        registry.add(new Sensor("A", SensorType.DOOR));
+        registry.add(new Sensor("B", SensorType.DOOR));
+        List<Sensor> sorted = registry.sortedView();
+        assertEquals("A", sorted.get(0).getName());
+        assertEquals("B", sorted.get(1).getName());
+        assertEquals("C", sorted.get(2).getName());
+    }
+
+    @Test
+    public void snapshot_isUnaffectedByLaterChangesAndCannotBeModified() {
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        registry.add(door);
+        Set<Sensor> snapshot = registry.snapshot();
+        registry.add(new Sensor("Window", SensorType.WINDOW));
+        registry.remove(door);
+        assertEquals(Set.of(door), snapshot);
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add(door));
+    }
+
+    @Test
+    public void activeCounters_matchRecountUnderRandomOperations() {
+        Random random = new Random(42);
+        List<Sensor> known = new ArrayList<>();
+        UUID[] partitions = {null, UUID.randomUUID(), UUID.randomUUID()};
+        for (int step = 0; step < 20_000; step++) {
+            int op = random.nextInt(10);
+            if (op < 2 || known.isEmpty()) {
+                Sensor sensor = new Sensor("Sensor " + step, SensorType.values()[random.nextInt(3)]);
+                sensor.setActive(random.nextBoolean());
+                known.add(sensor);
+                registry.add(sensor);
+            } else if (op < 3) {
+                registry.remove(known.remove(random.nextInt(known.size())));
+            } else if (op < 8) {
+                Sensor sensor = known.get(random.nextInt(known.size()));
+                sensor.setActive(!sensor.getActive());
+                if (random.nextInt(5) == 0) {
+                    sensor.setSensorType(SensorType.values()[random.nextInt(3)]);
+                }
+                if (random.nextInt(5) == 0) {
+                    sensor.setPartitionId(partitions[random.nextInt(partitions.length)]);
+                }
+                registry.update(sensor);
+            } else if (op < 9) {
+                //bulk reset, as done when arming
+                List<Sensor> shuffled = new ArrayList<>(known);
+                Collections.shuffle(shuffled, random);
+                for (Sensor sensor : shuffled.subList(0, shuffled.size() / 2)) {
+                    sensor.setActive(false);
+                    registry.update(sensor);
+                }
+            } else {
+                //re-adding a known sensor must not count it twice
+                registry.add(known.get(random.nextInt(known.size())));
+            }
+            assertCountersMatch(known, partitions);
+        }
+    }
+
+    private void assertCountersMatch(List<Sensor> known, UUID[] partitions) {
+        assertEquals(known.size(), registry.size());
+        assertEquals(known.stream().filter(Sensor::getActive).count(), registry.activeCount());
+        for (SensorType type : SensorType.values()) {
+            assertEquals(known.stream().filter(s -> s.getActive() && s.getSensorType() == type).count(),
+                    registry.activeCount(type), type.toString());
+        }
+        assertEquals(registry.activeCount() > 0, registry.anyActive());
+        assertEquals(known.stream().filter(Sensor::getActive).collect(Collectors.toSet()), new HashSet<>(registry.activeSensors()));
+        for (UUID partition : partitions) {
+            assertEquals(known.stream().filter(s -> Objects.equals(partition, s.getPartitionId())).count(),
+                    registry.inPartition(partition).size());
+            assertEquals(known.stream().filter(s -> s.getActive() && Objects.equals(partition, s.getPartitionId())).collect(Collectors.toSet()),
+                    new HashSet<>(registry.activeInPartition(partition)));
+            assertEquals(registry.activeInPartition(partition).size(), registry.activeCountInPartition(partition));
+        }
+    }
+}
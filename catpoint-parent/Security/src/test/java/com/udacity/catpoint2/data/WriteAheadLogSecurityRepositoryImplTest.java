@@ -0,0 +1,131 @@
+package com.udacity.catpoint2.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteAheadLogSecurityRepositoryImplTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void whenReopened_replaysLoggedMutations() {
+        WriteAheadLogSecurityRepositoryImpl repository = new WriteAheadLogSecurityRepositoryImpl(dir);
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        Sensor window = new Sensor("Window", SensorType.WINDOW);
+        repository.addSensor(door);
+        repository.addSensor(window);
+        door.setActive(true);
+        repository.updateSensor(door);
+        repository.removeSensor(window);
+        repository.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        repository.close();
+
+        WriteAheadLogSecurityRepositoryImpl reopened = new WriteAheadLogSecurityRepositoryImpl(dir);
+        assertEquals(1, reopened.getSensors().size());
+        Sensor loaded = reopened.getSensors().iterator().next();
+        assertEquals(door.getSensorId(), loaded.getSensorId());
+        assertEquals("Door", loaded.getName());
+        assertTrue(loaded.getActive());
+        assertEquals(ArmingStatus.ARMED_AWAY, reopened.getArmingStatus());
+        assertEquals(AlarmStatus.PENDING_ALARM, reopened.getAlarmStatus());
+        reopened.close();
+    }
+
+    @Test
+    public void whenReopened_partitionsAndMembershipArePreserved() {
+        WriteAheadLogSecurityRepositoryImpl repository = new WriteAheadLogSecurityRepositoryImpl(dir);
+        Partition garage = new Partition("Garage");
+        Partition attic = new Partition("Attic");
+        repository.addPartition(garage);
+        repository.addPartition(attic);
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        door.setPartitionId(garage.getPartitionId());
+        door.setActive(true);
+        repository.addSensor(door);
+        repository.addSensor(new Sensor("Window", SensorType.WINDOW));
+        garage.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        garage.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        repository.updatePartition(garage);
+        repository.removePartition(attic);
+        repository.close();
+
+        WriteAheadLogSecurityRepositoryImpl reopened = new WriteAheadLogSecurityRepositoryImpl(dir);
+        assertEquals(1, reopened.getPartitions().size());
+        Partition loaded = reopened.getPartition(garage.getPartitionId());
+        assertEquals("Garage", loaded.getName());
+        assertEquals(ArmingStatus.ARMED_AWAY, loaded.getArmingStatus());
+        assertEquals(AlarmStatus.PENDING_ALARM, loaded.getAlarmStatus());
+        assertNull(reopened.getPartition(attic.getPartitionId()));
+        assertEquals(1, reopened.getActiveSensorCountInPartition(garage.getPartitionId()));
+        assertEquals(0, reopened.getActiveSensorCountInPartition(null));
+        reopened.close();
+    }
+
+    @Test
+    public void whenCompactionThresholdReached_stateSurvivesSnapshot() {
+        WriteAheadLogSecurityRepositoryImpl repository = new WriteAheadLogSecurityRepositoryImpl(dir, 3, false);
+        for (int i = 0; i < 10; i++) {
+            repository.addSensor(new Sensor("Sensor " + i, SensorType.MOTION));
+        }
+        repository.setAlarmStatus(AlarmStatus.ALARM);
+        repository.close();
+
+        WriteAheadLogSecurityRepositoryImpl reopened = new WriteAheadLogSecurityRepositoryImpl(dir, 3, false);
+        assertEquals(10, reopened.getSensors().size());
+        assertEquals(AlarmStatus.ALARM, reopened.getAlarmStatus());
+        reopened.close();
+    }
+
+    @Test
+    public void whenLogTailIsTorn_lastCompleteRecordWins() throws IOException {
+        WriteAheadLogSecurityRepositoryImpl repository = new WriteAheadLogSecurityRepositoryImpl(dir);
+        repository.addSensor(new Sensor("Door", SensorType.DOOR));
+        repository.setArmingStatus(ArmingStatus.ARMED_HOME);
+        repository.close();
+
+        //simulate a crash in the middle of writing the last record
+        Path log = dir.resolve("wal.bin");
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+
+        WriteAheadLogSecurityRepositoryImpl reopened = new WriteAheadLogSecurityRepositoryImpl(dir);
+        assertEquals(1, reopened.getSensors().size());
+        assertEquals(ArmingStatus.DISARMED, reopened.getArmingStatus());
+
+        //new records must follow the last good one rather than the torn bytes
+        reopened.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        reopened.close();
+        WriteAheadLogSecurityRepositoryImpl again = new WriteAheadLogSecurityRepositoryImpl(dir);
+        assertEquals(1, again.getSensors().size());
+        assertEquals(AlarmStatus.PENDING_ALARM, again.getAlarmStatus());
+        again.close();
+    }
+
+    @Test
+    public void whenLogRecordCorrupted_replayStopsAtCorruption() throws IOException {
+        WriteAheadLogSecurityRepositoryImpl repository = new WriteAheadLogSecurityRepositoryImpl(dir);
+        repository.addSensor(new Sensor("Door", SensorType.DOOR));
+        repository.addSensor(new Sensor("Window", SensorType.WINDOW));
+        repository.close();
+
+        Path log = dir.resolve("wal.bin");
+        byte[] bytes = Files.readAllBytes(log);
+        bytes[bytes.length - 2] ^= 0x7f;
+        Files.write(log, bytes);
+
+        WriteAheadLogSecurityRepositoryImpl reopened = new WriteAheadLogSecurityRepositoryImpl(dir);
+        assertEquals(1, reopened.getSensors().size());
+        assertEquals("Door", reopened.getSensors().iterator().next().getName());
+        reopened.close();
+    }
+}
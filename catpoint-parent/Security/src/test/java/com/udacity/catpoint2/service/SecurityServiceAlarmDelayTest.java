@@ -0,0 +1,170 @@
+package com.udacity.catpoint2.service;
+
+import com.udacity.catpoint.service.FakeImageService;
+import com.udacity.catpoint2.data.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the entry delay, exit delay and alarm auto-reset against a clock the test moves by hand.
+ */
+public class SecurityServiceAlarmDelayTest {
+
+    private final SecurityServiceFixture fixture = new SecurityServiceFixture();
+    private TimerWheel timerWheel;
+    private SecurityService service;
+    private Sensor door;
+
+    @BeforeEach
+    public void setup() {
+        timerWheel = fixture.timerWheel();
+        service = fixture.newService(new FakeImageService());
+        door = new Sensor("Door", SensorType.DOOR);
+        service.addSensor(door);
+    }
+
+    @AfterEach
+    public void close() throws Exception {
+        fixture.close();
+    }
+
+    @Test
+    public void whenEntryDelayPasses_pendingAlarmGoesOff() {
+        service.setEntryDelay(Duration.ofSeconds(30));
+        service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        service.changeSensorActivationStatus(door, true);
+        assertEquals(AlarmStatus.PENDING_ALARM, service.getAlarmStatus());
+
+        fixture.advance(Duration.ofSeconds(29));
+        assertEquals(AlarmStatus.PENDING_ALARM, service.getAlarmStatus());
+        fixture.advance(Duration.ofSeconds(1));
+        assertEquals(AlarmStatus.ALARM, service.getAlarmStatus());
+    }
+
+    @Test
+    public void whenDisarmedDuringEntryDelay_noAlarm() {
+        service.setEntryDelay(Duration.ofSeconds(30));
+        service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        service.changeSensorActivationStatus(door, true);
+
+        service.setArmingStatus(ArmingStatus.DISARMED);
+        assertEquals(0, timerWheel.pendingTimers());
+        fixture.advance(Duration.ofMinutes(1));
+        assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus());
+    }
+
+    @Test
+    public void sensorsActivatedDuringExitDelay_onlyCountIfStillActiveAtTheEnd() {
+        service.setExitDelay(Duration.ofSeconds(60));
+        service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        assertTrue(service.isExitDelayRunning(null));
+
+        service.changeSensorActivationStatus(door, true);
+        service.changeSensorActivationStatus(door, false);
+        service.changeSensorActivationStatus(door, true);
+        assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus());
+
+        fixture.advance(Duration.ofSeconds(60));
+        assertFalse(service.isExitDelayRunning(null));
+        assertEquals(AlarmStatus.PENDING_ALARM, service.getAlarmStatus());
+    }
+
+    @Test
+    public void whenExitDelayEndsWithSensorsInactive_noAlarm() {
+        service.setExitDelay(Duration.ofSeconds(60));
+        service.setArmingStatus(ArmingStatus.ARMED_HOME);
+        service.changeSensorActivationStatus(door, true);
+        service.changeSensorActivationStatus(door, false);
+
+        fixture.advance(Duration.ofSeconds(60));
+        assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus());
+        service.changeSensorActivationStatus(door, true);
+        assertEquals(AlarmStatus.PENDING_ALARM, service.getAlarmStatus());
+    }
+
+    @Test
+    public void whenAlarmResetDelayPasses_alarmResets() {
+        service.setAlarmResetDelay(Duration.ofMinutes(5));
+        service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        service.setAlarmStatus(AlarmStatus.ALARM);
+
+        fixture.advance(Duration.ofMinutes(4));
+        assertEquals(AlarmStatus.ALARM, service.getAlarmStatus());
+        fixture.advance(Duration.ofMinutes(1));
+        assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus());
+        assertEquals(ArmingStatus.ARMED_AWAY, service.getArmingStatus());
+    }
+
+    @Test
+    public void partitionsRunTheirOwnEntryDelay() {
+        Partition garage = new Partition("Garage");
+        service.addPartition(garage);
+        Sensor garageDoor = new Sensor("Garage Door", SensorType.DOOR);
+        garageDoor.setPartitionId(garage.getPartitionId());
+        service.addSensor(garageDoor);
+        service.setEntryDelay(Duration.ofSeconds(30));
+        service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+
+        service.changeSensorActivationStatus(garageDoor, true);
+        fixture.advance(Duration.ofSeconds(20));
+        service.changeSensorActivationStatus(door, true);
+        fixture.advance(Duration.ofSeconds(10));
+        assertEquals(AlarmStatus.ALARM, service.getAlarmStatus(garage.getPartitionId()));
+        assertEquals(AlarmStatus.PENDING_ALARM, service.getAlarmStatus(null));
+        fixture.advance(Duration.ofSeconds(20));
+        assertEquals(AlarmStatus.ALARM, service.getAlarmStatus(null));
+    }
+
+    @Test
+    public void whenRestartedWithPendingOrSoundingAlarms_theirTimersRunAgain() {
+        Partition garage = new Partition("Garage");
+        service.addPartition(garage);
+        Sensor garageDoor = new Sensor("Garage Door", SensorType.DOOR);
+        garageDoor.setPartitionId(garage.getPartitionId());
+        service.addSensor(garageDoor);
+        service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        service.changeSensorActivationStatus(door, true);
+        service.changeSensorActivationStatus(garageDoor, true);
+        service.changeSensorActivationStatus(garageDoor, true);
+        assertEquals(AlarmStatus.ALARM, service.getAlarmStatus(garage.getPartitionId()));
+        service.close();
+
+        //a restart loses the running timers; setting the delays starts them again
+        service = fixture.newService(new FakeImageService());
+        service.setEntryDelay(Duration.ofSeconds(30));
+        service.setAlarmResetDelay(Duration.ofMinutes(5));
+        assertEquals(2, timerWheel.pendingTimers());
+
+        fixture.advance(Duration.ofSeconds(30));
+        assertEquals(AlarmStatus.ALARM, service.getAlarmStatus(null));
+        fixture.advance(Duration.ofMinutes(5));
+        assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus(garage.getPartitionId()));
+        assertEquals(ArmingStatus.ARMED_AWAY, service.getArmingStatus(garage.getPartitionId()));
+    }
+
+    @Test
+    public void withoutDelays_noTimersAreScheduled() {
+        service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        service.changeSensorActivationStatus(door, true);
+        assertEquals(0, timerWheel.pendingTimers());
+        fixture.advance(Duration.ofHours(1));
+        assertEquals(AlarmStatus.PENDING_ALARM, service.getAlarmStatus());
+    }
+
+    @Test
+    public void whenClosed_runningTimersAreCancelled() {
+        service.setEntryDelay(Duration.ofSeconds(30));
+        service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        service.changeSensorActivationStatus(door, true);
+
+        service.close();
+        assertEquals(0, timerWheel.pendingTimers());
+        fixture.advance(Duration.ofMinutes(1));
+        assertEquals(AlarmStatus.PENDING_ALARM, service.getAlarmStatus());
+    }
+}
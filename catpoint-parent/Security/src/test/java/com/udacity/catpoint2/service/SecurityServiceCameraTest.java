@@ -0,0 +1,153 @@
+package com.udacity.catpoint2.service;
+
+import com.udacity.catpoint.service.ImageService;
+import com.udacity.catpoint2.data.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that cameras keep their own cat detection and that the alarm follows whether any camera
+ * sees a cat.
+ */
+public class SecurityServiceCameraTest {
+    //frames two pixels wide show a cat, frames one pixel wide don't
+    private static final BufferedImage CAT = new BufferedImage(2, 1, BufferedImage.TYPE_INT_RGB);
+    private static final BufferedImage NO_CAT = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+
+    private final SecurityServiceFixture fixture = new SecurityServiceFixture();
+    private SecurityService service;
+
+    @BeforeEach
+    public void setup() {
+        ImageService widthIsCat = new ImageService() {
+            @Override
+            public boolean imageContainsCat() {
+                return false;
+            }
+
+            @Override
+            public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+                return image.getWidth() > 1;
+            }
+        };
+        service = fixture.newService(widthIsCat);
+    }
+
+    @AfterEach
+    public void close() throws Exception {
+        fixture.close();
+    }
+
+    @Test
+    public void whenOneCameraStopsSeeingACat_anotherCamerasCatKeepsTheAlarm() throws Exception {
+        service.setArmingStatus(ArmingStatus.ARMED_HOME);
+        service.processImage("front", CAT).get();
+        service.processImage("back", CAT).get();
+        assertEquals(AlarmStatus.ALARM, service.getAlarmStatus());
+
+        service.processImage("front", NO_CAT).get();
+        assertEquals(AlarmStatus.ALARM, service.getAlarmStatus());
+        assertFalse(service.isCatDetected("front"));
+        assertTrue(service.isCatDetected("back"));
+        assertEquals(1, service.getCatDetectedCameraCount());
+
+        service.processImage("back", NO_CAT).get();
+        assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus());
+        assertFalse(service.isCatDetected());
+    }
+
+    @Test
+    public void whenArmedHomeWhileAnyCameraSeesACat_alarmIsRaised() throws Exception {
+        service.processImage("front", CAT).get();
+        service.processImage("back", NO_CAT).get();
+        assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus());
+
+        service.setArmingStatus(ArmingStatus.ARMED_HOME);
+        assertEquals(AlarmStatus.ALARM, service.getAlarmStatus());
+    }
+
+    @Test
+    public void registeredCameras_trackTheirOwnState() throws Exception {
+        Camera front = new Camera("front", "Front door");
+        Camera yard = new Camera("yard", "Back yard");
+        service.addCamera(front);
+        service.addCamera(yard);
+        service.setArmingStatus(ArmingStatus.ARMED_HOME);
+        service.processImage("yard", CAT).get();
+
+        assertEquals(List.of(yard, front), service.getCameras());
+        assertTrue(yard.getCatDetected());
+        assertFalse(front.getCatDetected());
+
+        //the camera that saw the cat going away clears the alarm, as a no-cat answer would
+        service.removeCamera(yard);
+        assertFalse(service.isCatDetected());
+        assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus());
+        assertEquals(List.of(front), service.getCameras());
+    }
+
+    @Test
+    public void whenCameraRemovedWhileClassifying_itsAnswerIsIgnored() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ImageService slowCatService = new ImageService() {
+            @Override
+            public boolean imageContainsCat() {
+                return false;
+            }
+
+            @Override
+            public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+                started.countDown();
+                //finish the classification even when interrupted, as a service that ignores
+                // interrupts would
+                while (true) {
+                    try {
+                        release.await();
+                        return true;
+                    } catch (InterruptedException e) {
+                        //keep waiting
+                    }
+                }
+            }
+        };
+        SecurityService slowService = fixture.newService(new InMemorySecurityRepository(), slowCatService);
+        Camera yard = new Camera("yard", "Back yard");
+        slowService.addCamera(yard);
+        slowService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        CompletableFuture<?> frame = slowService.processImage("yard", CAT);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        slowService.removeCamera(yard);
+        release.countDown();
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> frame.get(5, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof CancellationException);
+        assertFalse(slowService.isCatDetected());
+        assertEquals(AlarmStatus.NO_ALARM, slowService.getAlarmStatus());
+    }
+
+    @Test
+    public void manyCameras_countOnlyThoseSeeingACat() throws Exception {
+        for (int i = 0; i < 200; i++) {
+            service.processImage("camera " + i, i % 3 == 0 ? CAT : NO_CAT).get();
+        }
+        assertEquals(67, service.getCatDetectedCameraCount());
+        assertTrue(service.isCatDetected("camera 198"));
+        assertFalse(service.isCatDetected("camera 199"));
+        for (int i = 0; i < 200; i += 3) {
+            service.processImage("camera " + i, NO_CAT).get();
+        }
+        assertFalse(service.isCatDetected());
+    }
+}
@@ -0,0 +1,154 @@
+package com.udacity.catpoint2.service;
+
+import com.udacity.catpoint.service.ClassificationResult;
+import com.udacity.catpoint.service.ImageService;
+import com.udacity.catpoint2.application.StatusListener;
+import com.udacity.catpoint2.data.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hammers a single SecurityService from many threads and checks that the alarm state machine never
+ * reaches a state that a sequential run couldn't produce.
+ */
+public class SecurityServiceConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 2_000;
+    private static final int ROUNDS = 5;
+
+    @TempDir
+    Path dir;
+
+    private final SecurityServiceFixture fixture = new SecurityServiceFixture();
+
+    @AfterEach
+    public void close() throws Exception {
+        fixture.close();
+    }
+
+    @Test
+    public void whenHammeredFromManyThreads_alarmInvariantsHold() throws InterruptedException {
+        for (int round = 0; round < ROUNDS; round++) {
+            runRound(dir.resolve("round" + round));
+        }
+    }
+
+    @Test
+    public void whenFrameProcessedAsynchronously_resultIsAppliedOffTheCallingThread() throws Exception {
+        AtomicReference<Thread> classifierThread = new AtomicReference<>();
+        ImageService camera = () -> {
+            classifierThread.set(Thread.currentThread());
+            return true;
+        };
+        SecurityService service = fixture.newService(camera);
+        service.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+        assertTrue(service.processImage("front", (BufferedImage) null).get().isCat());
+        assertEquals(AlarmStatus.ALARM, service.getAlarmStatus());
+        assertNotEquals(Thread.currentThread(), classifierThread.get());
+    }
+
+    private void runRound(Path repositoryDir) throws InterruptedException {
+        //on the write-ahead log, so the end of the round can check what was persisted
+        WriteAheadLogSecurityRepositoryImpl repository = new WriteAheadLogSecurityRepositoryImpl(repositoryDir);
+        ImageService camera = () -> ThreadLocalRandom.current().nextInt(4) == 0;
+        SecurityService service = fixture.newService(repository, camera);
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            Sensor sensor = new Sensor("Zone " + i, SensorType.values()[i % 3]);
+            sensors.add(sensor);
+            service.addSensor(sensor);
+        }
+
+        //a pending alarm can only be raised while armed; seeing one while disarmed means a transition
+        // was computed from stale state
+        AtomicInteger violations = new AtomicInteger();
+        service.addStatusListener(new StatusListener() {
+            @Override
+            public void notify(AlarmStatus status) {
+                if (status == AlarmStatus.PENDING_ALARM && service.getArmingStatus() == ArmingStatus.DISARMED) {
+                    violations.incrementAndGet();
+                }
+            }
+
+            @Override
+            public void catDetected(boolean catDetected) {
+            }
+
+            @Override
+            public void sensorStatusChanged() {
+            }
+        });
+
+        CountDownLatch start = new CountDownLatch(1);
+        Queue<CompletableFuture<ClassificationResult>> scans = new ConcurrentLinkedQueue<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        int op = random.nextInt(10);
+                        if (op < 6) {
+                            Sensor sensor = sensors.get(random.nextInt(sensors.size()));
+                            service.changeSensorActivationStatus(sensor, random.nextBoolean());
+                        } else if (op < 8) {
+                            service.setArmingStatus(ArmingStatus.values()[random.nextInt(3)]);
+                        } else if (op < 9) {
+                            service.processImage();
+                        } else {
+                            scans.add(service.processImage("camera " + random.nextInt(3), (BufferedImage) null));
+                        }
+                        //unlocked reads must always see a valid value
+                        assertNotNull(service.getAlarmStatus());
+                        assertNotNull(service.getArmingStatus());
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        //superseded frames are cancelled; only wait for the rest to be applied
+        CompletableFuture.allOf(scans.stream()
+                .map(scan -> scan.handle((cat, error) -> cat))
+                .toArray(CompletableFuture[]::new)).join();
+
+        assertNull(failure.get());
+        assertEquals(0, violations.get());
+        if (service.getArmingStatus() == ArmingStatus.DISARMED) {
+            assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus());
+        }
+        assertEquals(sensors.stream().filter(Sensor::getActive).count(), service.getActiveSensorCount());
+        repository.close();
+
+        //the persisted state must agree with what the threads left behind
+        WriteAheadLogSecurityRepositoryImpl reopened = new WriteAheadLogSecurityRepositoryImpl(repositoryDir);
+        assertEquals(service.getAlarmStatus(), reopened.getAlarmStatus());
+        assertEquals(service.getArmingStatus(), reopened.getArmingStatus());
+        assertEquals(service.getActiveSensorCount(), reopened.getActiveSensorCount());
+        reopened.close();
+    }
+}
@@ -0,0 +1,65 @@
+package com.udacity.catpoint2.service;
+
+import com.udacity.catpoint.service.AsyncImageClassifier;
+import com.udacity.catpoint.service.ImageService;
+import com.udacity.catpoint2.data.InMemorySecurityRepository;
+import com.udacity.catpoint2.data.SecurityRepository;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared setup for the SecurityService tests: an in-memory repository and a timer wheel on a clock
+ * the test moves by hand. Services opened through the fixture, and the image classifiers they run
+ * on, are closed with it.
+ */
+final class SecurityServiceFixture implements AutoCloseable {
+
+    private final AtomicLong now = new AtomicLong();
+    private final TimerWheel timerWheel = new TimerWheel(now::get, 1, TimeUnit.MILLISECONDS, 512);
+    private final InMemorySecurityRepository repository = new InMemorySecurityRepository();
+    private final Deque<AutoCloseable> opened = new ArrayDeque<>();
+
+    InMemorySecurityRepository repository() {
+        return repository;
+    }
+
+    TimerWheel timerWheel() {
+        return timerWheel;
+    }
+
+    /**
+     * Opens a service on the fixture's repository. Opening another one on it afterwards is like
+     * restarting the system.
+     */
+    SecurityService newService(ImageService imageService) {
+        return newService(repository, imageService);
+    }
+
+    SecurityService newService(SecurityRepository securityRepository, ImageService imageService) {
+        AsyncImageClassifier classifier = new AsyncImageClassifier(imageService, 2, 10, TimeUnit.SECONDS);
+        opened.push(classifier);
+        SecurityService service = new SecurityService(securityRepository, imageService, StatusEventBus.synchronous(),
+                classifier, timerWheel);
+        opened.push(service);
+        return service;
+    }
+
+    /**
+     * Moves the clock forward and fires the timers that are due.
+     */
+    void advance(Duration duration) {
+        now.addAndGet(duration.toNanos());
+        timerWheel.advance();
+    }
+
+    @Override
+    public void close() throws Exception {
+        while (!opened.isEmpty()) {
+            opened.pop().close();
+        }
+    }
+}
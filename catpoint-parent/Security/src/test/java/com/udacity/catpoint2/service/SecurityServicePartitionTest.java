@@ -0,0 +1,107 @@
+package com.udacity.catpoint2.service;
+
+import com.udacity.catpoint.service.FakeImageService;
+import com.udacity.catpoint2.data.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that partitions are armed and alarmed on their own and that the site status follows them.
+ */
+public class SecurityServicePartitionTest {
+
+    private final SecurityServiceFixture fixture = new SecurityServiceFixture();
+    private SecurityService service;
+    private Partition garage;
+    private Sensor frontDoor;
+    private Sensor garageDoor;
+
+    @BeforeEach
+    public void setup() {
+        service = fixture.newService(new FakeImageService());
+        garage = new Partition("Garage");
+        service.addPartition(garage);
+        frontDoor = new Sensor("Front Door", SensorType.DOOR);
+        garageDoor = new Sensor("Garage Door", SensorType.DOOR);
+        garageDoor.setPartitionId(garage.getPartitionId());
+        service.addSensor(frontDoor);
+        service.addSensor(garageDoor);
+    }
+
+    @AfterEach
+    public void close() throws Exception {
+        fixture.close();
+    }
+
+    @Test
+    public void whenPartitionArmed_onlyItsSensorsAreReset() {
+        service.changeSensorActivationStatus(frontDoor, true);
+        service.changeSensorActivationStatus(garageDoor, true);
+
+        service.setArmingStatus(garage.getPartitionId(), ArmingStatus.ARMED_AWAY);
+
+        assertTrue(service.getSensor(frontDoor.getSensorId()).getActive());
+        assertFalse(service.getSensor(garageDoor.getSensorId()).getActive());
+        assertEquals(ArmingStatus.DISARMED, service.getArmingStatus(null));
+        assertEquals(ArmingStatus.ARMED_AWAY, service.getArmingStatus(garage.getPartitionId()));
+        assertEquals(ArmingStatus.ARMED_AWAY, service.getSiteArmingStatus());
+    }
+
+    @Test
+    public void whenSensorInDisarmedPartitionActivated_noAlarmEvenIfAnotherPartitionArmed() {
+        service.setArmingStatus(garage.getPartitionId(), ArmingStatus.ARMED_HOME);
+
+        service.changeSensorActivationStatus(frontDoor, true);
+
+        assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus(null));
+        assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus(garage.getPartitionId()));
+        assertEquals(AlarmStatus.NO_ALARM, service.getSiteAlarmStatus());
+    }
+
+    @Test
+    public void siteAlarmStatus_isTheMostSevereOfAnyPartition() {
+        service.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+        service.changeSensorActivationStatus(frontDoor, true);
+        assertEquals(AlarmStatus.PENDING_ALARM, service.getSiteAlarmStatus());
+        service.changeSensorActivationStatus(garageDoor, true);
+        service.changeSensorActivationStatus(garageDoor, true);
+        assertEquals(AlarmStatus.ALARM, service.getAlarmStatus(garage.getPartitionId()));
+        assertEquals(AlarmStatus.PENDING_ALARM, service.getAlarmStatus(null));
+        assertEquals(AlarmStatus.ALARM, service.getSiteAlarmStatus());
+
+        service.setArmingStatus(garage.getPartitionId(), ArmingStatus.DISARMED);
+        assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus(garage.getPartitionId()));
+        assertEquals(AlarmStatus.PENDING_ALARM, service.getSiteAlarmStatus());
+    }
+
+    @Test
+    public void whenPartitionRemoved_itsSensorsJoinTheMainPartition() {
+        service.removePartition(garage);
+
+        assertTrue(service.getPartitions().isEmpty());
+        assertNull(service.getSensor(garageDoor.getSensorId()).getPartitionId());
+        assertEquals(2, service.getSensorsInPartition(null).size());
+        assertThrows(IllegalArgumentException.class, () -> service.setArmingStatus(garage.getPartitionId(), ArmingStatus.ARMED_HOME));
+    }
+
+    @Test
+    public void whenReopened_partitionsAndMembershipArePreserved() {
+        service.setArmingStatus(garage.getPartitionId(), ArmingStatus.ARMED_AWAY);
+        service.changeSensorActivationStatus(garageDoor, true);
+        service.close();
+
+        service = fixture.newService(new FakeImageService());
+
+        assertEquals(1, service.getPartitions().size());
+        assertEquals("Garage", service.getPartitions().get(0).getName());
+        assertEquals(ArmingStatus.ARMED_AWAY, service.getArmingStatus(garage.getPartitionId()));
+        assertEquals(AlarmStatus.PENDING_ALARM, service.getSiteAlarmStatus());
+        assertEquals(1, service.getSensorsInPartition(garage.getPartitionId()).size());
+        assertEquals(1, fixture.repository().getActiveSensorCountInPartition(garage.getPartitionId()));
+        assertEquals(0, fixture.repository().getActiveSensorCountInPartition(null));
+    }
+}
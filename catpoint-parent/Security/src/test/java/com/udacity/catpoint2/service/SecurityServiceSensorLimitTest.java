@@ -0,0 +1,64 @@
+package com.udacity.catpoint2.service;
+
+import com.udacity.catpoint.service.FakeImageService;
+import com.udacity.catpoint2.data.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the configurable sensor limit and that a large installation survives a restart.
+ */
+public class SecurityServiceSensorLimitTest {
+
+    private final SecurityServiceFixture fixture = new SecurityServiceFixture();
+    private SecurityService service;
+
+    @BeforeEach
+    public void setup() {
+        service = fixture.newService(new FakeImageService());
+    }
+
+    @AfterEach
+    public void close() throws Exception {
+        fixture.close();
+    }
+
+    @Test
+    public void whenLimitReached_newSensorsAreRefusedButKnownOnesCanBeReplaced() {
+        service.setSensorLimit(2);
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        service.addSensor(door);
+        service.addSensor(new Sensor("Window", SensorType.WINDOW));
+
+        assertThrows(IllegalStateException.class, () -> service.addSensor(new Sensor("Motion", SensorType.MOTION)));
+        service.addSensor(door);
+        assertEquals(2, service.getSensors().size());
+
+        service.removeSensor(door);
+        service.addSensor(new Sensor("Motion", SensorType.MOTION));
+        assertEquals(2, service.getSensors().size());
+    }
+
+    @Test
+    public void manySensors_surviveARestartAndArmingResetsOnlyTheActiveOnes() {
+        int count = 10_000;
+        for (int i = 0; i < count; i++) {
+            Sensor sensor = new Sensor("Sensor " + i, SensorType.values()[i % SensorType.values().length]);
+            service.addSensor(sensor);
+            if (i % 100 == 0) {
+                service.changeSensorActivationStatus(sensor, true);
+            }
+        }
+        service.close();
+        service = fixture.newService(new FakeImageService());
+
+        assertEquals(count, service.getSensors().size());
+        assertEquals(count / 100, service.getActiveSensors().size());
+        service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        assertEquals(0, service.getActiveSensorCount());
+        assertTrue(service.getActiveSensors().isEmpty());
+    }
+}
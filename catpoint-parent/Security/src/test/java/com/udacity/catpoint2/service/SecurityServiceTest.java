@@ -3,6 +3,7 @@ package com.udacity.catpoint2.service;
 import com.udacity.catpoint.service.ImageService;
 import com.udacity.catpoint2.application.StatusListener;
 import com.udacity.catpoint2.data.*;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,6 +13,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -32,6 +34,10 @@ public class SecurityServiceTest {
     public void setup() {
         securityService = new SecurityService(securityRepository, imageService);
     }
+    @AfterEach
+    public void close() {
+        securityService.close();
+    }
     @Test
     public void whenArmedAndSensorActivated_setPendingAlarm() {
         when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
@@ -102,7 +108,7 @@ public class SecurityServiceTest {
         // Given
         when(imageService.imageContainsCat()).thenReturn(false);
         when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.PENDING_ALARM);
-        when(securityRepository.getSensors()).thenReturn(new HashSet<>());
+        when(securityRepository.anySensorActive()).thenReturn(false);
         securityService.processImage();
         verify(securityRepository).setAlarmStatus(AlarmStatus.NO_ALARM);
     }
@@ -111,16 +117,35 @@ public class SecurityServiceTest {
         // Given
         Sensor sensor1 = new Sensor("Door", SensorType.DOOR);
         Sensor sensor2 = new Sensor("Window", SensorType.WINDOW);
-        Set<Sensor> sensors = new HashSet<>();
-        sensors.add(sensor1);
-        sensors.add(sensor2);
-        when(securityRepository.getSensors()).thenReturn(sensors);
+        sensor1.setActive(true);
+        sensor2.setActive(true);
+        when(securityRepository.getActiveSensors()).thenReturn(List.of(sensor1, sensor2));
         // When
         securityService.armSystem(ArmingStatus.ARMED_HOME);
         // Then
         assertFalse(sensor1.getActive());
         assertFalse(sensor2.getActive());
-        verify(securityRepository, times(2)).updateSensor(any(Sensor.class));
+        verify(securityRepository, times(1)).updateSensors(argThat(batch -> batch.size() == 2));
+        verify(securityRepository, never()).updateSensor(any(Sensor.class));
+    }
+    @Test
+    public void whenSystemArmedWithNoActiveSensors_nothingIsPersisted() {
+        when(securityRepository.getActiveSensors()).thenReturn(List.of());
+        securityService.armSystem(ArmingStatus.ARMED_AWAY);
+        verify(securityRepository, never()).updateSensors(anyCollection());
+        verify(securityRepository, never()).updateSensor(any(Sensor.class));
+    }
+    @Test
+    public void whenBatchOfActivationsApplied_sensorsPersistedOnceAndAlarmSetOnce() {
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_AWAY);
+        when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.NO_ALARM);
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        Sensor window = new Sensor("Window", SensorType.WINDOW);
+        securityService.changeSensorActivationStatuses(new Sensor[]{door, window}, new boolean[]{true, true}, 2);
+        verify(securityRepository, times(1)).updateSensors(argThat(batch -> batch.size() == 2));
+        verify(securityRepository, never()).updateSensor(any(Sensor.class));
+        verify(securityRepository, times(1)).setAlarmStatus(AlarmStatus.ALARM);
+        verify(securityRepository, never()).setAlarmStatus(AlarmStatus.PENDING_ALARM);
     }
     @Test
     public void testSensorStatusChangedNotification() {
@@ -0,0 +1,187 @@
+package com.udacity.catpoint2.service;
+
+import com.udacity.catpoint.service.FakeImageService;
+import com.udacity.catpoint2.data.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that bouncing sensors reach the service as single changes, against a clock the test moves
+ * by hand.
+ */
+public class SensorDebouncerTest {
+
+    private final SecurityServiceFixture fixture = new SecurityServiceFixture();
+    private TimerWheel timerWheel;
+    private SecurityService service;
+    private SensorDebouncer debouncer;
+    private Sensor door;
+
+    @BeforeEach
+    public void setup() {
+        timerWheel = fixture.timerWheel();
+        service = fixture.newService(new FakeImageService());
+        debouncer = new SensorDebouncer(service, timerWheel);
+        debouncer.setDebounceTime(SensorType.DOOR, Duration.ofMillis(50));
+        door = new Sensor("Door", SensorType.DOOR);
+        service.addSensor(door);
+    }
+
+    @AfterEach
+    public void close() throws Exception {
+        fixture.close();
+    }
+
+    @Test
+    public void whenContactBounces_serviceSeesOneChange() {
+        service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        for (int i = 0; i < 5; i++) {
+            debouncer.offer(door.getSensorId(), true);
+            fixture.advance(Duration.ofMillis(2));
+            debouncer.offer(door.getSensorId(), false);
+            fixture.advance(Duration.ofMillis(2));
+        }
+        debouncer.offer(door.getSensorId(), true);
+        assertFalse(service.getSensor(door.getSensorId()).getActive());
+
+        fixture.advance(Duration.ofMillis(50));
+        assertTrue(service.getSensor(door.getSensorId()).getActive());
+        //a single activation only makes the alarm pending
+        assertEquals(AlarmStatus.PENDING_ALARM, service.getAlarmStatus());
+        assertEquals(11, debouncer.getChangeCount());
+        assertEquals(1, debouncer.getAppliedCount());
+    }
+
+    @Test
+    public void whenBurstEndsInTheStartingState_nothingIsPassedOn() {
+        debouncer.offer(door.getSensorId(), true);
+        fixture.advance(Duration.ofMillis(5));
+        debouncer.offer(door.getSensorId(), false);
+        fixture.advance(Duration.ofMillis(100));
+
+        assertFalse(service.getSensor(door.getSensorId()).getActive());
+        assertEquals(0, debouncer.getAppliedCount());
+        assertEquals(0, timerWheel.pendingTimers());
+    }
+
+    @Test
+    public void whenArmingResetsSensor_nextActivationIsPassedOn() {
+        debouncer.offer(door.getSensorId(), true);
+        fixture.advance(Duration.ofMillis(50));
+        assertTrue(service.getSensor(door.getSensorId()).getActive());
+
+        service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        assertFalse(service.getSensor(door.getSensorId()).getActive());
+        debouncer.offer(door.getSensorId(), true);
+        fixture.advance(Duration.ofMillis(50));
+
+        assertTrue(service.getSensor(door.getSensorId()).getActive());
+        assertEquals(AlarmStatus.PENDING_ALARM, service.getAlarmStatus());
+        assertEquals(2, debouncer.getAppliedCount());
+    }
+
+    @Test
+    public void whenSensorToggledElsewhere_readingsAreComparedWithItsNewState() {
+        debouncer.offer(door.getSensorId(), false);
+        service.changeSensorActivationStatus(door, true);
+
+        debouncer.offer(door.getSensorId(), true);
+        fixture.advance(Duration.ofMillis(50));
+        assertEquals(0, debouncer.getAppliedCount());
+
+        debouncer.offer(door.getSensorId(), false);
+        fixture.advance(Duration.ofMillis(50));
+        assertFalse(service.getSensor(door.getSensorId()).getActive());
+        assertEquals(1, debouncer.getAppliedCount());
+    }
+
+    @Test
+    public void debounceTimeDependsOnSensorType() {
+        Sensor motion = new Sensor("Hall", SensorType.MOTION);
+        service.addSensor(motion);
+        debouncer.setDebounceTime(SensorType.MOTION, Duration.ofMillis(500));
+        debouncer.setDebounceTime(SensorType.WINDOW, Duration.ZERO);
+        Sensor window = new Sensor("Window", SensorType.WINDOW);
+        service.addSensor(window);
+
+        debouncer.offer(door.getSensorId(), true);
+        debouncer.offer(motion.getSensorId(), true);
+        debouncer.offer(window.getSensorId(), true);
+        assertTrue(service.getSensor(window.getSensorId()).getActive());
+
+        fixture.advance(Duration.ofMillis(100));
+        assertTrue(service.getSensor(door.getSensorId()).getActive());
+        assertFalse(service.getSensor(motion.getSensorId()).getActive());
+        fixture.advance(Duration.ofMillis(400));
+        assertTrue(service.getSensor(motion.getSensorId()).getActive());
+    }
+
+    @Test
+    public void sensorWithoutType_usesTheDefaultDebounceTime() {
+        Sensor untyped = new Sensor("Unknown", null);
+        service.addSensor(untyped);
+        debouncer.setDebounceTime(SensorType.DOOR, Duration.ZERO);
+
+        assertTrue(debouncer.offer(untyped.getSensorId(), true));
+        fixture.advance(Duration.ofMillis(49));
+        assertFalse(service.getSensor(untyped.getSensorId()).getActive());
+        fixture.advance(Duration.ofMillis(1));
+        assertTrue(service.getSensor(untyped.getSensorId()).getActive());
+    }
+
+    @Test
+    public void whenSensorFlaps_itsChangesAreHeldUntilItIsQuietForAWindow() {
+        debouncer.setFlapSuppression(4, Duration.ofSeconds(10));
+        boolean state = false;
+        for (int i = 0; i < 6; i++) {
+            state = !state;
+            debouncer.offer(door.getSensorId(), state);
+            fixture.advance(Duration.ofMillis(100));
+        }
+        assertTrue(debouncer.isFlapping(door.getSensorId()));
+        assertEquals(1, debouncer.getFlappingSensorCount());
+        assertTrue(debouncer.getFlapRate(door.getSensorId()) > 1);
+        int appliedWhileFlapping = (int) debouncer.getAppliedCount();
+
+        debouncer.offer(door.getSensorId(), true);
+        fixture.advance(Duration.ofSeconds(9));
+        assertEquals(appliedWhileFlapping, debouncer.getAppliedCount());
+
+        fixture.advance(Duration.ofSeconds(1));
+        assertFalse(debouncer.isFlapping(door.getSensorId()));
+        assertEquals(0, debouncer.getFlappingSensorCount());
+        assertTrue(service.getSensor(door.getSensorId()).getActive());
+    }
+
+    @Test
+    public void whenManySensorsTrackedAndSomeForgotten_remainingOnesStillDebounce() {
+        debouncer.setDebounceTime(SensorType.DOOR, Duration.ZERO);
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            Sensor sensor = new Sensor("Door " + i, SensorType.DOOR);
+            service.addSensor(sensor);
+            sensors.add(sensor);
+            debouncer.offer(sensor.getSensorId(), false);
+        }
+        for (int i = 0; i < sensors.size(); i += 2) {
+            debouncer.forget(sensors.get(i).getSensorId());
+        }
+        assertEquals(500, debouncer.getTrackedSensorCount());
+
+        for (Sensor sensor : sensors) {
+            debouncer.offer(sensor.getSensorId(), true);
+        }
+        assertEquals(1_000, service.getActiveSensorCount());
+        assertEquals(1_000, debouncer.getTrackedSensorCount());
+        assertFalse(debouncer.offer(UUID.randomUUID(), true));
+        assertEquals(1, debouncer.getUnknownSensorCount());
+    }
+}
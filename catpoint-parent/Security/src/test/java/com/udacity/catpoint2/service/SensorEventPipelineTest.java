@@ -0,0 +1,146 @@
+package com.udacity.catpoint2.service;
+
+import com.udacity.catpoint.service.FakeImageService;
+import com.udacity.catpoint2.data.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SensorEventPipelineTest {
+    private final SecurityServiceFixture fixture = new SecurityServiceFixture();
+
+    @AfterEach
+    public void close() throws Exception {
+        fixture.close();
+    }
+
+    @Test
+    public void whenEventsApplied_alarmStateMatchesDirectCalls() throws InterruptedException {
+        SecurityService direct = newService();
+        SecurityService piped = newService();
+        Sensor[] directSensors = addSensors(direct, 20);
+        Sensor[] pipedSensors = addSensors(piped, 20);
+        direct.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        piped.setArmingStatus(ArmingStatus.ARMED_AWAY);
+
+        SensorEventPipeline pipeline = new SensorEventPipeline(piped, 64, 16, SensorEventPipeline.OverflowPolicy.BLOCK, false);
+        pipeline.start();
+        Random random = new Random(7);
+        for (int i = 0; i < 1_000; i++) {
+            int n = random.nextInt(20);
+            boolean active = random.nextBoolean();
+            direct.changeSensorActivationStatus(directSensors[n], active);
+            assertTrue(pipeline.offer(pipedSensors[n].getSensorId(), active));
+        }
+        pipeline.stop();
+
+        assertEquals(1_000, pipeline.getAppliedCount());
+        assertEquals(0, pipeline.getQueueSize());
+        assertEquals(direct.getAlarmStatus(), piped.getAlarmStatus());
+        assertEquals(direct.getActiveSensorCount(), piped.getActiveSensorCount());
+    }
+
+    @Test
+    public void whenBufferFullWithDropNewest_extraEventsAreRejected() throws InterruptedException {
+        SecurityService service = newService();
+        Sensor sensor = addSensors(service, 1)[0];
+        //writer not started, so nothing drains the buffer
+        SensorEventPipeline pipeline = new SensorEventPipeline(service, 4, 4, SensorEventPipeline.OverflowPolicy.DROP_NEWEST, false);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(pipeline.offer(sensor.getSensorId(), i % 2 == 0));
+        }
+        assertFalse(pipeline.offer(sensor.getSensorId(), true));
+        assertEquals(1, pipeline.getDroppedCount());
+        assertEquals(4, pipeline.getQueueSize());
+    }
+
+    @Test
+    public void whenMerging_flappingSensorIsAppliedOncePerBatch() throws InterruptedException {
+        SecurityService service = newService();
+        Sensor sensor = addSensors(service, 1)[0];
+        SensorEventPipeline pipeline = new SensorEventPipeline(service, 16, 16, SensorEventPipeline.OverflowPolicy.BLOCK, true);
+        for (int i = 0; i < 9; i++) {
+            pipeline.offer(sensor.getSensorId(), i % 2 == 0);
+        }
+        pipeline.offer(UUID.randomUUID(), true);
+        pipeline.start();
+        pipeline.stop();
+        assertEquals(1, pipeline.getAppliedCount());
+        assertEquals(8, pipeline.getMergedCount());
+        assertEquals(1, pipeline.getUnknownSensorCount());
+        assertTrue(service.getSensor(sensor.getSensorId()).getActive());
+    }
+
+    @Test
+    public void whenBatchFails_laterEventsAreStillApplied() throws InterruptedException {
+        AtomicBoolean failNext = new AtomicBoolean(true);
+        SecurityService service = fixture.newService(new InMemorySecurityRepository() {
+            @Override
+            public synchronized void updateSensors(Collection<Sensor> updated) {
+                if (failNext.getAndSet(false)) {
+                    throw new IllegalStateException("disk full");
+                }
+                super.updateSensors(updated);
+            }
+        }, new FakeImageService());
+        Sensor[] sensors = addSensors(service, 2);
+        //one event per batch, so only the first batch fails
+        SensorEventPipeline pipeline = new SensorEventPipeline(service, 16, 1, SensorEventPipeline.OverflowPolicy.BLOCK, false);
+        pipeline.offer(sensors[0].getSensorId(), true);
+        pipeline.offer(sensors[1].getSensorId(), true);
+        pipeline.start();
+        pipeline.stop();
+
+        assertEquals(1, pipeline.getFailedBatchCount());
+        assertEquals(1, pipeline.getAppliedCount());
+        assertEquals(0, pipeline.getQueueSize());
+        assertTrue(service.getSensor(sensors[1].getSensorId()).getActive());
+    }
+
+    @Test
+    public void withDebouncer_bouncingContactIsAppliedOnceItSettles() throws InterruptedException {
+        SecurityService service = newService();
+        Sensor sensor = addSensors(service, 1)[0];
+        SensorDebouncer debouncer = new SensorDebouncer(service, fixture.timerWheel());
+        debouncer.setDebounceTime(sensor.getSensorType(), Duration.ofMillis(50));
+        SensorEventPipeline pipeline = new SensorEventPipeline(service, debouncer, 16, 16,
+                SensorEventPipeline.OverflowPolicy.BLOCK, false);
+        for (int i = 0; i < 9; i++) {
+            pipeline.offer(sensor.getSensorId(), i % 2 == 0);
+        }
+        pipeline.offer(UUID.randomUUID(), true);
+        pipeline.start();
+        pipeline.stop();
+        assertEquals(9, pipeline.getAppliedCount());
+        assertEquals(1, pipeline.getUnknownSensorCount());
+        assertFalse(service.getSensor(sensor.getSensorId()).getActive());
+
+        fixture.advance(Duration.ofMillis(50));
+        assertTrue(service.getSensor(sensor.getSensorId()).getActive());
+        assertEquals(1, debouncer.getAppliedCount());
+    }
+
+    /**
+     * @return a service with a repository of its own
+     */
+    private SecurityService newService() {
+        return fixture.newService(new InMemorySecurityRepository(), new FakeImageService());
+    }
+
+    private static Sensor[] addSensors(SecurityService service, int count) {
+        Sensor[] sensors = new Sensor[count];
+        for (int i = 0; i < count; i++) {
+            sensors[i] = new Sensor("Zone " + i, SensorType.values()[i % 3]);
+            service.addSensor(sensors[i]);
+        }
+        return sensors;
+    }
+
+}
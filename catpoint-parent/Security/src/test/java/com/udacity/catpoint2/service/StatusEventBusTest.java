@@ -0,0 +1,117 @@
+package com.udacity.catpoint2.service;
+
+import com.udacity.catpoint2.application.StatusListener;
+import com.udacity.catpoint2.data.AlarmStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StatusEventBusTest {
+    private final Queue<Runnable> pending = new ArrayDeque<>();
+    private StatusEventBus bus;
+    private RecordingListener listener;
+
+    @BeforeEach
+    public void setup() {
+        bus = new StatusEventBus(pending::add);
+        listener = new RecordingListener();
+        bus.register(listener);
+    }
+
+    @Test
+    public void whenUpdatesPublishedBeforeDelivery_listenerOnlySeesLatest() {
+        bus.publishAlarmStatus(AlarmStatus.PENDING_ALARM);
+        bus.publishAlarmStatus(AlarmStatus.ALARM);
+        bus.publishSensorStatusChanged();
+        bus.publishSensorStatusChanged();
+        bus.publishCatDetected(true);
+        bus.publishCatDetected(false);
+
+        assertEquals(1, pending.size());
+        assertEquals(6, bus.getMetrics(listener).getQueueDepth());
+        runPending();
+
+        assertEquals(List.of("notify ALARM", "cat false", "sensors"), listener.calls);
+        StatusEventBus.Metrics metrics = bus.getMetrics(listener);
+        assertEquals(0, metrics.getQueueDepth());
+        assertEquals(6, metrics.getPublished());
+        assertEquals(3, metrics.getDelivered());
+    }
+
+    @Test
+    public void whenCameraUpdatesPublishedBeforeDelivery_listenerSeesLatestPerCamera() {
+        bus.publishCameraStatus("front", true);
+        bus.publishCameraStatus("back", true);
+        bus.publishCameraStatus("front", false);
+        bus.publishCatDetected(true);
+        runPending();
+
+        assertEquals(List.of("camera front false", "camera back true", "cat true"), listener.calls);
+        assertEquals(3, bus.getMetrics(listener).getDelivered());
+    }
+
+    @Test
+    public void whenListenerHasOwnExecutor_deliveryUsesIt() {
+        Queue<Runnable> edt = new ArrayDeque<>();
+        RecordingListener gui = new RecordingListener();
+        bus.register(gui, edt::add);
+        bus.publishSensorStatusChanged();
+        assertEquals(1, edt.size());
+        edt.poll().run();
+        assertEquals(List.of("sensors"), gui.calls);
+    }
+
+    @Test
+    public void whenUnregisteredWithUpdatePending_nothingIsDelivered() {
+        bus.publishAlarmStatus(AlarmStatus.ALARM);
+        bus.unregister(listener);
+        runPending();
+        assertTrue(listener.calls.isEmpty());
+    }
+
+    @Test
+    public void synchronousBus_deliversEveryUpdateInline() {
+        StatusEventBus synchronous = StatusEventBus.synchronous();
+        RecordingListener inline = new RecordingListener();
+        synchronous.register(inline);
+        synchronous.publishAlarmStatus(AlarmStatus.PENDING_ALARM);
+        synchronous.publishAlarmStatus(AlarmStatus.ALARM);
+        assertEquals(List.of("notify PENDING_ALARM", "notify ALARM"), inline.calls);
+    }
+
+    private void runPending() {
+        while (!pending.isEmpty()) {
+            pending.poll().run();
+        }
+    }
+
+    private static class RecordingListener implements StatusListener {
+        private final List<String> calls = new ArrayList<>();
+
+        @Override
+        public void notify(AlarmStatus status) {
+            calls.add("notify " + status);
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+            calls.add("cat " + catDetected);
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+            calls.add("sensors");
+        }
+
+        @Override
+        public void cameraStatusChanged(String cameraId, boolean catDetected) {
+            calls.add("camera " + cameraId + " " + catDetected);
+        }
+    }
+}
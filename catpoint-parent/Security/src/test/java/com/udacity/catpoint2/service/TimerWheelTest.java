@@ -0,0 +1,110 @@
+package com.udacity.catpoint2.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimerWheelTest {
+    private static final long TICK_MILLIS = 10;
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+    private TimerWheel wheel;
+
+    @BeforeEach
+    public void setup() {
+        wheel = new TimerWheel(now::get, TICK_MILLIS, TimeUnit.MILLISECONDS, 8);
+    }
+
+    @Test
+    public void timersFireInDeadlineOrderAndNeverEarly() {
+        List<String> fired = new ArrayList<>();
+        wheel.schedule(t -> fired.add("late"), 250, TimeUnit.MILLISECONDS);
+        wheel.schedule(t -> fired.add("soon"), 15, TimeUnit.MILLISECONDS);
+
+        advanceMillis(14);
+        assertEquals(0, wheel.advance());
+        advanceMillis(6);
+        assertEquals(1, wheel.advance());
+        assertEquals(List.of("soon"), fired);
+
+        //more than one turn of the wheel later, the far timer is still waiting its turn
+        advanceMillis(200);
+        wheel.advance();
+        assertEquals(List.of("soon"), fired);
+        advanceMillis(30);
+        wheel.advance();
+        assertEquals(List.of("soon", "late"), fired);
+        assertEquals(0, wheel.pendingTimers());
+    }
+
+    @Test
+    public void cancelledTimersNeverFire() {
+        List<String> fired = new ArrayList<>();
+        TimerWheel.Timeout cancelled = wheel.schedule(t -> fired.add("cancelled"), 20, TimeUnit.MILLISECONDS);
+        TimerWheel.Timeout kept = wheel.schedule(t -> fired.add("kept"), 20, TimeUnit.MILLISECONDS);
+
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertEquals(1, wheel.pendingTimers());
+        advanceMillis(40);
+        wheel.advance();
+
+        assertEquals(List.of("kept"), fired);
+        assertTrue(cancelled.isCancelled());
+        assertTrue(kept.isExpired());
+        assertFalse(kept.cancel());
+    }
+
+    @Test
+    public void whenAdvancedLongAfterwards_everyExpiredTimerFiresOnce() {
+        Random random = new Random(42);
+        int[] counts = new int[5_000];
+        for (int i = 0; i < counts.length; i++) {
+            int index = i;
+            wheel.schedule(t -> counts[index]++, random.nextInt(2_000), TimeUnit.MILLISECONDS);
+        }
+        advanceMillis(1_000);
+        int firstHalf = wheel.advance();
+        advanceMillis(10_000);
+        assertEquals(counts.length, firstHalf + wheel.advance());
+        for (int count : counts) {
+            assertEquals(1, count);
+        }
+    }
+
+    @Test
+    public void tasksCanScheduleFurtherTimers() {
+        List<Integer> fired = new ArrayList<>();
+        wheel.schedule(t -> {
+            fired.add(1);
+            wheel.schedule(t2 -> fired.add(2), 10, TimeUnit.MILLISECONDS);
+        }, 10, TimeUnit.MILLISECONDS);
+        advanceMillis(10);
+        wheel.advance();
+        advanceMillis(10);
+        wheel.advance();
+        assertEquals(List.of(1, 2), fired);
+    }
+
+    @Test
+    public void whenStarted_tickerFiresTimersOnItsOwn() throws Exception {
+        TimerWheel systemWheel = new TimerWheel(System::nanoTime, 1, TimeUnit.MILLISECONDS, 64);
+        CountDownLatch fired = new CountDownLatch(1);
+        systemWheel.start();
+        systemWheel.schedule(t -> fired.countDown(), 20, TimeUnit.MILLISECONDS);
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        systemWheel.stop();
+    }
+
+    private void advanceMillis(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}